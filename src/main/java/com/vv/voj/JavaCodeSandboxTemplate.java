@@ -1,23 +1,42 @@
 package com.vv.voj;
 
 
+import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
+import com.vv.voj.checker.CheckerRunner;
+import com.vv.voj.checker.CheckerSession;
+import com.vv.voj.checker.InteractiveRunner;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.limit.LimitCalibrator;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.limit.RunLimits;
+import com.vv.voj.model.CheckerResult;
 import com.vv.voj.model.ExecuteCodeRequest;
 import com.vv.voj.model.ExecuteCodeResponse;
 import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.model.InteractionInfo;
 import com.vv.voj.model.JudgeInfo;
+import com.vv.voj.model.OutputDigest;
+import com.vv.voj.ordering.TestOrderTracker;
+import com.vv.voj.scheduler.AdaptiveConcurrencyLimiter;
+import com.vv.voj.scheduler.CpuCoreAllocator;
+import com.vv.voj.security.BytecodeScanner;
+import com.vv.voj.security.ForbiddenOperationException;
+import com.vv.voj.trace.Tracing;
+import com.vv.voj.utils.OutputDigester;
 import com.vv.voj.utils.ProcessUtils;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @Title: 模板方法
@@ -32,7 +51,38 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
 
     private static final String GLOBAL_JAVA_CLASS_NAME = "Main.java";
 
-    private static final long TIME_OUT = 5000L;
+    /**
+     * 超出时间限制
+     */
+    public static final String TIME_LIMIT_EXCEEDED = "代码运行超时";
+
+    /**
+     * 超出内存限制
+     */
+    public static final String MEMORY_LIMIT_EXCEEDED = "内存超限";
+
+    /**
+     * failFast 时输出与答案不一致，之后的用例不再运行
+     */
+    public static final String WRONG_ANSWER = "答案错误";
+
+    @Resource
+    protected CpuCoreAllocator cpuCoreAllocator;
+
+    @Resource
+    protected AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Resource
+    protected CheckerRunner checkerRunner;
+
+    @Resource
+    protected InteractiveRunner interactiveRunner;
+
+    @Resource
+    protected BytecodeScanner bytecodeScanner;
+
+    @Resource
+    protected LimitCalibrator limitCalibrator;
 
 
     /**
@@ -50,8 +100,9 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
         // 把用户的代码隔离存放
         String userCodeParentPath = globalCodePathName + File.separator + UUID.randomUUID();
         String userCodePath = userCodeParentPath + File.separator + GLOBAL_JAVA_CLASS_NAME;
-        File userCodeFile = FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
-        return userCodeFile;
+        try (Tracing.Span ignored = Tracing.span("file.write")) {
+            return FileUtil.writeString(code, userCodePath, StandardCharsets.UTF_8);
+        }
     }
 
     /**
@@ -62,7 +113,7 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
 
     public ExecuteMessage compileMessage(File userCodeFile) {
         String compileCmd = String.format("javac -encoding utf-8 %s", userCodeFile.getAbsolutePath());
-        try {
+        try (Tracing.Span ignored = Tracing.span("compile.javac")) {
             Process compileProcess = Runtime.getRuntime().exec(compileCmd);
             ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(compileProcess, "编译");
             if (executeMessage.getExitValue() != 0) {
@@ -74,6 +125,24 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
         }
     }
 
+    /**
+     * @Title: 2.1 字节码预检，引用了禁止的类或方法时不再启动进程
+     * @Author: vv
+     * @Date: 2025/8/14 15:40
+     */
+    public void checkForbiddenOperation(File userCodeFile) {
+        if (bytecodeScanner == null) {
+            return;
+        }
+        String violation;
+        try (Tracing.Span ignored = Tracing.span("security.scan")) {
+            violation = bytecodeScanner.scan(userCodeFile.getParentFile());
+        }
+        if (violation != null) {
+            throw new ForbiddenOperationException(violation);
+        }
+    }
+
     /**
      * @Title: 3.执行代码
      * @Author: vv
@@ -81,32 +150,231 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
      */
 
     public List<ExecuteMessage> runCode(List<String> inputList, File userCodeFile) {
+        return runCode(ExecuteCodeRequest.builder().inputList(inputList).build(), userCodeFile, null);
+    }
+
+    /**
+     * 在准备好的运行环境中执行代码，默认不需要额外的运行环境
+     */
+    public List<ExecuteMessage> runCode(ExecuteCodeRequest executeCodeRequest, File userCodeFile, RunEnvironment environment) {
+        if (StrUtil.isNotBlank(executeCodeRequest.getInteractorCode())) {
+            return runInteractive(executeCodeRequest, userCodeFile);
+        }
         List<ExecuteMessage> executeMessageList = new ArrayList<>();
         ExecutorService executorService = Executors.newSingleThreadExecutor();
         String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        for (String inputArgs : inputList) {
-            String runCmd = String.format("java -Xmx256m -Dfile.encoding=UTF-8 -cp %s Main %s", userCodeParentPath, inputArgs);
-            try {
+        // 时间按 CPU 时间限制，内存按堆大小限制，均已按本机速度换算
+        RunLimits limits = resolveLimits(executeCodeRequest);
+        // 有特判检查器时，每个用例结束后立即检查，与下一个用例并行
+        CheckerSession checkerSession = openCheckerSession(executeCodeRequest, userCodeFile);
+        // 进程在单独的线程上等待，事件仍归属本次提交
+        String submissionId = EventLog.currentSubmissionId();
+        for (String inputArgs : executeCodeRequest.getInputList()) {
+            // 每个用例独占一个核心，达到并发限制或没有空闲核心时排队
+            String coreSet = acquireRunSlot();
+            String runCmd = String.format("java -Xmx%dm -Dfile.encoding=UTF-8 -cp %s Main %s",
+                    limits.getMemoryLimit(), userCodeParentPath, inputArgs);
+            if (cpuCoreAllocator != null) {
+                runCmd = cpuCoreAllocator.wrapCommand(runCmd, coreSet);
+            }
+            final String finalRunCmd = runCmd;
+            // 摘要模式下边运行边计算摘要，不保留完整输出
+            final OutputDigester digester = OutputDigester.forRequest(executeCodeRequest);
+            ExecuteMessage executeMessage;
+            try (Tracing.Span ignored = Tracing.span("run.test").arg("index", executeMessageList.size())) {
                 Future<ExecuteMessage> future = executorService.submit(() -> {
-                    Process runProcess = Runtime.getRuntime().exec(runCmd);
-                    boolean finished = runProcess.waitFor(TIME_OUT, TimeUnit.MILLISECONDS);
-                    if (!finished) {
-                        runProcess.destroyForcibly(); // 强制终止
-                        throw new RuntimeException("代码运行超时");
+                    try (EventLog.Scope bound = EventLog.bind(submissionId)) {
+                        Process runProcess = Runtime.getRuntime().exec(finalRunCmd);
+                        Future<?> digestFuture = digester == null ? null : ProcessUtils.digestOutputAsync(runProcess, digester);
+                        ProcessUtils.ProcessUsage usage = ProcessUtils.waitForWithLimits(runProcess,
+                                limits.getCpuLimit(), limits.getWallLimit(), limits.getSampleInterval());
+                        if (digestFuture != null) {
+                            digestFuture.get();
+                        }
+                        ExecuteMessage message = ProcessUtils.runProcessAndGetMessage(runProcess, "运行");
+                        if (digester != null) {
+                            message.setMessage(null);
+                            message.setOutputDigest(digester.finish());
+                        }
+                        message.setTime(limits.normalizeTime(usage.getCpuTime()));
+                        message.setMemory(usage.getPeakMemory());
+                        if (usage.isTimeExceeded()) {
+                            message.setErrorMessage(TIME_LIMIT_EXCEEDED);
+                        } else if (isOutOfMemory(message)) {
+                            message.setErrorMessage(MEMORY_LIMIT_EXCEEDED);
+                        }
+                        return message;
                     }
-                    return ProcessUtils.runProcessAndGetMessage(runProcess, "运行");
                 });
-                ExecuteMessage executeMessage = future.get(); // 若上面 throw 会进 catch
-                System.out.println(executeMessage);
-                executeMessageList.add(executeMessage);
+                executeMessage = future.get();
             } catch (Exception e) {
                 throw new RuntimeException("代码执行异常");
+            } finally {
+                releaseRunSlot(coreSet);
+            }
+            markWrongAnswer(executeCodeRequest, executeMessageList.size(), executeMessage, checkerSession);
+            logTestResult("run", executeMessageList.size(), executeMessage);
+            if (checkerSession != null && StrUtil.isBlank(executeMessage.getErrorMessage())) {
+                checkerSession.submit(executeMessageList.size(), inputArgs, executeMessage);
+            }
+            executeMessageList.add(executeMessage);
+            // 出错或答错后不再运行后续用例，尽早让出运行位置
+            if (StrUtil.isNotBlank(executeMessage.getErrorMessage()) || isRejectedByChecker(executeCodeRequest, checkerSession)) {
+                break;
             }
         }
         executorService.shutdown(); // 关闭线程池
+        if (checkerSession != null) {
+            checkerSession.await();
+        }
         return executeMessageList;
     }
 
+    /**
+     * 申请一个用例的运行位置：先经过自适应并发限制，再分配独占的核心组
+     *
+     * @return 核心组，未启用核心分配时为 null
+     */
+    protected String acquireRunSlot() {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.acquire();
+        }
+        try {
+            return cpuCoreAllocator == null ? null : cpuCoreAllocator.acquire();
+        } catch (RuntimeException e) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            throw e;
+        }
+    }
+
+    protected void releaseRunSlot(String coreSet) {
+        if (cpuCoreAllocator != null) {
+            cpuCoreAllocator.release(coreSet);
+        }
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release();
+        }
+    }
+
+    /**
+     * @Title: 交互题：交互器与选手程序通过管道直接相连，逐个用例运行
+     * @Author: vv
+     * @Date: 2025/8/13 10:30
+     */
+    protected List<ExecuteMessage> runInteractive(ExecuteCodeRequest executeCodeRequest, File userCodeFile) {
+        if (interactiveRunner == null) {
+            throw new RuntimeException("交互题执行器未初始化");
+        }
+        File interactorDir;
+        try (Tracing.Span ignored = Tracing.span("interactive.compile")) {
+            interactorDir = interactiveRunner.compileInteractor(executeCodeRequest.getInteractorCode()).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        File solutionDir = userCodeFile.getParentFile();
+        RunLimits limits = resolveLimits(executeCodeRequest);
+        List<ExecuteMessage> executeMessageList = new ArrayList<>();
+        for (String input : executeCodeRequest.getInputList()) {
+            String coreSet = acquireRunSlot();
+            try (Tracing.Span ignored = Tracing.span("interactive.test").arg("index", executeMessageList.size())) {
+                String javaCommand = cpuCoreAllocator == null ? "java" : cpuCoreAllocator.wrapCommand("java", coreSet);
+                File caseDir = new File(solutionDir, "interact" + File.separator + executeMessageList.size());
+                ExecuteMessage executeMessage = interactiveRunner.run(interactorDir, solutionDir, caseDir, input, javaCommand, limits);
+                logTestResult("interactive", executeMessageList.size(), executeMessage);
+                executeMessageList.add(executeMessage);
+                // 选手程序出错后不再运行后续用例，failFast 时交互器判定答错也停止
+                if (StrUtil.isNotBlank(executeMessage.getErrorMessage()) || (Boolean.TRUE.equals(executeCodeRequest.getFailFast())
+                        && TestOrderTracker.isFailed(executeMessage, null))) {
+                    break;
+                }
+            } finally {
+                releaseRunSlot(coreSet);
+            }
+        }
+        return executeMessageList;
+    }
+
+    /**
+     * failFast 且没有检查器时，运行结束立即与答案比较（按判题的规范化规则），不一致时按答案错误处理，之后的用例不再运行
+     *
+     * @param index 用例在运行顺序中的位置，答案列表已按同样的顺序排列
+     */
+    protected static void markWrongAnswer(ExecuteCodeRequest executeCodeRequest, int index, ExecuteMessage executeMessage,
+                                          CheckerSession checkerSession) {
+        if (!Boolean.TRUE.equals(executeCodeRequest.getFailFast()) || checkerSession != null
+                || StrUtil.isNotBlank(executeMessage.getErrorMessage())) {
+            return;
+        }
+        String answer = CollUtil.get(executeCodeRequest.getAnswerList(), index);
+        if (answer != null && TestOrderTracker.isFailed(executeMessage, answer)) {
+            executeMessage.setErrorMessage(WRONG_ANSWER);
+        }
+    }
+
+    /**
+     * failFast 且有检查器时，检查与下一个用例并行，已完成的检查判定答错后不再运行后续用例
+     */
+    protected static boolean isRejectedByChecker(ExecuteCodeRequest executeCodeRequest, CheckerSession checkerSession) {
+        return checkerSession != null && Boolean.TRUE.equals(executeCodeRequest.getFailFast()) && checkerSession.isRejected();
+    }
+
+    /**
+     * 记录一个用例的运行结果，只取不再变化的字段，输出在后台线程上格式化
+     */
+    protected static void logTestResult(String phase, int index, ExecuteMessage executeMessage) {
+        EventLog.debug(phase, "用例运行结束", "index", index, "exitValue", executeMessage.getExitValue(),
+                "time", executeMessage.getTime(), "memory", executeMessage.getMemory(),
+                "error", executeMessage.getErrorMessage());
+    }
+
+    /**
+     * 计算本次运行的时间、内存限制
+     */
+    protected RunLimits resolveLimits(ExecuteCodeRequest executeCodeRequest) {
+        if (limitCalibrator == null) {
+            return LimitCalibrator.resolve(executeCodeRequest, new SandboxProperties().getLimits(), 1.0, 0);
+        }
+        return limitCalibrator.resolve(executeCodeRequest);
+    }
+
+    /**
+     * 堆内存不足时 JVM 输出 OutOfMemoryError 后以非 0 退出
+     */
+    protected static boolean isOutOfMemory(ExecuteMessage executeMessage) {
+        Integer exitValue = executeMessage.getExitValue();
+        return exitValue != null && exitValue != 0
+                && StrUtil.contains(executeMessage.getErrorMessage(), "java.lang.OutOfMemoryError");
+    }
+
+    /**
+     * 开启特判，请求中没有检查器时返回 null
+     */
+    protected CheckerSession openCheckerSession(ExecuteCodeRequest executeCodeRequest, File userCodeFile) {
+        if (checkerRunner == null) {
+            return null;
+        }
+        return checkerRunner.open(executeCodeRequest, userCodeFile.getParentFile());
+    }
+
+    /**
+     * @Title: 准备运行环境（与编译互不依赖，可并行）
+     * @Author: vv
+     * @Date: 2025/8/3 10:05
+     */
+    public RunEnvironment prepareEnvironment() {
+        return null;
+    }
+
+    /**
+     * @Title: 归还运行环境
+     * @Author: vv
+     * @Date: 2025/8/3 10:05
+     */
+    public void releaseEnvironment(RunEnvironment environment) {
+    }
+
     /**
      * @Title: 4.获取输出结果
      * @Author: vv
@@ -115,37 +383,128 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
     public ExecuteCodeResponse getOutputResponseList(List<ExecuteMessage> executeMessageList) {
         ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
         List<String> outputList = new ArrayList<>();
+        List<OutputDigest> outputDigestList = new ArrayList<>();
+        List<CheckerResult> checkerResults = new ArrayList<>();
+        List<InteractionInfo> interactionInfos = new ArrayList<>();
         // 取用时最大值，便于判断是否超时
         long maxTime = 0;
+        long maxMemory = 0;
+        String limitVerdict = null;
         for (ExecuteMessage executeMessage : executeMessageList) {
             String errorMessage = executeMessage.getErrorMessage();
+            Long time = executeMessage.getTime();
+            if (time != null) {
+                maxTime = Math.max(maxTime, time);
+            }
+            Long memory = executeMessage.getMemory();
+            if (memory != null) {
+                maxMemory = Math.max(maxMemory, memory);
+            }
             if (StrUtil.isNotBlank(errorMessage)) {
                 executeCodeResponse.setMessage(errorMessage);
-                // 用户提交的代码执行中存在错误
-                executeCodeResponse.setStatus("答案错误");
+                // 用户提交的代码执行中存在错误，超时和内存超限单独给出判定
+                limitVerdict = getLimitVerdict(errorMessage);
+                executeCodeResponse.setStatus(limitVerdict != null ? limitVerdict : "答案错误");
                 break;
             }
-            outputList.add(executeMessage.getMessage());
-            Long time = executeMessage.getTime();
-            if (time != null) {
-                maxTime = Math.max(maxTime, time);
+            if (executeMessage.getOutputDigest() != null) {
+                outputDigestList.add(executeMessage.getOutputDigest());
+            } else {
+                outputList.add(executeMessage.getMessage());
+            }
+            if (executeMessage.getCheckerResult() != null) {
+                checkerResults.add(executeMessage.getCheckerResult());
+            }
+            if (executeMessage.getInteractionInfo() != null) {
+                interactionInfos.add(executeMessage.getInteractionInfo());
             }
         }
         // 正常运行完成
-        if (outputList.size() == executeMessageList.size()) {
+        if (outputList.size() + outputDigestList.size() == executeMessageList.size()) {
             executeCodeResponse.setStatus("成功");
         }
-        executeCodeResponse.setOutputList(outputList);
+        if (outputDigestList.isEmpty()) {
+            executeCodeResponse.setOutputList(outputList);
+        } else {
+            executeCodeResponse.setOutputDigestList(outputDigestList);
+        }
         JudgeInfo judgeInfo = new JudgeInfo();
         judgeInfo.setTime(maxTime);
-        // 要借助第三方库来获取内存占用，非常麻烦，此处不做实现
-//        judgeInfo.setMemory();
+        if (maxMemory > 0) {
+            judgeInfo.setMemory(maxMemory);
+        }
+        if (limitVerdict != null) {
+            judgeInfo.setMessage(limitVerdict);
+        }
+        if (!interactionInfos.isEmpty()) {
+            judgeInfo.setInteractionInfos(interactionInfos);
+        }
+        if (!checkerResults.isEmpty()) {
+            // 特判结果：全部正确才算正确，否则取第一个未通过用例的判定，得分取平均
+            judgeInfo.setCheckerResults(checkerResults);
+            judgeInfo.setMessage(checkerResults.stream()
+                    .map(CheckerResult::getVerdict)
+                    .filter(verdict -> !CheckerRunner.VERDICT_ACCEPTED.equals(verdict))
+                    .findFirst()
+                    .orElse(CheckerRunner.VERDICT_ACCEPTED));
+            judgeInfo.setScore(checkerResults.stream().mapToDouble(CheckerResult::getScore).sum() / executeMessageList.size());
+        }
         executeCodeResponse.setJudgeInfo(judgeInfo);
 
         return executeCodeResponse;
 
     }
 
+    /**
+     * 用例重排后的结果：已运行用例的结果按原始下标排列，使运行停止的出错用例不计入输出，判定以它为准
+     *
+     * @param executeMessageList 按原始下标排列的结果
+     * @param stoppedMessage     使运行停止的出错用例的结果，为 null 时与 {@link #getOutputResponseList(List)} 相同
+     */
+    public ExecuteCodeResponse getOutputResponseList(List<ExecuteMessage> executeMessageList, ExecuteMessage stoppedMessage) {
+        if (stoppedMessage == null) {
+            return getOutputResponseList(executeMessageList);
+        }
+        List<ExecuteMessage> outputMessages = new ArrayList<>(executeMessageList.size());
+        for (ExecuteMessage executeMessage : executeMessageList) {
+            if (executeMessage != stoppedMessage) {
+                outputMessages.add(executeMessage);
+            }
+        }
+        ExecuteCodeResponse executeCodeResponse = getOutputResponseList(outputMessages);
+        String errorMessage = stoppedMessage.getErrorMessage();
+        String limitVerdict = getLimitVerdict(errorMessage);
+        executeCodeResponse.setMessage(errorMessage);
+        executeCodeResponse.setStatus(limitVerdict != null ? limitVerdict : "答案错误");
+        JudgeInfo judgeInfo = executeCodeResponse.getJudgeInfo();
+        if (stoppedMessage.getTime() != null) {
+            judgeInfo.setTime(Math.max(judgeInfo.getTime(), stoppedMessage.getTime()));
+        }
+        if (stoppedMessage.getMemory() != null) {
+            judgeInfo.setMemory(Math.max(judgeInfo.getMemory() == null ? 0 : judgeInfo.getMemory(), stoppedMessage.getMemory()));
+        }
+        if (limitVerdict != null) {
+            judgeInfo.setMessage(limitVerdict);
+        }
+        return executeCodeResponse;
+    }
+
+    /**
+     * 超时、内存超限和 failFast 答错的判定，其他错误返回 null
+     */
+    private static String getLimitVerdict(String errorMessage) {
+        if (TIME_LIMIT_EXCEEDED.equals(errorMessage)) {
+            return "超出时间限制";
+        }
+        if (MEMORY_LIMIT_EXCEEDED.equals(errorMessage)) {
+            return "超出内存限制";
+        }
+        if (WRONG_ANSWER.equals(errorMessage)) {
+            return CheckerRunner.VERDICT_WRONG_ANSWER;
+        }
+        return null;
+    }
+
 
     /**
      * @Title: 5.文件清理
@@ -155,8 +514,15 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
     public boolean delFile(File userCodeFile) {
         if (userCodeFile.getParentFile() != null) {
             String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-            boolean del = FileUtil.del(userCodeParentPath);
-            System.out.println("删除" + userCodeParentPath + (del ? "成功" : "失败"));
+            boolean del;
+            try (Tracing.Span ignored = Tracing.span("file.delete")) {
+                del = FileUtil.del(userCodeParentPath);
+            }
+            if (del) {
+                EventLog.debug("cleanup", "删除成功", "path", userCodeParentPath);
+            } else {
+                EventLog.warn("cleanup", "删除失败", "path", userCodeParentPath);
+            }
             return del;
         }
         return true;
@@ -178,10 +544,22 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
 
         // 2. 编译代码，得到 class 文件
         ExecuteMessage executeMessage = compileMessage(userCodeFile);
-        System.out.println(executeMessage);
+        EventLog.debug("compile", "编译完成", "exitValue", executeMessage.getExitValue(), "time", executeMessage.getTime());
+        try {
+            checkForbiddenOperation(userCodeFile);
+        } catch (ForbiddenOperationException e) {
+            delFile(userCodeFile);
+            return getForbiddenResponse(e);
+        }
 
         // 3. 执行代码，得到输出结果（使用线程池 + 超时控制）
-        List<ExecuteMessage> executeMessages = runCode(inputList, userCodeFile);
+        RunEnvironment environment = prepareEnvironment();
+        List<ExecuteMessage> executeMessages;
+        try {
+            executeMessages = runCode(executeCodeRequest, userCodeFile, environment);
+        } finally {
+            releaseEnvironment(environment);
+        }
 
         // 4. 收集整理输出结果
         ExecuteCodeResponse executeCodeResponse = getOutputResponseList(executeMessages);
@@ -190,11 +568,29 @@ public abstract class JavaCodeSandboxTemplate implements CodeSandbox {
         delFile(userCodeFile);
 
         //输出时间
-        System.out.println("总耗时: " + (System.currentTimeMillis() - start) + " ms");
+        EventLog.info("execute", "执行完成", "status", executeCodeResponse.getStatus(),
+                "costMs", System.currentTimeMillis() - start);
 
         return executeCodeResponse;
     }
 
+    /**
+     * 字节码预检未通过时的响应
+     *
+     * @param e
+     * @return
+     */
+    public ExecuteCodeResponse getForbiddenResponse(ForbiddenOperationException e) {
+        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
+        executeCodeResponse.setOutputList(new ArrayList<>());
+        executeCodeResponse.setMessage(e.getMessage());
+        executeCodeResponse.setStatus("禁止操作");
+        JudgeInfo judgeInfo = new JudgeInfo();
+        judgeInfo.setMessage("禁止操作");
+        executeCodeResponse.setJudgeInfo(judgeInfo);
+        return executeCodeResponse;
+    }
+
     /**
      * 获取错误响应
      *
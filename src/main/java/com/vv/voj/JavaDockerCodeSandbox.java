@@ -4,173 +4,321 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.command.PullImageCmd;
-import com.github.dockerjava.api.command.PullImageResultCallback;
-import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.vv.voj.checker.CheckerSession;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.docker.ContainerEvent;
+import com.vv.voj.docker.ContainerEventDispatcher;
+import com.vv.voj.docker.SandboxContainerPool;
+import com.vv.voj.limit.RunLimits;
+import com.vv.voj.log.EventLog;
 import com.vv.voj.model.ExecuteCodeRequest;
 import com.vv.voj.model.ExecuteCodeResponse;
 import com.vv.voj.model.ExecuteMessage;
-import com.vv.voj.model.JudgeInfo;
+import com.vv.voj.trace.Tracing;
+import com.vv.voj.utils.DockerExecUtils;
 import com.vv.voj.utils.DockerMemoryUtils;
+import com.vv.voj.utils.OutputDigester;
+import com.vv.voj.utils.TarUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StopWatch;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 @Component
 public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
-    private static final String IMAGE_NAME = "openjdk:8-alpine";
-    private static final long TIME_OUT = 5000;
+    /**
+     * 容器异常退出
+     */
+    public static final String CONTAINER_DIED = "容器异常退出";
+
+    private final SandboxContainerPool containerPool;
+
+    @Resource
+    private ContainerEventDispatcher containerEvents;
+
+    @Resource
+    private SandboxProperties sandboxProperties;
+
+    public JavaDockerCodeSandbox(SandboxContainerPool containerPool) {
+        this.containerPool = containerPool;
+    }
+
+    /**
+     * 从容器池租用容器，不依赖编译结果，可与编译并行
+     */
+    @Override
+    public RunEnvironment prepareEnvironment() {
+        return containerPool.lease(UUID.randomUUID().toString());
+    }
+
+    @Override
+    public void releaseEnvironment(RunEnvironment environment) {
+        if (environment instanceof SandboxContainerPool.ContainerLease) {
+            // 归还容器并清理本次运行目录
+            containerPool.release((SandboxContainerPool.ContainerLease) environment);
+        }
+    }
 
     //因为doctor的执行代码部分不同，所以要重写子类方法
     @Override
     public List<ExecuteMessage> runCode(List<String> inputList, File userCodeFile) {
-        String userCodeParentPath = userCodeFile.getParentFile().getAbsolutePath();
-        // 3. 创建 Docker 客户端
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
+        RunEnvironment environment = prepareEnvironment();
+        try {
+            return runCode(ExecuteCodeRequest.builder().inputList(inputList).build(), userCodeFile, environment);
+        } finally {
+            releaseEnvironment(environment);
+        }
+    }
+
+    @Override
+    public List<ExecuteMessage> runCode(ExecuteCodeRequest executeCodeRequest, File userCodeFile, RunEnvironment environment) {
+        if (StrUtil.isNotBlank(executeCodeRequest.getInteractorCode())) {
+            // 交互题依赖宿主机上的命名管道和 /proc 采样，容器内暂不支持
+            throw new RuntimeException("Docker 沙箱暂不支持交互题");
+        }
+        SandboxContainerPool.ContainerLease lease = (SandboxContainerPool.ContainerLease) environment;
+        // 3. 读取编译好的 class 文件，通过 tar 流拷贝进常驻容器，不再挂载宿主机目录
+        Map<String, byte[]> classFiles = TarUtils.readClassFiles(userCodeFile.getParentFile());
+        DockerClient dockerClient = containerPool.getDockerClient();
+        containerPool.copyClassFiles(lease, classFiles);
 
-        // 拉取镜像（首次）
+        // 4. 执行代码（多次 docker exec，超时只结束进程，容器可继续复用）
+        RunLimits limits = resolveLimits(executeCodeRequest);
+        // 容器内存跟随本次的堆上限，不能让 -Xmx 超过容器
+        containerPool.applyMemoryLimit(lease, limits.getMemoryLimit());
+        List<ExecuteMessage> executeMessageList = new ArrayList<>();
+        DockerMemoryUtils.MemoryMonitor memoryMonitor = new DockerMemoryUtils.MemoryMonitor(dockerClient, lease.getContainerId());
+        memoryMonitor.start();
+
+        CheckerSession checkerSession = openCheckerSession(executeCodeRequest, userCodeFile);
         try {
-            List<Image> images = dockerClient.listImagesCmd().withImageNameFilter(IMAGE_NAME).exec();
-            if (images == null || images.isEmpty()) {
-                // 本地没有才拉取
-                PullImageCmd pullImageCmd = dockerClient.pullImageCmd(IMAGE_NAME);
-                PullImageResultCallback pullImageResultCallback = new PullImageResultCallback();
+            boolean needHealthCheck = false;
+            for (String inputArgs : executeCodeRequest.getInputList()) {
+                // 上一个用例超时后，检查容器健康状况，容器异常时才换新容器
+                if (needHealthCheck && !containerPool.isAlive(lease.getContainerId())) {
+                    EventLog.warn("docker", "容器状态异常，重新创建容器", "containerId", lease.getContainerId());
+                    memoryMonitor.stop();
+                    containerPool.renew(lease, classFiles);
+                    containerPool.applyMemoryLimit(lease, limits.getMemoryLimit());
+                    memoryMonitor = new DockerMemoryUtils.MemoryMonitor(dockerClient, lease.getContainerId());
+                    memoryMonitor.start();
+                }
+                // 每个用例独占一组核心
+                String coreSet = acquireRunSlot();
+                ExecuteMessage executeMessage;
                 try {
-                    pullImageCmd.exec(pullImageResultCallback).awaitCompletion();
-                } catch (InterruptedException e) {
-                    throw new RuntimeException("拉取 Docker 镜像失败");
+                    if (coreSet != null && cpuCoreAllocator.isPinning()) {
+                        containerPool.applyCpuset(lease, coreSet);
+                    }
+                    executeMessage = runInContainer(dockerClient, lease, inputArgs, memoryMonitor,
+                            OutputDigester.forRequest(executeCodeRequest), limits);
+                } finally {
+                    releaseRunSlot(coreSet);
+                }
+                markWrongAnswer(executeCodeRequest, executeMessageList.size(), executeMessage, checkerSession);
+                logTestResult("docker", executeMessageList.size(), executeMessage);
+                needHealthCheck = TIME_LIMIT_EXCEEDED.equals(executeMessage.getErrorMessage());
+                // 检查与下一个用例的运行并行
+                if (checkerSession != null && StrUtil.isBlank(executeMessage.getErrorMessage())) {
+                    checkerSession.submit(executeMessageList.size(), inputArgs, executeMessage);
+                }
+                executeMessageList.add(executeMessage);
+                // 出错或答错后不再运行后续用例，尽早让出容器
+                if (StrUtil.isNotBlank(executeMessage.getErrorMessage()) || isRejectedByChecker(executeCodeRequest, checkerSession)) {
+                    break;
                 }
-                System.out.println("镜像拉取完成");
-            } else {
-                System.out.println("本地已有镜像，无需拉取");
             }
-        } catch (Exception e) {
-            throw new RuntimeException("拉取 Docker 镜像失败");
+        } finally {
+            memoryMonitor.stop();
         }
 
-        // 4. 创建并启动容器（只一次）
-        String containerId;
-        try {
-            HostConfig hostConfig = new HostConfig().withBinds(new Bind(userCodeParentPath, new Volume("/app"))).withMemory(100 * 1024 * 1024L)//限制最大内存100MB
-                    .withCpuCount(1L);//限制cup核心数
-            CreateContainerResponse container = dockerClient.createContainerCmd(IMAGE_NAME).withHostConfig(hostConfig).withReadonlyRootfs(true)//禁止向root根目录写文件
-                    .withNetworkDisabled(true)//禁用网络
-                    .withReadonlyRootfs(true).withAttachStderr(true).withAttachStdout(true).withTty(true).exec();
-
-            containerId = container.getId();
-            dockerClient.startContainerCmd(containerId).exec();
-        } catch (Exception e) {
-            throw new RuntimeException("容器启动失败");
+        // 5. 检查运行结果，超时和内存超限作为判题结果返回
+        for (ExecuteMessage msg : executeMessageList) {
+            String errorMessage = msg.getErrorMessage();
+            if (StrUtil.isNotBlank(errorMessage) && !TIME_LIMIT_EXCEEDED.equals(errorMessage)
+                    && !MEMORY_LIMIT_EXCEEDED.equals(errorMessage) && !WRONG_ANSWER.equals(errorMessage)) {
+                throw new RuntimeException(errorMessage);
+            }
         }
+        if (checkerSession != null) {
+            checkerSession.await();
+        }
+        return executeMessageList;
+    }
 
-        // 5. 执行代码（多次 docker exec）
-        List<ExecuteMessage> executeMessageList = new ArrayList<>();
-        long maxTime = 0;
-        long maxMemory = 0;
+    /**
+     * 在容器中执行一个输入用例
+     */
+    private ExecuteMessage runInContainer(DockerClient dockerClient, SandboxContainerPool.ContainerLease lease,
+                                          String inputArgs, DockerMemoryUtils.MemoryMonitor memoryMonitor,
+                                          OutputDigester digester, RunLimits limits) {
+        try (Tracing.Span span = Tracing.span("docker.exec")) {
+            String[] inputArgsArray = inputArgs.trim().split(" ");
+            String[] command = ArrayUtil.append(new String[]{"java", "-Xmx" + limits.getMemoryLimit() + "m",
+                    "-cp", lease.getRunDir(), "Main"}, inputArgsArray);
+            // CPU 时间由容器内的 ulimit 限制（秒级），墙钟时间在这里兜底
+            long cpuSeconds = (limits.getCpuLimit() + 999) / 1000;
 
-        DockerMemoryUtils.MemoryMonitor memoryMonitor = new DockerMemoryUtils.MemoryMonitor(dockerClient, containerId);
-        memoryMonitor.start();
+            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(lease.getContainerId())
+                    .withCmd(DockerExecUtils.wrapWithPid(command, cpuSeconds))
+                    .withAttachStderr(true).withAttachStdout(true).exec();
+
+            String execId = execCmd.getId();
+            final StringBuilder output = new StringBuilder();
+            final StringBuilder error = new StringBuilder();
+            final DockerExecUtils.PidOutputParser pidParser = new DockerExecUtils.PidOutputParser();
+            StopWatch stopWatch = new StopWatch();
 
-        for (String inputArgs : inputList) {
-            try {
-                String[] inputArgsArray = inputArgs.trim().split(" ");
-                String[] command = ArrayUtil.append(new String[]{"java", "-cp", "/app", "Main"}, inputArgsArray);
-
-                ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId).withCmd(command).withAttachStderr(true).withAttachStdout(true).exec();
-
-                String execId = execCmd.getId();
-                final StringBuilder output = new StringBuilder();
-                final StringBuilder error = new StringBuilder();
-                StopWatch stopWatch = new StopWatch();
-
-                ExecStartResultCallback callback = new ExecStartResultCallback() {
-                    @Override
-                    public void onNext(Frame frame) {
-                        if (frame.getStreamType() == StreamType.STDERR) {
-                            error.append(new String(frame.getPayload()));
-                        } else {
-                            output.append(new String(frame.getPayload()));
-                        }
-                        super.onNext(frame);
+            // 输出流结束时完成，与容器事件一起等待
+            final CompletableFuture<Void> streamDone = new CompletableFuture<>();
+            ResultCallback.Adapter<Frame> callback = new ResultCallback.Adapter<Frame>() {
+                @Override
+                public void onNext(Frame frame) {
+                    if (frame.getStreamType() == StreamType.STDERR) {
+                        error.append(new String(frame.getPayload()));
+                    } else if (digester != null) {
+                        // 摘要模式下直接按字节计算，不保留输出
+                        digester.update(pidParser.accept(frame.getPayload()));
+                    } else {
+                        output.append(new String(pidParser.accept(frame.getPayload())));
                     }
-                };
-                ExecuteMessage executeMessage = new ExecuteMessage();
+                }
+
+                @Override
+                public void onComplete() {
+                    super.onComplete();
+                    streamDone.complete(null);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    super.onError(throwable);
+                    streamDone.complete(null);
+                }
+            };
+            ExecuteMessage executeMessage = new ExecuteMessage();
+            boolean finished;
+            ContainerEvent event = null;
+            Long exitCode = null;
+            boolean oomKilled = false;
+            // 在 exec 启动前登记，OOM、容器退出和 exec 结束事件一到就不再等待
+            try (ContainerEventDispatcher.ExecWatch watch = containerEvents == null ? null
+                    : containerEvents.watch(lease.getContainerId(), execId)) {
                 //记录程序执行时间(超时处理)
-                boolean timeOut = false;
                 stopWatch.start();
-                timeOut = dockerClient.execStartCmd(execId).exec(callback).awaitCompletion(TIME_OUT, TimeUnit.MILLISECONDS);
+                dockerClient.execStartCmd(execId).exec(callback);
+                CompletableFuture<?> completion = watch == null ? streamDone : CompletableFuture.anyOf(streamDone, watch.getEvent());
+                try {
+                    completion.get(limits.getWallLimit(), TimeUnit.MILLISECONDS);
+                    finished = true;
+                } catch (TimeoutException e) {
+                    finished = false;
+                }
                 stopWatch.stop();
-                long usedTime = stopWatch.getLastTaskTimeMillis();
-                if (!timeOut) {
-                    // 超时，强制kill容器
-                    System.out.println("代码运行超时，强制终止容器");
-                    dockerClient.killContainerCmd(containerId).exec();
-                    executeMessage.setErrorMessage("代码运行超时");
+                if (watch != null) {
+                    event = watch.getEvent().getNow(null);
+                    if (finished && (event == null || event.getType() == ContainerEvent.Type.EXEC_DIE)) {
+                        exitCode = event != null && event.getExitCode() != null
+                                ? event.getExitCode() : DockerExecUtils.getExitCode(dockerClient, execId);
+                        // 被 SIGKILL 时只有收到 OOM 事件才算内存超限，事件可能稍晚于 exec 结束到达
+                        oomKilled = exitCode != null && exitCode == DockerExecUtils.EXIT_KILLED && awaitOom(watch);
+                    }
                 }
+            }
+            if (event != null && !streamDone.isDone()) {
+                // 进程已经结束，输出流可能还有未读完的部分
+                callback.awaitCompletion(outputDrainMillis(), TimeUnit.MILLISECONDS);
+            }
 
-                //最大内存
-                long usedMemory = memoryMonitor.getMaxMemory();
+            if (digester != null) {
+                executeMessage.setOutputDigest(digester.finish());
+            } else {
                 executeMessage.setMessage(output.toString().trim());
-                executeMessage.setErrorMessage(error.toString().trim());
-                executeMessage.setTime(usedTime);
-                executeMessage.setMemory(usedMemory);
-                executeMessageList.add(executeMessage);
-
-                maxTime = Math.max(maxTime, usedTime);
-                maxMemory = Math.max(maxMemory, usedMemory);
-            } catch (Exception e) {
-                throw new RuntimeException("执行失败", e);
             }
-        }
-
-        memoryMonitor.stop();
-
-        // 6. 删除容器
-        try {
-            dockerClient.killContainerCmd(containerId).exec();
+            executeMessage.setErrorMessage(error.toString().trim());
+            if (!finished) {
+                // 超时，只结束本次 exec 的进程树，保留容器
+                EventLog.info("docker", "代码运行超时，结束容器内进程", "containerId", lease.getContainerId(),
+                        "pid", pidParser.getPid());
+                if (pidParser.getPid() > 0) {
+                    DockerExecUtils.killProcessTree(dockerClient, lease.getContainerId(), pidParser.getPid());
+                }
+                callback.close();
+                executeMessage.setErrorMessage(TIME_LIMIT_EXCEEDED);
+            } else if (event != null && event.getType() == ContainerEvent.Type.OOM) {
+                // 内核按容器内存上限结束了进程，JVM 来不及输出 OutOfMemoryError
+                span.arg("event", "oom");
+                if (pidParser.getPid() > 0) {
+                    DockerExecUtils.killProcessTree(dockerClient, lease.getContainerId(), pidParser.getPid());
+                }
+                callback.close();
+                executeMessage.setErrorMessage(MEMORY_LIMIT_EXCEEDED);
+            } else if (event != null && event.getType() == ContainerEvent.Type.DIE) {
+                span.arg("event", "die");
+                callback.close();
+                executeMessage.setErrorMessage(CONTAINER_DIED);
+            } else {
+                // exec 结束事件带有退出码，没有时再查询
+                if (exitCode == null) {
+                    exitCode = event != null && event.getExitCode() != null
+                            ? event.getExitCode() : DockerExecUtils.getExitCode(dockerClient, execId);
+                }
+                span.arg("exitCode", exitCode);
+                executeMessage.setExitValue(exitCode == null ? null : exitCode.intValue());
+                if (exitCode != null && exitCode == DockerExecUtils.EXIT_CPU_LIMIT) {
+                    executeMessage.setErrorMessage(TIME_LIMIT_EXCEEDED);
+                } else if (oomKilled || isOutOfMemory(executeMessage)) {
+                    executeMessage.setErrorMessage(MEMORY_LIMIT_EXCEEDED);
+                } else if (exitCode != null && exitCode == DockerExecUtils.EXIT_KILLED) {
+                    // 没有 OOM 事件确认的 SIGKILL 按 CPU 时间硬限制处理
+                    executeMessage.setErrorMessage(TIME_LIMIT_EXCEEDED);
+                }
+            }
+            // 容器内取不到 CPU 时间，用墙钟时间扣除 JVM 启动开销后换算
+            executeMessage.setTime(limits.normalizeTime(stopWatch.getLastTaskTimeMillis()));
+            //最大内存
+            executeMessage.setMemory(memoryMonitor.getMaxMemory());
+            return executeMessage;
         } catch (Exception e) {
-            System.err.println("Kill容器失败：" + e.getMessage());
+            throw new RuntimeException("执行失败", e);
         }
+    }
+
+    /**
+     * 等待容器内的 OOM 事件，最多等待与排空输出相同的时间
+     */
+    private boolean awaitOom(ContainerEventDispatcher.ExecWatch watch) {
         try {
-            dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+            watch.getOom().get(outputDrainMillis(), TimeUnit.MILLISECONDS);
+            return true;
         } catch (Exception e) {
-            System.err.println("删除容器失败：" + e.getMessage());
+            // 超时没有等到事件
+            return false;
         }
-
-        // 7. 生成响应
-        List<String> outputList = new ArrayList<>();
-        for (ExecuteMessage msg : executeMessageList) {
-            if (StrUtil.isNotBlank(msg.getErrorMessage())) {
-                throw new RuntimeException(msg.getErrorMessage());
-            }
-            outputList.add(msg.getMessage());
-        }
-        ExecuteCodeResponse executeCodeResponse = new ExecuteCodeResponse();
-        executeCodeResponse.setOutputList(outputList);
-        executeCodeResponse.setStatus("成功");
-
-        JudgeInfo judgeInfo = new JudgeInfo();
-        judgeInfo.setTime(maxTime);
-        judgeInfo.setMemory(maxMemory);
-        executeCodeResponse.setJudgeInfo(judgeInfo);
-
-        return executeMessageList;
     }
 
-
+    private long outputDrainMillis() {
+        return sandboxProperties == null ? new SandboxProperties.Docker().getOutputDrainMillis()
+                : sandboxProperties.getDocker().getOutputDrainMillis();
+    }
 
     public static void main(String[] args) {
-        JavaDockerCodeSandbox sandbox = new JavaDockerCodeSandbox();
+        SandboxContainerPool containerPool = new SandboxContainerPool(new SandboxProperties());
+        JavaDockerCodeSandbox sandbox = new JavaDockerCodeSandbox(containerPool);
         ExecuteCodeRequest request = new ExecuteCodeRequest();
         request.setInputList(Arrays.asList("4 4", "1 3"));
         String code = ResourceUtil.readStr("testCode/simpleComputeArgs/Main.java", StandardCharsets.UTF_8);
@@ -179,6 +327,7 @@ public class JavaDockerCodeSandbox extends JavaCodeSandboxTemplate {
 
         ExecuteCodeResponse response = sandbox.executeCode(request);
         System.out.println(response);
+        containerPool.shutdown();
     }
 
 
@@ -5,13 +5,14 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
 import com.github.dockerjava.api.command.PullImageCmd;
 import com.github.dockerjava.api.command.PullImageResultCallback;
 import com.github.dockerjava.api.model.*;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
 import com.vv.voj.model.ExecuteCodeRequest;
 import com.vv.voj.model.ExecuteCodeResponse;
 import com.vv.voj.model.ExecuteMessage;
@@ -134,7 +135,7 @@ public class JavaDockerCodeSandboxUnTemplate implements CodeSandbox {
                 final StringBuilder error = new StringBuilder();
                 StopWatch stopWatch = new StopWatch();
 
-                ExecStartResultCallback callback = new ExecStartResultCallback() {
+                ResultCallback.Adapter<Frame> callback = new ResultCallback.Adapter<Frame>() {
                     @Override
                     public void onNext(Frame frame) {
                         if (frame.getStreamType() == StreamType.STDERR) {
@@ -142,7 +143,6 @@ public class JavaDockerCodeSandboxUnTemplate implements CodeSandbox {
                         } else {
                             output.append(new String(frame.getPayload()));
                         }
-                        super.onNext(frame);
                     }
                 };
                 ExecuteMessage message = new ExecuteMessage();
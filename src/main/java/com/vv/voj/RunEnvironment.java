@@ -0,0 +1,8 @@
+package com.vv.voj;
+
+/**
+ * 运行环境
+ * 执行代码前需要准备的资源（如 Docker 容器），可以与编译并行准备，运行结束后归还
+ */
+public interface RunEnvironment {
+}
@@ -0,0 +1,87 @@
+package com.vv.voj.accounting;
+
+import com.vv.voj.model.UsageRecord;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个租户的累计用量
+ * 判题线程只做分段累加，不加锁；写账本和计费周期切换时取快照，与上次快照相减得到增量
+ */
+class TenantUsage {
+
+    private final String tenant;
+
+    private final LongAdder submissions = new LongAdder();
+
+    private final LongAdder tests = new LongAdder();
+
+    private final LongAdder cpuMillis = new LongAdder();
+
+    private final LongAdder memoryKbMillis = new LongAdder();
+
+    private final LongAdder compileMillis = new LongAdder();
+
+    private final LongAdder outputBytes = new LongAdder();
+
+    /**
+     * 已写入账本的累计值
+     */
+    volatile UsageRecord flushed;
+
+    /**
+     * 当前计费周期开始时的累计值
+     */
+    volatile UsageRecord windowBase;
+
+    /**
+     * 当前计费周期内是否超出配额
+     */
+    volatile boolean overBudget;
+
+    TenantUsage(String tenant) {
+        this.tenant = tenant;
+        this.flushed = empty(tenant);
+        this.windowBase = empty(tenant);
+    }
+
+    void add(UsageRecord usage) {
+        submissions.add(usage.getSubmissions());
+        tests.add(usage.getTests());
+        cpuMillis.add(usage.getCpuMillis());
+        memoryKbMillis.add(usage.getMemoryKbMillis());
+        compileMillis.add(usage.getCompileMillis());
+        outputBytes.add(usage.getOutputBytes());
+    }
+
+    /**
+     * 累计值的快照，并发累加时各项之间不保证一致，差值不会丢失
+     */
+    UsageRecord snapshot() {
+        UsageRecord snapshot = empty(tenant);
+        snapshot.setSubmissions(submissions.sum());
+        snapshot.setTests(tests.sum());
+        snapshot.setCpuMillis(cpuMillis.sum());
+        snapshot.setMemoryKbMillis(memoryKbMillis.sum());
+        snapshot.setCompileMillis(compileMillis.sum());
+        snapshot.setOutputBytes(outputBytes.sum());
+        return snapshot;
+    }
+
+    /**
+     * 当前计费周期内的用量
+     */
+    UsageRecord windowUsage() {
+        return snapshot().minus(windowBase);
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    private static UsageRecord empty(String tenant) {
+        UsageRecord usageRecord = new UsageRecord();
+        usageRecord.setTenant(tenant);
+        return usageRecord;
+    }
+}
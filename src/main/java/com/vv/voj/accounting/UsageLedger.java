@@ -0,0 +1,318 @@
+package com.vv.voj.accounting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.TenantUsageStats;
+import com.vv.voj.model.UsageRecord;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Title: 租户资源用量账本
+ * 判题结束后按租户累加 CPU 时间、峰值内存 × 时间、编译时间和输出字节数，累加只用分段计数器；
+ * 定期把各租户的增量以 JSON 行追加到本地账本，重启后从账本恢复当前计费周期的用量；
+ * 超出配额的租户按配置拒绝新提交或降低调度优先级；整个计费周期没有用量的租户在跨周期时回收
+ * @Author: vv
+ * @Date: 2025/8/18 10:00
+ */
+@Component
+public class UsageLedger {
+
+    private static final String LEDGER_FILE_NAME = "usage.jsonl";
+
+    public static final String ACTION_REJECT = "reject";
+
+    public static final String ACTION_DEPRIORITIZE = "deprioritize";
+
+    private final SandboxProperties.Accounting properties;
+
+    private final ObjectMapper objectMapper;
+
+    private final Path ledgerPath;
+
+    private final long windowMillis;
+
+    private final Map<String, TenantUsage> usages = new ConcurrentHashMap<>();
+
+    private FileChannel channel;
+
+    private volatile long windowStart;
+
+    public UsageLedger(SandboxProperties sandboxProperties, ObjectMapper objectMapper) {
+        this.properties = sandboxProperties.getAccounting();
+        this.objectMapper = objectMapper;
+        this.ledgerPath = new File(properties.getDir(), LEDGER_FILE_NAME).toPath();
+        this.windowMillis = TimeUnit.MINUTES.toMillis(Math.max(1, properties.getWindowMinutes()));
+        this.windowStart = windowStartOf(System.currentTimeMillis());
+    }
+
+    /**
+     * 打开账本，恢复当前计费周期内已记录的用量
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Files.createDirectories(ledgerPath.getParent());
+        if (Files.exists(ledgerPath)) {
+            for (UsageRecord usageRecord : read(null, windowStart, Long.MAX_VALUE)) {
+                usage(usageRecord.getTenant()).add(usageRecord);
+            }
+            for (TenantUsage usage : usages.values()) {
+                usage.flushed = usage.snapshot();
+                usage.overBudget = exceeds(usage.windowUsage(), quotaOf(usage.getTenant()));
+            }
+        }
+        channel = FileChannel.open(ledgerPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 记录一次提交的用量，只做累加，不访问账本
+     *
+     * @param tenant 由 API key 确定的租户，为 null 时不记录（例如预热）
+     * @param usage  本次提交的用量
+     */
+    public void record(String tenant, UsageRecord usage) {
+        if (!properties.isEnabled() || tenant == null) {
+            return;
+        }
+        // 在映射内累加，与跨周期时回收空闲租户互斥，不会加到已被移除的对象上
+        TenantUsage tenantUsage = usages.compute(tenant, (key, existing) -> {
+            TenantUsage created = existing == null ? new TenantUsage(key) : existing;
+            created.add(usage);
+            return created;
+        });
+        if (!tenantUsage.overBudget) {
+            SandboxProperties.Quota quota = quotaOf(tenant);
+            if (exceeds(tenantUsage.windowUsage(), quota)) {
+                tenantUsage.overBudget = true;
+                EventLog.warn("accounting", "租户超出资源配额", "tenant", tenant, "action", quota.getAction());
+            }
+        }
+    }
+
+    /**
+     * 提交前检查配额，超出配额且配置为拒绝时抛出异常；租户必须是按 API key 解析的结果，
+     * 配额和用量都按它记账，请求头中自称的租户名不能用来绕过配额
+     */
+    public void checkQuota(String tenant) {
+        if (isOverBudget(tenant) && ACTION_REJECT.equalsIgnoreCase(quotaOf(tenant).getAction())) {
+            throw new RuntimeException("租户 " + tenant + " 已超出资源配额");
+        }
+    }
+
+    /**
+     * 是否超出配额且配置为降低优先级
+     */
+    public boolean isDeprioritized(String tenant) {
+        return isOverBudget(tenant) && ACTION_DEPRIORITIZE.equalsIgnoreCase(quotaOf(tenant).getAction());
+    }
+
+    public boolean isOverBudget(String tenant) {
+        TenantUsage tenantUsage = tenant == null ? null : usages.get(tenant);
+        return tenantUsage != null && tenantUsage.overBudget;
+    }
+
+    /**
+     * 把各租户自上次写入以来的增量追加到账本，跨过计费周期时重新开始计算配额
+     */
+    @Scheduled(fixedDelayString = "${sandbox.accounting.flush-interval:10000}")
+    public synchronized void flush() {
+        flush(System.currentTimeMillis());
+    }
+
+    /**
+     * 按给定的当前时间写入，测试中用来模拟跨过计费周期
+     */
+    synchronized void flush(long now) {
+        if (channel == null) {
+            return;
+        }
+        long currentWindowStart = windowStartOf(now);
+        boolean rollover = currentWindowStart != windowStart;
+        // 跨周期时把上个周期的增量记在上个周期末尾，恢复时不会算进新周期
+        long time = rollover ? currentWindowStart - 1 : now;
+        StringBuilder lines = new StringBuilder();
+        List<TenantUsage> flushedUsages = new ArrayList<>();
+        List<UsageRecord> snapshots = new ArrayList<>();
+        for (TenantUsage usage : usages.values()) {
+            UsageRecord snapshot = usage.snapshot();
+            UsageRecord delta = snapshot.minus(usage.flushed);
+            if (delta.isEmpty()) {
+                continue;
+            }
+            delta.setTime(time);
+            try {
+                lines.append(objectMapper.writeValueAsString(delta)).append('\n');
+            } catch (IOException e) {
+                EventLog.warn("accounting", "序列化用量失败", "tenant", usage.getTenant(), e);
+                continue;
+            }
+            flushedUsages.add(usage);
+            snapshots.add(snapshot);
+        }
+        if (lines.length() > 0) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                for (int i = 0; i < flushedUsages.size(); i++) {
+                    flushedUsages.get(i).flushed = snapshots.get(i);
+                }
+            } catch (IOException e) {
+                // 未写入的增量留到下次
+                EventLog.warn("accounting", "写入用量账本失败", "path", ledgerPath, e);
+            }
+        }
+        if (rollover) {
+            for (String tenant : new ArrayList<>(usages.keySet())) {
+                // 整个周期没有用量且已全部落盘的租户不再保留，账本中的记录不受影响
+                usages.computeIfPresent(tenant, (key, usage) -> {
+                    UsageRecord snapshot = usage.snapshot();
+                    if (snapshot.minus(usage.windowBase).isEmpty() && snapshot.minus(usage.flushed).isEmpty()) {
+                        return null;
+                    }
+                    usage.windowBase = snapshot;
+                    usage.overBudget = false;
+                    return usage;
+                });
+            }
+            windowStart = currentWindowStart;
+        }
+    }
+
+    /**
+     * 按时间桶聚合账本中的用量，查询前先写入未落盘的增量
+     *
+     * @param tenant        租户，为 null 时查询所有租户
+     * @param from          开始时间(ms)，包含
+     * @param to            结束时间(ms)，不包含
+     * @param bucketMinutes 时间桶长度(分钟)
+     * @return 按时间、租户排序的聚合结果
+     */
+    public synchronized List<UsageRecord> query(String tenant, long from, long to, long bucketMinutes) throws IOException {
+        flush();
+        long bucketMillis = TimeUnit.MINUTES.toMillis(Math.max(1, bucketMinutes));
+        Map<String, UsageRecord> buckets = new LinkedHashMap<>();
+        for (UsageRecord usageRecord : read(tenant, from, to)) {
+            long bucketStart = usageRecord.getTime() - Math.floorMod(usageRecord.getTime() - from, bucketMillis);
+            UsageRecord bucket = buckets.computeIfAbsent(bucketStart + "\t" + usageRecord.getTenant(), key -> {
+                UsageRecord created = new UsageRecord();
+                created.setTime(bucketStart);
+                created.setTenant(usageRecord.getTenant());
+                return created;
+            });
+            bucket.add(usageRecord);
+        }
+        List<UsageRecord> result = new ArrayList<>(buckets.values());
+        result.sort(Comparator.comparingLong(UsageRecord::getTime).thenComparing(UsageRecord::getTenant));
+        return result;
+    }
+
+    /**
+     * 各租户当前计费周期的用量和配额
+     */
+    public List<TenantUsageStats> getTenantUsageStats() {
+        List<TenantUsageStats> tenantUsageStatsList = new ArrayList<>();
+        for (TenantUsage usage : usages.values()) {
+            TenantUsageStats tenantUsageStats = new TenantUsageStats();
+            tenantUsageStats.setTenant(usage.getTenant());
+            tenantUsageStats.setWindowStart(windowStart);
+            tenantUsageStats.setUsage(usage.windowUsage());
+            tenantUsageStats.setQuota(quotaOf(usage.getTenant()));
+            tenantUsageStats.setOverBudget(usage.overBudget);
+            tenantUsageStatsList.add(tenantUsageStats);
+        }
+        tenantUsageStatsList.sort(Comparator.comparing(TenantUsageStats::getTenant));
+        return tenantUsageStatsList;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private TenantUsage usage(String tenant) {
+        return usages.computeIfAbsent(tenant, TenantUsage::new);
+    }
+
+    private SandboxProperties.Quota quotaOf(String tenant) {
+        return properties.getQuotas().getOrDefault(tenant, properties.getDefaultQuota());
+    }
+
+    /**
+     * 逐行读取账本，跳过无法解析的行（例如进程退出时写了一半的最后一行）
+     */
+    private List<UsageRecord> read(String tenant, long from, long to) throws IOException {
+        List<UsageRecord> usageRecords = new ArrayList<>();
+        if (!Files.exists(ledgerPath)) {
+            return usageRecords;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(ledgerPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                UsageRecord usageRecord;
+                try {
+                    usageRecord = objectMapper.readValue(line, UsageRecord.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (usageRecord.getTenant() == null || usageRecord.getTime() < from || usageRecord.getTime() >= to
+                        || (tenant != null && !tenant.equals(usageRecord.getTenant()))) {
+                    continue;
+                }
+                usageRecords.add(usageRecord);
+            }
+        }
+        return usageRecords;
+    }
+
+    /**
+     * 计费周期按本地时区的自然时间对齐，例如一天的周期从零点开始
+     */
+    private long windowStartOf(long time) {
+        long offset = TimeZone.getDefault().getOffset(time);
+        return time - Math.floorMod(time + offset, windowMillis);
+    }
+
+    /**
+     * 任一项达到配额即视为超出，0 表示不限制
+     */
+    private static boolean exceeds(UsageRecord usage, SandboxProperties.Quota quota) {
+        return (quota.getCpuMillis() > 0 && usage.getCpuMillis() >= quota.getCpuMillis())
+                || (quota.getMemoryMbSeconds() > 0 && usage.getMemoryMbSeconds() >= quota.getMemoryMbSeconds())
+                || (quota.getCompileMillis() > 0 && usage.getCompileMillis() >= quota.getCompileMillis())
+                || (quota.getOutputBytes() > 0 && usage.getOutputBytes() >= quota.getOutputBytes());
+    }
+}
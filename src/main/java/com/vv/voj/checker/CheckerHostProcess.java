@@ -0,0 +1,105 @@
+package com.vv.voj.checker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻的宿主 JVM（检查器、对拍），一次只处理一个请求
+ */
+class CheckerHostProcess {
+
+    private final Process process;
+
+    private final BufferedWriter writer;
+
+    private final BufferedReader reader;
+
+    private CheckerHostProcess(Process process) {
+        this.process = process;
+        this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 启动宿主进程
+     *
+     * @param hostDir 宿主 class 所在目录
+     * @param maxHeap 最大堆内存(MB)
+     */
+    static CheckerHostProcess start(File hostDir, int maxHeap) throws IOException {
+        return start(hostDir, "CheckerHost", maxHeap);
+    }
+
+    /**
+     * 启动指定主类的宿主进程
+     *
+     * @param hostDir   宿主 class 所在目录
+     * @param mainClass 宿主主类
+     * @param maxHeap   最大堆内存(MB)
+     */
+    static CheckerHostProcess start(File hostDir, String mainClass, int maxHeap) throws IOException {
+        return start(command(hostDir, mainClass, maxHeap));
+    }
+
+    /**
+     * 宿主进程的启动命令，调用方可以在前面加上绑核等前缀
+     */
+    static List<String> command(File hostDir, String mainClass, int maxHeap) {
+        return Arrays.asList("java", "-Xmx" + maxHeap + "m", "-Dfile.encoding=UTF-8",
+                "-cp", hostDir.getAbsolutePath(), mainClass);
+    }
+
+    /**
+     * 按给定命令启动宿主进程
+     */
+    static CheckerHostProcess start(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command)
+                // 检查器的错误输出不参与判定，直接丢弃，避免写满管道
+                .redirectError(ProcessBuilder.Redirect.to(new File("/dev/null")))
+                .start();
+        return new CheckerHostProcess(process);
+    }
+
+    /**
+     * 发送一行请求，返回宿主输出的一行响应
+     *
+     * @param request      一行请求
+     * @param timeout      超时时间(ms)
+     * @param readExecutor 读取响应的线程池
+     */
+    String call(String request, long timeout, ExecutorService readExecutor) throws Exception {
+        writer.write(request);
+        writer.newLine();
+        writer.flush();
+        Future<String> response = readExecutor.submit(reader::readLine);
+        try {
+            String line = response.get(timeout, TimeUnit.MILLISECONDS);
+            if (line == null) {
+                throw new IOException("宿主进程异常退出");
+            }
+            return line;
+        } catch (TimeoutException e) {
+            response.cancel(true);
+            throw e;
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    void destroy() {
+        process.destroyForcibly();
+    }
+}
@@ -0,0 +1,251 @@
+package com.vv.voj.checker;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.CheckerResult;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.utils.ProcessUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @Title: 特判检查器执行器
+ * 检查器按源码哈希只编译一次，检查在常驻的宿主 JVM 中执行，不必每个用例都冷启动 JVM
+ * 检查器约定：类名 Checker，main 的参数依次为输入文件、选手输出文件、答案文件，
+ * 标准输出第一行为判定：AC [得分]、WA [说明]、PE [说明]、PC 得分 [说明]，不要调用 System.exit
+ * @Author: vv
+ * @Date: 2025/8/12 10:20
+ */
+@Component
+public class CheckerRunner {
+
+    public static final String VERDICT_ACCEPTED = "答案正确";
+
+    public static final String VERDICT_WRONG_ANSWER = "答案错误";
+
+    public static final String VERDICT_PRESENTATION_ERROR = "格式错误";
+
+    public static final String VERDICT_PARTIAL = "部分正确";
+
+    public static final String VERDICT_CHECKER_ERROR = "检查器错误";
+
+    private static final String CHECKER_DIR_NAME = "tmpCode" + File.separator + "checker";
+
+    private static final String HOST_SOURCE = "checker/CheckerHost.java";
+
+    private static final String CHECKER_CLASS_NAME = "Checker";
+
+    private final SandboxProperties.Checker properties;
+
+    private final File checkerRoot;
+
+    /**
+     * 源码哈希 -> 编译结果目录
+     */
+    private final Map<String, CompletableFuture<File>> compiledCheckers = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<CheckerHostProcess> idleHosts = new LinkedBlockingQueue<>();
+
+    /**
+     * 执行检查的线程，数量与宿主 JVM 数量一致
+     */
+    private final ExecutorService checkExecutor;
+
+    /**
+     * 编译检查器和读取宿主响应的线程
+     */
+    private final ExecutorService ioExecutor;
+
+    private volatile File hostDir;
+
+    public CheckerRunner(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getChecker();
+        this.checkerRoot = new File(System.getProperty("user.dir"), CHECKER_DIR_NAME);
+        this.checkExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getHosts()),
+                ThreadFactoryBuilder.create().setNamePrefix("checker-").setDaemon(true).build());
+        this.ioExecutor = Executors.newCachedThreadPool(
+                ThreadFactoryBuilder.create().setNamePrefix("checker-io-").setDaemon(true).build());
+    }
+
+    /**
+     * 为一次提交开启特判，请求中没有检查器时返回 null
+     * 检查器在后台编译，已编译过的直接复用
+     *
+     * @param executeCodeRequest
+     * @param workDir            本次提交的工作目录，检查用的临时文件放在其中
+     */
+    public CheckerSession open(ExecuteCodeRequest executeCodeRequest, File workDir) {
+        if (StrUtil.isBlank(executeCodeRequest.getCheckerCode())) {
+            return null;
+        }
+        File checkDir = FileUtil.mkdir(new File(workDir, "check"));
+        return new CheckerSession(this, compile(executeCodeRequest.getCheckerCode()), checkDir, executeCodeRequest.getAnswerList());
+    }
+
+    /**
+     * 编译检查器，相同源码只编译一次
+     */
+    CompletableFuture<File> compile(String checkerCode) {
+        return compile(checkerCode, CHECKER_CLASS_NAME);
+    }
+
+    /**
+     * 编译题目方提供的程序（检查器、交互器），相同源码只编译一次
+     *
+     * @param source    源码
+     * @param className 主类名
+     * @return 编译结果所在目录
+     */
+    public CompletableFuture<File> compile(String source, String className) {
+        String hash = className + "-" + DigestUtil.sha256Hex(source);
+        CompletableFuture<File> compiled = compiledCheckers.computeIfAbsent(hash,
+                key -> CompletableFuture.supplyAsync(() -> compileSource(key, source, className), ioExecutor));
+        // 编译失败不缓存，下次重新编译
+        compiled.whenComplete((dir, e) -> {
+            if (e != null) {
+                compiledCheckers.remove(hash, compiled);
+            }
+        });
+        return compiled;
+    }
+
+    /**
+     * 在宿主 JVM 中执行一次检查
+     */
+    CheckerResult check(File checkerDir, File inputFile, File outputFile, File answerFile) {
+        CheckerHostProcess host = null;
+        try {
+            host = borrowHost();
+            String request = StrUtil.join("\t", checkerDir.getAbsolutePath(), inputFile.getAbsolutePath(),
+                    outputFile.getAbsolutePath(), answerFile.getAbsolutePath());
+            String line = host.call(request, properties.getTimeout(), ioExecutor);
+            idleHosts.add(host);
+            host = null;
+            return parseVerdict(line);
+        } catch (TimeoutException e) {
+            return new CheckerResult(VERDICT_CHECKER_ERROR, 0, "检查器运行超时");
+        } catch (Exception e) {
+            return new CheckerResult(VERDICT_CHECKER_ERROR, 0, e.getMessage());
+        } finally {
+            // 超时或出错的宿主不再复用
+            if (host != null) {
+                host.destroy();
+            }
+        }
+    }
+
+    ExecutorService getCheckExecutor() {
+        return checkExecutor;
+    }
+
+    /**
+     * 解析检查器输出的判定行
+     */
+    public static CheckerResult parseVerdict(String line) {
+        String[] parts = StrUtil.trim(line).split("\\s+", 2);
+        String rest = parts.length > 1 ? parts[1] : "";
+        switch (parts[0].toUpperCase()) {
+            case "AC": {
+                String[] scoreAndMessage = rest.split("\\s+", 2);
+                if (NumberUtil.isNumber(scoreAndMessage[0])) {
+                    return new CheckerResult(VERDICT_ACCEPTED, clampScore(scoreAndMessage[0]),
+                            scoreAndMessage.length > 1 ? scoreAndMessage[1] : null);
+                }
+                return new CheckerResult(VERDICT_ACCEPTED, 100, StrUtil.emptyToNull(rest));
+            }
+            case "WA":
+                return new CheckerResult(VERDICT_WRONG_ANSWER, 0, StrUtil.emptyToNull(rest));
+            case "PE":
+                return new CheckerResult(VERDICT_PRESENTATION_ERROR, 0, StrUtil.emptyToNull(rest));
+            case "PC": {
+                String[] scoreAndMessage = rest.split("\\s+", 2);
+                if (NumberUtil.isNumber(scoreAndMessage[0])) {
+                    return new CheckerResult(VERDICT_PARTIAL, clampScore(scoreAndMessage[0]),
+                            scoreAndMessage.length > 1 ? scoreAndMessage[1] : null);
+                }
+                return new CheckerResult(VERDICT_CHECKER_ERROR, 0, "部分正确缺少得分：" + line);
+            }
+            default:
+                return new CheckerResult(VERDICT_CHECKER_ERROR, 0, line);
+        }
+    }
+
+    private static double clampScore(String score) {
+        return Math.max(0, Math.min(100, Double.parseDouble(score)));
+    }
+
+    private CheckerHostProcess borrowHost() throws Exception {
+        CheckerHostProcess host;
+        while ((host = idleHosts.poll()) != null) {
+            if (host.isAlive()) {
+                return host;
+            }
+        }
+        // 检查线程数与宿主数量一致，没有空闲宿主时直接新建
+        return CheckerHostProcess.start(getHostDir(), properties.getMaxHeap());
+    }
+
+    private File getHostDir() {
+        if (hostDir == null) {
+            synchronized (this) {
+                if (hostDir == null) {
+                    String hostSource = ResourceUtil.readStr(HOST_SOURCE, StandardCharsets.UTF_8);
+                    hostDir = compileSource("host-" + DigestUtil.sha256Hex(hostSource), hostSource, "CheckerHost");
+                }
+            }
+        }
+        return hostDir;
+    }
+
+    /**
+     * 编译源码到缓存目录，目录中已有编译结果时直接复用
+     */
+    private File compileSource(String dirName, String source, String className) {
+        File dir = new File(checkerRoot, dirName);
+        File classFile = new File(dir, className + ".class");
+        if (classFile.exists()) {
+            return dir;
+        }
+        File sourceFile = FileUtil.writeString(source, new File(dir, className + ".java"), StandardCharsets.UTF_8);
+        try {
+            Process compileProcess = new ProcessBuilder("javac", "-encoding", "utf-8", sourceFile.getAbsolutePath()).start();
+            ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(compileProcess, "检查器编译");
+            if (executeMessage.getExitValue() != 0) {
+                FileUtil.del(dir);
+                throw new RuntimeException(className + " 编译错误");
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(className + " 编译错误", e);
+        }
+        return dir;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        CheckerHostProcess host;
+        while ((host = idleHosts.poll()) != null) {
+            host.destroy();
+        }
+        checkExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+package com.vv.voj.checker;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.CheckerResult;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.trace.SubmissionTrace;
+import com.vv.voj.trace.Tracing;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 一次提交的特判过程
+ * 每个用例运行结束后立即提交检查，检查与下一个用例的运行并行
+ */
+public class CheckerSession {
+
+    private final CheckerRunner checkerRunner;
+
+    private final CompletableFuture<File> compiledChecker;
+
+    private final File checkDir;
+
+    private final List<String> answerList;
+
+    private final List<CompletableFuture<Void>> pendingChecks = new ArrayList<>();
+
+    /**
+     * 已完成的检查中是否有判定未通过的用例
+     */
+    private volatile boolean rejected = false;
+
+    CheckerSession(CheckerRunner checkerRunner, CompletableFuture<File> compiledChecker, File checkDir, List<String> answerList) {
+        this.checkerRunner = checkerRunner;
+        this.compiledChecker = compiledChecker;
+        this.checkDir = checkDir;
+        this.answerList = answerList;
+    }
+
+    /**
+     * 提交一个用例的检查，结果写回 executeMessage
+     *
+     * @param index          用例序号
+     * @param input          用例输入
+     * @param executeMessage 用例的运行结果
+     */
+    public void submit(int index, String input, ExecuteMessage executeMessage) {
+        String answer = CollUtil.get(answerList, index);
+        // 检查在检查器线程上执行，带上提交方线程的提交 ID 和追踪
+        String submissionId = EventLog.currentSubmissionId();
+        SubmissionTrace trace = Tracing.current();
+        CompletableFuture<Void> check = compiledChecker.thenAcceptAsync(checkerDir -> {
+            try (EventLog.Scope bound = EventLog.bind(submissionId);
+                 Tracing.Scope ignored = Tracing.activate(trace);
+                 Tracing.Span span = Tracing.span("checker.check").arg("index", index)) {
+                check(index, input, answer, checkerDir, executeMessage);
+            }
+        }, checkerRunner.getCheckExecutor());
+        pendingChecks.add(check);
+    }
+
+    private void check(int index, String input, String answer, File checkerDir, ExecuteMessage executeMessage) {
+        if (executeMessage.getMessage() == null) {
+            executeMessage.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_CHECKER_ERROR, 0, "摘要模式下没有完整输出，无法特判"));
+            return;
+        }
+        File inputFile = FileUtil.writeString(input, new File(checkDir, index + ".in"), StandardCharsets.UTF_8);
+        File outputFile = FileUtil.writeString(executeMessage.getMessage(), new File(checkDir, index + ".out"), StandardCharsets.UTF_8);
+        File answerFile = FileUtil.writeString(answer == null ? "" : answer, new File(checkDir, index + ".ans"), StandardCharsets.UTF_8);
+        CheckerResult checkerResult = checkerRunner.check(checkerDir, inputFile, outputFile, answerFile);
+        executeMessage.setCheckerResult(checkerResult);
+        if (!CheckerRunner.VERDICT_ACCEPTED.equals(checkerResult.getVerdict())
+                && !CheckerRunner.VERDICT_CHECKER_ERROR.equals(checkerResult.getVerdict())) {
+            rejected = true;
+        }
+    }
+
+    /**
+     * 已完成的检查中是否有答错的用例，不等待未完成的检查
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * 等待所有检查完成
+     */
+    public void await() {
+        try {
+            CompletableFuture.allOf(pendingChecks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
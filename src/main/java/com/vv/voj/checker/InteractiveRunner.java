@@ -0,0 +1,243 @@
+package com.vv.voj.checker;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.JavaCodeSandboxTemplate;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.limit.RunLimits;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.CheckerResult;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.model.InteractionInfo;
+import com.vv.voj.utils.ProcessUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @Title: 交互题执行器
+ * 交互器与选手程序通过命名管道直接相连，数据不经过 Java：
+ * 交互器 stdout -> dd -> 选手 stdin，选手 stdout -> dd -> 交互器 stdin，
+ * dd 只做字节转发，退出时给出转发的字节数和读取次数，用来统计交互量和交互轮数
+ * 交互器约定：类名 Interactor，main 的第一个参数为输入文件，
+ * 标准错误第一行为判定（格式同特判检查器），没有输出时按退出码判定，0 为答案正确
+ * @Author: vv
+ * @Date: 2025/8/13 9:40
+ */
+@Component
+public class InteractiveRunner {
+
+    public static final String INTERACTOR_CLASS_NAME = "Interactor";
+
+    /**
+     * 参数：$1 用例目录 $2 交互器堆内存 $3 交互器目录 $4 选手堆内存 $5 选手目录 $6 选手程序启动命令（可能带绑核前缀）
+     * 重定向的先后顺序保证四个管道依次配对打开，不会互相等待
+     */
+    private static final String INTERACT_SCRIPT = "cd \"$1\" || exit 1\n"
+            + "mkfifo q1 q2 a1 a2 || exit 1\n"
+            + "LC_ALL=C dd bs=65536 <q1 >q2 2>q.stat &\n"
+            + "LC_ALL=C dd bs=65536 <a1 >a2 2>a.stat &\n"
+            + "java -Xmx\"$2\"m -Dfile.encoding=UTF-8 -cp \"$3\" Interactor input.txt >q1 <a2 2>interactor.err &\n"
+            + "I=$!\n"
+            + "$6 -Xmx\"$4\"m -Dfile.encoding=UTF-8 -cp \"$5\" Main >a1 <q2 2>solution.err &\n"
+            + "S=$!\n"
+            + "echo \"$I $S\"\n"
+            + "wait $S; echo \"solution $?\"\n"
+            + "wait $I; echo \"interactor $?\"\n"
+            + "wait\n";
+
+    private static final Pattern DD_RECORDS_PATTERN = Pattern.compile("(\\d+)\\+(\\d+) records in");
+
+    private static final Pattern DD_BYTES_PATTERN = Pattern.compile("(\\d+) bytes");
+
+    private final SandboxProperties.Interactive properties;
+
+    private final CheckerRunner checkerRunner;
+
+    public InteractiveRunner(SandboxProperties sandboxProperties, CheckerRunner checkerRunner) {
+        this.properties = sandboxProperties.getInteractive();
+        this.checkerRunner = checkerRunner;
+    }
+
+    /**
+     * 编译交互器，相同源码只编译一次
+     */
+    public CompletableFuture<File> compileInteractor(String interactorCode) {
+        return checkerRunner.compile(interactorCode, INTERACTOR_CLASS_NAME);
+    }
+
+    /**
+     * 运行一个交互用例
+     *
+     * @param interactorDir 交互器 class 所在目录
+     * @param solutionDir   选手程序 class 所在目录
+     * @param caseDir       本用例的工作目录
+     * @param input         交给交互器的输入
+     * @param javaCommand   选手程序的启动命令，绑核时带 taskset 前缀
+     * @param limits        选手程序的运行限制
+     */
+    public ExecuteMessage run(File interactorDir, File solutionDir, File caseDir, String input, String javaCommand,
+                              RunLimits limits) {
+        FileUtil.mkdir(caseDir);
+        FileUtil.writeString(input, new File(caseDir, "input.txt"), StandardCharsets.UTF_8);
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        InteractionInfo interactionInfo = new InteractionInfo();
+        Process shell = null;
+        try {
+            shell = new ProcessBuilder("sh", "-c", INTERACT_SCRIPT, "sh",
+                    caseDir.getAbsolutePath(),
+                    String.valueOf(properties.getInteractorMaxHeap()), interactorDir.getAbsolutePath(),
+                    String.valueOf(limits.getMemoryLimit()), solutionDir.getAbsolutePath(),
+                    javaCommand)
+                    .redirectErrorStream(true)
+                    .start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(shell.getInputStream(), StandardCharsets.UTF_8));
+            String[] pids = StrUtil.splitToArray(StrUtil.trim(reader.readLine()), ' ');
+            if (pids.length != 2) {
+                throw new RuntimeException("交互进程启动失败");
+            }
+            long interactorPid = Long.parseLong(pids[0]);
+            long solutionPid = Long.parseLong(pids[1]);
+
+            // 两侧分别按 CPU 时间限时，双方互相等待导致的僵持按墙钟时间兜底
+            long wallLimit = limits.getWallLimit() + properties.getInteractorTimeout();
+            // 两侧的常驻内存(KB)分别不超过各自的堆上限加上 JVM 自身开销
+            long solutionMemoryLimit = (limits.getMemoryLimit() + properties.getMemoryOverhead()) * 1024;
+            long interactorMemoryLimit = (properties.getInteractorMaxHeap() + properties.getMemoryOverhead()) * 1024L;
+            long start = System.currentTimeMillis();
+            boolean solutionTimeout = false;
+            boolean solutionMemoryExceeded = false;
+            boolean interactorTimeout = false;
+            boolean interactorMemoryExceeded = false;
+            boolean wallTimeout = false;
+            while (!shell.waitFor(limits.getSampleInterval(), TimeUnit.MILLISECONDS)) {
+                long[] solution = ProcessUtils.sampleUsage(solutionPid);
+                long[] interactor = ProcessUtils.sampleUsage(interactorPid);
+                if (solution != null) {
+                    interactionInfo.setSolutionTime(solution[0]);
+                    interactionInfo.setSolutionMemory(Math.max(interactionInfo.getSolutionMemory(), solution[1]));
+                    if (solution[0] > limits.getCpuLimit()) {
+                        solutionTimeout = true;
+                        kill(solutionPid);
+                    } else if (solution[1] > solutionMemoryLimit) {
+                        solutionMemoryExceeded = true;
+                        kill(solutionPid);
+                    }
+                }
+                if (interactor != null) {
+                    interactionInfo.setInteractorTime(interactor[0]);
+                    interactionInfo.setInteractorMemory(Math.max(interactionInfo.getInteractorMemory(), interactor[1]));
+                    if (interactor[0] > properties.getInteractorTimeout()) {
+                        interactorTimeout = true;
+                        kill(interactorPid);
+                    } else if (interactor[1] > interactorMemoryLimit) {
+                        interactorMemoryExceeded = true;
+                        kill(interactorPid);
+                    }
+                }
+                if (System.currentTimeMillis() - start > wallLimit) {
+                    wallTimeout = true;
+                    kill(solutionPid);
+                    kill(interactorPid);
+                }
+            }
+            int solutionExit = -1;
+            int interactorExit = -1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("solution ")) {
+                    solutionExit = Integer.parseInt(line.substring("solution ".length()).trim());
+                } else if (line.startsWith("interactor ")) {
+                    interactorExit = Integer.parseInt(line.substring("interactor ".length()).trim());
+                }
+            }
+
+            long[] toSolution = parseDdStat(new File(caseDir, "q.stat"));
+            long[] toInteractor = parseDdStat(new File(caseDir, "a.stat"));
+            interactionInfo.setInteractorBytes(toSolution[0]);
+            interactionInfo.setSolutionBytes(toInteractor[0]);
+            interactionInfo.setRoundTrips(toInteractor[1]);
+
+            executeMessage.setExitValue(solutionExit);
+            interactionInfo.setSolutionTime(limits.normalizeTime(interactionInfo.getSolutionTime()));
+            executeMessage.setTime(interactionInfo.getSolutionTime());
+            executeMessage.setMemory(interactionInfo.getSolutionMemory());
+            executeMessage.setInteractionInfo(interactionInfo);
+            if (solutionTimeout || wallTimeout) {
+                executeMessage.setErrorMessage(JavaCodeSandboxTemplate.TIME_LIMIT_EXCEEDED);
+            } else if (solutionMemoryExceeded) {
+                executeMessage.setErrorMessage(JavaCodeSandboxTemplate.MEMORY_LIMIT_EXCEEDED);
+            } else if (solutionExit != 0) {
+                String solutionError = FileUtil.readUtf8String(new File(caseDir, "solution.err"));
+                executeMessage.setErrorMessage(solutionError.contains("java.lang.OutOfMemoryError")
+                        ? JavaCodeSandboxTemplate.MEMORY_LIMIT_EXCEEDED : readHead(new File(caseDir, "solution.err")));
+            }
+            if (interactorTimeout) {
+                executeMessage.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_CHECKER_ERROR, 0, "交互器运行超时"));
+            } else if (interactorMemoryExceeded) {
+                executeMessage.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_CHECKER_ERROR, 0, "交互器内存超限"));
+            } else {
+                executeMessage.setCheckerResult(interactorVerdict(interactorExit, new File(caseDir, "interactor.err")));
+            }
+            return executeMessage;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("交互执行失败", e);
+        } finally {
+            if (shell != null) {
+                shell.destroyForcibly();
+            }
+        }
+    }
+
+    private CheckerResult interactorVerdict(int exitValue, File errFile) {
+        String verdictLine = readHead(errFile);
+        if (StrUtil.isNotBlank(verdictLine)) {
+            return CheckerRunner.parseVerdict(verdictLine);
+        }
+        return exitValue == 0
+                ? new CheckerResult(CheckerRunner.VERDICT_ACCEPTED, 100, null)
+                : new CheckerResult(CheckerRunner.VERDICT_WRONG_ANSWER, 0, "交互器退出码：" + exitValue);
+    }
+
+    private static void kill(long pid) {
+        try {
+            Runtime.getRuntime().exec(new String[]{"kill", "-9", String.valueOf(pid)}).waitFor();
+        } catch (Exception e) {
+            EventLog.warn("interactive", "结束交互进程失败", "pid", pid, e);
+        }
+    }
+
+    /**
+     * 解析 dd 的统计：转发的字节数和读取次数
+     * 管道按到达的数据读取，每次读取对应对方的一批输出
+     */
+    private static long[] parseDdStat(File statFile) {
+        if (!statFile.exists()) {
+            return new long[]{0, 0};
+        }
+        String stat = FileUtil.readUtf8String(statFile);
+        Matcher records = DD_RECORDS_PATTERN.matcher(stat);
+        long reads = records.find() ? Long.parseLong(records.group(1)) + Long.parseLong(records.group(2)) : 0;
+        String bytes = ReUtil.getGroup1(DD_BYTES_PATTERN, stat);
+        return new long[]{bytes == null ? 0 : Long.parseLong(bytes), reads};
+    }
+
+    private static String readHead(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        String content = StrUtil.trim(FileUtil.readUtf8String(file));
+        int lineEnd = content.indexOf('\n');
+        return lineEnd < 0 ? content : content.substring(0, lineEnd).trim();
+    }
+}
@@ -0,0 +1,477 @@
+package com.vv.voj.checker;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.StressCase;
+import com.vv.voj.model.StressRequest;
+import com.vv.voj.model.StressResponse;
+import com.vv.voj.scheduler.AdaptiveConcurrencyLimiter;
+import com.vv.voj.scheduler.CapacityExceededException;
+import com.vv.voj.scheduler.CpuCoreAllocator;
+import com.vv.voj.security.BytecodeScanner;
+import com.vv.voj.utils.OutputDigester;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * @Title: 对拍
+ * 生成器、标程、待测程序各编译一次（相同源码复用编译结果），每个工作线程持有一个常驻宿主 JVM，
+ * 每次运行只新建类加载器，不再为每个用例启动三个 JVM；发现第一个不一致后停止，再从小规模开始缩小反例。
+ * 每个用例和判题用例一样先申请运行位置（并发限制 + 独占核心组），同时进行的对拍数有上限
+ * @Author: vv
+ * @Date: 2025/8/17 10:00
+ */
+@Component
+public class StressRunner {
+
+    public static final String STATUS_FOUND = "发现反例";
+
+    public static final String STATUS_PASSED = "未发现反例";
+
+    public static final String STATUS_COMPILE_ERROR = "编译错误";
+
+    public static final String STATUS_FORBIDDEN = "禁止操作";
+
+    public static final String STATUS_GENERATOR_ERROR = "生成器错误";
+
+    public static final String STATUS_REFERENCE_ERROR = "标程错误";
+
+    private static final String HOST_SOURCE = "stress/StressHost.java";
+
+    private static final String HOST_CLASS_NAME = "StressHost";
+
+    private static final String MAIN_CLASS_NAME = "Main";
+
+    /**
+     * 宿主在用例结束后发现仍有线程存活时加在响应前的标记
+     */
+    private static final String LEAK_PREFIX = "LEAK ";
+
+    private final SandboxProperties.Stress properties;
+
+    private final CheckerRunner checkerRunner;
+
+    private final BytecodeScanner bytecodeScanner;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final CpuCoreAllocator cpuCoreAllocator;
+
+    /**
+     * 同时进行的对拍数，已满时直接拒绝
+     */
+    private final Semaphore jobPermits;
+
+    private final ExecutorService workerExecutor;
+
+    /**
+     * 读取宿主响应，超时后可以放弃等待
+     */
+    private final ExecutorService ioExecutor;
+
+    public StressRunner(SandboxProperties sandboxProperties, CheckerRunner checkerRunner, BytecodeScanner bytecodeScanner,
+                        AdaptiveConcurrencyLimiter concurrencyLimiter, CpuCoreAllocator cpuCoreAllocator) {
+        this.properties = sandboxProperties.getStress();
+        this.checkerRunner = checkerRunner;
+        this.bytecodeScanner = bytecodeScanner;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.cpuCoreAllocator = cpuCoreAllocator;
+        this.jobPermits = new Semaphore(Math.max(1, properties.getMaxJobs()));
+        this.workerExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()),
+                ThreadFactoryBuilder.create().setNamePrefix("stress-").setDaemon(true).build());
+        this.ioExecutor = Executors.newCachedThreadPool(
+                ThreadFactoryBuilder.create().setNamePrefix("stress-io-").setDaemon(true).build());
+    }
+
+    /**
+     * 执行一次对拍
+     *
+     * @param stressRequest 对拍请求
+     * @return 对拍结果，发现反例时包含第一个反例和缩小后的最小反例
+     */
+    public StressResponse run(StressRequest stressRequest) {
+        if (StrUtil.hasBlank(stressRequest.getGeneratorCode(), stressRequest.getReferenceCode(), stressRequest.getCandidateCode())) {
+            throw new RuntimeException("生成器、标程和待测程序都不能为空");
+        }
+        if (!jobPermits.tryAcquire()) {
+            throw new CapacityExceededException("对拍任务过多，请稍后再试");
+        }
+        try {
+            return runJob(stressRequest);
+        } finally {
+            jobPermits.release();
+        }
+    }
+
+    private StressResponse runJob(StressRequest stressRequest) {
+        StressResponse stressResponse = new StressResponse();
+        // 1. 四份源码并行编译，已编译过的直接复用
+        long compileStart = System.currentTimeMillis();
+        CompletableFuture<File> host = checkerRunner.compile(ResourceUtil.readStr(HOST_SOURCE, StandardCharsets.UTF_8), HOST_CLASS_NAME);
+        CompletableFuture<File> generator = checkerRunner.compile(stressRequest.getGeneratorCode(), MAIN_CLASS_NAME);
+        CompletableFuture<File> reference = checkerRunner.compile(stressRequest.getReferenceCode(), MAIN_CLASS_NAME);
+        CompletableFuture<File> candidate = checkerRunner.compile(stressRequest.getCandidateCode(), MAIN_CLASS_NAME);
+        StressJob job = new StressJob();
+        try {
+            job.hostDir = join(host, "对拍宿主");
+            job.generatorDir = join(generator, "生成器");
+            job.referenceDir = join(reference, "标程");
+            job.candidateDir = join(candidate, "待测程序");
+        } catch (RuntimeException e) {
+            stressResponse.setStatus(STATUS_COMPILE_ERROR);
+            stressResponse.setMessage(e.getMessage());
+            return stressResponse;
+        }
+        stressResponse.setCompileMillis(System.currentTimeMillis() - compileStart);
+
+        // 2. 三个程序都在宿主 JVM 中运行，先做字节码预检
+        String violation = scan(job);
+        if (violation != null) {
+            stressResponse.setStatus(STATUS_FORBIDDEN);
+            stressResponse.setMessage(violation);
+            return stressResponse;
+        }
+
+        int cases = Math.min(properties.getMaxCases(),
+                stressRequest.getCases() == null ? properties.getDefaultCases() : Math.max(1, stressRequest.getCases()));
+        long baseSeed = stressRequest.getSeed() == null ? System.nanoTime() : stressRequest.getSeed();
+        int minSize = stressRequest.getMinSize() == null ? properties.getMinSize() : stressRequest.getMinSize();
+        int maxSize = Math.max(minSize, stressRequest.getMaxSize() == null ? properties.getMaxSize() : stressRequest.getMaxSize());
+        job.timeout = Math.min(properties.getMaxTimeout(),
+                stressRequest.getTimeLimit() == null ? properties.getTimeout() : stressRequest.getTimeLimit());
+
+        List<StressWorker> workers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, properties.getThreads()); i++) {
+            workers.add(new StressWorker(job));
+        }
+        long start = System.currentTimeMillis();
+        try {
+            // 3. 规模从小到大递增，所有核心并行运行，发现不一致后停止
+            SearchResult search = search(workers, cases,
+                    index -> new long[]{baseSeed + index, minSize + (long) (maxSize - minSize) * index / Math.max(1, cases - 1)});
+            long searchMillis = Math.max(1L, System.currentTimeMillis() - start);
+            stressResponse.setCasesRun(search.casesRun);
+            stressResponse.setCasesPerSecond(search.casesRun * 1000.0 / searchMillis);
+            if (search.fatalStatus != null) {
+                stressResponse.setStatus(search.fatalStatus);
+                stressResponse.setMessage(search.fatalMessage);
+            } else if (search.failure == null) {
+                stressResponse.setStatus(STATUS_PASSED);
+            } else {
+                stressResponse.setStatus(STATUS_FOUND);
+                stressResponse.setMessage(search.failure.getMessage());
+                stressResponse.setFirstFailure(search.failure);
+                // 4. 从最小规模开始重新生成，找到规模最小的反例
+                stressResponse.setMinimalFailure(shrink(workers, search.failure, minSize, baseSeed + cases));
+            }
+        } finally {
+            workers.forEach(StressWorker::close);
+        }
+        stressResponse.setElapsedMillis(System.currentTimeMillis() - start);
+        EventLog.info("stress", "对拍结束", "status", stressResponse.getStatus(), "cases", stressResponse.getCasesRun(),
+                "casesPerSecond", Math.round(stressResponse.getCasesPerSecond()), "elapsedMs", stressResponse.getElapsedMillis());
+        return stressResponse;
+    }
+
+    /**
+     * 在比第一个反例更小的规模上逐个尝试，每个规模试若干个种子，第一个出错的规模即为最小反例
+     */
+    StressCase shrink(List<? extends CaseRunner> workers, StressCase failure, int minSize, long seedBase) {
+        int seeds = Math.max(1, properties.getShrinkSeeds());
+        int budget = properties.getMaxShrinkRuns();
+        for (int size = minSize; size < failure.getSize() && budget >= seeds; size++) {
+            final int currentSize = size;
+            final long sizeSeedBase = seedBase + (long) size * seeds;
+            SearchResult search = search(workers, seeds, index -> new long[]{sizeSeedBase + index, currentSize});
+            budget -= seeds;
+            if (search.fatalStatus != null) {
+                break;
+            }
+            if (search.failure != null) {
+                return search.failure;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * 所有工作线程从同一个计数器领取用例，任一线程发现反例或遇到致命错误后全部停止
+     *
+     * @param workers   工作线程，各自持有一个宿主 JVM
+     * @param count     用例数
+     * @param caseParam 用例序号 -> {种子, 规模}
+     * @return 序号最小的反例
+     */
+    SearchResult search(List<? extends CaseRunner> workers, int count, LongFunction<long[]> caseParam) {
+        AtomicLong next = new AtomicLong();
+        AtomicLong casesRun = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        SearchResult result = new SearchResult();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (CaseRunner worker : workers) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                long index;
+                while (!stop.get() && (index = next.getAndIncrement()) < count) {
+                    long[] param = caseParam.apply(index);
+                    StressCase stressCase;
+                    try {
+                        stressCase = worker.runCase(param[0], (int) param[1]);
+                    } catch (StressAbortException e) {
+                        synchronized (result) {
+                            if (result.fatalStatus == null) {
+                                result.fatalStatus = e.status;
+                                result.fatalMessage = e.getMessage();
+                            }
+                        }
+                        stop.set(true);
+                        return;
+                    }
+                    casesRun.incrementAndGet();
+                    if (stressCase != null) {
+                        // 并行时后领取的用例可能先失败，保留序号最小的
+                        synchronized (result) {
+                            if (result.failure == null || index < result.failureIndex) {
+                                result.failure = stressCase;
+                                result.failureIndex = index;
+                            }
+                        }
+                        stop.set(true);
+                    }
+                }
+            }, workerExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        result.casesRun = casesRun.get();
+        return result;
+    }
+
+    private String scan(StressJob job) {
+        if (bytecodeScanner == null) {
+            return null;
+        }
+        String[][] programs = {{"生成器", job.generatorDir.getAbsolutePath()}, {"标程", job.referenceDir.getAbsolutePath()},
+                {"待测程序", job.candidateDir.getAbsolutePath()}};
+        for (String[] program : programs) {
+            String violation = bytecodeScanner.scan(new File(program[1]));
+            if (violation != null) {
+                return program[0] + "：" + violation;
+            }
+        }
+        return null;
+    }
+
+    private static File join(CompletableFuture<File> compiled, String name) {
+        try {
+            return compiled.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(name + "编译错误", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * 一次对拍用到的编译结果和限制
+     */
+    private static class StressJob {
+
+        private File hostDir;
+
+        private File generatorDir;
+
+        private File referenceDir;
+
+        private File candidateDir;
+
+        private long timeout;
+    }
+
+    /**
+     * 一次搜索的结果，包内可见供测试检查
+     */
+    static class SearchResult {
+
+        StressCase failure;
+
+        long failureIndex;
+
+        long casesRun;
+
+        String fatalStatus;
+
+        String fatalMessage;
+    }
+
+    /**
+     * 运行单个用例，输出一致时返回 null，不一致时返回反例；无法继续对拍时抛出 {@link StressAbortException}
+     */
+    interface CaseRunner {
+
+        StressCase runCase(long seed, int size);
+    }
+
+    /**
+     * 生成器或标程出错时无法继续对拍
+     */
+    static class StressAbortException extends RuntimeException {
+
+        private final String status;
+
+        StressAbortException(String status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * 工作线程，持有一个宿主 JVM，超时或宿主退出后重新启动；宿主绑定在最近一次申请到的核心组上
+     */
+    private class StressWorker implements CaseRunner {
+
+        private final StressJob job;
+
+        private CheckerHostProcess host;
+
+        private String coreSet;
+
+        StressWorker(StressJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public StressCase runCase(long seed, int size) {
+            acquireSlot();
+            try {
+                return compare(seed, size);
+            } finally {
+                releaseSlot();
+            }
+        }
+
+        /**
+         * 和判题用例共用运行位置，优先申请宿主已绑定的核心组，换了核心组时重启宿主
+         */
+        private void acquireSlot() {
+            concurrencyLimiter.acquire();
+            try {
+                String acquired = cpuCoreAllocator.acquire(coreSet);
+                if (host != null && cpuCoreAllocator.isPinning() && !acquired.equals(coreSet)) {
+                    close();
+                }
+                coreSet = acquired;
+            } catch (RuntimeException e) {
+                concurrencyLimiter.release();
+                throw e;
+            }
+        }
+
+        private void releaseSlot() {
+            cpuCoreAllocator.release(coreSet);
+            concurrencyLimiter.release();
+        }
+
+        private StressCase compare(long seed, int size) {
+            RunResult generated = call(job.generatorDir, new String[]{String.valueOf(seed), String.valueOf(size)});
+            if (generated.output == null) {
+                throw new StressAbortException(STATUS_GENERATOR_ERROR, "种子 " + seed + " 规模 " + size + "：" + generated.error);
+            }
+            String input = generated.output.trim();
+            String[] args = input.isEmpty() ? new String[0] : input.split("\\s+");
+            RunResult expected = call(job.referenceDir, args);
+            if (expected.output == null) {
+                throw new StressAbortException(STATUS_REFERENCE_ERROR, "输入 " + input + "：" + expected.error);
+            }
+            RunResult actual = call(job.candidateDir, args);
+            String message;
+            if (actual.output == null) {
+                message = actual.error;
+            } else if (!digest(expected.output).equals(digest(actual.output))) {
+                message = CheckerRunner.VERDICT_WRONG_ANSWER;
+            } else {
+                return null;
+            }
+            StressCase stressCase = new StressCase();
+            stressCase.setSeed(seed);
+            stressCase.setSize(size);
+            stressCase.setInput(input);
+            stressCase.setExpectedOutput(expected.output);
+            stressCase.setActualOutput(actual.output);
+            stressCase.setMessage(message);
+            return stressCase;
+        }
+
+        private RunResult call(File classDir, String[] args) {
+            RunResult runResult = new RunResult();
+            try {
+                if (host == null || !host.isAlive()) {
+                    host = CheckerHostProcess.start(cpuCoreAllocator.wrapCommand(
+                            CheckerHostProcess.command(job.hostDir, HOST_CLASS_NAME, properties.getMaxHeap()), coreSet));
+                }
+                String request = classDir.getAbsolutePath() + (args.length == 0 ? "" : "\t" + String.join("\t", args));
+                String line = host.call(request, job.timeout, ioExecutor);
+                if (line.startsWith(LEAK_PREFIX)) {
+                    // 程序留下的线程会写入之后运行的输出，本次结果仍然有效，下次换一个新的宿主
+                    close();
+                    line = line.substring(LEAK_PREFIX.length());
+                }
+                if (line.startsWith("OK ")) {
+                    runResult.output = new String(Base64.getDecoder().decode(line.substring(3)), StandardCharsets.UTF_8);
+                } else if ("OLE".equals(line)) {
+                    runResult.error = "输出超限";
+                } else {
+                    runResult.error = "运行错误：" + StrUtil.removePrefix(line, "RE ");
+                }
+            } catch (TimeoutException e) {
+                // 超时的程序仍在宿主中运行，只能结束整个宿主
+                close();
+                runResult.error = "运行超时";
+            } catch (Exception e) {
+                close();
+                runResult.error = "运行错误：" + e.getMessage();
+            }
+            return runResult;
+        }
+
+        private String digest(String output) {
+            OutputDigester digester = new OutputDigester(0);
+            digester.update(output.getBytes(StandardCharsets.UTF_8));
+            return digester.finish().getSha256();
+        }
+
+        void close() {
+            if (host != null) {
+                host.destroy();
+                host = null;
+            }
+        }
+    }
+
+    private static class RunResult {
+
+        private String output;
+
+        private String error;
+    }
+}
@@ -0,0 +1,224 @@
+package com.vv.voj.cluster;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.NodeInfo;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Title: 集群协调者
+ * 记录工作节点上报的空闲槽位和支持的语言，把提交转发给负载最低的节点；节点不可达时换节点重试，支持摘流。
+ * 心跳需要集群令牌或节点地址白名单，防止任意来源注册节点接收提交；转发时带上提交 ID，
+ * 只有确定请求没有被节点接收（连接失败、503）时才换节点，读超时不重试
+ * @Author: vv
+ * @Date: 2025/8/8 10:00
+ */
+@Component
+public class ClusterCoordinator {
+
+    public static final String TOKEN_HEADER = "X-Cluster-Token";
+
+    private final SandboxProperties.Cluster properties;
+
+    private final RestTemplate restTemplate;
+
+    private final Map<String, NodeInfo> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * 协调者侧摘流的节点，心跳不会覆盖
+     */
+    private final Set<String> drainedNodes = ConcurrentHashMap.newKeySet();
+
+    public ClusterCoordinator(SandboxProperties sandboxProperties, RestTemplateBuilder restTemplateBuilder) {
+        this.properties = sandboxProperties.getCluster();
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(2000))
+                .setReadTimeout(Duration.ofMillis(properties.getRequestTimeout()))
+                .build();
+    }
+
+    public boolean isCoordinator() {
+        return "coordinator".equalsIgnoreCase(properties.getRole());
+    }
+
+    /**
+     * 节点注册和心跳，令牌或节点地址不符合配置时拒绝
+     *
+     * @param nodeInfo 节点上报的信息
+     * @param token    心跳携带的集群令牌
+     */
+    public synchronized void heartbeat(NodeInfo nodeInfo, String token) {
+        authenticate(nodeInfo, token);
+        nodeInfo.setLastHeartbeat(System.currentTimeMillis());
+        nodeInfo.setDispatched(0);
+        nodeInfo.setFailures(0);
+        nodeInfo.setDraining(nodeInfo.isDraining() || drainedNodes.contains(nodeInfo.getNodeId()));
+        nodes.put(nodeInfo.getNodeId(), nodeInfo);
+    }
+
+    public List<NodeInfo> getNodes() {
+        evictDeadNodes();
+        return new ArrayList<>(nodes.values());
+    }
+
+    /**
+     * 摘流：不再给该节点分配新提交，执行中的提交不受影响，便于发布
+     */
+    public synchronized boolean drain(String nodeId) {
+        drainedNodes.add(nodeId);
+        NodeInfo nodeInfo = nodes.get(nodeId);
+        if (nodeInfo != null) {
+            nodeInfo.setDraining(true);
+        }
+        return nodeInfo != null;
+    }
+
+    public synchronized boolean resume(String nodeId) {
+        drainedNodes.remove(nodeId);
+        NodeInfo nodeInfo = nodes.get(nodeId);
+        if (nodeInfo != null) {
+            nodeInfo.setDraining(false);
+        }
+        return nodeInfo != null;
+    }
+
+    /**
+     * 转发提交到负载最低的节点，节点不可达或未就绪时换节点重试
+     *
+     * @param executeCodeRequest 执行请求
+     * @param headers            需要透传的请求头（租户、优先级）
+     * @return 执行结果
+     */
+    public ExecuteCodeResponse dispatch(ExecuteCodeRequest executeCodeRequest, HttpHeaders headers) {
+        // 每次尝试使用同一个提交 ID，工作节点可以据此拒绝重复提交，结果也能按 ID 查询
+        if (executeCodeRequest.getSubmissionId() == null) {
+            executeCodeRequest.setSubmissionId(UUID.randomUUID().toString());
+        }
+        Set<String> triedNodes = new HashSet<>();
+        RuntimeException lastException = null;
+        for (int attempt = 0; attempt <= properties.getMaxRetries(); attempt++) {
+            NodeInfo node = pickNode(executeCodeRequest.getLanguage(), triedNodes);
+            if (node == null) {
+                break;
+            }
+            triedNodes.add(node.getNodeId());
+            try {
+                return restTemplate.postForObject(node.getUrl() + "/executeCode",
+                        new HttpEntity<>(executeCodeRequest, headers), ExecuteCodeResponse.class);
+            } catch (ResourceAccessException e) {
+                markFailure(node);
+                if (!isConnectFailure(e)) {
+                    // 请求可能已经在节点上执行，换节点会重复执行，按提交 ID 到该节点查询结果
+                    throw new RuntimeException("节点 " + node.getNodeId() + " 响应超时，提交 ID："
+                            + executeCodeRequest.getSubmissionId(), e);
+                }
+                // 连接失败，请求没有到达节点，节点可能已经宕机
+                lastException = new RuntimeException("节点 " + node.getNodeId() + " 不可达", e);
+            } catch (HttpStatusCodeException e) {
+                if (e.getStatusCode() != HttpStatus.SERVICE_UNAVAILABLE) {
+                    // 编译错误等业务异常换节点也一样，不重试
+                    throw new RuntimeException(e.getResponseBodyAsString(), e);
+                }
+                markFailure(node);
+                lastException = new RuntimeException("节点 " + node.getNodeId() + " 繁忙", e);
+            }
+        }
+        if (lastException != null) {
+            throw lastException;
+        }
+        throw new RuntimeException("没有可用的判题节点");
+    }
+
+    /**
+     * 令牌和地址白名单至少配置一项，配置了的都必须满足
+     */
+    private void authenticate(NodeInfo nodeInfo, String token) {
+        String expectedToken = properties.getToken();
+        List<String> allowedNodeUrls = properties.getAllowedNodeUrls();
+        if (StrUtil.isEmpty(expectedToken) && CollUtil.isEmpty(allowedNodeUrls)) {
+            throw new RuntimeException("未配置集群令牌或节点白名单，拒绝节点注册");
+        }
+        if (StrUtil.isNotEmpty(expectedToken) && (token == null || !MessageDigest.isEqual(
+                expectedToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8)))) {
+            throw new RuntimeException("集群令牌错误");
+        }
+        if (CollUtil.isNotEmpty(allowedNodeUrls) && !allowedNodeUrls.contains(nodeInfo.getUrl())) {
+            throw new RuntimeException("节点地址不在白名单中：" + nodeInfo.getUrl());
+        }
+    }
+
+    /**
+     * 只有建立连接失败才能确定请求没有发出，读超时等其他异常都可能已经执行
+     */
+    static boolean isConnectFailure(ResourceAccessException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+                || cause instanceof UnknownHostException) {
+            return true;
+        }
+        return cause instanceof SocketTimeoutException && cause.getMessage() != null
+                && cause.getMessage().toLowerCase().contains("connect");
+    }
+
+    /**
+     * 选出支持该语言、未摘流、空闲槽位最多的节点
+     */
+    private synchronized NodeInfo pickNode(String language, Set<String> excludeNodes) {
+        evictDeadNodes();
+        NodeInfo picked = null;
+        for (NodeInfo node : nodes.values()) {
+            if (node.isDraining() || node.getFailures() > 0 || excludeNodes.contains(node.getNodeId())) {
+                continue;
+            }
+            if (language != null && node.getLanguages() != null && !node.getLanguages().contains(language)) {
+                continue;
+            }
+            if (picked == null || freeSlots(node) > freeSlots(picked)) {
+                picked = node;
+            }
+        }
+        if (picked != null) {
+            // 下次心跳前按已分配数扣减空闲槽位
+            picked.setDispatched(picked.getDispatched() + 1);
+        }
+        return picked;
+    }
+
+    private static int freeSlots(NodeInfo node) {
+        return node.getFreeSlots() - node.getDispatched();
+    }
+
+    private synchronized void markFailure(NodeInfo node) {
+        node.setFailures(node.getFailures() + 1);
+    }
+
+    private void evictDeadNodes() {
+        long deadline = System.currentTimeMillis() - properties.getNodeTimeout();
+        nodes.values().removeIf(node -> node.getLastHeartbeat() < deadline);
+    }
+}
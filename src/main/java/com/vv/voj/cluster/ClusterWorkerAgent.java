@@ -0,0 +1,78 @@
+package com.vv.voj.cluster;
+
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.health.SandboxHealthChecker;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.HealthReport;
+import com.vv.voj.model.NodeInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * @Title: 工作节点心跳
+ * 定时向协调者上报空闲槽位和支持的语言，未就绪时上报为摘流状态；心跳带上集群令牌
+ * @Author: vv
+ * @Date: 2025/8/8 11:20
+ */
+@Component
+public class ClusterWorkerAgent {
+
+    private final SandboxProperties.Cluster properties;
+
+    private final SandboxHealthChecker sandboxHealthChecker;
+
+    private final RestTemplate restTemplate;
+
+    private final String advertiseUrl;
+
+    private volatile boolean draining = false;
+
+    public ClusterWorkerAgent(SandboxProperties sandboxProperties, SandboxHealthChecker sandboxHealthChecker,
+                              RestTemplateBuilder restTemplateBuilder, @Value("${server.port:8080}") int port) {
+        this.properties = sandboxProperties.getCluster();
+        this.sandboxHealthChecker = sandboxHealthChecker;
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofMillis(2000))
+                .setReadTimeout(Duration.ofMillis(2000))
+                .build();
+        this.advertiseUrl = properties.getAdvertiseUrl() != null ? properties.getAdvertiseUrl() : "http://localhost:" + port;
+    }
+
+    /**
+     * 本节点主动摘流，发布前调用
+     */
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    @Scheduled(fixedDelayString = "${sandbox.cluster.heartbeat-interval:3000}")
+    public void heartbeat() {
+        if (!"worker".equalsIgnoreCase(properties.getRole())) {
+            return;
+        }
+        HealthReport report = sandboxHealthChecker.check();
+        NodeInfo nodeInfo = new NodeInfo();
+        nodeInfo.setNodeId(properties.getNodeId() != null ? properties.getNodeId() : advertiseUrl);
+        nodeInfo.setUrl(advertiseUrl);
+        nodeInfo.setFreeSlots(report.getFreeSlots() - report.getQueueDepth());
+        nodeInfo.setLanguages(properties.getLanguages());
+        nodeInfo.setDraining(draining || !report.isReady());
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            if (properties.getToken() != null) {
+                headers.set(ClusterCoordinator.TOKEN_HEADER, properties.getToken());
+            }
+            restTemplate.postForObject(properties.getCoordinatorUrl() + "/cluster/heartbeat",
+                    new HttpEntity<>(nodeInfo, headers), String.class);
+        } catch (Exception e) {
+            EventLog.warn("cluster", "上报心跳失败", "coordinator", properties.getCoordinatorUrl(), e);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.vv.voj.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Title: 代码沙箱配置
+ * @Author: vv
+ * @Date: 2025/8/2 10:12
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sandbox")
+public class SandboxProperties {
+
+    private Docker docker = new Docker();
+
+    private Pipeline pipeline = new Pipeline();
+
+    private Scheduler scheduler = new Scheduler();
+
+    private Cpu cpu = new Cpu();
+
+    private Readiness readiness = new Readiness();
+
+    private WarmUp warmup = new WarmUp();
+
+    private Cluster cluster = new Cluster();
+
+    private Journal journal = new Journal();
+
+    private Reactive reactive = new Reactive();
+
+    private Checker checker = new Checker();
+
+    private Interactive interactive = new Interactive();
+
+    private Security security = new Security();
+
+    private Limits limits = new Limits();
+
+    private Trace trace = new Trace();
+
+    private Log log = new Log();
+
+    private Stress stress = new Stress();
+
+    private Accounting accounting = new Accounting();
+
+    private Rejudge rejudge = new Rejudge();
+
+    private Concurrency concurrency = new Concurrency();
+
+    private TestOrder testOrder = new TestOrder();
+
+    private Profiling profiling = new Profiling();
+
+    private Wire wire = new Wire();
+
+    @Data
+    public static class Docker {
+        //运行用户代码的镜像
+        private String image = "openjdk:8-alpine";
+        //常驻容器的最大数量
+        private int poolSize = 2;
+        //单个容器的内存下限(MB)，实际按本次运行的堆上限调整
+        private long memoryLimit = 100;
+        //容器内存 = 本次运行的堆上限 + 该值(MB)，容纳元空间、线程栈、JIT 等堆外开销
+        private long jvmOverhead = 128;
+        //容器内存放每次运行文件的目录
+        private String workDir = "/sandbox";
+        //是否订阅 Docker 事件流，OOM 和进程退出立即送达等待中的运行
+        private boolean events = true;
+        //exec 结束事件先于输出流结束到达时，继续等待剩余输出的时间(ms)
+        private long outputDrainMillis = 500;
+        //池满时等待空闲容器的最长时间(ms)
+        private long leaseTimeout = 30000;
+    }
+
+    @Data
+    public static class Pipeline {
+        //编译阶段线程数，编译是 CPU 密集型
+        private int compileThreads = Runtime.getRuntime().availableProcessors();
+        //准备运行环境（租用容器）的线程数，主要是 IO 等待
+        private int provisionThreads = 4;
+        //运行阶段线程数
+        private int runThreads = Runtime.getRuntime().availableProcessors();
+        //清理阶段线程数
+        private int cleanupThreads = 2;
+        //编译和准备运行环境阶段的队列长度，队列满时直接拒绝（503）；运行和清理阶段不限长度
+        private int queueCapacity = 64;
+    }
+
+    @Data
+    public static class Scheduler {
+        //同时执行的提交数
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        //单个租户排队的最大数量
+        private int maxQueuePerTenant = 1000;
+        //未配置租户的默认值
+        private Tenant defaults = new Tenant();
+        //按租户配置权重和并发上限
+        private Map<String, Tenant> tenants = new HashMap<>();
+        //API key 到租户的映射，请求只能通过 X-Api-Key 确定租户，未配置的 key 一律归入默认租户
+        private Map<String, String> apiKeys = new HashMap<>();
+        //没有排队和运行中任务的租户队列空闲超过该时间(ms)后回收
+        private long tenantIdleTimeout = 600000;
+    }
+
+    @Data
+    public static class Tenant {
+        //公平调度的权重，权重越大分到的执行机会越多
+        private int weight = 1;
+        //该租户同时执行的提交数上限
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        //是否允许使用比赛通道，不允许时 X-Priority: contest 按普通提交处理
+        private boolean contest = false;
+    }
+
+    @Data
+    public static class Cpu {
+        //是否为每个运行中的用例绑定独立的 CPU 核心
+        private boolean pinning = true;
+        //留给服务自身使用、不分配给用户程序的核心
+        private List<Integer> reservedCores = new ArrayList<>();
+        //每个用例独占的核心数
+        private int coresPerRun = 1;
+    }
+
+    @Data
+    public static class Readiness {
+        //排队的提交数超过该值时不再接收流量
+        private int maxQueueDepth = 32;
+        //空闲执行槽位低于该值时不再接收流量
+        private int minFreeSlots = 0;
+        //工作目录所在磁盘的最小剩余空间(MB)
+        private long minDiskFreeMb = 512;
+        //临时目录（tmpfs）的最小剩余空间(MB)
+        private long minTmpFreeMb = 64;
+        //Docker 不可达时是否判定为未就绪
+        private boolean requireDocker = false;
+        //Docker 连通性检查的缓存时间(ms)
+        private long dockerCheckInterval = 10000;
+    }
+
+    @Data
+    public static class WarmUp {
+        //启动时是否预热，预热完成前就绪检查不通过
+        private boolean enabled = true;
+        //每个沙箱执行示例代码的次数
+        private int iterations = 3;
+        //需要预热的沙箱：native、docker
+        private List<String> sandboxes = new ArrayList<>(Collections.singletonList("native"));
+    }
+
+    @Data
+    public static class Cluster {
+        //节点角色：standalone 单机，coordinator 协调者，worker 工作节点
+        private String role = "standalone";
+        //工作节点上报心跳的协调者地址
+        private String coordinatorUrl = "http://localhost:8090";
+        //工作节点 ID，为空时使用对外地址
+        private String nodeId;
+        //工作节点对外地址，为空时使用 http://localhost:端口
+        private String advertiseUrl;
+        //工作节点支持的语言
+        private List<String> languages = new ArrayList<>(Collections.singletonList("java"));
+        //心跳间隔(ms)
+        private long heartbeatInterval = 3000;
+        //超过该时间没有心跳的节点视为下线(ms)
+        private long nodeTimeout = 10000;
+        //转发失败时最多换几个节点重试
+        private int maxRetries = 2;
+        //转发请求的超时时间(ms)
+        private int requestTimeout = 60000;
+        //集群共享令牌，工作节点心跳通过 X-Cluster-Token 携带，配置后协调者只接受令牌一致的心跳
+        private String token;
+        //允许注册的工作节点地址，配置后只接受这些地址的心跳；令牌和地址至少配置一项，否则拒绝所有心跳
+        private List<String> allowedNodeUrls = new ArrayList<>();
+    }
+
+    @Data
+    public static class Journal {
+        //是否把提交写入预写日志，重启后重放未完成的提交
+        private boolean enabled = true;
+        //日志目录
+        private String dir = "journal";
+        //一次 fsync 最多合并的记录数
+        private int maxBatch = 256;
+        //日志超过该大小(字节)时压缩
+        private long compactThreshold = 64 * 1024 * 1024L;
+        //重放提交的结果保留数量，供上游按 ID 查询
+        private int resultCacheSize = 10000;
+    }
+
+    @Data
+    public static class Reactive {
+        //是否启动响应式执行接口（WebFlux + Netty，独立端口）
+        private boolean enabled = false;
+        private int port = 8190;
+        //同时处理的执行请求上限，超过直接返回 503；超时返回后仍在运行的提交也计入
+        private int maxInFlight = 1024;
+        //单个请求的超时时间(ms)，超时返回 504，提交继续运行到结束
+        private long timeout = 60000;
+    }
+
+    @Data
+    public static class Checker {
+        //常驻检查器宿主 JVM 的数量，同时也是检查的并发数
+        private int hosts = 2;
+        //单次检查的超时时间(ms)，与用户程序一致
+        private long timeout = 5000;
+        //宿主 JVM 的最大堆内存(MB)，与用户程序一致
+        private int maxHeap = 256;
+    }
+
+    @Data
+    public static class Interactive {
+        //交互器的 CPU 时间上限(ms)，选手程序使用请求中的限制
+        private long interactorTimeout = 5000;
+        //交互器的最大堆内存(MB)
+        private int interactorMaxHeap = 256;
+        //常驻内存超过堆上限加上该值(MB)时结束对应一侧，选手判为内存超限，交互器判为检查器错误
+        private int memoryOverhead = 128;
+    }
+
+    @Data
+    public static class Security {
+        //是否在运行前扫描字节码
+        private boolean enabled = true;
+        //缓存的扫描结果数量（按 class 文件哈希）
+        private long cacheSize = 10000;
+        //白名单，优先于黑名单
+        private List<String> allowList = new ArrayList<>();
+        //黑名单：进程、退出、反射、类加载、文件（含按文件名打开的 PrintStream/PrintWriter/Formatter/Scanner 构造器）、网络、JDK 内部 API
+        private List<String> denyList = new ArrayList<>(Arrays.asList(
+                "java.lang.Runtime",
+                "java.lang.ProcessBuilder",
+                "java.lang.ProcessHandle",
+                "java.lang.System#exit",
+                "java.lang.System#load*",
+                "java.lang.System#set*",
+                "java.lang.System#getenv",
+                "java.lang.Class#forName",
+                "java.lang.Class#getDeclared*",
+                "java.lang.Class#getMethod*",
+                "java.lang.Class#getField*",
+                "java.lang.Class#getConstructor*",
+                "java.lang.Class#newInstance",
+                "java.lang.Class#getClassLoader",
+                "java.lang.ClassLoader",
+                "java.lang.Thread#getContextClassLoader",
+                "java.lang.reflect.*",
+                "java.lang.invoke.*",
+                "java.io.File",
+                "java.io.FileInputStream",
+                "java.io.FileOutputStream",
+                "java.io.FileReader",
+                "java.io.FileWriter",
+                "java.io.RandomAccessFile",
+                "java.io.FileDescriptor",
+                "java.io.PrintStream#<init>(Ljava/lang/String;*",
+                "java.io.PrintWriter#<init>(Ljava/lang/String;*",
+                "java.util.Formatter#<init>(Ljava/lang/String;*",
+                "java.util.Scanner#<init>(Ljava/nio/file/Path;*",
+                "java.util.Scanner#<init>(Ljava/io/File;*",
+                "java.util.Scanner#<init>(Ljava/nio/channels/ReadableByteChannel;*",
+                "java.nio.file.*",
+                "java.nio.channels.*",
+                "java.net.*",
+                "sun.*",
+                "com.sun.*",
+                "jdk.*"));
+    }
+
+    @Data
+    public static class Limits {
+        //请求未指定时的时间限制(ms)，按基准机器计
+        private long defaultTimeLimit = 5000;
+        //请求允许的最大时间限制(ms)
+        private long maxTimeLimit = 20000;
+        //请求未指定时的内存限制(MB)
+        private long defaultMemoryLimit = 256;
+        //请求允许的最大内存限制(MB)
+        private long maxMemoryLimit = 1024;
+        //墙钟时间上限 = CPU 时间上限 * wallFactor + wallExtra，用于结束阻塞不消耗 CPU 的程序
+        private double wallFactor = 2.0;
+        private long wallExtra = 1000;
+        //采样 CPU 时间和内存的间隔(ms)
+        private long sampleInterval = 10;
+        //是否在启动时校准机器速度
+        private boolean calibrate = true;
+        //校准程序在基准机器上的耗时(ms)
+        private long referenceWorkMillis = 200;
+        //校准运行次数，取最小值
+        private int calibrationRuns = 3;
+    }
+
+    @Data
+    public static class Trace {
+        //是否记录提交的执行区间
+        private boolean enabled = true;
+        //采样率，0 到 1
+        private double sampleRate = 0.1;
+        //环形缓冲区保存的提交数，超出后覆盖最旧的
+        private int capacity = 256;
+        //单个提交最多记录的区间数
+        private int maxSpans = 2000;
+    }
+
+    @Data
+    public static class Log {
+        //事件环形缓冲区容量，向上取整为 2 的幂，满时丢弃新事件并计数
+        private int capacity = 8192;
+        //各级别的采样率，0 到 1，未配置的级别全部输出；逐个用例的事件为 debug 级别
+        private Map<String, Double> sampleRates = defaultSampleRates();
+
+        private static Map<String, Double> defaultSampleRates() {
+            Map<String, Double> sampleRates = new HashMap<>();
+            sampleRates.put("debug", 0.05);
+            sampleRates.put("info", 1.0);
+            sampleRates.put("warn", 1.0);
+            sampleRates.put("error", 1.0);
+            return sampleRates;
+        }
+    }
+
+    @Data
+    public static class Stress {
+        //并行的对拍宿主 JVM 数量，每个用例运行前仍要申请运行位置
+        private int threads = Runtime.getRuntime().availableProcessors();
+        //同时进行的对拍数，超过时直接拒绝
+        private int maxJobs = 1;
+        //请求未指定时运行的用例数
+        private int defaultCases = 1000;
+        //单次对拍最多运行的用例数
+        private int maxCases = 100000;
+        //单次运行的默认时间限制(ms)，以及请求允许的最大值
+        private long timeout = 2000;
+        private long maxTimeout = 10000;
+        //宿主 JVM 的最大堆内存(MB)
+        private int maxHeap = 256;
+        //生成器规模参数的默认范围
+        private int minSize = 1;
+        private int maxSize = 100;
+        //缩小反例时每个规模尝试的种子数，以及缩小阶段最多运行的用例数
+        private int shrinkSeeds = 20;
+        private int maxShrinkRuns = 2000;
+    }
+
+    @Data
+    public static class Accounting {
+        //是否按租户记录资源用量
+        private boolean enabled = true;
+        //用量账本目录，账本只追加
+        private String dir = "ledger";
+        //把累计用量的增量写入账本的间隔(ms)
+        private long flushInterval = 10000;
+        //配额的计费周期(分钟)，按自然时间对齐
+        private long windowMinutes = 1440;
+        //未单独配置的租户使用的配额，各项为 0 表示不限制
+        private Quota defaultQuota = new Quota();
+        //按租户配置的配额
+        private Map<String, Quota> quotas = new HashMap<>();
+    }
+
+    @Data
+    public static class Quota {
+        //一个计费周期内的 CPU 时间(ms)
+        private long cpuMillis = 0;
+        //一个计费周期内的内存 × 时间(MB·s)
+        private long memoryMbSeconds = 0;
+        //一个计费周期内的编译时间(ms)
+        private long compileMillis = 0;
+        //一个计费周期内的输出字节数
+        private long outputBytes = 0;
+        //超出配额后的处理：reject 拒绝新提交，deprioritize 只在其他租户空闲时调度
+        private String action = "deprioritize";
+    }
+
+    @Data
+    public static class Rejudge {
+        //单批最多包含的提交数
+        private int maxSubmissions = 10000;
+        //单批同时在调度器中排队或执行的源码数，超过租户排队上限时会被拒绝
+        private int maxInFlight = 16;
+        //同时进行的批次数
+        private int maxBatches = 2;
+        //进度事件的最小间隔(ms)
+        private long progressInterval = 1000;
+        //事件流的超时时间(ms)
+        private long timeout = 3600000;
+    }
+
+    @Data
+    public static class Concurrency {
+        //是否按校准程序的耗时自动调整同时运行的用例数
+        private boolean enabled = true;
+        //同时运行用例数的下限和上限，上限为 0 时取可分配的核心组数（不绑核时为 CPU 核心数）
+        private int minLimit = 1;
+        private int maxLimit = 0;
+        //有负载时运行校准程序的间隔(ms)
+        private long probeInterval = 5000;
+        //校准程序耗时相对基线允许的膨胀倍数，超过后按比例减少并发
+        private double tolerance = 1.2;
+        //探测耗时的平滑系数，越大越跟随最近一次探测
+        private double smoothing = 0.5;
+    }
+
+    @Data
+    public static class TestOrder {
+        //是否按题目统计用例的失败情况，请求带 failFast 时先运行最常失败的用例
+        private boolean enabled = true;
+        //统计文件目录
+        private String dir = "test-stats";
+        //统计写入文件的间隔(ms)
+        private long persistInterval = 30000;
+        //一道题至少有这么多失败提交后才重排
+        private int minRejections = 5;
+        //最多统计的题目数
+        private int maxProblems = 10000;
+    }
+
+    @Data
+    public static class Profiling {
+        //性能分析接口的令牌，为空时接口不可用
+        private String token = "";
+        //录制文件目录
+        private String dir = "profiling";
+        //默认录制时长(ms)
+        private long defaultDuration = 60000;
+        //最长录制时长(ms)
+        private long maxDuration = 600000;
+        //默认设置：default 或 profile
+        private String defaultSettings = "profile";
+        //最多保留的录制数，超过后删除最早的
+        private int maxRecordings = 5;
+    }
+
+    @Data
+    public static class Wire {
+        //压缩请求体解压后的最大字节数
+        private long maxDecompressedSize = 256 * 1024 * 1024L;
+    }
+}
@@ -0,0 +1,52 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.model.TenantUsageStats;
+import com.vv.voj.model.UsageRecord;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 租户资源用量
+ */
+@RestController
+@RequestMapping("/accounting")
+public class AccountingController {
+
+    @Resource
+    private UsageLedger usageLedger;
+
+    /**
+     * 各租户当前计费周期的用量、配额和是否超额
+     * @return
+     */
+    @GetMapping("/tenants")
+    public List<TenantUsageStats> tenants() {
+        return usageLedger.getTenantUsageStats();
+    }
+
+    /**
+     * 按时间桶查询账本中的用量，默认最近一天、每小时一个桶
+     * @param tenant 租户，不传时查询所有租户
+     * @param from   开始时间(ms)
+     * @param to     结束时间(ms)
+     * @param bucket 时间桶长度(分钟)
+     * @return
+     */
+    @GetMapping("/usage")
+    public List<UsageRecord> usage(@RequestParam(required = false) String tenant,
+                                   @RequestParam(required = false) Long from,
+                                   @RequestParam(required = false) Long to,
+                                   @RequestParam(defaultValue = "60") long bucket) throws IOException {
+        long end = to == null ? System.currentTimeMillis() + 1 : to;
+        long start = from == null ? end - TimeUnit.DAYS.toMillis(1) : from;
+        return usageLedger.query(tenant, start, end, bucket);
+    }
+}
@@ -0,0 +1,76 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.cluster.ClusterCoordinator;
+import com.vv.voj.cluster.ClusterWorkerAgent;
+import com.vv.voj.model.NodeInfo;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 集群节点管理
+ */
+@RestController
+@RequestMapping("/cluster")
+public class ClusterController {
+
+    @Resource
+    private ClusterCoordinator clusterCoordinator;
+
+    @Resource
+    private ClusterWorkerAgent clusterWorkerAgent;
+
+    /**
+     * 工作节点注册和心跳
+     * @param nodeInfo
+     * @param token 集群共享令牌
+     * @return
+     */
+    @PostMapping("/heartbeat")
+    public String heartbeat(@RequestBody NodeInfo nodeInfo,
+                            @RequestHeader(value = ClusterCoordinator.TOKEN_HEADER, required = false) String token) {
+        if (!clusterCoordinator.isCoordinator()) {
+            throw new RuntimeException("当前节点不是协调者");
+        }
+        clusterCoordinator.heartbeat(nodeInfo, token);
+        return "ok";
+    }
+
+    @GetMapping("/nodes")
+    public List<NodeInfo> nodes() {
+        return clusterCoordinator.getNodes();
+    }
+
+    /**
+     * 协调者侧摘流指定节点
+     * @param nodeId
+     * @return
+     */
+    @PostMapping("/nodes/drain")
+    public boolean drain(@RequestParam String nodeId) {
+        return clusterCoordinator.drain(nodeId);
+    }
+
+    @PostMapping("/nodes/resume")
+    public boolean resume(@RequestParam String nodeId) {
+        return clusterCoordinator.resume(nodeId);
+    }
+
+    /**
+     * 工作节点自身摘流，心跳会带上摘流状态
+     * @param draining
+     * @return
+     */
+    @PostMapping("/self/drain")
+    public boolean drainSelf(@RequestParam(defaultValue = "true") boolean draining) {
+        clusterWorkerAgent.setDraining(draining);
+        return draining;
+    }
+}
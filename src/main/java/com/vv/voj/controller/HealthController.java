@@ -0,0 +1,68 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.health.SandboxHealthChecker;
+import com.vv.voj.health.SandboxWarmUp;
+import com.vv.voj.limit.LimitCalibrator;
+import com.vv.voj.model.CalibrationReport;
+import com.vv.voj.model.HealthReport;
+import com.vv.voj.model.WarmUpReport;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * 存活与就绪检查，供负载均衡使用
+ */
+@RestController
+public class HealthController {
+
+    @Resource
+    private SandboxHealthChecker sandboxHealthChecker;
+
+    @Resource
+    private SandboxWarmUp sandboxWarmUp;
+
+    @Resource
+    private LimitCalibrator limitCalibrator;
+
+    /**
+     * 存活检查：进程能响应即可
+     * @return
+     */
+    @GetMapping("/health/live")
+    public String live() {
+        return "ok";
+    }
+
+    /**
+     * 就绪检查：超过容量阈值时返回 503
+     * @return
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<HealthReport> ready() {
+        HealthReport report = sandboxHealthChecker.check();
+        HttpStatus status = report.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(report);
+    }
+
+    /**
+     * 启动预热耗时及冷热延迟对比
+     * @return
+     */
+    @GetMapping("/health/warmup")
+    public WarmUpReport warmUp() {
+        return sandboxWarmUp.getReport();
+    }
+
+    /**
+     * 机器速度校准结果，运行限制按此换算
+     * @return
+     */
+    @GetMapping("/health/calibration")
+    public CalibrationReport calibration() {
+        return limitCalibrator.getReport();
+    }
+}
@@ -1,20 +1,48 @@
 package com.vv.voj.controller;
 
-import com.vv.voj.JavaNativeCodeSandbox;
+import com.vv.voj.cluster.ClusterCoordinator;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ConcurrencyStats;
 import com.vv.voj.model.ExecuteCodeRequest;
 import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.LogStats;
+import com.vv.voj.model.ScanStats;
+import com.vv.voj.model.StageStats;
+import com.vv.voj.model.TenantStats;
+import com.vv.voj.pipeline.StagedExecutor;
+import com.vv.voj.queue.DurableSubmissionQueue;
+import com.vv.voj.scheduler.AdaptiveConcurrencyLimiter;
+import com.vv.voj.scheduler.FairShareScheduler;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.CompletionException;
 
 @RestController
 public class MainController {
 
     @Resource
-    private JavaNativeCodeSandbox javaNativeCodeSandbox;
+    private StagedExecutor stagedExecutor;
+
+    @Resource
+    private FairShareScheduler fairShareScheduler;
+
+    @Resource
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Resource
+    private DurableSubmissionQueue durableSubmissionQueue;
+
+    @Resource
+    private ClusterCoordinator clusterCoordinator;
 
 
     @GetMapping("/health")
@@ -29,11 +57,90 @@ public class MainController {
      * @return
      */
     @PostMapping("/executeCode")
-    public ExecuteCodeResponse executeCode(@RequestBody ExecuteCodeRequest executeCodeRequest) {
+    public ExecuteCodeResponse executeCode(@RequestBody ExecuteCodeRequest executeCodeRequest,
+                                           @RequestHeader(value = "X-Api-Key", required = false) String apiKey,
+                                           @RequestHeader(value = "X-Priority", required = false) String priority) {
         if (executeCodeRequest == null) {
             throw new RuntimeException("参数为空");
         }
-        return javaNativeCodeSandbox.executeCode(executeCodeRequest);
+        // 协调者模式下转发给负载最低的工作节点，由工作节点排队执行
+        if (clusterCoordinator.isCoordinator()) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            if (apiKey != null) {
+                headers.set("X-Api-Key", apiKey);
+            }
+            if (priority != null) {
+                headers.set("X-Priority", priority);
+            }
+            return clusterCoordinator.dispatch(executeCodeRequest, headers);
+        }
+        // 按租户公平排队，比赛提交走优先通道
+        String tenant = fairShareScheduler.resolveTenant(apiKey);
+        boolean contest = fairShareScheduler.isContest(tenant, priority);
+        try {
+            return durableSubmissionQueue.submit(tenant, contest, executeCodeRequest).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 按提交 ID 查询结果（包括重启后重放的提交）
+     * @param submissionId
+     * @return
+     */
+    @GetMapping("/submission/result")
+    public ExecuteCodeResponse submissionResult(@RequestParam String submissionId) {
+        return durableSubmissionQueue.getResult(submissionId);
+    }
+
+    /**
+     * 流水线各阶段的队列深度
+     * @return
+     */
+    @GetMapping("/pipeline/stats")
+    public List<StageStats> pipelineStats() {
+        return stagedExecutor.getStageStats();
+    }
+
+    /**
+     * 字节码预检的耗时统计
+     * @return
+     */
+    @GetMapping("/pipeline/scan/stats")
+    public ScanStats scanStats() {
+        return stagedExecutor.getScanStats();
+    }
+
+    /**
+     * 各租户的排队时间和并发情况
+     * @return
+     */
+    @GetMapping("/scheduler/stats")
+    public List<TenantStats> schedulerStats() {
+        return fairShareScheduler.getTenantStats();
+    }
+
+    /**
+     * 自适应并发限制：当前允许同时运行的用例数、探测耗时和排队时间
+     * @return
+     */
+    @GetMapping("/scheduler/concurrency")
+    public ConcurrencyStats concurrencyStats() {
+        return concurrencyLimiter.getStats();
+    }
+
+    /**
+     * 事件日志的缓冲区状态、丢弃和采样跳过的数量
+     * @return
+     */
+    @GetMapping("/log/stats")
+    public LogStats logStats() {
+        return EventLog.getStats();
     }
 
 }
@@ -0,0 +1,107 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.model.HeapStats;
+import com.vv.voj.model.ProfilingRecording;
+import com.vv.voj.model.ProfilingRequest;
+import com.vv.voj.model.ProfilingSummary;
+import com.vv.voj.profiling.FlightRecorderProfiler;
+import com.vv.voj.profiling.HeapInspector;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 沙箱服务自身的性能分析，需要请求头 X-Profiling-Token
+ */
+@RestController
+@RequestMapping("/profiling")
+public class ProfilingController {
+
+    @Resource
+    private FlightRecorderProfiler flightRecorderProfiler;
+
+    @Resource
+    private HeapInspector heapInspector;
+
+    /**
+     * 开始一段飞行记录，到时自动停止
+     * @param profilingRequest 时长、设置名和覆盖的设置项，可不传
+     * @return
+     */
+    @PostMapping("/recordings")
+    public ProfilingRecording start(@RequestBody(required = false) ProfilingRequest profilingRequest) {
+        return flightRecorderProfiler.start(profilingRequest);
+    }
+
+    /**
+     * 保留的录制，最早的在前
+     * @return
+     */
+    @GetMapping("/recordings")
+    public List<ProfilingRecording> list() {
+        return flightRecorderProfiler.list();
+    }
+
+    /**
+     * 提前停止录制
+     * @param id
+     * @return
+     */
+    @PostMapping("/recordings/{id}/stop")
+    public ProfilingRecording stop(@PathVariable long id) {
+        return flightRecorderProfiler.stop(id);
+    }
+
+    /**
+     * 下载录制文件，可用 JDK Mission Control 或 jfr 命令打开
+     * @param id
+     * @return
+     */
+    @GetMapping("/recordings/{id}/file")
+    public ResponseEntity<FileSystemResource> file(@PathVariable long id) {
+        Path path = flightRecorderProfiler.getFile(id);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(path.getFileName().toString()).build().toString())
+                .body(new FileSystemResource(path));
+    }
+
+    /**
+     * 热点方法、分配位置、线程状态和锁等待的摘要
+     * @param id
+     * @param top 每项保留的条数
+     * @return
+     */
+    @GetMapping("/recordings/{id}/summary")
+    public ProfilingSummary summary(@PathVariable long id, @RequestParam(defaultValue = "20") int top) {
+        return flightRecorderProfiler.summarize(id, top);
+    }
+
+    /**
+     * 当前堆、GC 和线程概况
+     * @param histogram 是否附带类直方图
+     * @param live      直方图是否只统计存活对象（会触发 Full GC）
+     * @param top       直方图和线程组保留的条数
+     * @return
+     */
+    @GetMapping("/heap")
+    public HeapStats heap(@RequestParam(defaultValue = "false") boolean histogram,
+                          @RequestParam(defaultValue = "false") boolean live,
+                          @RequestParam(defaultValue = "20") int top) {
+        return heapInspector.inspect(histogram, live, top);
+    }
+}
@@ -0,0 +1,41 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.model.RejudgeRequest;
+import com.vv.voj.rejudge.BulkRejudger;
+import com.vv.voj.scheduler.FairShareScheduler;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.Resource;
+
+/**
+ * 批量重判
+ */
+@RestController
+public class RejudgeController {
+
+    @Resource
+    private BulkRejudger bulkRejudger;
+
+    @Resource
+    private FairShareScheduler fairShareScheduler;
+
+    /**
+     * 重判一道题的多份提交，以 SSE 事件流返回每份提交的结果和进度
+     * @param rejudgeRequest
+     * @param apiKey
+     * @return
+     */
+    @PostMapping(value = "/rejudge", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter rejudge(@RequestBody RejudgeRequest rejudgeRequest,
+                              @RequestHeader(value = "X-Api-Key", required = false) String apiKey) {
+        if (rejudgeRequest == null) {
+            throw new RuntimeException("参数为空");
+        }
+        return bulkRejudger.start(fairShareScheduler.resolveTenant(apiKey), rejudgeRequest);
+    }
+}
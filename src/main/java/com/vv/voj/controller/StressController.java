@@ -0,0 +1,33 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.checker.StressRunner;
+import com.vv.voj.model.StressRequest;
+import com.vv.voj.model.StressResponse;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+
+/**
+ * 对拍：出题时用生成器找出待测程序与标程不一致的输入
+ */
+@RestController
+public class StressController {
+
+    @Resource
+    private StressRunner stressRunner;
+
+    /**
+     * 执行对拍，发现第一个反例后停止并缩小
+     * @param stressRequest
+     * @return
+     */
+    @PostMapping("/stress")
+    public StressResponse stress(@RequestBody StressRequest stressRequest) {
+        if (stressRequest == null) {
+            throw new RuntimeException("参数为空");
+        }
+        return stressRunner.run(stressRequest);
+    }
+}
@@ -0,0 +1,32 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.model.TestOrderReport;
+import com.vv.voj.ordering.TestOrderTracker;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 用例顺序统计
+ */
+@RestController
+@RequestMapping("/test-order")
+public class TestOrderController {
+
+    @Resource
+    private TestOrderTracker testOrderTracker;
+
+    /**
+     * 各题目失败提交平均运行的用例数（重排前后对比）和最常失败的用例
+     * @param problemId 题目 ID，不传时返回所有题目
+     * @return
+     */
+    @GetMapping("/report")
+    public List<TestOrderReport> report(@RequestParam(required = false) String problemId) {
+        return testOrderTracker.report(problemId);
+    }
+}
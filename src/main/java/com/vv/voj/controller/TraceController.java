@@ -0,0 +1,45 @@
+package com.vv.voj.controller;
+
+import com.vv.voj.trace.SubmissionTracer;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 提交执行过程的追踪
+ */
+@RestController
+@RequestMapping("/trace")
+public class TraceController {
+
+    @Resource
+    private SubmissionTracer submissionTracer;
+
+    /**
+     * 最近被采样的提交 ID，最新的在前
+     * @return
+     */
+    @GetMapping("/recent")
+    public List<String> recent() {
+        return submissionTracer.recentSubmissionIds();
+    }
+
+    /**
+     * 按提交 ID 导出 Chrome trace JSON，可直接在 Perfetto 或 chrome://tracing 中打开
+     * @param submissionId
+     * @return
+     */
+    @GetMapping("/{submissionId}")
+    public Map<String, Object> trace(@PathVariable String submissionId) {
+        Map<String, Object> chromeTrace = submissionTracer.export(submissionId);
+        if (chromeTrace == null) {
+            throw new RuntimeException("没有该提交的追踪记录，可能未被采样或已被覆盖");
+        }
+        return chromeTrace;
+    }
+}
@@ -0,0 +1,84 @@
+package com.vv.voj.docker;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.utils.TarUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @Title: 对比两种 class 传输方式的耗时
+ * 1. 旧方式：每个工作目录新建容器并挂载宿主机目录
+ * 2. 新方式：常驻容器 + tar 流拷贝到独立运行目录
+ * @Author: vv
+ * @Date: 2025/8/2 15:20
+ */
+public class ClassTransferBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        SandboxProperties properties = new SandboxProperties();
+        SandboxContainerPool containerPool = new SandboxContainerPool(properties);
+        DockerClient dockerClient = containerPool.getDockerClient();
+
+        //准备编译好的 class 文件
+        String workDir = System.getProperty("user.dir") + File.separator + "tmpCode" + File.separator + UUID.randomUUID();
+        File codeFile = FileUtil.writeString(ResourceUtil.readStr("testCode/simpleComputeArgs/Main.java", StandardCharsets.UTF_8),
+                workDir + File.separator + "Main.java", StandardCharsets.UTF_8);
+        Runtime.getRuntime().exec(new String[]{"javac", "-encoding", "utf-8", codeFile.getAbsolutePath()}).waitFor();
+        Map<String, byte[]> classFiles = TarUtils.readClassFiles(codeFile.getParentFile());
+
+        //预热：拉取镜像并创建常驻容器
+        SandboxContainerPool.ContainerLease warmup = containerPool.lease("warmup");
+        containerPool.copyClassFiles(warmup, classFiles);
+        containerPool.release(warmup);
+
+        long bindTotal = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            HostConfig hostConfig = new HostConfig().withBinds(new Bind(workDir, new Volume("/app")))
+                    .withMemory(properties.getDocker().getMemoryLimit() * 1024 * 1024L);
+            CreateContainerResponse container = dockerClient.createContainerCmd(properties.getDocker().getImage())
+                    .withHostConfig(hostConfig).withNetworkDisabled(true).withTty(true).exec();
+            dockerClient.startContainerCmd(container.getId()).exec();
+            runMain(dockerClient, container.getId(), "/app");
+            dockerClient.removeContainerCmd(container.getId()).withForce(true).exec();
+            bindTotal += System.nanoTime() - start;
+        }
+
+        long copyTotal = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            SandboxContainerPool.ContainerLease lease = containerPool.lease(UUID.randomUUID().toString());
+            containerPool.copyClassFiles(lease, classFiles);
+            runMain(dockerClient, lease.getContainerId(), lease.getRunDir());
+            containerPool.release(lease);
+            copyTotal += System.nanoTime() - start;
+        }
+
+        System.out.println("挂载目录平均耗时: " + bindTotal / ROUNDS / 1_000_000 + " ms");
+        System.out.println("tar 拷贝平均耗时: " + copyTotal / ROUNDS / 1_000_000 + " ms");
+        containerPool.shutdown();
+        FileUtil.del(workDir);
+    }
+
+    private static void runMain(DockerClient dockerClient, String containerId, String classPath) throws InterruptedException {
+        ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
+                .withCmd("java", "-cp", classPath, "Main", "1", "2")
+                .withAttachStdout(true).withAttachStderr(true).exec();
+        dockerClient.execStartCmd(execCmd.getId()).exec(new ResultCallback.Adapter<Frame>()).awaitCompletion();
+    }
+}
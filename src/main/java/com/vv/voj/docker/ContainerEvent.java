@@ -0,0 +1,43 @@
+package com.vv.voj.docker;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 沙箱容器的事件，只保留判题关心的几类
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContainerEvent {
+
+    private Type type;
+
+    private String containerId;
+
+    /**
+     * exec 结束事件对应的 exec ID，其他事件为 null
+     */
+    private String execId;
+
+    /**
+     * 退出码，事件中没有时为 null
+     */
+    private Long exitCode;
+
+    public enum Type {
+        /**
+         * 容器内有进程因内存超限被内核结束
+         */
+        OOM,
+        /**
+         * 容器退出
+         */
+        DIE,
+        /**
+         * 一次 docker exec 结束
+         */
+        EXEC_DIE
+    }
+}
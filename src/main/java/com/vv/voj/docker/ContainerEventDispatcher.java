@@ -0,0 +1,190 @@
+package com.vv.voj.docker;
+
+import cn.hutool.core.io.IoUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Title: 容器事件分发
+ * 所有沙箱容器共用一个 Docker 事件订阅，第一次运行时才连接；OOM、容器退出和 exec 结束事件直接交给等待中的运行，
+ * 不再等 exec 输出流结束或超时才知道结果，也不需要逐个容器轮询；容器退出时通知容器池丢弃该容器。
+ * 事件流断开时运行仍按输出流结束和退出码判断，下次运行时重新订阅
+ * @Author: vv
+ * @Date: 2025/8/21 10:30
+ */
+@Component
+public class ContainerEventDispatcher {
+
+    /**
+     * 订阅失败后的重试间隔(ms)
+     */
+    private static final long RESUBSCRIBE_INTERVAL = 5000L;
+
+    private final DockerEventSource eventSource;
+
+    private final SandboxContainerPool containerPool;
+
+    private final boolean enabled;
+
+    private final Map<String, ExecWatch> watchesByExec = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<ExecWatch>> watchesByContainer = new ConcurrentHashMap<>();
+
+    private Closeable subscription;
+
+    private long lastSubscribeAttempt = 0L;
+
+    public ContainerEventDispatcher(SandboxProperties sandboxProperties, DockerEventSource eventSource,
+                                    SandboxContainerPool containerPool) {
+        this.enabled = sandboxProperties.getDocker().isEvents();
+        this.eventSource = eventSource;
+        this.containerPool = containerPool;
+    }
+
+    /**
+     * 在 exec 启动之前登记，之后该 exec 的结束事件和所在容器的 OOM、退出事件都会送到返回的观察者
+     *
+     * @param containerId 容器 ID
+     * @param execId      exec ID
+     * @return 观察者，运行结束后关闭
+     */
+    public ExecWatch watch(String containerId, String execId) {
+        ensureSubscribed();
+        ExecWatch watch = new ExecWatch(containerId, execId);
+        watchesByExec.put(execId, watch);
+        watchesByContainer.computeIfAbsent(containerId, key -> ConcurrentHashMap.newKeySet()).add(watch);
+        return watch;
+    }
+
+    /**
+     * 事件订阅是否正常，正常时容器是否存活以事件为准，不必再查询
+     */
+    public synchronized boolean isSubscribed() {
+        return subscription != null;
+    }
+
+    void onEvent(ContainerEvent event) {
+        switch (event.getType()) {
+            case EXEC_DIE:
+                ExecWatch watch = event.getExecId() == null ? null : watchesByExec.get(event.getExecId());
+                if (watch != null) {
+                    watch.event.complete(event);
+                }
+                break;
+            case OOM:
+            case DIE:
+                Set<ExecWatch> watches = watchesByContainer.get(event.getContainerId());
+                if (watches != null) {
+                    for (ExecWatch containerWatch : watches) {
+                        containerWatch.event.complete(event);
+                        if (event.getType() == ContainerEvent.Type.OOM) {
+                            containerWatch.oom.complete(event);
+                        }
+                    }
+                }
+                if (event.getType() == ContainerEvent.Type.DIE) {
+                    EventLog.warn("docker", "沙箱容器退出", "containerId", event.getContainerId(), "exitCode", event.getExitCode());
+                    containerPool.markDead(event.getContainerId());
+                } else {
+                    EventLog.info("docker", "容器内进程内存超限", "containerId", event.getContainerId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (subscription != null) {
+            IoUtil.close(subscription);
+            subscription = null;
+        }
+        containerPool.setEventsActive(false);
+    }
+
+    private synchronized void ensureSubscribed() {
+        if (!enabled || subscription != null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSubscribeAttempt < RESUBSCRIBE_INTERVAL) {
+            return;
+        }
+        lastSubscribeAttempt = now;
+        try {
+            subscription = eventSource.subscribe(this::onEvent, this::onClosed);
+            containerPool.setEventsActive(true);
+        } catch (RuntimeException e) {
+            EventLog.warn("docker", "订阅容器事件失败，按输出流和退出码判断运行结果", e);
+        }
+    }
+
+    private synchronized void onClosed(Throwable e) {
+        if (subscription == null) {
+            return;
+        }
+        subscription = null;
+        containerPool.setEventsActive(false);
+        // 允许下次运行立即重新订阅
+        lastSubscribeAttempt = 0L;
+        if (e == null) {
+            EventLog.warn("docker", "容器事件流已断开");
+        } else {
+            EventLog.warn("docker", "容器事件流已断开", e);
+        }
+    }
+
+    /**
+     * 一次 exec 的观察者，第一个相关事件到达后完成
+     */
+    public class ExecWatch implements AutoCloseable {
+
+        private final String containerId;
+
+        private final String execId;
+
+        private final CompletableFuture<ContainerEvent> event = new CompletableFuture<>();
+
+        private final CompletableFuture<ContainerEvent> oom = new CompletableFuture<>();
+
+        private ExecWatch(String containerId, String execId) {
+            this.containerId = containerId;
+            this.execId = execId;
+        }
+
+        /**
+         * exec 结束、容器内 OOM 或容器退出中最先到达的事件
+         */
+        public CompletableFuture<ContainerEvent> getEvent() {
+            return event;
+        }
+
+        /**
+         * 观察期间容器内的 OOM 事件，可能晚于 exec 结束事件到达
+         */
+        public CompletableFuture<ContainerEvent> getOom() {
+            return oom;
+        }
+
+        @Override
+        public void close() {
+            watchesByExec.remove(execId, this);
+            Set<ExecWatch> watches = watchesByContainer.get(containerId);
+            if (watches != null) {
+                watches.remove(this);
+                if (watches.isEmpty()) {
+                    watchesByContainer.remove(containerId, watches);
+                }
+            }
+        }
+    }
+}
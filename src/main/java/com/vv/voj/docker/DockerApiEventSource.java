@@ -0,0 +1,92 @@
+package com.vv.voj.docker;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * @Title: Docker 事件流
+ * 通过 Docker 的 events 接口订阅，一个长连接覆盖所有沙箱容器，守护进程按标签和事件类型过滤
+ * @Author: vv
+ * @Date: 2025/8/21 10:00
+ */
+@Component
+public class DockerApiEventSource implements DockerEventSource {
+
+    private static final String ACTION_OOM = "oom";
+
+    private static final String ACTION_DIE = "die";
+
+    private static final String ACTION_EXEC_DIE = "exec_die";
+
+    private final SandboxContainerPool containerPool;
+
+    public DockerApiEventSource(SandboxContainerPool containerPool) {
+        this.containerPool = containerPool;
+    }
+
+    @Override
+    public Closeable subscribe(Consumer<ContainerEvent> listener, Consumer<Throwable> onClose) {
+        return containerPool.getDockerClient().eventsCmd()
+                .withLabelFilter(SandboxContainerPool.SANDBOX_LABEL)
+                .withEventTypeFilter(EventType.CONTAINER)
+                .withEventFilter(ACTION_OOM, ACTION_DIE, ACTION_EXEC_DIE)
+                .exec(new ResultCallback.Adapter<Event>() {
+                    @Override
+                    public void onNext(Event event) {
+                        ContainerEvent containerEvent = convert(event);
+                        if (containerEvent != null) {
+                            listener.accept(containerEvent);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        super.onError(throwable);
+                        onClose.accept(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        super.onComplete();
+                        onClose.accept(null);
+                    }
+                });
+    }
+
+    private static ContainerEvent convert(Event event) {
+        String action = event.getAction() == null ? event.getStatus() : event.getAction();
+        if (action == null || event.getActor() == null) {
+            return null;
+        }
+        Map<String, String> attributes = event.getActor().getAttributes() == null
+                ? Collections.emptyMap() : event.getActor().getAttributes();
+        ContainerEvent.Type type;
+        // 旧版本守护进程的 exec 事件带有命令后缀，如 "exec_die: java ..."
+        if (action.startsWith(ACTION_EXEC_DIE)) {
+            type = ContainerEvent.Type.EXEC_DIE;
+        } else if (ACTION_OOM.equals(action)) {
+            type = ContainerEvent.Type.OOM;
+        } else if (ACTION_DIE.equals(action)) {
+            type = ContainerEvent.Type.DIE;
+        } else {
+            return null;
+        }
+        String exitCode = attributes.get("exitCode");
+        Long parsedExitCode = null;
+        if (exitCode != null) {
+            try {
+                parsedExitCode = Long.parseLong(exitCode);
+            } catch (NumberFormatException ignored) {
+                // 没有退出码时由调用方查询
+            }
+        }
+        return new ContainerEvent(type, event.getActor().getId(), attributes.get("execID"), parsedExitCode);
+    }
+}
@@ -0,0 +1,19 @@
+package com.vv.voj.docker;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * 沙箱容器事件的来源，测试时可以替换为手动推送事件的实现
+ */
+public interface DockerEventSource {
+
+    /**
+     * 订阅带沙箱标签的容器的 OOM、退出和 exec 结束事件
+     *
+     * @param listener 事件回调，在事件流的线程上调用
+     * @param onClose  事件流结束时的回调，出错时参数为异常，正常结束时为 null
+     * @return 关闭即取消订阅
+     */
+    Closeable subscribe(Consumer<ContainerEvent> listener, Consumer<Throwable> onClose);
+}
@@ -0,0 +1,473 @@
+package com.vv.voj.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.PullImageCmd;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.Volume;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.vv.voj.RunEnvironment;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.trace.Tracing;
+import com.vv.voj.utils.DockerExecUtils;
+import com.vv.voj.utils.TarUtils;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Title: 常驻容器池
+ * 容器创建后长期存活，每次运行只把 class 文件通过 tar 流拷贝到独立目录；归还时结束容器内除 init 外的所有进程，
+ * 清空整个工作卷和 /dev/shm，恢复 cpuset 和内存上限，清理后仍有残留的容器直接丢弃
+ * @Author: vv
+ * @Date: 2025/8/2 10:30
+ */
+@Component
+public class SandboxContainerPool {
+
+    public static final String SANDBOX_LABEL = "voj.sandbox";
+
+    private static final long CLEAN_TIME_OUT = 3000L;
+
+    /**
+     * 归还时的清理脚本：先暂停再结束除 init 和自身外的所有进程（kill -1 不会发给这两个），清空工作卷和 /dev/shm，
+     * 等待进程退出（僵尸进程不算）；最后仍有存活进程或残留文件时返回非 0，容器被丢弃
+     */
+    private static final String CLEAN_SCRIPT = "kill -STOP -1 2>/dev/null; kill -KILL -1 2>/dev/null; "
+            + "rm -rf %1$s/* %1$s/.[!.]* %1$s/..?* /dev/shm/* /dev/shm/.[!.]* /dev/shm/..?* 2>/dev/null; "
+            + "for i in 1 2 3 4 5 6 7 8 9 10; do n=0; "
+            + "for s in /proc/[0-9]*/stat; do p=${s#/proc/}; p=${p%%/stat}; "
+            + "if [ \"$p\" = 1 ] || [ \"$p\" = $$ ]; then continue; fi; "
+            + "read -r l < \"$s\" 2>/dev/null || continue; "
+            + "case \"${l##*) }\" in Z*) ;; *) n=$((n+1)) ;; esac; done; "
+            + "[ $n -eq 0 ] && break; sleep 0.1; done; "
+            + "[ $n -eq 0 ] && [ -z \"$(ls -A %1$s 2>/dev/null)\" ] && [ -z \"$(ls -A /dev/shm 2>/dev/null)\" ]";
+
+    /**
+     * 池满等待时重新检查容量的间隔(ms)
+     */
+    private static final long CAPACITY_RECHECK_INTERVAL = 200L;
+
+    private final SandboxProperties.Docker properties;
+
+    private final BlockingQueue<String> idleContainers = new LinkedBlockingQueue<>();
+
+    private final Set<String> allContainers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 收到退出事件但仍被租用的容器，归还时丢弃
+     */
+    private final Set<String> deadContainers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger creating = new AtomicInteger(0);
+
+    /**
+     * 容器 ID -> 当前 cgroup 内存上限(MB)，相同时不重复更新
+     */
+    private final Map<String, Long> memoryLimits = new ConcurrentHashMap<>();
+
+    /**
+     * 容器 ID -> 运行时绑定的核心，归还时恢复为全部核心
+     */
+    private final Map<String, String> cpusets = new ConcurrentHashMap<>();
+
+    /**
+     * Docker 主机的全部核心，第一次恢复 cpuset 时查询
+     */
+    private volatile String allCpus;
+
+    /**
+     * 新建容器的内存上限(MB)，能容纳允许的最大堆
+     */
+    private final long createMemoryLimit;
+
+    /**
+     * 容器事件订阅正常时，容器退出会通过事件得知，不必每次归还都查询容器状态
+     */
+    private volatile boolean eventsActive = false;
+
+    private volatile DockerClient dockerClient;
+
+    private volatile boolean imageReady = false;
+
+    public SandboxContainerPool(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getDocker();
+        this.createMemoryLimit = containerMemoryLimit(sandboxProperties.getLimits().getMaxMemoryLimit());
+    }
+
+    /**
+     * 延迟创建 Docker 客户端，服务启动时不依赖 Docker
+     */
+    public DockerClient getDockerClient() {
+        if (dockerClient == null) {
+            synchronized (this) {
+                if (dockerClient == null) {
+                    dockerClient = DockerClientBuilder.getInstance().build();
+                }
+            }
+        }
+        return dockerClient;
+    }
+
+    /**
+     * 租用一个容器，租用与编译互不依赖，可以并行进行
+     *
+     * @param runId 本次运行的唯一标识，作为容器内的目录名
+     * @return 容器租约
+     */
+    public ContainerLease lease(String runId) {
+        try (Tracing.Span ignored = Tracing.span("docker.lease")) {
+            String containerId = takeContainer();
+            return new ContainerLease(containerId, runId, properties.getWorkDir() + "/" + runId);
+        }
+    }
+
+    /**
+     * 把本次运行的 class 文件通过 tar 流拷贝到容器的运行目录
+     *
+     * @param lease      容器租约
+     * @param classFiles 文件名 -> 字节码
+     */
+    public void copyClassFiles(ContainerLease lease, Map<String, byte[]> classFiles) {
+        byte[] tar = TarUtils.buildTar(lease.getRunId(), classFiles);
+        try (Tracing.Span ignored = Tracing.span("docker.copy").arg("bytes", tar.length)) {
+            getDockerClient().copyArchiveToContainerCmd(lease.getContainerId())
+                    .withRemotePath(properties.getWorkDir())
+                    .withTarInputStream(new ByteArrayInputStream(tar))
+                    .exec();
+        } catch (Exception e) {
+            throw new RuntimeException("拷贝 class 文件到容器失败", e);
+        }
+    }
+
+    /**
+     * 按本次运行的堆上限设置容器的 cgroup 内存，留出 JVM 自身的开销，保证 -Xmx 以内的程序不会被 cgroup 杀掉；
+     * 交换分区与内存相同，即不允许使用交换分区
+     *
+     * @param lease    容器租约
+     * @param heapMb   本次运行的 -Xmx(MB)
+     */
+    public void applyMemoryLimit(ContainerLease lease, long heapMb) {
+        String containerId = lease.getContainerId();
+        long limitMb = containerMemoryLimit(heapMb);
+        Long current = memoryLimits.get(containerId);
+        if (current != null && current == limitMb) {
+            return;
+        }
+        try (Tracing.Span ignored = Tracing.span("docker.memory").arg("mb", limitMb)) {
+            getDockerClient().updateContainerCmd(containerId)
+                    .withMemory(limitMb * 1024 * 1024L)
+                    .withMemorySwap(limitMb * 1024 * 1024L)
+                    .exec();
+            memoryLimits.put(containerId, limitMb);
+        } catch (Exception e) {
+            throw new RuntimeException("设置容器内存限制失败", e);
+        }
+    }
+
+    /**
+     * 把容器绑定到本次运行独占的核心，withCpuCount 只是配额，cpuset 才能真正绑核
+     *
+     * @param lease   容器租约
+     * @param coreSet 核心列表，例如 "2" 或 "2,3"
+     */
+    public void applyCpuset(ContainerLease lease, String coreSet) {
+        String containerId = lease.getContainerId();
+        if (coreSet.equals(cpusets.get(containerId))) {
+            return;
+        }
+        try (Tracing.Span ignored = Tracing.span("docker.cpuset")) {
+            getDockerClient().updateContainerCmd(containerId).withCpusetCpus(coreSet).exec();
+            cpusets.put(containerId, coreSet);
+        }
+    }
+
+    /**
+     * 容器异常时丢弃旧容器，租约换绑到新容器继续运行
+     */
+    public void renew(ContainerLease lease, Map<String, byte[]> classFiles) {
+        try (Tracing.Span ignored = Tracing.span("docker.renew")) {
+            discard(lease.getContainerId());
+            lease.containerId = takeContainer();
+            copyClassFiles(lease, classFiles);
+        }
+    }
+
+    /**
+     * 归还容器：结束残留进程、清空工作卷并恢复资源限制，全部成功且容器健康才放回池中
+     */
+    public void release(ContainerLease lease) {
+        String containerId = lease.getContainerId();
+        boolean cleaned;
+        try (Tracing.Span ignored = Tracing.span("docker.clean")) {
+            cleaned = cleanContainer(containerId) && resetLimits(containerId);
+        }
+        if (cleaned && isAlive(containerId)) {
+            idleContainers.offer(containerId);
+        } else {
+            discard(containerId);
+        }
+    }
+
+    /**
+     * 容器是否存活：订阅了容器事件时以事件为准，否则查询容器状态
+     */
+    public boolean isAlive(String containerId) {
+        if (deadContainers.contains(containerId)) {
+            return false;
+        }
+        return eventsActive || DockerExecUtils.isContainerRunning(getDockerClient(), containerId);
+    }
+
+    /**
+     * 收到容器退出事件：空闲的容器立即丢弃，租用中的容器归还时丢弃
+     */
+    public void markDead(String containerId) {
+        if (!allContainers.contains(containerId)) {
+            return;
+        }
+        if (idleContainers.remove(containerId)) {
+            discard(containerId);
+        } else {
+            deadContainers.add(containerId);
+        }
+    }
+
+    public void setEventsActive(boolean eventsActive) {
+        this.eventsActive = eventsActive;
+    }
+
+    /**
+     * 预先创建容器直到池满，避免首个提交承担镜像检查和容器启动的耗时
+     */
+    public void prefill() {
+        List<ContainerLease> leases = new ArrayList<>();
+        try {
+            while (allContainers.size() + creating.get() < properties.getPoolSize()) {
+                leases.add(lease("prefill-" + leases.size()));
+            }
+        } finally {
+            for (ContainerLease lease : leases) {
+                release(lease);
+            }
+        }
+    }
+
+    public int getIdleCount() {
+        return idleContainers.size();
+    }
+
+    public int getTotalCount() {
+        return allContainers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String containerId : allContainers) {
+            discard(containerId);
+        }
+    }
+
+    /**
+     * 取空闲容器，池未满时创建新容器；池满时等待归还，定期重新检查容量，
+     * 等待期间有容器被丢弃时可以补建，超过等待时间报错
+     */
+    private String takeContainer() {
+        long deadline = System.currentTimeMillis() + properties.getLeaseTimeout();
+        while (true) {
+            String containerId = idleContainers.poll();
+            if (containerId != null) {
+                return containerId;
+            }
+            if (creating.incrementAndGet() + allContainers.size() <= properties.getPoolSize()) {
+                try {
+                    containerId = createContainer();
+                    allContainers.add(containerId);
+                    return containerId;
+                } finally {
+                    creating.decrementAndGet();
+                }
+            }
+            creating.decrementAndGet();
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new RuntimeException("等待空闲容器超时");
+            }
+            try {
+                containerId = idleContainers.poll(Math.min(remaining, CAPACITY_RECHECK_INTERVAL), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待容器被中断", e);
+            }
+            if (containerId != null) {
+                return containerId;
+            }
+        }
+    }
+
+    private boolean cleanContainer(String containerId) {
+        try {
+            ExecCreateCmdResponse cleanCmd = getDockerClient().execCreateCmd(containerId)
+                    .withCmd("sh", "-c", String.format(CLEAN_SCRIPT, properties.getWorkDir()))
+                    .exec();
+            boolean completed = getDockerClient().execStartCmd(cleanCmd.getId())
+                    .exec(new ResultCallback.Adapter<Frame>())
+                    .awaitCompletion(CLEAN_TIME_OUT, TimeUnit.MILLISECONDS);
+            Long exitCode = completed ? DockerExecUtils.getExitCode(getDockerClient(), cleanCmd.getId()) : null;
+            if (exitCode == null || exitCode != 0) {
+                EventLog.warn("docker", "容器清理后仍有残留，丢弃容器", "containerId", containerId, "exitCode", exitCode);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            EventLog.warn("docker", "清理容器失败", "containerId", containerId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 把运行时调整过的 cpuset 和内存上限恢复为新建时的状态
+     */
+    private boolean resetLimits(String containerId) {
+        try {
+            if (cpusets.containsKey(containerId)) {
+                getDockerClient().updateContainerCmd(containerId).withCpusetCpus(getAllCpus()).exec();
+                cpusets.remove(containerId);
+            }
+            Long current = memoryLimits.get(containerId);
+            if (current == null || current != createMemoryLimit) {
+                getDockerClient().updateContainerCmd(containerId)
+                        .withMemory(createMemoryLimit * 1024 * 1024L)
+                        .withMemorySwap(createMemoryLimit * 1024 * 1024L)
+                        .exec();
+                memoryLimits.put(containerId, createMemoryLimit);
+            }
+            return true;
+        } catch (Exception e) {
+            EventLog.warn("docker", "恢复容器资源限制失败", "containerId", containerId, e);
+            return false;
+        }
+    }
+
+    private String getAllCpus() {
+        if (allCpus == null) {
+            Integer cpus = getDockerClient().infoCmd().exec().getNCPU();
+            allCpus = cpus == null || cpus <= 1 ? "0" : "0-" + (cpus - 1);
+        }
+        return allCpus;
+    }
+
+    private void discard(String containerId) {
+        allContainers.remove(containerId);
+        memoryLimits.remove(containerId);
+        cpusets.remove(containerId);
+        deadContainers.remove(containerId);
+        idleContainers.remove(containerId);
+        try {
+            getDockerClient().removeContainerCmd(containerId).withForce(true).withRemoveVolumes(true).exec();
+        } catch (Exception e) {
+            EventLog.warn("docker", "删除容器失败", "containerId", containerId, e);
+        }
+    }
+
+    /**
+     * 堆上限加 JVM 额外开销，不低于配置的容器内存下限
+     */
+    private long containerMemoryLimit(long heapMb) {
+        return Math.max(properties.getMemoryLimit(), heapMb + properties.getJvmOverhead());
+    }
+
+    private void ensureImage() {
+        if (imageReady) {
+            return;
+        }
+        DockerClient client = getDockerClient();
+        String image = properties.getImage();
+        try {
+            List<Image> images = client.listImagesCmd().withImageNameFilter(image).exec();
+            if (images == null || images.isEmpty()) {
+                // 本地没有才拉取
+                PullImageCmd pullImageCmd = client.pullImageCmd(image);
+                pullImageCmd.exec(new PullImageResultCallback()).awaitCompletion();
+                EventLog.info("docker", "镜像拉取完成", "image", image);
+            }
+            imageReady = true;
+        } catch (Exception e) {
+            throw new RuntimeException("拉取 Docker 镜像失败", e);
+        }
+    }
+
+    private String createContainer() {
+        try (Tracing.Span ignored = Tracing.span("docker.image")) {
+            ensureImage();
+        }
+        try (Tracing.Span ignored = Tracing.span("docker.create")) {
+            HostConfig hostConfig = new HostConfig()
+                    .withMemory(createMemoryLimit * 1024 * 1024L)//限制最大内存，运行前再按本次的限制调整
+                    .withMemorySwap(createMemoryLimit * 1024 * 1024L)
+                    .withCpuCount(1L);//限制cup核心数
+            CreateContainerResponse container = getDockerClient().createContainerCmd(properties.getImage())
+                    .withHostConfig(hostConfig)
+                    .withReadonlyRootfs(true)//禁止向root根目录写文件，运行目录使用匿名卷
+                    .withVolumes(new Volume(properties.getWorkDir()))
+                    .withNetworkDisabled(true)//禁用网络
+                    .withLabels(Collections.singletonMap(SANDBOX_LABEL, "true"))
+                    .withAttachStderr(true).withAttachStdout(true).withTty(true).exec();
+
+            String containerId = container.getId();
+            memoryLimits.put(containerId, createMemoryLimit);
+            try {
+                getDockerClient().startContainerCmd(containerId).exec();
+            } catch (RuntimeException e) {
+                // 已创建但未启动的容器不会进入池中，需要在这里删除
+                memoryLimits.remove(containerId);
+                try {
+                    getDockerClient().removeContainerCmd(containerId).withForce(true).withRemoveVolumes(true).exec();
+                } catch (RuntimeException removeError) {
+                    e.addSuppressed(removeError);
+                }
+                throw e;
+            }
+            return containerId;
+        } catch (Exception e) {
+            throw new RuntimeException("容器启动失败", e);
+        }
+    }
+
+    /**
+     * 容器租约，记录本次运行使用的容器和目录
+     */
+    @Getter
+    public static class ContainerLease implements RunEnvironment {
+
+        private volatile String containerId;
+
+        private final String runId;
+
+        private final String runDir;
+
+        public ContainerLease(String containerId, String runId, String runDir) {
+            this.containerId = containerId;
+            this.runId = runId;
+            this.runDir = runDir;
+        }
+    }
+}
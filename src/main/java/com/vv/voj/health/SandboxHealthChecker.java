@@ -0,0 +1,138 @@
+package com.vv.voj.health;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.docker.SandboxContainerPool;
+import com.vv.voj.model.HealthReport;
+import com.vv.voj.model.StageStats;
+import com.vv.voj.pipeline.StagedExecutor;
+import com.vv.voj.scheduler.AdaptiveConcurrencyLimiter;
+import com.vv.voj.scheduler.CpuCoreAllocator;
+import com.vv.voj.scheduler.FairShareScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Title: 容量感知的就绪检查
+ * 汇总空闲槽位、排队深度、容器池、磁盘余量和 Docker 连通性，超过阈值时判定为未就绪，让负载均衡把流量切到空闲节点
+ * @Author: vv
+ * @Date: 2025/8/6 11:00
+ */
+@Component
+public class SandboxHealthChecker {
+
+    private static final long DOCKER_PING_TIME_OUT = 2000L;
+
+    private static final long MB = 1024 * 1024L;
+
+    private final SandboxProperties.Readiness properties;
+
+    private final FairShareScheduler fairShareScheduler;
+
+    private final StagedExecutor stagedExecutor;
+
+    private final CpuCoreAllocator cpuCoreAllocator;
+
+    private final SandboxContainerPool containerPool;
+
+    private final SandboxWarmUp sandboxWarmUp;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final ExecutorService pingExecutor = Executors.newSingleThreadExecutor(
+            ThreadFactoryBuilder.create().setNamePrefix("docker-ping-").setDaemon(true).build());
+
+    private volatile boolean dockerReachable = false;
+
+    private volatile long lastDockerCheck = 0;
+
+    public SandboxHealthChecker(SandboxProperties sandboxProperties, FairShareScheduler fairShareScheduler,
+                                StagedExecutor stagedExecutor, CpuCoreAllocator cpuCoreAllocator,
+                                SandboxContainerPool containerPool, SandboxWarmUp sandboxWarmUp,
+                                AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.properties = sandboxProperties.getReadiness();
+        this.fairShareScheduler = fairShareScheduler;
+        this.stagedExecutor = stagedExecutor;
+        this.cpuCoreAllocator = cpuCoreAllocator;
+        this.containerPool = containerPool;
+        this.sandboxWarmUp = sandboxWarmUp;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * 生成就绪检查报告
+     */
+    public HealthReport check() {
+        HealthReport report = new HealthReport();
+        report.setFreeSlots(fairShareScheduler.getMaxConcurrent() - fairShareScheduler.getRunning());
+        int queueDepth = fairShareScheduler.getQueued();
+        for (StageStats stageStats : stagedExecutor.getStageStats()) {
+            queueDepth += stageStats.getQueued();
+        }
+        report.setQueueDepth(queueDepth);
+        report.setFreeCores(cpuCoreAllocator.getFreeCount());
+        report.setRunSlotLimit(concurrencyLimiter.getLimit());
+        report.setIdleContainers(containerPool.getIdleCount());
+        report.setTotalContainers(containerPool.getTotalCount());
+        report.setDiskFreeMb(new File(System.getProperty("user.dir")).getUsableSpace() / MB);
+        report.setTmpFreeMb(getTmpDir().getUsableSpace() / MB);
+        report.setDockerReachable(isDockerReachable());
+
+        if (!sandboxWarmUp.isFinished()) {
+            report.getReasons().add("正在预热");
+        }
+        if (report.getQueueDepth() > properties.getMaxQueueDepth()) {
+            report.getReasons().add("排队数超过阈值");
+        }
+        if (report.getFreeSlots() < properties.getMinFreeSlots()) {
+            report.getReasons().add("空闲执行槽位不足");
+        }
+        if (report.getDiskFreeMb() < properties.getMinDiskFreeMb()) {
+            report.getReasons().add("工作目录磁盘空间不足");
+        }
+        if (report.getTmpFreeMb() < properties.getMinTmpFreeMb()) {
+            report.getReasons().add("临时目录空间不足");
+        }
+        if (properties.isRequireDocker() && !report.isDockerReachable()) {
+            report.getReasons().add("Docker 不可达");
+        }
+        report.setReady(report.getReasons().isEmpty());
+        return report;
+    }
+
+    /**
+     * Docker 连通性结果带缓存，避免每次探测都请求守护进程
+     */
+    private boolean isDockerReachable() {
+        long now = System.currentTimeMillis();
+        if (now - lastDockerCheck < properties.getDockerCheckInterval()) {
+            return dockerReachable;
+        }
+        lastDockerCheck = now;
+        Future<?> ping = pingExecutor.submit(() -> containerPool.getDockerClient().pingCmd().exec());
+        try {
+            ping.get(DOCKER_PING_TIME_OUT, TimeUnit.MILLISECONDS);
+            dockerReachable = true;
+        } catch (Exception e) {
+            ping.cancel(true);
+            dockerReachable = false;
+        }
+        return dockerReachable;
+    }
+
+    private static File getTmpDir() {
+        File shm = new File("/dev/shm");
+        return shm.isDirectory() ? shm : new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pingExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,134 @@
+package com.vv.voj.health;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.JavaCodeSandboxTemplate;
+import com.vv.voj.JavaDockerCodeSandbox;
+import com.vv.voj.JavaNativeCodeSandbox;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.docker.SandboxContainerPool;
+import com.vv.voj.limit.LimitCalibrator;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.WarmUpReport;
+import com.vv.voj.pipeline.StagedExecutor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @Title: 启动预热
+ * 启动后先校准机器速度，再用内置示例代码把每个启用的沙箱跑几遍，加载编译器、预热请求链路的 JIT 并填满容器池，完成前就绪检查不通过
+ * @Author: vv
+ * @Date: 2025/8/6 15:30
+ */
+@Component
+public class SandboxWarmUp implements ApplicationRunner {
+
+    private static final String SAMPLE_CODE_PATH = "testCode/simpleComputeArgs/Main.java";
+
+    private final SandboxProperties.WarmUp properties;
+
+    private final StagedExecutor stagedExecutor;
+
+    private final JavaNativeCodeSandbox javaNativeCodeSandbox;
+
+    private final JavaDockerCodeSandbox javaDockerCodeSandbox;
+
+    private final SandboxContainerPool containerPool;
+
+    private final ObjectMapper objectMapper;
+
+    private final LimitCalibrator limitCalibrator;
+
+    private final WarmUpReport report = new WarmUpReport();
+
+    public SandboxWarmUp(SandboxProperties sandboxProperties, StagedExecutor stagedExecutor,
+                         JavaNativeCodeSandbox javaNativeCodeSandbox, JavaDockerCodeSandbox javaDockerCodeSandbox,
+                         SandboxContainerPool containerPool, ObjectMapper objectMapper, LimitCalibrator limitCalibrator) {
+        this.properties = sandboxProperties.getWarmup();
+        this.stagedExecutor = stagedExecutor;
+        this.javaNativeCodeSandbox = javaNativeCodeSandbox;
+        this.javaDockerCodeSandbox = javaDockerCodeSandbox;
+        this.containerPool = containerPool;
+        this.objectMapper = objectMapper;
+        this.limitCalibrator = limitCalibrator;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            report.setFinished(true);
+            // 不预热时仍在后台校准机器速度
+            limitCalibrator.calibrateAsync();
+            return;
+        }
+        // 在后台线程预热，不阻塞启动，存活检查可以先通过
+        Thread warmUpThread = new Thread(this::warmUp, "sandbox-warmup");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    public boolean isFinished() {
+        return report.isFinished();
+    }
+
+    public WarmUpReport getReport() {
+        return report;
+    }
+
+    private void warmUp() {
+        long start = System.currentTimeMillis();
+        // 先校准机器速度，避免与预热任务争抢 CPU 影响结果
+        limitCalibrator.calibrate();
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setInputList(Arrays.asList("1 2", "3 4"));
+        request.setCode(ResourceUtil.readStr(SAMPLE_CODE_PATH, StandardCharsets.UTF_8));
+        request.setLanguage("java");
+
+        for (String name : properties.getSandboxes()) {
+            JavaCodeSandboxTemplate sandbox = getSandbox(name);
+            if (sandbox == null) {
+                report.getErrors().put(name, "未知的沙箱");
+                continue;
+            }
+            try {
+                if (sandbox == javaDockerCodeSandbox) {
+                    containerPool.prefill();
+                }
+                for (int i = 0; i < properties.getIterations(); i++) {
+                    long runStart = System.currentTimeMillis();
+                    // 走与真实请求相同的序列化和流水线路径
+                    ExecuteCodeRequest copy = objectMapper.readValue(objectMapper.writeValueAsBytes(request), ExecuteCodeRequest.class);
+                    ExecuteCodeResponse response = stagedExecutor.submit(sandbox, copy).join();
+                    objectMapper.writeValueAsBytes(response);
+                    long latency = System.currentTimeMillis() - runStart;
+                    if (i == 0) {
+                        report.getFirstLatency().put(name, latency);
+                    }
+                    report.getWarmLatency().put(name, latency);
+                }
+            } catch (Exception e) {
+                report.getErrors().put(name, e.getMessage());
+            }
+        }
+        report.setDuration(System.currentTimeMillis() - start);
+        report.setFinished(true);
+        EventLog.info("warmup", "预热完成", "durationMs", report.getDuration(),
+                "firstLatency", report.getFirstLatency(), "warmLatency", report.getWarmLatency());
+    }
+
+    private JavaCodeSandboxTemplate getSandbox(String name) {
+        if ("native".equalsIgnoreCase(name)) {
+            return javaNativeCodeSandbox;
+        }
+        if ("docker".equalsIgnoreCase(name)) {
+            return javaDockerCodeSandbox;
+        }
+        return null;
+    }
+}
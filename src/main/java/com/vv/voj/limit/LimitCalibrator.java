@@ -0,0 +1,128 @@
+package com.vv.voj.limit;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.checker.CheckerRunner;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.CalibrationReport;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.utils.ProcessUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @Title: 运行限制与机器速度校准
+ * 请求中的时间限制按基准机器计；启动时运行固定计算量的校准程序，得到本机相对基准机器的速度和 JVM 启动开销，
+ * 运行时按本机速度换算 CPU 时间上限，报告的用时再换算回基准机器，限制可以设得更紧，超时的程序更早让出位置
+ * @Author: vv
+ * @Date: 2025/8/15 11:00
+ */
+@Component
+public class LimitCalibrator {
+
+    private static final String CALIBRATION_SOURCE = "calibration/Calibration.java";
+
+    /**
+     * 速度倍数的合理范围，超出说明校准受到干扰
+     */
+    private static final double MIN_SPEED_FACTOR = 0.25;
+
+    private static final double MAX_SPEED_FACTOR = 8.0;
+
+    private final SandboxProperties.Limits properties;
+
+    private final CheckerRunner checkerRunner;
+
+    private final CalibrationReport report = new CalibrationReport();
+
+    public LimitCalibrator(SandboxProperties sandboxProperties, CheckerRunner checkerRunner) {
+        this.properties = sandboxProperties.getLimits();
+        this.checkerRunner = checkerRunner;
+        this.report.setReferenceWorkMillis(properties.getReferenceWorkMillis());
+    }
+
+    /**
+     * 按请求和本机速度计算运行限制
+     */
+    public RunLimits resolve(ExecuteCodeRequest executeCodeRequest) {
+        return resolve(executeCodeRequest, properties, report.getSpeedFactor(), report.getStartupCpuMillis());
+    }
+
+    /**
+     * 按请求计算运行限制，未指定的使用默认值，超过上限的截断
+     *
+     * @param speedFactor 本机相对基准机器的耗时倍数
+     * @param startupCpu  JVM 启动消耗的 CPU 时间(ms)
+     */
+    public static RunLimits resolve(ExecuteCodeRequest executeCodeRequest, SandboxProperties.Limits properties,
+                                    double speedFactor, long startupCpu) {
+        Long requestTime = executeCodeRequest.getTimeLimit();
+        Long requestMemory = executeCodeRequest.getMemoryLimit();
+        long timeLimit = requestTime == null || requestTime <= 0 ? properties.getDefaultTimeLimit() : requestTime;
+        timeLimit = Math.min(timeLimit, properties.getMaxTimeLimit());
+        long memoryLimit = requestMemory == null || requestMemory <= 0 ? properties.getDefaultMemoryLimit() : requestMemory;
+        memoryLimit = Math.min(memoryLimit, properties.getMaxMemoryLimit());
+        long cpuLimit = Math.round(timeLimit * speedFactor) + startupCpu;
+        long wallLimit = Math.round(cpuLimit * properties.getWallFactor()) + properties.getWallExtra();
+        return new RunLimits(timeLimit, memoryLimit, cpuLimit, wallLimit, properties.getSampleInterval(), speedFactor, startupCpu);
+    }
+
+    /**
+     * 运行校准程序，取多次中的最小值以排除干扰
+     */
+    public void calibrate() {
+        if (!properties.isCalibrate() || report.isCalibrated()) {
+            return;
+        }
+        try {
+            long bestWork = Long.MAX_VALUE;
+            long bestStartup = Long.MAX_VALUE;
+            for (int i = 0; i < Math.max(1, properties.getCalibrationRuns()); i++) {
+                long[] result = runCalibration();
+                bestWork = Math.min(bestWork, result[0]);
+                bestStartup = Math.min(bestStartup, result[1]);
+            }
+            double speedFactor = (double) bestWork / properties.getReferenceWorkMillis();
+            report.setWorkMillis(bestWork);
+            report.setSpeedFactor(Math.max(MIN_SPEED_FACTOR, Math.min(MAX_SPEED_FACTOR, speedFactor)));
+            report.setStartupCpuMillis(bestStartup);
+            report.setCalibrated(true);
+            EventLog.info("calibration", "机器速度校准完成", "speedFactor", report.getSpeedFactor(),
+                    "workMillis", bestWork, "startupCpuMillis", bestStartup);
+        } catch (Exception e) {
+            report.setError(e.getMessage());
+            EventLog.warn("calibration", "机器速度校准失败，按基准机器速度计", e);
+        }
+    }
+
+    /**
+     * 运行一次校准程序，编译结果会被缓存
+     *
+     * @return 固定计算量的耗时(ms)、JVM 启动消耗的 CPU 时间(ms)
+     */
+    public long[] runCalibration() throws Exception {
+        String source = ResourceUtil.readStr(CALIBRATION_SOURCE, StandardCharsets.UTF_8);
+        File calibrationDir = checkerRunner.compile(source, "Calibration").join();
+        Process process = new ProcessBuilder("java", "-Xmx64m", "-cp", calibrationDir.getAbsolutePath(), "Calibration").start();
+        ExecuteMessage executeMessage = ProcessUtils.runProcessAndGetMessage(process, "校准");
+        String[] result = StrUtil.splitToArray(StrUtil.trim(executeMessage.getMessage()), ' ');
+        return new long[]{Long.parseLong(result[0]), Long.parseLong(result[1])};
+    }
+
+    /**
+     * 在后台线程校准
+     */
+    public void calibrateAsync() {
+        Thread calibrationThread = new Thread(this::calibrate, "limit-calibration");
+        calibrationThread.setDaemon(true);
+        calibrationThread.start();
+    }
+
+    public CalibrationReport getReport() {
+        return report;
+    }
+}
@@ -0,0 +1,56 @@
+package com.vv.voj.limit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一次运行实际使用的限制，已按本机速度换算
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunLimits {
+
+    /**
+     * 请求的时间限制(ms)，按基准机器计
+     */
+    private long timeLimit;
+
+    /**
+     * 内存限制(MB)
+     */
+    private long memoryLimit;
+
+    /**
+     * 本机 CPU 时间上限(ms)：时间限制按速度缩放后加上 JVM 启动开销
+     */
+    private long cpuLimit;
+
+    /**
+     * 墙钟时间上限(ms)
+     */
+    private long wallLimit;
+
+    /**
+     * 采样间隔(ms)
+     */
+    private long sampleInterval;
+
+    /**
+     * 本机相对基准机器的耗时倍数
+     */
+    private double speedFactor;
+
+    /**
+     * JVM 启动消耗的 CPU 时间(ms)
+     */
+    private long startupCpu;
+
+    /**
+     * 把本机测得的 CPU 时间换算为基准机器上的用时，扣除 JVM 启动开销
+     */
+    public long normalizeTime(long cpuTime) {
+        return Math.round(Math.max(0, cpuTime - startupCpu) / speedFactor);
+    }
+}
@@ -0,0 +1,231 @@
+package com.vv.voj.log;
+
+import com.vv.voj.model.LogStats;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @Title: 异步事件输出
+ * 判题线程采样后写入环形缓冲区即返回；单个后台线程批量取出、格式化为 logfmt 行并一次性写到控制台，
+ * 缓冲区满时丢弃并计数，下一批输出时报告丢弃数量
+ * @Author: vv
+ * @Date: 2025/8/16 15:20
+ */
+public class AsyncEventAppender implements Runnable {
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    /**
+     * 空闲时的等待时间，日志不要求实时
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * 单批最多累积的字符数，超过后先写出
+     */
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+
+    private final EventRingBuffer<LogEvent> buffer;
+
+    private final double[] sampleRates = new double[EventLevel.values().length];
+
+    private final PrintStream out;
+
+    private final Thread thread;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private long reportedDrops = 0L;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity    缓冲区容量
+     * @param sampleRates 级别名（不区分大小写） -> 采样率，未配置的级别全部输出
+     * @param out         输出流
+     */
+    public AsyncEventAppender(int capacity, Map<String, Double> sampleRates, PrintStream out) {
+        this.buffer = new EventRingBuffer<>(capacity);
+        this.out = out;
+        for (EventLevel level : EventLevel.values()) {
+            Double rate = null;
+            if (sampleRates != null) {
+                rate = sampleRates.get(level.name().toLowerCase());
+                if (rate == null) {
+                    rate = sampleRates.get(level.name());
+                }
+            }
+            this.sampleRates[level.ordinal()] = rate == null ? 1.0 : rate;
+        }
+        this.thread = new Thread(this, "event-log-appender");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 采样并写入缓冲区，不阻塞
+     *
+     * @return 是否写入
+     */
+    public boolean publish(LogEvent event) {
+        double rate = sampleRates[event.getLevel().ordinal()];
+        if (rate < 1.0 && (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate)) {
+            sampledOut.increment();
+            return false;
+        }
+        if (!running || !buffer.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        published.increment();
+        return true;
+    }
+
+    @Override
+    public void run() {
+        StringBuilder batch = new StringBuilder();
+        while (running || buffer.size() > 0) {
+            LogEvent event = buffer.poll();
+            if (event == null) {
+                flush(batch);
+                if (running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            format(event, batch);
+            if (batch.length() >= MAX_BATCH_CHARS) {
+                flush(batch);
+            }
+        }
+        flush(batch);
+    }
+
+    /**
+     * 停止并输出缓冲区中剩余的事件
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public LogStats getStats() {
+        LogStats logStats = new LogStats();
+        logStats.setCapacity(buffer.capacity());
+        logStats.setPending(buffer.size());
+        logStats.setPublished(published.sum());
+        logStats.setDropped(dropped.sum());
+        logStats.setSampledOut(sampledOut.sum());
+        return logStats;
+    }
+
+    private void flush(StringBuilder batch) {
+        long drops = dropped.sum();
+        if (drops > reportedDrops) {
+            batch.append(TIME_FORMATTER.format(Instant.now())).append(" level=WARN thread=").append(thread.getName())
+                    .append(" phase=log msg=缓冲区已满，丢弃事件 dropped=").append(drops - reportedDrops).append('\n');
+            reportedDrops = drops;
+        }
+        if (batch.length() == 0) {
+            return;
+        }
+        out.print(batch);
+        out.flush();
+        batch.setLength(0);
+    }
+
+    private static void format(LogEvent event, StringBuilder sb) {
+        sb.append(TIME_FORMATTER.format(Instant.ofEpochMilli(event.getTimestamp())))
+                .append(" level=").append(event.getLevel())
+                .append(" thread=");
+        appendValue(sb, event.getThread());
+        if (event.getSubmissionId() != null) {
+            sb.append(" submissionId=");
+            appendValue(sb, event.getSubmissionId());
+        }
+        sb.append(" phase=").append(event.getPhase()).append(" msg=");
+        appendValue(sb, event.getMessage());
+        Object[] keyValues = event.getKeyValues();
+        Throwable throwable = null;
+        int pairs = keyValues == null ? 0 : keyValues.length / 2;
+        for (int i = 0; i < pairs; i++) {
+            sb.append(' ').append(keyValues[2 * i]).append('=');
+            appendValue(sb, keyValues[2 * i + 1]);
+        }
+        if (keyValues != null && keyValues.length % 2 == 1) {
+            Object last = keyValues[keyValues.length - 1];
+            if (last instanceof Throwable) {
+                throwable = (Throwable) last;
+                sb.append(" error=");
+                appendValue(sb, throwable.toString());
+            }
+        }
+        sb.append('\n');
+        // 错误级别附带堆栈，便于排查
+        if (throwable != null && event.getLevel() == EventLevel.ERROR) {
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            sb.append(stackTrace);
+        }
+    }
+
+    /**
+     * 含空白、引号或等号的值加引号并转义，保证一条事件只占一行
+     */
+    private static void appendValue(StringBuilder sb, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            sb.append(text);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
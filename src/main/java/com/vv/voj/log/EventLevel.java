@@ -0,0 +1,15 @@
+package com.vv.voj.log;
+
+/**
+ * 事件级别，每个级别有独立的采样率
+ */
+public enum EventLevel {
+
+    DEBUG,
+
+    INFO,
+
+    WARN,
+
+    ERROR
+}
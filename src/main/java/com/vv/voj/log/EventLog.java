@@ -0,0 +1,104 @@
+package com.vv.voj.log;
+
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.LogStats;
+
+/**
+ * @Title: 结构化事件日志
+ * 取代判题路径上直接的控制台输出：事件带提交 ID 和阶段，以键值对记录，写入无锁缓冲区后由后台线程输出；
+ * 静态方法便于在工具类中使用，Spring 启动后按配置替换缓冲区和采样率
+ * @Author: vv
+ * @Date: 2025/8/16 15:00
+ */
+public final class EventLog {
+
+    private static final ThreadLocal<String> SUBMISSION_ID = new ThreadLocal<>();
+
+    private static volatile AsyncEventAppender appender = create(new SandboxProperties.Log());
+
+    private EventLog() {
+    }
+
+    /**
+     * 按配置重建输出，旧缓冲区中的事件输出后再停止
+     */
+    public static synchronized void configure(SandboxProperties.Log properties) {
+        AsyncEventAppender previous = appender;
+        appender = create(properties);
+        previous.stop();
+    }
+
+    private static AsyncEventAppender create(SandboxProperties.Log properties) {
+        return new AsyncEventAppender(properties.getCapacity(), properties.getSampleRates(), System.out);
+    }
+
+    /**
+     * 停止并输出剩余事件
+     */
+    public static void shutdown() {
+        appender.stop();
+    }
+
+    public static LogStats getStats() {
+        return appender.getStats();
+    }
+
+    /**
+     * 把当前线程上之后的事件标记为某次提交，关闭时恢复
+     *
+     * @param submissionId 提交 ID
+     * @return 作用域
+     */
+    public static Scope bind(String submissionId) {
+        String previous = SUBMISSION_ID.get();
+        SUBMISSION_ID.set(submissionId);
+        return () -> {
+            if (previous == null) {
+                SUBMISSION_ID.remove();
+            } else {
+                SUBMISSION_ID.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 当前线程绑定的提交 ID，用于传递给其他线程
+     */
+    public static String currentSubmissionId() {
+        return SUBMISSION_ID.get();
+    }
+
+    /**
+     * @param phase     阶段，例如 compile、run、docker
+     * @param message   事件描述
+     * @param keyValues 交替的键和值，可在最后附加一个异常
+     */
+    public static void debug(String phase, String message, Object... keyValues) {
+        log(EventLevel.DEBUG, phase, message, keyValues);
+    }
+
+    public static void info(String phase, String message, Object... keyValues) {
+        log(EventLevel.INFO, phase, message, keyValues);
+    }
+
+    public static void warn(String phase, String message, Object... keyValues) {
+        log(EventLevel.WARN, phase, message, keyValues);
+    }
+
+    public static void error(String phase, String message, Object... keyValues) {
+        log(EventLevel.ERROR, phase, message, keyValues);
+    }
+
+    private static void log(EventLevel level, String phase, String message, Object[] keyValues) {
+        appender.publish(new LogEvent(level, SUBMISSION_ID.get(), phase, message, keyValues));
+    }
+
+    /**
+     * 绑定作用域，关闭时不抛出受检异常
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
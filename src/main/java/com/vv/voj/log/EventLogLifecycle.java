@@ -0,0 +1,22 @@
+package com.vv.voj.log;
+
+import com.vv.voj.config.SandboxProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * 启动时按配置设置事件日志，关闭时输出缓冲区中剩余的事件
+ */
+@Component
+public class EventLogLifecycle {
+
+    public EventLogLifecycle(SandboxProperties sandboxProperties) {
+        EventLog.configure(sandboxProperties.getLog());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        EventLog.shutdown();
+    }
+}
@@ -0,0 +1,38 @@
+package com.vv.voj.log;
+
+import lombok.Getter;
+
+/**
+ * 一条结构化事件
+ * 判题线程只负责收集字段，格式化在输出线程上完成，键值应是不再变化的简单值
+ */
+@Getter
+public class LogEvent {
+
+    private final long timestamp;
+
+    private final EventLevel level;
+
+    private final String thread;
+
+    private final String submissionId;
+
+    private final String phase;
+
+    private final String message;
+
+    /**
+     * 交替的键和值，最后多出的一个 Throwable 作为异常输出
+     */
+    private final Object[] keyValues;
+
+    public LogEvent(EventLevel level, String submissionId, String phase, String message, Object[] keyValues) {
+        this.timestamp = System.currentTimeMillis();
+        this.level = level;
+        this.thread = Thread.currentThread().getName();
+        this.submissionId = submissionId;
+        this.phase = phase;
+        this.message = message;
+        this.keyValues = keyValues;
+    }
+}
@@ -0,0 +1,40 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 机器速度校准结果
+ */
+@Data
+public class CalibrationReport {
+
+    /**
+     * 是否已完成校准，未完成时按基准机器速度计
+     */
+    private volatile boolean calibrated;
+
+    /**
+     * 校准程序在本机的耗时(ms)
+     */
+    private long workMillis;
+
+    /**
+     * 校准程序在基准机器上的耗时(ms)
+     */
+    private long referenceWorkMillis;
+
+    /**
+     * 本机相对基准机器的耗时倍数，大于 1 表示本机更慢
+     */
+    private double speedFactor = 1.0;
+
+    /**
+     * JVM 启动消耗的 CPU 时间(ms)
+     */
+    private long startupCpuMillis;
+
+    /**
+     * 校准失败的原因
+     */
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.vv.voj.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 特判检查器对单个用例的判定
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckerResult {
+
+    /**
+     * 判定结果：答案正确、答案错误、格式错误、部分正确、检查器错误
+     */
+    private String verdict;
+
+    /**
+     * 得分(0~100)
+     */
+    private double score;
+
+    /**
+     * 检查器给出的说明
+     */
+    private String message;
+}
@@ -0,0 +1,16 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 类直方图中的一行
+ */
+@Data
+public class ClassHistogramEntry {
+
+    private String className;
+
+    private long instances;
+
+    private long bytes;
+}
@@ -0,0 +1,57 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 自适应并发限制的状态
+ */
+@Data
+public class ConcurrencyStats {
+
+    private boolean enabled;
+
+    /**
+     * 当前允许同时运行的用例数
+     */
+    private int limit;
+
+    private int minLimit;
+
+    private int maxLimit;
+
+    /**
+     * 正在运行的用例数
+     */
+    private int inFlight;
+
+    /**
+     * 等待运行位置的用例数
+     */
+    private int waiting;
+
+    /**
+     * 校准程序的基线耗时(ms)，取空闲校准和历次探测的最小值
+     */
+    private long baselineWorkMillis;
+
+    /**
+     * 平滑后的最近探测耗时(ms)
+     */
+    private double probeWorkMillis;
+
+    /**
+     * 基线与探测耗时之比，小于 1 说明并发导致运行变慢
+     */
+    private double gradient;
+
+    /**
+     * 平均等待运行位置的时间(ms)
+     */
+    private double avgQueueMillis;
+
+    private long probes;
+
+    private long increases;
+
+    private long decreases;
+}
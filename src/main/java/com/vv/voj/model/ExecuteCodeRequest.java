@@ -1,21 +1,78 @@
-package com.vv.voj.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.util.List;
-
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class ExecuteCodeRequest {
-
-    private List<String> inputList;
-
-    private String code;
-
-    private String language;
-}
+package com.vv.voj.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.vv.voj.wire.InputListDeserializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteCodeRequest {
+
+    /**
+     * 提交 ID，请求中不传时由沙箱生成
+     */
+    private String submissionId;
+
+    /**
+     * 输入用例，超大时流式解析并落盘
+     */
+    @JsonDeserialize(using = InputListDeserializer.class)
+    private List<String> inputList;
+
+    private String code;
+
+    /**
+     * 题目 ID，传入时按题目统计各用例的失败情况
+     */
+    private String problemId;
+
+    /**
+     * 是否先运行该题历史上最常失败的用例，结果仍按原始顺序返回；
+     * 开启后第一个答错的用例（与答案不一致或检查器判定未通过）之后不再运行
+     */
+    private Boolean failFast;
+
+    private String language;
+
+    /**
+     * 时间限制(ms)，按 CPU 时间计，不传使用默认值
+     */
+    private Long timeLimit;
+
+    /**
+     * 内存限制(MB)，不传使用默认值
+     */
+    private Long memoryLimit;
+
+    /**
+     * 输出模式：full 返回完整输出（默认），digest 只返回每个用例输出的摘要
+     */
+    private String outputMode;
+
+    /**
+     * 摘要模式下每个用例返回的输出预览长度（字节），不传则不返回预览
+     */
+    private Integer previewLength;
+
+    /**
+     * 特判检查器源码（类名 Checker），不传则只返回输出
+     */
+    private String checkerCode;
+
+    /**
+     * 每个用例的标准答案，交给检查器比对
+     */
+    private List<String> answerList;
+
+    /**
+     * 交互器源码（类名 Interactor），传入时按交互题运行，输入用例交给交互器
+     */
+    private String interactorCode;
+}
@@ -1,32 +1,47 @@
-package com.vv.voj.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.util.List;
-
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-public class ExecuteCodeResponse {
-
-    private List<String> outputList;
-
-    /**
-     * 接口信息
-     */
-    private String message;
-
-    /**
-     * 执行状态
-     */
-    private String status;
-
-    /**
-     * 判题信息
-     */
-    private JudgeInfo judgeInfo;
-}
+package com.vv.voj.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteCodeResponse {
+
+    /**
+     * 提交 ID，请求中不传时由沙箱生成
+     */
+    private String submissionId;
+
+    private List<String> outputList;
+
+    /**
+     * 摘要模式下每个用例的输出摘要，此时不返回 outputList
+     */
+    private List<OutputDigest> outputDigestList;
+
+    /**
+     * 用例重排后部分用例未运行时，输出列表中每一项对应的原始用例下标（按下标递增）；结果覆盖全部用例时为 null
+     */
+    private List<Integer> testIndexList;
+
+    /**
+     * 接口信息
+     */
+    private String message;
+
+    /**
+     * 执行状态
+     */
+    private String status;
+
+    /**
+     * 判题信息
+     */
+    private JudgeInfo judgeInfo;
+}
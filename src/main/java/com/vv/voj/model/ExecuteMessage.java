@@ -17,4 +17,19 @@ public class ExecuteMessage {
     private Long time;
 
     private Long memory;
+
+    /**
+     * 摘要模式下的输出摘要，此时 message 为空
+     */
+    private OutputDigest outputDigest;
+
+    /**
+     * 特判检查器的结果
+     */
+    private CheckerResult checkerResult;
+
+    /**
+     * 交互题的交互统计
+     */
+    private InteractionInfo interactionInfo;
 }
@@ -0,0 +1,68 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 健康检查信息
+ */
+@Data
+public class HealthReport {
+
+    /**
+     * 是否可以接收新的提交
+     */
+    private boolean ready;
+
+    /**
+     * 未就绪的原因
+     */
+    private List<String> reasons = new ArrayList<>();
+
+    /**
+     * 空闲执行槽位
+     */
+    private int freeSlots;
+
+    /**
+     * 排队的提交数（调度器 + 流水线各阶段）
+     */
+    private int queueDepth;
+
+    /**
+     * 空闲的 CPU 核心组
+     */
+    private int freeCores;
+
+    /**
+     * 自适应并发限制当前允许同时运行的用例数
+     */
+    private int runSlotLimit;
+
+    /**
+     * 常驻容器池中空闲的容器数
+     */
+    private int idleContainers;
+
+    /**
+     * 常驻容器池中的容器总数
+     */
+    private int totalContainers;
+
+    /**
+     * 工作目录所在磁盘剩余空间(MB)
+     */
+    private long diskFreeMb;
+
+    /**
+     * 临时目录剩余空间(MB)
+     */
+    private long tmpFreeMb;
+
+    /**
+     * Docker 守护进程是否可达
+     */
+    private boolean dockerReachable;
+}
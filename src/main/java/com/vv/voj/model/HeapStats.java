@@ -0,0 +1,54 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 当前堆、GC 和线程的概况
+ */
+@Data
+public class HeapStats {
+
+    private long heapUsed;
+
+    private long heapCommitted;
+
+    private long heapMax;
+
+    private long nonHeapUsed;
+
+    private long nonHeapCommitted;
+
+    /**
+     * GC 名称 -> 累计次数
+     */
+    private Map<String, Long> gcCounts;
+
+    /**
+     * GC 名称 -> 累计耗时(ms)
+     */
+    private Map<String, Long> gcMillis;
+
+    private int liveThreads;
+
+    private int peakThreads;
+
+    private int daemonThreads;
+
+    /**
+     * 线程状态 -> 线程数
+     */
+    private Map<String, Long> threadStates;
+
+    /**
+     * 按线程组统计的线程数，用于发现线程堆积
+     */
+    private List<ProfileEntry> threadGroups;
+
+    /**
+     * 占用字节数最多的类，未请求时为 null
+     */
+    private List<ClassHistogramEntry> classHistogram;
+}
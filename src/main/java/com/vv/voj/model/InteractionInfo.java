@@ -0,0 +1,45 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 交互题单个用例的交互统计
+ */
+@Data
+public class InteractionInfo {
+
+    /**
+     * 交互器发给选手程序的字节数
+     */
+    private long interactorBytes;
+
+    /**
+     * 选手程序发给交互器的字节数
+     */
+    private long solutionBytes;
+
+    /**
+     * 交互轮数，按选手程序发出的消息批次统计
+     */
+    private long roundTrips;
+
+    /**
+     * 选手程序 CPU 时间(ms)
+     */
+    private long solutionTime;
+
+    /**
+     * 交互器 CPU 时间(ms)
+     */
+    private long interactorTime;
+
+    /**
+     * 选手程序内存峰值(kb)
+     */
+    private long solutionMemory;
+
+    /**
+     * 交互器内存峰值(kb)
+     */
+    private long interactorMemory;
+}
@@ -1,19 +1,27 @@
-package com.vv.voj.model;
-
-import lombok.Data;
-
-/**
- * @Title: 判题信息
- * @Author: vv
- * @Date: 2025/6/14 0:40
- */
-
-@Data
-public class JudgeInfo {
-    //程序执行信息
-    private String message;
-    //执行时间(ms)
-    private Long time;
-    //执行内存(kb)
-    private Long memory;
-}
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * @Title: 判题信息
+ * @Author: vv
+ * @Date: 2025/6/14 0:40
+ */
+
+@Data
+public class JudgeInfo {
+    //程序执行信息
+    private String message;
+    //执行时间(ms)
+    private Long time;
+    //执行内存(kb)
+    private Long memory;
+    //特判得分(0~100)，各用例得分的平均值
+    private Double score;
+    //每个用例的特判结果
+    private List<CheckerResult> checkerResults;
+    //交互题每个用例的交互统计
+    private List<InteractionInfo> interactionInfos;
+}
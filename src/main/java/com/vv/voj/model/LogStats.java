@@ -0,0 +1,35 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 结构化事件日志状态
+ */
+@Data
+public class LogStats {
+
+    /**
+     * 环形缓冲区容量
+     */
+    private int capacity;
+
+    /**
+     * 等待输出的事件数
+     */
+    private int pending;
+
+    /**
+     * 已写入缓冲区的事件数
+     */
+    private long published;
+
+    /**
+     * 缓冲区满被丢弃的事件数
+     */
+    private long dropped;
+
+    /**
+     * 按级别采样被跳过的事件数
+     */
+    private long sampledOut;
+}
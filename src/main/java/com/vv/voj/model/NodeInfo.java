@@ -0,0 +1,49 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 集群工作节点信息
+ */
+@Data
+public class NodeInfo {
+
+    private String nodeId;
+
+    /**
+     * 节点对外地址，如 http://localhost:8091
+     */
+    private String url;
+
+    /**
+     * 节点上报的空闲执行槽位
+     */
+    private int freeSlots;
+
+    /**
+     * 支持的语言
+     */
+    private List<String> languages;
+
+    /**
+     * 是否正在摘流（不再分配新的提交）
+     */
+    private boolean draining;
+
+    /**
+     * 最近一次心跳时间
+     */
+    private long lastHeartbeat;
+
+    /**
+     * 上次心跳后协调者已分配给该节点的提交数
+     */
+    private int dispatched;
+
+    /**
+     * 连续转发失败次数
+     */
+    private int failures;
+}
@@ -0,0 +1,29 @@
+package com.vv.voj.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个用例输出的摘要，摘要模式下代替完整输出返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutputDigest {
+
+    /**
+     * 规范化后输出的 SHA-256（十六进制小写）
+     */
+    private String sha256;
+
+    /**
+     * 规范化后输出的字节数
+     */
+    private long length;
+
+    /**
+     * 输出开头的预览，未要求预览时为空
+     */
+    private String preview;
+}
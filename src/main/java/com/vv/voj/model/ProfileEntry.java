@@ -0,0 +1,27 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 分析结果中的一项：方法、分配位置或线程组
+ */
+@Data
+public class ProfileEntry {
+
+    private String name;
+
+    /**
+     * 样本或事件数
+     */
+    private long count;
+
+    /**
+     * 权重：分配字节数或等待时间(ms)，只按次数统计时为 0
+     */
+    private long weight;
+
+    /**
+     * 占总量的百分比，按权重统计时按权重计算
+     */
+    private double percent;
+}
@@ -0,0 +1,36 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 一次飞行记录
+ */
+@Data
+public class ProfilingRecording {
+
+    private long id;
+
+    private String name;
+
+    private String settings;
+
+    /**
+     * RUNNING / STOPPED / FAILED
+     */
+    private String state;
+
+    /**
+     * 开始时间(ms)
+     */
+    private long startTime;
+
+    /**
+     * 计划时长(ms)
+     */
+    private long duration;
+
+    /**
+     * 录制文件大小(字节)，停止后才有
+     */
+    private Long size;
+}
@@ -0,0 +1,27 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 开始一次飞行记录的参数
+ */
+@Data
+public class ProfilingRequest {
+
+    /**
+     * 录制时长(ms)，不传时使用配置的默认值，到时自动停止
+     */
+    private Long duration;
+
+    /**
+     * JDK 自带的设置名：default（开销低）或 profile（采样更密，适合排查热点）
+     */
+    private String settings;
+
+    /**
+     * 覆盖单项设置，例如 jdk.ObjectAllocationSample#throttle -> 500/s
+     */
+    private Map<String, String> options;
+}
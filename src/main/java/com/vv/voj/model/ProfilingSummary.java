@@ -0,0 +1,60 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 飞行记录的摘要
+ */
+@Data
+public class ProfilingSummary {
+
+    private long recordingId;
+
+    /**
+     * Java 代码的执行样本数
+     */
+    private long executionSamples;
+
+    /**
+     * 按栈顶方法统计的热点（自身耗时）
+     */
+    private List<ProfileEntry> hotMethods;
+
+    /**
+     * 按出现在调用栈中的方法统计的热点（含被调用方法的耗时）
+     */
+    private List<ProfileEntry> hotMethodsInclusive;
+
+    /**
+     * 按分配位置和类型统计的分配量
+     */
+    private List<ProfileEntry> allocationSites;
+
+    /**
+     * 执行样本中的线程状态 -> 样本数
+     */
+    private Map<String, Long> threadStates;
+
+    /**
+     * 按线程组（线程名中的数字替换为 #）统计的样本数
+     */
+    private List<ProfileEntry> threadGroups;
+
+    /**
+     * 锁竞争和线程挂起，按等待位置统计等待时间
+     */
+    private List<ProfileEntry> contention;
+
+    /**
+     * 录制期间的线程数峰值
+     */
+    private long peakThreads;
+
+    /**
+     * 录制期间新建的线程数
+     */
+    private long startedThreads;
+}
@@ -0,0 +1,47 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 批量重判进度，以 progress 事件定期返回，结束时以 done 事件返回最终结果
+ */
+@Data
+public class RejudgeProgress {
+
+    private String problemId;
+
+    /**
+     * 提交总数
+     */
+    private int total;
+
+    /**
+     * 去重后的源码数，即实际执行的次数
+     */
+    private int uniqueSources;
+
+    /**
+     * 已返回结果的提交数
+     */
+    private int completed;
+
+    /**
+     * 已执行完的源码数
+     */
+    private int completedSources;
+
+    /**
+     * 执行失败的提交数
+     */
+    private int failed;
+
+    /**
+     * 已用时间(ms)
+     */
+    private long elapsed;
+
+    /**
+     * 按已完成源码的平均耗时估算的剩余时间(ms)，还没有源码完成时为 -1
+     */
+    private long eta;
+}
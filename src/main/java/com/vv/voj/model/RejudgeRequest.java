@@ -0,0 +1,59 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量重判请求：一道题的测试数据加多份源码，测试数据只传一次
+ */
+@Data
+public class RejudgeRequest {
+
+    /**
+     * 题目 ID，只用于回传和日志
+     */
+    private String problemId;
+
+    /**
+     * 输入用例，所有提交共用同一份，在重判期间常驻内存
+     */
+    private List<String> inputList;
+
+    /**
+     * 每个用例的标准答案，交给检查器比对
+     */
+    private List<String> answerList;
+
+    /**
+     * 特判检查器源码（类名 Checker），检查器只编译一次
+     */
+    private String checkerCode;
+
+    private String language;
+
+    /**
+     * 时间限制(ms)，不传使用默认值
+     */
+    private Long timeLimit;
+
+    /**
+     * 内存限制(MB)，不传使用默认值
+     */
+    private Long memoryLimit;
+
+    /**
+     * 输出模式：full 返回完整输出（默认），digest 只返回摘要
+     */
+    private String outputMode;
+
+    /**
+     * 摘要模式下每个用例返回的输出预览长度（字节）
+     */
+    private Integer previewLength;
+
+    /**
+     * 待重判的提交
+     */
+    private List<RejudgeSubmission> submissions;
+}
@@ -0,0 +1,17 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 批量重判中的一份提交
+ */
+@Data
+public class RejudgeSubmission {
+
+    /**
+     * 提交 ID，不传时由沙箱生成
+     */
+    private String submissionId;
+
+    private String code;
+}
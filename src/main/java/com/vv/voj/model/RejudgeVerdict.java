@@ -0,0 +1,24 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 批量重判中一份提交的结果，以 verdict 事件返回
+ */
+@Data
+public class RejudgeVerdict {
+
+    private String submissionId;
+
+    /**
+     * 源码与之前某份提交相同时，为实际执行的那份提交的 ID，结果直接复用
+     */
+    private String duplicateOf;
+
+    private ExecuteCodeResponse response;
+
+    /**
+     * 执行失败（例如排队已满）时的原因，此时没有 response
+     */
+    private String error;
+}
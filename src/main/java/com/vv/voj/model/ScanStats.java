@@ -0,0 +1,45 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 字节码预检的耗时统计
+ */
+@Data
+public class ScanStats {
+
+    /**
+     * 是否启用预检
+     */
+    private boolean enabled;
+
+    /**
+     * 实际解析的 class 文件数
+     */
+    private long scannedClasses;
+
+    /**
+     * 命中缓存的 class 文件数
+     */
+    private long cacheHits;
+
+    /**
+     * 被拒绝的提交数
+     */
+    private long violations;
+
+    /**
+     * 平均每次提交的编译耗时(ms)
+     */
+    private double avgCompileMillis;
+
+    /**
+     * 平均每次提交的预检耗时(ms)
+     */
+    private double avgScanMillis;
+
+    /**
+     * 预检耗时占编译耗时的比例(%)
+     */
+    private double scanCompileRatio;
+}
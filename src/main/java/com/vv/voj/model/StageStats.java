@@ -0,0 +1,36 @@
+package com.vv.voj.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流水线阶段状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageStats {
+
+    private String name;
+
+    /**
+     * 线程数
+     */
+    private int threads;
+
+    /**
+     * 正在执行的任务数
+     */
+    private int active;
+
+    /**
+     * 队列中等待的任务数
+     */
+    private int queued;
+
+    /**
+     * 已完成的任务数
+     */
+    private long completed;
+}
@@ -0,0 +1,34 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 对拍中的一个用例
+ */
+@Data
+public class StressCase {
+
+    private long seed;
+
+    private int size;
+
+    /**
+     * 生成器输出的输入参数
+     */
+    private String input;
+
+    /**
+     * 标程输出
+     */
+    private String expectedOutput;
+
+    /**
+     * 待测程序输出
+     */
+    private String actualOutput;
+
+    /**
+     * 不一致的原因：答案错误、运行错误、运行超时等
+     */
+    private String message;
+}
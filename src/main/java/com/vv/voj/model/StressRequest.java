@@ -0,0 +1,47 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 对拍请求：生成器生成输入，比较标程和待测程序的输出
+ */
+@Data
+public class StressRequest {
+
+    /**
+     * 生成器，主类为 Main，参数为 随机种子 规模，输出一组输入参数
+     */
+    private String generatorCode;
+
+    /**
+     * 标程，主类为 Main
+     */
+    private String referenceCode;
+
+    /**
+     * 待测程序，主类为 Main
+     */
+    private String candidateCode;
+
+    /**
+     * 最多运行的用例数，不传使用默认值
+     */
+    private Integer cases;
+
+    /**
+     * 起始随机种子，第 i 个用例使用 seed + i
+     */
+    private Long seed;
+
+    /**
+     * 生成器规模参数的范围，用例规模从小到大递增
+     */
+    private Integer minSize;
+
+    private Integer maxSize;
+
+    /**
+     * 单次运行的时间限制(ms)
+     */
+    private Long timeLimit;
+}
@@ -0,0 +1,44 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 对拍结果
+ */
+@Data
+public class StressResponse {
+
+    private String status;
+
+    private String message;
+
+    /**
+     * 已比较的用例数，不含缩小反例时的运行
+     */
+    private long casesRun;
+
+    /**
+     * 总耗时(ms)，不含编译
+     */
+    private long elapsedMillis;
+
+    /**
+     * 每秒比较的用例数
+     */
+    private double casesPerSecond;
+
+    /**
+     * 编译耗时(ms)
+     */
+    private long compileMillis;
+
+    /**
+     * 第一个发现的反例
+     */
+    private StressCase firstFailure;
+
+    /**
+     * 缩小规模后的最小反例
+     */
+    private StressCase minimalFailure;
+}
@@ -0,0 +1,44 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 租户调度状态
+ */
+@Data
+public class TenantStats {
+
+    private String tenant;
+
+    private int weight;
+
+    /**
+     * 排队中的提交数（普通通道 + 比赛通道）
+     */
+    private int queued;
+
+    /**
+     * 执行中的提交数
+     */
+    private int running;
+
+    /**
+     * 已调度的提交数
+     */
+    private long dispatched;
+
+    /**
+     * 平均排队时间(ms)
+     */
+    private long avgQueueTime;
+
+    /**
+     * 最大排队时间(ms)
+     */
+    private long maxQueueTime;
+
+    /**
+     * 是否因超出资源配额被降低优先级
+     */
+    private boolean deprioritized;
+}
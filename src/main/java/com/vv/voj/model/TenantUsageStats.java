@@ -0,0 +1,27 @@
+package com.vv.voj.model;
+
+import com.vv.voj.config.SandboxProperties;
+import lombok.Data;
+
+/**
+ * 租户在当前计费周期内的用量和配额
+ */
+@Data
+public class TenantUsageStats {
+
+    private String tenant;
+
+    /**
+     * 当前计费周期的开始时间(ms)
+     */
+    private long windowStart;
+
+    private UsageRecord usage;
+
+    private SandboxProperties.Quota quota;
+
+    /**
+     * 是否已超出配额
+     */
+    private boolean overBudget;
+}
@@ -0,0 +1,30 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+/**
+ * 单个用例的失败统计
+ */
+@Data
+public class TestFailStats {
+
+    /**
+     * 输入的 64 位哈希（十六进制）
+     */
+    private String inputHash;
+
+    /**
+     * 被运行的次数
+     */
+    private long runs;
+
+    /**
+     * 作为提交中第一个失败用例的次数
+     */
+    private long firstFails;
+
+    /**
+     * firstFails / runs
+     */
+    private double failRate;
+}
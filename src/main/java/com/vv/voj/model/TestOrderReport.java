@@ -0,0 +1,46 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一道题的用例排序效果
+ */
+@Data
+public class TestOrderReport {
+
+    private String problemId;
+
+    private long submissions;
+
+    /**
+     * 有用例失败的提交数
+     */
+    private long rejected;
+
+    /**
+     * 失败的提交平均运行的用例数
+     */
+    private double avgTestsPerRejected;
+
+    /**
+     * 按历史失败率重排后失败的提交数
+     */
+    private long reorderedRejected;
+
+    /**
+     * 重排后失败的提交平均运行的用例数
+     */
+    private double avgTestsPerReorderedRejected;
+
+    /**
+     * 记录了统计的用例数
+     */
+    private int trackedTests;
+
+    /**
+     * 首个失败次数最多的用例
+     */
+    private List<TestFailStats> killerTests;
+}
@@ -0,0 +1,57 @@
+package com.vv.voj.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Chrome trace 格式的事件，可直接导入 Perfetto 或 chrome://tracing
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TraceEvent {
+
+    private String name;
+
+    /**
+     * 分类
+     */
+    private String cat;
+
+    /**
+     * 事件类型：X 为完整区间，M 为元数据
+     */
+    private String ph;
+
+    /**
+     * 开始时间(微秒)
+     */
+    private Long ts;
+
+    /**
+     * 持续时间(微秒)
+     */
+    private Long dur;
+
+    private Long pid;
+
+    private Long tid;
+
+    private Map<String, Object> args;
+
+    /**
+     * 进程名、线程名等元数据事件
+     */
+    public static TraceEvent metadata(String name, Long pid, Long tid, String value) {
+        TraceEvent event = new TraceEvent();
+        event.setName(name);
+        event.setPh("M");
+        event.setTs(0L);
+        event.setPid(pid);
+        event.setTid(tid);
+        event.setArgs(Collections.singletonMap("name", value));
+        return event;
+    }
+}
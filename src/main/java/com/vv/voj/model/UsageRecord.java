@@ -0,0 +1,90 @@
+package com.vv.voj.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * 租户资源用量，账本中的一行，也用于按时间聚合的查询结果
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UsageRecord {
+
+    /**
+     * 记录时间(ms)，查询结果中为时间桶的起点
+     */
+    private long time;
+
+    private String tenant;
+
+    /**
+     * 提交数
+     */
+    private long submissions;
+
+    /**
+     * 运行的用例数
+     */
+    private long tests;
+
+    /**
+     * 用户程序的 CPU 时间(ms)
+     */
+    private long cpuMillis;
+
+    /**
+     * 峰值内存 × 运行时间(KB·ms)
+     */
+    private long memoryKbMillis;
+
+    /**
+     * 编译时间(ms)
+     */
+    private long compileMillis;
+
+    /**
+     * 输出字节数
+     */
+    private long outputBytes;
+
+    /**
+     * 峰值内存 × 运行时间(MB·s)
+     */
+    public double getMemoryMbSeconds() {
+        return memoryKbMillis / 1024.0 / 1000.0;
+    }
+
+    /**
+     * 累加另一条记录
+     */
+    public void add(UsageRecord other) {
+        submissions += other.submissions;
+        tests += other.tests;
+        cpuMillis += other.cpuMillis;
+        memoryKbMillis += other.memoryKbMillis;
+        compileMillis += other.compileMillis;
+        outputBytes += other.outputBytes;
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return submissions == 0 && tests == 0 && cpuMillis == 0 && memoryKbMillis == 0
+                && compileMillis == 0 && outputBytes == 0;
+    }
+
+    /**
+     * 与另一条记录的差值
+     */
+    public UsageRecord minus(UsageRecord other) {
+        UsageRecord delta = new UsageRecord();
+        delta.tenant = tenant;
+        delta.submissions = submissions - other.submissions;
+        delta.tests = tests - other.tests;
+        delta.cpuMillis = cpuMillis - other.cpuMillis;
+        delta.memoryKbMillis = memoryKbMillis - other.memoryKbMillis;
+        delta.compileMillis = compileMillis - other.compileMillis;
+        delta.outputBytes = outputBytes - other.outputBytes;
+        return delta;
+    }
+}
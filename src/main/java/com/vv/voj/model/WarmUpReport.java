@@ -0,0 +1,38 @@
+package com.vv.voj.model;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 启动预热信息
+ */
+@Data
+public class WarmUpReport {
+
+    /**
+     * 预热是否完成
+     */
+    private volatile boolean finished;
+
+    /**
+     * 预热总耗时(ms)
+     */
+    private long duration;
+
+    /**
+     * 各沙箱首次执行耗时(ms)，即冷启动延迟
+     */
+    private Map<String, Long> firstLatency = new LinkedHashMap<>();
+
+    /**
+     * 各沙箱最后一次执行耗时(ms)，即预热后的延迟
+     */
+    private Map<String, Long> warmLatency = new LinkedHashMap<>();
+
+    /**
+     * 预热失败的沙箱及原因
+     */
+    private Map<String, String> errors = new LinkedHashMap<>();
+}
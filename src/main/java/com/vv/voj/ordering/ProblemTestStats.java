@@ -0,0 +1,214 @@
+package com.vv.voj.ordering;
+
+import com.vv.voj.model.TestFailStats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 一道题各用例的运行次数和首个失败次数
+ * 按输入哈希开放寻址存放在基本类型数组中，每个用例只占 16 字节，不为每个用例创建对象
+ */
+class ProblemTestStats {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private int[] runs = new int[INITIAL_CAPACITY];
+
+    private int[] firstFails = new int[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    private long submissions = 0L;
+
+    private long rejected = 0L;
+
+    private long rejectedTests = 0L;
+
+    private long reorderedRejected = 0L;
+
+    private long reorderedRejectedTests = 0L;
+
+    /**
+     * 记录一次提交
+     *
+     * @param executedHashes 按运行顺序排列的已运行用例的输入哈希
+     * @param failPosition   第一个失败的用例在运行顺序中的位置，没有失败为 -1
+     * @param reordered      本次是否按历史失败率重排
+     */
+    synchronized void record(long[] executedHashes, int failPosition, boolean reordered) {
+        submissions++;
+        // slot 可能扩容，先取下标再访问数组
+        for (long hash : executedHashes) {
+            int index = slot(hash);
+            runs[index]++;
+        }
+        if (failPosition < 0) {
+            return;
+        }
+        int failIndex = slot(executedHashes[failPosition]);
+        firstFails[failIndex]++;
+        rejected++;
+        rejectedTests += executedHashes.length;
+        if (reordered) {
+            reorderedRejected++;
+            reorderedRejectedTests += executedHashes.length;
+        }
+    }
+
+    /**
+     * 用例成为首个失败用例的比例，运行次数加一平滑，没有记录的用例为 0
+     */
+    synchronized double failRate(long hash) {
+        int index = find(hash);
+        return index < 0 ? 0 : firstFails[index] / (runs[index] + 1.0);
+    }
+
+    synchronized long getRejected() {
+        return rejected;
+    }
+
+    synchronized long getSubmissions() {
+        return submissions;
+    }
+
+    synchronized long getRejectedTests() {
+        return rejectedTests;
+    }
+
+    synchronized long getReorderedRejected() {
+        return reorderedRejected;
+    }
+
+    synchronized long getReorderedRejectedTests() {
+        return reorderedRejectedTests;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 首个失败次数最多的用例
+     */
+    synchronized List<TestFailStats> topFailing(int limit) {
+        List<TestFailStats> tests = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && firstFails[i] > 0) {
+                TestFailStats testFailStats = new TestFailStats();
+                testFailStats.setInputHash(Long.toHexString(keys[i]));
+                testFailStats.setRuns(runs[i]);
+                testFailStats.setFirstFails(firstFails[i]);
+                testFailStats.setFailRate((double) firstFails[i] / Math.max(1, runs[i]));
+                tests.add(testFailStats);
+            }
+        }
+        tests.sort(Comparator.comparingLong(TestFailStats::getFirstFails).reversed());
+        return tests.size() > limit ? new ArrayList<>(tests.subList(0, limit)) : tests;
+    }
+
+    synchronized void write(DataOutputStream out) throws IOException {
+        out.writeLong(submissions);
+        out.writeLong(rejected);
+        out.writeLong(rejectedTests);
+        out.writeLong(reorderedRejected);
+        out.writeLong(reorderedRejectedTests);
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                out.writeLong(keys[i]);
+                out.writeInt(runs[i]);
+                out.writeInt(firstFails[i]);
+            }
+        }
+    }
+
+    static ProblemTestStats read(DataInputStream in) throws IOException {
+        ProblemTestStats stats = new ProblemTestStats();
+        stats.submissions = in.readLong();
+        stats.rejected = in.readLong();
+        stats.rejectedTests = in.readLong();
+        stats.reorderedRejected = in.readLong();
+        stats.reorderedRejectedTests = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int index = stats.slot(in.readLong());
+            stats.runs[index] = in.readInt();
+            stats.firstFails[index] = in.readInt();
+        }
+        return stats;
+    }
+
+    /**
+     * 0 表示空槽位，哈希恰好为 0 的用例换成 1
+     */
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int find(long hash) {
+        long key = key(hash);
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+            if (keys[i] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 找到或插入用例的槽位，装载率超过一半时扩容
+     */
+    private int slot(long hash) {
+        long key = key(hash);
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            size++;
+        }
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldRuns = runs;
+        int[] oldFirstFails = firstFails;
+        keys = new long[oldKeys.length * 2];
+        runs = new int[keys.length];
+        firstFails = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) {
+                continue;
+            }
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            runs[i] = oldRuns[j];
+            firstFails[i] = oldFirstFails[j];
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
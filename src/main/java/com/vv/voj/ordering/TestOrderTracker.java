@@ -0,0 +1,341 @@
+package com.vv.voj.ordering;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.checker.CheckerRunner;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.model.TestOrderReport;
+import com.vv.voj.utils.OutputDigester;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Title: 自适应用例顺序
+ * 按题目和输入哈希统计每个用例成为提交中第一个失败用例的次数；开启 failFast 的提交先运行历史上最常失败的用例，
+ * 出错即停止，错误提交更早得到结果；返回的结果按原始下标排列，判定取自使运行停止的用例；统计定期写入本地文件，重启后恢复
+ * @Author: vv
+ * @Date: 2025/8/22 10:00
+ */
+@Component
+public class TestOrderTracker {
+
+    private static final String STATS_FILE_NAME = "test-order.bin";
+
+    private static final int FILE_VERSION = 1;
+
+    private static final int REPORT_TOP_TESTS = 5;
+
+    private final SandboxProperties.TestOrder properties;
+
+    private final Path statsPath;
+
+    private final Map<String, ProblemTestStats> problems = new ConcurrentHashMap<>();
+
+    private volatile boolean dirty = false;
+
+    public TestOrderTracker(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getTestOrder();
+        this.statsPath = new File(properties.getDir(), STATS_FILE_NAME).toPath();
+    }
+
+    /**
+     * 计算本次提交的运行顺序，请求没有题目 ID 时不统计
+     *
+     * @return 运行计划，不统计时为 null
+     */
+    public Plan plan(ExecuteCodeRequest executeCodeRequest) {
+        String problemId = executeCodeRequest.getProblemId();
+        List<String> inputList = executeCodeRequest.getInputList();
+        if (!properties.isEnabled() || StrUtil.isBlank(problemId) || inputList == null || inputList.isEmpty()) {
+            return null;
+        }
+        ProblemTestStats stats = problems.get(problemId);
+        if (stats == null) {
+            if (problems.size() >= properties.getMaxProblems()) {
+                return null;
+            }
+            stats = problems.computeIfAbsent(problemId, key -> new ProblemTestStats());
+        }
+        long[] hashes = new long[inputList.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = MurmurHash.hash64(inputList.get(i));
+        }
+        Integer[] order = new Integer[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // 失败记录太少时排序没有意义，保持原顺序
+        boolean reordered = Boolean.TRUE.equals(executeCodeRequest.getFailFast())
+                && stats.getRejected() >= properties.getMinRejections();
+        if (reordered) {
+            double[] failRates = new double[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                failRates[i] = stats.failRate(hashes[i]);
+            }
+            // 稳定排序，失败率相同的用例保持原顺序
+            Arrays.sort(order, Comparator.comparingDouble((Integer i) -> failRates[i]).reversed());
+        }
+        return new Plan(stats, hashes, Arrays.stream(order).mapToInt(Integer::intValue).toArray(), reordered,
+                executeCodeRequest.getAnswerList());
+    }
+
+    /**
+     * 记录运行结果，并把结果放回原始顺序
+     *
+     * @param plan            运行计划
+     * @param executeMessages 按运行顺序排列的结果，出错后停止的用例没有结果
+     * @return 已运行用例的结果，按原始下标排列
+     */
+    public List<ExecuteMessage> complete(Plan plan, List<ExecuteMessage> executeMessages) {
+        int executed = Math.min(executeMessages.size(), plan.order.length);
+        long[] executedHashes = new long[executed];
+        int failPosition = -1;
+        for (int position = 0; position < executed; position++) {
+            int index = plan.order[position];
+            executedHashes[position] = plan.hashes[index];
+            if (failPosition < 0 && isFailed(executeMessages.get(position), CollUtil.get(plan.answerList, index))) {
+                failPosition = position;
+            }
+        }
+        plan.stats.record(executedHashes, failPosition, plan.reordered);
+        dirty = true;
+        if (!plan.reordered) {
+            return executeMessages;
+        }
+        // 使运行停止的只能是最后一个运行的用例
+        ExecuteMessage last = executed == 0 ? null : executeMessages.get(executed - 1);
+        if (last != null && StrUtil.isNotBlank(last.getErrorMessage())) {
+            plan.stoppedMessage = last;
+        }
+        Integer[] positions = new Integer[executed];
+        for (int position = 0; position < executed; position++) {
+            positions[position] = position;
+        }
+        Arrays.sort(positions, Comparator.comparingInt(position -> plan.order[position]));
+        List<ExecuteMessage> restored = new ArrayList<>(executed);
+        List<Integer> indexes = new ArrayList<>(executed);
+        for (Integer position : positions) {
+            ExecuteMessage executeMessage = executeMessages.get(position);
+            restored.add(executeMessage);
+            if (executeMessage != plan.stoppedMessage) {
+                indexes.add(plan.order[position]);
+            }
+        }
+        // 所有用例都运行且都有输出时，结果与不重排完全相同
+        if (indexes.size() < plan.order.length) {
+            plan.testIndexes = indexes;
+        }
+        return restored;
+    }
+
+    /**
+     * 各题目的失败提交平均运行用例数和最常失败的用例
+     *
+     * @param problemId 题目 ID，为空时返回所有题目
+     */
+    public List<TestOrderReport> report(String problemId) {
+        List<TestOrderReport> reports = new ArrayList<>();
+        for (Map.Entry<String, ProblemTestStats> entry : problems.entrySet()) {
+            if (StrUtil.isNotBlank(problemId) && !problemId.equals(entry.getKey())) {
+                continue;
+            }
+            ProblemTestStats stats = entry.getValue();
+            TestOrderReport report = new TestOrderReport();
+            report.setProblemId(entry.getKey());
+            report.setSubmissions(stats.getSubmissions());
+            report.setRejected(stats.getRejected());
+            report.setAvgTestsPerRejected(stats.getRejected() == 0 ? 0 : (double) stats.getRejectedTests() / stats.getRejected());
+            report.setReorderedRejected(stats.getReorderedRejected());
+            report.setAvgTestsPerReorderedRejected(stats.getReorderedRejected() == 0 ? 0
+                    : (double) stats.getReorderedRejectedTests() / stats.getReorderedRejected());
+            report.setTrackedTests(stats.size());
+            report.setKillerTests(stats.topFailing(REPORT_TOP_TESTS));
+            reports.add(report);
+        }
+        reports.sort(Comparator.comparing(TestOrderReport::getProblemId));
+        return reports;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!properties.isEnabled() || !Files.exists(statsPath)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(statsPath)))) {
+            if (in.readInt() != FILE_VERSION) {
+                EventLog.warn("ordering", "用例统计文件版本不一致，忽略", "path", statsPath);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String problemId = in.readUTF();
+                problems.put(problemId, ProblemTestStats.read(in));
+            }
+            EventLog.info("ordering", "已恢复用例统计", "problems", problems.size());
+        } catch (IOException e) {
+            EventLog.warn("ordering", "读取用例统计失败，从空统计开始", "path", statsPath, e);
+            problems.clear();
+        }
+    }
+
+    /**
+     * 有变化时整体写入临时文件再替换，写到一半退出不会损坏旧文件
+     */
+    @Scheduled(fixedDelayString = "${sandbox.test-order.persist-interval:30000}")
+    public synchronized void persist() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(statsPath.getParent());
+            Path tmpPath = statsPath.resolveSibling(STATS_FILE_NAME + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+                List<Map.Entry<String, ProblemTestStats>> entries = new ArrayList<>(problems.entrySet());
+                out.writeInt(FILE_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, ProblemTestStats> entry : entries) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            Files.move(tmpPath, statsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            EventLog.warn("ordering", "写入用例统计失败", "path", statsPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        persist();
+    }
+
+    /**
+     * 运行出错、检查器判定答案错误，或没有检查器时输出与答案不一致（按判题的规范化规则比较摘要）
+     */
+    public static boolean isFailed(ExecuteMessage executeMessage, String answer) {
+        if (StrUtil.isNotBlank(executeMessage.getErrorMessage())) {
+            return true;
+        }
+        if (executeMessage.getCheckerResult() != null) {
+            String verdict = executeMessage.getCheckerResult().getVerdict();
+            return !CheckerRunner.VERDICT_ACCEPTED.equals(verdict) && !CheckerRunner.VERDICT_CHECKER_ERROR.equals(verdict);
+        }
+        if (answer == null) {
+            return false;
+        }
+        String actual = executeMessage.getOutputDigest() != null ? executeMessage.getOutputDigest().getSha256()
+                : OutputDigester.digest(StrUtil.nullToEmpty(executeMessage.getMessage())).getSha256();
+        return !OutputDigester.digest(answer).getSha256().equals(actual);
+    }
+
+    /**
+     * 一次提交的运行计划
+     */
+    public static class Plan {
+
+        private final ProblemTestStats stats;
+
+        private final long[] hashes;
+
+        /**
+         * 运行顺序中第 i 个用例的原始下标
+         */
+        private final int[] order;
+
+        private final boolean reordered;
+
+        private final List<String> answerList;
+
+        private List<Integer> testIndexes;
+
+        private ExecuteMessage stoppedMessage;
+
+        private Plan(ProblemTestStats stats, long[] hashes, int[] order, boolean reordered, List<String> answerList) {
+            this.stats = stats;
+            this.hashes = hashes;
+            this.order = order;
+            this.reordered = reordered;
+            this.answerList = answerList;
+        }
+
+        public boolean isReordered() {
+            return reordered;
+        }
+
+        /**
+         * 重排后部分用例未运行时，有输出的用例的原始下标，与输出列表一一对应；其他情况为 null
+         */
+        public List<Integer> getTestIndexes() {
+            return testIndexes;
+        }
+
+        /**
+         * 重排后使运行停止的出错用例的结果，判定以它为准；没有时为 null
+         */
+        public ExecuteMessage getStoppedMessage() {
+            return stoppedMessage;
+        }
+
+        /**
+         * 按运行顺序生成请求，输入和答案都只是原列表的视图，不复制
+         */
+        public ExecuteCodeRequest apply(ExecuteCodeRequest executeCodeRequest) {
+            if (!reordered) {
+                return executeCodeRequest;
+            }
+            List<String> answerList = executeCodeRequest.getAnswerList();
+            return executeCodeRequest.toBuilder()
+                    .inputList(new ReorderedList<>(executeCodeRequest.getInputList(), order))
+                    .answerList(answerList == null ? null : new ReorderedList<>(answerList, order))
+                    .build();
+        }
+    }
+
+    private static class ReorderedList<E> extends AbstractList<E> implements RandomAccess {
+
+        private final List<E> source;
+
+        private final int[] order;
+
+        private ReorderedList(List<E> source, int[] order) {
+            this.source = source;
+            this.order = order;
+        }
+
+        @Override
+        public E get(int index) {
+            return source.get(order[index]);
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.vv.voj.pipeline;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.vv.voj.model.StageStats;
+import com.vv.voj.scheduler.CapacityExceededException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Title: 流水线中的一个阶段
+ * 每个阶段有独立的队列和线程池；有界队列满时立即拒绝（接口返回 503），不阻塞提交方的线程，
+ * 队列长度不大于 0 时不限长度，用于任务数已由上游阶段约束的阶段
+ * @Author: vv
+ * @Date: 2025/8/3 10:20
+ */
+public class Stage implements Executor {
+
+    private final String name;
+
+    private final ThreadPoolExecutor executor;
+
+    public Stage(String name, int threads, int queueCapacity) {
+        this.name = name;
+        BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new LinkedBlockingQueue<>();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                ThreadFactoryBuilder.create().setNamePrefix("stage-" + name + "-").setDaemon(true).build(),
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new CapacityExceededException("阶段 " + name + " 已关闭");
+                    }
+                    throw new CapacityExceededException("阶段 " + name + " 队列已满，请稍后再试");
+                });
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    public StageStats getStats() {
+        return new StageStats(name, executor.getMaximumPoolSize(), executor.getActiveCount(),
+                executor.getQueue().size(), executor.getCompletedTaskCount());
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
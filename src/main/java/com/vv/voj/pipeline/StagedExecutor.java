@@ -0,0 +1,287 @@
+package com.vv.voj.pipeline;
+
+import com.vv.voj.JavaCodeSandboxTemplate;
+import com.vv.voj.RunEnvironment;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.ExecuteMessage;
+import com.vv.voj.model.ScanStats;
+import com.vv.voj.model.StageStats;
+import com.vv.voj.model.UsageRecord;
+import com.vv.voj.ordering.TestOrderTracker;
+import com.vv.voj.security.BytecodeScanner;
+import com.vv.voj.security.ForbiddenOperationException;
+import com.vv.voj.trace.SubmissionTrace;
+import com.vv.voj.trace.SubmissionTracer;
+import com.vv.voj.trace.Tracing;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @Title: 分阶段流水线执行器
+ * 编译、准备运行环境、运行、清理各自使用独立的队列和线程池；
+ * 同一次提交的编译和容器租用并行进行，整体吞吐由最慢的阶段决定，而不是各阶段耗时之和
+ * @Author: vv
+ * @Date: 2025/8/3 10:40
+ */
+@Component
+public class StagedExecutor {
+
+    private final Stage compileStage;
+
+    private final Stage provisionStage;
+
+    private final Stage runStage;
+
+    private final Stage cleanupStage;
+
+    private final BytecodeScanner bytecodeScanner;
+
+    private final SubmissionTracer submissionTracer;
+
+    private final UsageLedger usageLedger;
+
+    private final TestOrderTracker testOrderTracker;
+
+    private final LongAdder compileNanos = new LongAdder();
+
+    private final LongAdder scanNanos = new LongAdder();
+
+    private final LongAdder scanCount = new LongAdder();
+
+    public StagedExecutor(SandboxProperties sandboxProperties, BytecodeScanner bytecodeScanner,
+                          SubmissionTracer submissionTracer, UsageLedger usageLedger, TestOrderTracker testOrderTracker) {
+        this.bytecodeScanner = bytecodeScanner;
+        this.submissionTracer = submissionTracer;
+        this.usageLedger = usageLedger;
+        this.testOrderTracker = testOrderTracker;
+        SandboxProperties.Pipeline properties = sandboxProperties.getPipeline();
+        int queueCapacity = properties.getQueueCapacity();
+        // 只在入口阶段拒绝；进入运行和清理阶段的任务已经占用了编译结果和容器，不能丢弃，
+        // 其数量不超过入口阶段接收的提交数，这两个阶段不限队列长度，也就不会阻塞上游阶段的线程
+        this.compileStage = new Stage("compile", properties.getCompileThreads(), queueCapacity);
+        this.provisionStage = new Stage("provision", properties.getProvisionThreads(), queueCapacity);
+        this.runStage = new Stage("run", properties.getRunThreads(), 0);
+        this.cleanupStage = new Stage("cleanup", properties.getCleanupThreads(), 0);
+    }
+
+    /**
+     * 提交一次代码执行
+     *
+     * @param sandbox            代码沙箱
+     * @param executeCodeRequest 执行请求
+     * @return 执行结果，清理工作在结果返回后异步完成
+     */
+    public CompletableFuture<ExecuteCodeResponse> submit(JavaCodeSandboxTemplate sandbox, ExecuteCodeRequest executeCodeRequest) {
+        return submit(sandbox, executeCodeRequest, null);
+    }
+
+    /**
+     * 提交一次代码执行，并把资源用量记到租户名下
+     *
+     * @param sandbox            代码沙箱
+     * @param executeCodeRequest 执行请求
+     * @param tenant             租户，为 null 时不记录用量
+     * @return 执行结果，清理工作在结果返回后异步完成
+     */
+    public CompletableFuture<ExecuteCodeResponse> submit(JavaCodeSandboxTemplate sandbox, ExecuteCodeRequest executeCodeRequest,
+                                                         String tenant) {
+        String code = executeCodeRequest.getCode();
+        String submissionId = executeCodeRequest.getSubmissionId();
+        // 未被采样时为 null，各阶段不记录区间
+        SubmissionTrace trace = submissionTracer.get(submissionId);
+        // 各阶段分别填写，清理阶段在所有阶段结束后读取
+        UsageRecord usage = new UsageRecord();
+        usage.setSubmissions(1);
+
+        // 1. 保存并编译代码
+        CompletableFuture<File> compiled = supplyAsync(traced(submissionId, trace, "stage.compile", () -> {
+            File userCodeFile = sandbox.saveUserCodeFile(code);
+            try {
+                long compileStart = System.nanoTime();
+                ExecuteMessage executeMessage;
+                try {
+                    executeMessage = sandbox.compileMessage(userCodeFile);
+                } finally {
+                    usage.setCompileMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - compileStart));
+                }
+                EventLog.debug("compile", "编译完成", "exitValue", executeMessage.getExitValue(),
+                        "time", executeMessage.getTime());
+                long scanStart = System.nanoTime();
+                compileNanos.add(scanStart - compileStart);
+                try {
+                    // 启动任何进程之前先做字节码预检
+                    sandbox.checkForbiddenOperation(userCodeFile);
+                } finally {
+                    scanNanos.add(System.nanoTime() - scanStart);
+                    scanCount.increment();
+                }
+            } catch (RuntimeException e) {
+                sandbox.delFile(userCodeFile);
+                throw e;
+            }
+            return userCodeFile;
+        }), compileStage);
+
+        // 2. 与编译并行准备运行环境
+        CompletableFuture<RunEnvironment> provisioned = supplyAsync(
+                traced(submissionId, trace, "stage.provision", sandbox::prepareEnvironment), provisionStage);
+
+        // 3. 两者都完成后运行并收集结果
+        CompletableFuture<ExecuteCodeResponse> result = compiled.thenCombineAsync(provisioned, (userCodeFile, environment) ->
+                inSpan(submissionId, trace, "stage.run", () -> {
+                    // 带题目 ID 的提交按历史失败率决定运行顺序
+                    TestOrderTracker.Plan plan = testOrderTracker.plan(executeCodeRequest);
+                    ExecuteCodeRequest runRequest = plan == null ? executeCodeRequest : plan.apply(executeCodeRequest);
+                    List<ExecuteMessage> executeMessages = sandbox.runCode(runRequest, userCodeFile, environment);
+                    measure(usage, executeMessages);
+                    if (plan == null) {
+                        return sandbox.getOutputResponseList(executeMessages);
+                    }
+                    ExecuteCodeResponse executeCodeResponse = sandbox.getOutputResponseList(
+                            testOrderTracker.complete(plan, executeMessages), plan.getStoppedMessage());
+                    executeCodeResponse.setTestIndexList(plan.getTestIndexes());
+                    return executeCodeResponse;
+                }), runStage).exceptionally(e -> {
+            // 预检未通过是正常的判题结果，不作为异常返回
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ForbiddenOperationException) {
+                return sandbox.getForbiddenResponse((ForbiddenOperationException) cause);
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+
+        // 4. 所有阶段结束后清理，包括编译失败时已经租到的运行环境
+        CompletableFuture.allOf(result, compiled, provisioned).whenCompleteAsync((ignored, e) -> inSpan(submissionId, trace, "stage.cleanup", () -> {
+            if (!compiled.isCompletedExceptionally()) {
+                sandbox.delFile(compiled.join());
+            }
+            if (!provisioned.isCompletedExceptionally()) {
+                sandbox.releaseEnvironment(provisioned.join());
+            }
+            usageLedger.record(tenant, usage);
+            return null;
+        }), cleanupStage);
+
+        return result;
+    }
+
+    /**
+     * 阶段队列已满时返回失败的 future 而不是直接抛出，另一个已接收的阶段的产物仍由清理阶段回收
+     */
+    private static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Stage stage) {
+        try {
+            return CompletableFuture.supplyAsync(task, stage);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * 在阶段线程上绑定提交、激活追踪并记录阶段耗时；创建时即开始计时，执行前的部分记为排队时间
+     *
+     * @param submissionId 提交 ID
+     * @param trace        本次提交的追踪，为 null 时不记录区间
+     * @param stage        阶段名
+     * @param task         阶段任务
+     * @return 包装后的任务
+     */
+    private static <T> Supplier<T> traced(String submissionId, SubmissionTrace trace, String stage, Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        return () -> {
+            if (trace != null) {
+                trace.record(stage + ".queue", queuedAt, System.nanoTime());
+            }
+            return inSpan(submissionId, trace, stage, task);
+        };
+    }
+
+    /**
+     * 在当前线程上绑定提交 ID、激活追踪并把任务记录为一个区间
+     */
+    private static <T> T inSpan(String submissionId, SubmissionTrace trace, String stage, Supplier<T> task) {
+        try (EventLog.Scope bound = EventLog.bind(submissionId)) {
+            if (trace == null) {
+                return task.get();
+            }
+            try (Tracing.Scope ignored = Tracing.activate(trace);
+                 Tracing.Span span = Tracing.span(stage)) {
+                return task.get();
+            }
+        }
+    }
+
+    /**
+     * 累计各用例的 CPU 时间、峰值内存 × 时间和输出字节数，只比较摘要时按原始输出长度计算
+     */
+    private static void measure(UsageRecord usage, List<ExecuteMessage> executeMessages) {
+        for (ExecuteMessage executeMessage : executeMessages) {
+            long time = executeMessage.getTime() == null ? 0L : executeMessage.getTime();
+            long memory = executeMessage.getMemory() == null ? 0L : executeMessage.getMemory();
+            usage.setTests(usage.getTests() + 1);
+            usage.setCpuMillis(usage.getCpuMillis() + time);
+            usage.setMemoryKbMillis(usage.getMemoryKbMillis() + memory * time);
+            if (executeMessage.getOutputDigest() != null) {
+                usage.setOutputBytes(usage.getOutputBytes() + executeMessage.getOutputDigest().getLength());
+            } else if (executeMessage.getMessage() != null) {
+                usage.setOutputBytes(usage.getOutputBytes() + executeMessage.getMessage().getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+    }
+
+    /**
+     * 字节码预检相对编译的耗时，预检应只占编译耗时的一小部分
+     */
+    public ScanStats getScanStats() {
+        ScanStats scanStats = new ScanStats();
+        scanStats.setEnabled(bytecodeScanner.isEnabled());
+        scanStats.setScannedClasses(bytecodeScanner.getScannedClasses());
+        scanStats.setCacheHits(bytecodeScanner.getCacheHits());
+        scanStats.setViolations(bytecodeScanner.getViolations());
+        long count = scanCount.sum();
+        if (count > 0) {
+            scanStats.setAvgCompileMillis(compileNanos.sum() / 1e6 / count);
+            scanStats.setAvgScanMillis(scanNanos.sum() / 1e6 / count);
+        }
+        if (compileNanos.sum() > 0) {
+            scanStats.setScanCompileRatio(scanNanos.sum() * 100.0 / compileNanos.sum());
+        }
+        return scanStats;
+    }
+
+    /**
+     * 各阶段的队列深度等状态
+     */
+    public List<StageStats> getStageStats() {
+        List<StageStats> stageStatsList = new ArrayList<>();
+        stageStatsList.add(compileStage.getStats());
+        stageStatsList.add(provisionStage.getStats());
+        stageStatsList.add(runStage.getStats());
+        stageStatsList.add(cleanupStage.getStats());
+        return stageStatsList;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compileStage.shutdown();
+        provisionStage.shutdown();
+        runStage.shutdown();
+        cleanupStage.shutdown();
+    }
+}
@@ -0,0 +1,186 @@
+package com.vv.voj.profiling;
+
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ProfilingRecording;
+import com.vv.voj.model.ProfilingRequest;
+import com.vv.voj.model.ProfilingSummary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Title: 按需飞行记录
+ * 线上判题节点变慢时，对沙箱服务自身开启一段 JFR 录制：同一时间只允许一个录制，时长有上限，到时自动停止并写入本地文件；
+ * 录制文件可下载后用 JDK Mission Control 打开，也可直接返回热点方法、分配位置和线程状态的摘要；
+ * 需要带 JFR 的 JDK（8u262+、11+），没有时接口报错，服务照常运行
+ * @Author: vv
+ * @Date: 2025/8/23 10:00
+ */
+@Component
+public class FlightRecorderProfiler {
+
+    private final SandboxProperties.Profiling properties;
+
+    private final boolean available;
+
+    /**
+     * 录制 ID -> 录制，按开始时间排列
+     */
+    private final Map<Long, RecordingSession> sessions = new LinkedHashMap<>();
+
+    public FlightRecorderProfiler(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getProfiling();
+        this.available = detectFlightRecorder();
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 开始录制
+     */
+    public synchronized ProfilingRecording start(ProfilingRequest profilingRequest) {
+        checkAvailable();
+        ProfilingRequest request = profilingRequest == null ? new ProfilingRequest() : profilingRequest;
+        long duration = request.getDuration() == null ? properties.getDefaultDuration() : request.getDuration();
+        if (duration <= 0 || duration > properties.getMaxDuration()) {
+            throw new RuntimeException("录制时长需在 1 到 " + properties.getMaxDuration() + " ms 之间");
+        }
+        for (RecordingSession session : sessions.values()) {
+            if (session.isRunning()) {
+                throw new RuntimeException("已有正在进行的录制：" + session.getId());
+            }
+        }
+        String settings = StrUtil.blankToDefault(request.getSettings(), properties.getDefaultSettings());
+        RecordingSession session;
+        try {
+            Path dir = Paths.get(properties.getDir());
+            Files.createDirectories(dir);
+            session = new RecordingSession(settings, request.getOptions(), duration, dir);
+            session.start();
+        } catch (IOException e) {
+            throw new RuntimeException("开始录制失败：" + e.getMessage(), e);
+        }
+        sessions.put(session.getId(), session);
+        retain();
+        EventLog.info("profiling", "开始录制", "recordingId", session.getId(), "settings", settings,
+                "duration", duration);
+        return session.toRecording();
+    }
+
+    /**
+     * 提前停止录制
+     */
+    public synchronized ProfilingRecording stop(long id) {
+        RecordingSession session = getSession(id);
+        session.stop();
+        EventLog.info("profiling", "停止录制", "recordingId", id);
+        return session.toRecording();
+    }
+
+    public synchronized List<ProfilingRecording> list() {
+        List<ProfilingRecording> recordings = new ArrayList<>();
+        for (RecordingSession session : sessions.values()) {
+            recordings.add(session.toRecording());
+        }
+        return recordings;
+    }
+
+    /**
+     * 已停止的录制文件
+     */
+    public synchronized Path getFile(long id) {
+        RecordingSession session = getSession(id);
+        if (session.isRunning()) {
+            throw new RuntimeException("录制尚未结束");
+        }
+        if (!Files.exists(session.getPath())) {
+            throw new RuntimeException("录制文件不存在");
+        }
+        return session.getPath();
+    }
+
+    /**
+     * 解析录制文件，返回各项前 top 名
+     */
+    public ProfilingSummary summarize(long id, int top) {
+        Path path = getFile(id);
+        try {
+            ProfilingSummary summary = RecordingSummarizer.summarize(path, top);
+            summary.setRecordingId(id);
+            return summary;
+        } catch (IOException e) {
+            throw new RuntimeException("解析录制文件失败：" + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (RecordingSession session : sessions.values()) {
+            try {
+                session.stop();
+            } catch (RuntimeException e) {
+                EventLog.warn("profiling", "停止录制失败", "recordingId", session.getId(), e);
+            }
+        }
+    }
+
+    private RecordingSession getSession(long id) {
+        RecordingSession session = sessions.get(id);
+        if (session == null) {
+            throw new RuntimeException("没有该录制：" + id);
+        }
+        return session;
+    }
+
+    /**
+     * 超过保留数量时删除最早的已停止录制及其文件
+     */
+    private void retain() {
+        int excess = sessions.size() - properties.getMaxRecordings();
+        Iterator<RecordingSession> iterator = sessions.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            RecordingSession session = iterator.next();
+            if (session.isRunning()) {
+                continue;
+            }
+            iterator.remove();
+            excess--;
+            try {
+                session.delete();
+            } catch (IOException e) {
+                EventLog.warn("profiling", "删除录制文件失败", "path", session.getPath(), e);
+            }
+        }
+    }
+
+    private void checkAvailable() {
+        if (!available) {
+            throw new RuntimeException("当前 JDK 不支持飞行记录");
+        }
+    }
+
+    /**
+     * 通过反射检查，避免在没有 JFR 的 JDK 上加载本包中引用 JFR 的类
+     */
+    private static boolean detectFlightRecorder() {
+        try {
+            Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+            return (Boolean) flightRecorder.getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+}
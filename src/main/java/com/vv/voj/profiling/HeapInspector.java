@@ -0,0 +1,117 @@
+package com.vv.voj.profiling;
+
+import com.vv.voj.model.ClassHistogramEntry;
+import com.vv.voj.model.HeapStats;
+import com.vv.voj.model.ProfileEntry;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @Title: 堆与线程概况
+ * 通过平台 MXBean 读取堆、GC 和线程状态；类直方图通过 DiagnosticCommand MBean 执行 GC.class_histogram，
+ * 与 jcmd 的输出一致，默认统计所有对象而不触发 Full GC
+ * @Author: vv
+ * @Date: 2025/8/23 11:00
+ */
+@Component
+public class HeapInspector {
+
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+    /**
+     * 直方图的数据行：序号: 实例数 字节数 类名
+     */
+    private static final Pattern HISTOGRAM_LINE = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+
+    /**
+     * @param histogram 是否统计类直方图，需要遍历整个堆
+     * @param live      直方图是否只统计存活对象，会先触发一次 Full GC
+     * @param top       直方图和线程组保留的行数
+     */
+    public HeapStats inspect(boolean histogram, boolean live, int top) {
+        HeapStats heapStats = new HeapStats();
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memoryMXBean.getNonHeapMemoryUsage();
+        heapStats.setHeapUsed(heap.getUsed());
+        heapStats.setHeapCommitted(heap.getCommitted());
+        heapStats.setHeapMax(heap.getMax());
+        heapStats.setNonHeapUsed(nonHeap.getUsed());
+        heapStats.setNonHeapCommitted(nonHeap.getCommitted());
+
+        Map<String, Long> gcCounts = new LinkedHashMap<>();
+        Map<String, Long> gcMillis = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCounts.put(gc.getName(), gc.getCollectionCount());
+            gcMillis.put(gc.getName(), gc.getCollectionTime());
+        }
+        heapStats.setGcCounts(gcCounts);
+        heapStats.setGcMillis(gcMillis);
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        heapStats.setLiveThreads(threadMXBean.getThreadCount());
+        heapStats.setPeakThreads(threadMXBean.getPeakThreadCount());
+        heapStats.setDaemonThreads(threadMXBean.getDaemonThreadCount());
+        Map<String, Long> threadStates = new TreeMap<>();
+        Map<String, long[]> threadGroups = new HashMap<>();
+        // 不取堆栈，开销与线程数成正比
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            if (threadInfo == null) {
+                continue;
+            }
+            threadStates.merge(threadInfo.getThreadState().name(), 1L, Long::sum);
+            threadGroups.computeIfAbsent(RecordingSummarizer.threadGroup(threadInfo.getThreadName()), k -> new long[2])[0]++;
+        }
+        heapStats.setThreadStates(threadStates);
+        heapStats.setThreadGroups(RecordingSummarizer.rank(threadGroups, top, false, heapStats.getLiveThreads()));
+
+        if (histogram) {
+            heapStats.setClassHistogram(classHistogram(live, top));
+        }
+        return heapStats;
+    }
+
+    private static List<ClassHistogramEntry> classHistogram(boolean live, int top) {
+        String output;
+        try {
+            String[] arguments = live ? new String[0] : new String[]{"-all"};
+            output = (String) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(DIAGNOSTIC_COMMAND),
+                    "gcClassHistogram", new Object[]{arguments}, new String[]{String[].class.getName()});
+        } catch (JMException e) {
+            throw new RuntimeException("当前 JDK 不支持类直方图：" + e.getMessage(), e);
+        }
+        // 输出已按字节数从大到小排列
+        List<ClassHistogramEntry> entries = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            Matcher matcher = HISTOGRAM_LINE.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            ClassHistogramEntry entry = new ClassHistogramEntry();
+            entry.setInstances(Long.parseLong(matcher.group(1)));
+            entry.setBytes(Long.parseLong(matcher.group(2)));
+            entry.setClassName(matcher.group(3));
+            entries.add(entry);
+            if (entries.size() >= top) {
+                break;
+            }
+        }
+        return entries;
+    }
+}
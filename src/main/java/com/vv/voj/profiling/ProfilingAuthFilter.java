@@ -0,0 +1,64 @@
+package com.vv.voj.profiling;
+
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.config.SandboxProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 性能分析接口的令牌校验：未配置令牌时接口不可用，请求头 X-Profiling-Token 与配置不一致时返回 401
+ */
+@Component
+public class ProfilingAuthFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN_HEADER = "X-Profiling-Token";
+
+    private static final String PATH_PREFIX = "/profiling";
+
+    private final SandboxProperties.Profiling properties;
+
+    public ProfilingAuthFilter(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getProfiling();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !(path.equals(PATH_PREFIX) || path.startsWith(PATH_PREFIX + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = properties.getToken();
+        if (StrUtil.isBlank(token)) {
+            reject(response, HttpStatus.NOT_FOUND, "性能分析接口未启用");
+            return;
+        }
+        String presented = request.getHeader(TOKEN_HEADER);
+        // 按常量时间比较，不从响应时间泄露令牌
+        if (presented == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                presented.getBytes(StandardCharsets.UTF_8))) {
+            reject(response, HttpStatus.UNAUTHORIZED, "性能分析令牌无效");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.vv.voj.profiling;
+
+import com.vv.voj.model.ProfilingRecording;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对 jdk.jfr.Recording 的封装，JFR 的类型只出现在本包内，运行时没有 JFR 的 JDK 上不会被加载
+ */
+class RecordingSession {
+
+    private final Recording recording;
+
+    private final Path path;
+
+    private final ProfilingRecording info = new ProfilingRecording();
+
+    private boolean failed = false;
+
+    RecordingSession(String settingsName, Map<String, String> options, long duration, Path dir) throws IOException {
+        Configuration configuration = findConfiguration(settingsName);
+        Map<String, String> settings = new HashMap<>(configuration.getSettings());
+        if (options != null) {
+            settings.putAll(options);
+        }
+        this.recording = new Recording(settings);
+        long startTime = System.currentTimeMillis();
+        this.path = dir.resolve("recording-" + recording.getId() + "-" + startTime + ".jfr");
+        recording.setName("voj-sandbox-" + recording.getId());
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofMillis(duration));
+        // 到时或手动停止时 JFR 把数据写入该文件
+        recording.setDestination(path);
+        info.setId(recording.getId());
+        info.setName(recording.getName());
+        info.setSettings(configuration.getName());
+        info.setStartTime(startTime);
+        info.setDuration(duration);
+    }
+
+    void start() {
+        recording.start();
+    }
+
+    long getId() {
+        return info.getId();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    synchronized boolean isRunning() {
+        RecordingState state = recording.getState();
+        return state == RecordingState.NEW || state == RecordingState.DELAYED || state == RecordingState.RUNNING;
+    }
+
+    /**
+     * 停止录制并写出文件，已停止时不做任何事
+     */
+    synchronized void stop() {
+        if (!isRunning()) {
+            return;
+        }
+        try {
+            recording.stop();
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            // 数据已写入目标文件，关闭后释放 JFR 仓库中的数据块
+            recording.close();
+        }
+    }
+
+    synchronized ProfilingRecording toRecording() {
+        ProfilingRecording snapshot = new ProfilingRecording();
+        snapshot.setId(info.getId());
+        snapshot.setName(info.getName());
+        snapshot.setSettings(info.getSettings());
+        snapshot.setStartTime(info.getStartTime());
+        snapshot.setDuration(info.getDuration());
+        if (isRunning()) {
+            snapshot.setState("RUNNING");
+        } else if (failed || !Files.exists(path)) {
+            snapshot.setState("FAILED");
+        } else {
+            recording.close();
+            snapshot.setState("STOPPED");
+            try {
+                snapshot.setSize(Files.size(path));
+            } catch (IOException e) {
+                snapshot.setState("FAILED");
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 关闭录制并删除文件
+     */
+    synchronized void delete() throws IOException {
+        recording.close();
+        Files.deleteIfExists(path);
+    }
+
+    private static Configuration findConfiguration(String name) {
+        for (Configuration configuration : Configuration.getConfigurations()) {
+            if (configuration.getName().equals(name)) {
+                return configuration;
+            }
+        }
+        throw new RuntimeException("未知的录制设置：" + name);
+    }
+}
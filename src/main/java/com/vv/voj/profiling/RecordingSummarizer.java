@@ -0,0 +1,186 @@
+package com.vv.voj.profiling;
+
+import com.vv.voj.model.ProfileEntry;
+import com.vv.voj.model.ProfilingSummary;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 逐个读取录制文件中的事件并聚合，不把整个文件读入内存
+ * 分配优先使用 jdk.ObjectAllocationSample（JDK 16+），没有时退回 TLAB 分配事件
+ */
+class RecordingSummarizer {
+
+    private final Map<String, long[]> hotMethods = new HashMap<>();
+
+    private final Map<String, long[]> hotMethodsInclusive = new HashMap<>();
+
+    private final Map<String, long[]> sampledAllocations = new HashMap<>();
+
+    private final Map<String, long[]> tlabAllocations = new HashMap<>();
+
+    private final Map<String, Long> threadStates = new TreeMap<>();
+
+    private final Map<String, long[]> threadGroups = new HashMap<>();
+
+    private final Map<String, long[]> contention = new HashMap<>();
+
+    private long executionSamples = 0L;
+
+    private long peakThreads = 0L;
+
+    private long startedThreads = 0L;
+
+    private RecordingSummarizer() {
+    }
+
+    static ProfilingSummary summarize(Path path, int top) throws IOException {
+        RecordingSummarizer summarizer = new RecordingSummarizer();
+        try (RecordingFile recordingFile = new RecordingFile(path)) {
+            while (recordingFile.hasMoreEvents()) {
+                summarizer.accept(recordingFile.readEvent());
+            }
+        }
+        return summarizer.toSummary(top);
+    }
+
+    /**
+     * 线程名中的数字替换为 #，同一线程池的线程归为一组
+     */
+    static String threadGroup(String threadName) {
+        return threadName == null ? "unknown" : threadName.replaceAll("\\d+", "#");
+    }
+
+    private void accept(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case "jdk.ExecutionSample":
+                executionSamples++;
+                sample(event);
+                addStack(event.getStackTrace());
+                break;
+            case "jdk.NativeMethodSample":
+                sample(event);
+                break;
+            case "jdk.ObjectAllocationSample":
+                allocation(sampledAllocations, event, event.getLong("weight"));
+                break;
+            case "jdk.ObjectAllocationInNewTLAB":
+            case "jdk.ObjectAllocationOutsideTLAB":
+                allocation(tlabAllocations, event, event.getLong("allocationSize"));
+                break;
+            case "jdk.JavaMonitorEnter":
+            case "jdk.ThreadPark":
+                add(contention, topFrame(event.getStackTrace()), event.getDuration().toMillis());
+                break;
+            case "jdk.JavaThreadStatistics":
+                peakThreads = Math.max(peakThreads, event.getLong("peakCount"));
+                break;
+            case "jdk.ThreadStart":
+                startedThreads++;
+                break;
+            default:
+        }
+    }
+
+    private void sample(RecordedEvent event) {
+        threadStates.merge(String.valueOf(event.getString("state")), 1L, Long::sum);
+        RecordedThread thread = event.getThread("sampledThread");
+        add(threadGroups, threadGroup(thread == null ? null : thread.getJavaName()), 0);
+    }
+
+    private void addStack(RecordedStackTrace stackTrace) {
+        add(hotMethods, topFrame(stackTrace), 0);
+        if (stackTrace == null) {
+            return;
+        }
+        // 递归调用时同一方法在一个样本中只计一次
+        Set<String> seen = new HashSet<>();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String method = methodName(frame);
+            if (seen.add(method)) {
+                add(hotMethodsInclusive, method, 0);
+            }
+        }
+    }
+
+    private void allocation(Map<String, long[]> allocations, RecordedEvent event, long bytes) {
+        RecordedClass objectClass = event.getClass("objectClass");
+        String type = objectClass == null ? "unknown" : objectClass.getName();
+        add(allocations, type + " @ " + topFrame(event.getStackTrace()), bytes);
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        return methodName(stackTrace.getFrames().get(0));
+    }
+
+    private static String methodName(RecordedFrame frame) {
+        RecordedMethod method = frame.getMethod();
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    private static void add(Map<String, long[]> counters, String key, long weight) {
+        long[] counter = counters.computeIfAbsent(key, k -> new long[2]);
+        counter[0]++;
+        counter[1] += weight;
+    }
+
+    private ProfilingSummary toSummary(int top) {
+        ProfilingSummary summary = new ProfilingSummary();
+        summary.setExecutionSamples(executionSamples);
+        summary.setHotMethods(rank(hotMethods, top, false, executionSamples));
+        summary.setHotMethodsInclusive(rank(hotMethodsInclusive, top, false, executionSamples));
+        Map<String, long[]> allocations = sampledAllocations.isEmpty() ? tlabAllocations : sampledAllocations;
+        summary.setAllocationSites(rank(allocations, top, true, total(allocations, true)));
+        summary.setThreadStates(threadStates);
+        summary.setThreadGroups(rank(threadGroups, top, false, total(threadGroups, false)));
+        summary.setContention(rank(contention, top, true, total(contention, true)));
+        summary.setPeakThreads(peakThreads);
+        summary.setStartedThreads(startedThreads);
+        return summary;
+    }
+
+    private static long total(Map<String, long[]> counters, boolean byWeight) {
+        long total = 0L;
+        for (long[] counter : counters.values()) {
+            total += byWeight ? counter[1] : counter[0];
+        }
+        return total;
+    }
+
+    /**
+     * 按次数或权重取前 top 项
+     */
+    static List<ProfileEntry> rank(Map<String, long[]> counters, int top, boolean byWeight, long total) {
+        int index = byWeight ? 1 : 0;
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[index], a.getValue()[index]));
+        List<ProfileEntry> ranked = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(top, entries.size()))) {
+            ProfileEntry profileEntry = new ProfileEntry();
+            profileEntry.setName(entry.getKey());
+            profileEntry.setCount(entry.getValue()[0]);
+            profileEntry.setWeight(entry.getValue()[1]);
+            profileEntry.setPercent(total == 0 ? 0 : Math.round(entry.getValue()[index] * 10000.0 / total) / 100.0);
+            ranked.add(profileEntry);
+        }
+        return ranked;
+    }
+}
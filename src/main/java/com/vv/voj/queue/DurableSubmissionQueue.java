@@ -0,0 +1,266 @@
+package com.vv.voj.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.JavaNativeCodeSandbox;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.pipeline.StagedExecutor;
+import com.vv.voj.scheduler.FairShareScheduler;
+import com.vv.voj.trace.SubmissionTrace;
+import com.vv.voj.trace.SubmissionTracer;
+import com.vv.voj.wire.SpoolScope;
+import com.vv.voj.wire.SpooledInputList;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Title: 持久化提交队列
+ * 提交先写入预写日志并落盘再进入调度，执行结束后追加完成记录；进程重启后重放未完成的提交，结果可按提交 ID 查询。
+ * 同一提交 ID 同时只能有一个在执行，日志和结果都按提交 ID 记录，重复提交会互相覆盖
+ * @Author: vv
+ * @Date: 2025/8/10 14:00
+ */
+@Component
+public class DurableSubmissionQueue implements ApplicationRunner {
+
+    /**
+     * 客户端传入的提交 ID 的最大长度
+     */
+    public static final int MAX_SUBMISSION_ID_LENGTH = 256;
+
+    private final SandboxProperties.Journal properties;
+
+    private final FairShareScheduler fairShareScheduler;
+
+    private final StagedExecutor stagedExecutor;
+
+    private final JavaNativeCodeSandbox javaNativeCodeSandbox;
+
+    private final ObjectMapper objectMapper;
+
+    private final SubmissionTracer submissionTracer;
+
+    private final UsageLedger usageLedger;
+
+    private final Map<String, ExecuteCodeResponse> results;
+
+    /**
+     * 已接收、尚未执行结束的提交 ID（包括重放的提交）
+     */
+    private final Set<String> inFlightIds = ConcurrentHashMap.newKeySet();
+
+    private SubmissionJournal journal;
+
+    private Map<String, byte[]> unfinishedEntries = Collections.emptyMap();
+
+    public DurableSubmissionQueue(SandboxProperties sandboxProperties, FairShareScheduler fairShareScheduler,
+                                  StagedExecutor stagedExecutor, JavaNativeCodeSandbox javaNativeCodeSandbox,
+                                  ObjectMapper objectMapper, SubmissionTracer submissionTracer,
+                                  UsageLedger usageLedger) {
+        this.properties = sandboxProperties.getJournal();
+        this.fairShareScheduler = fairShareScheduler;
+        this.stagedExecutor = stagedExecutor;
+        this.javaNativeCodeSandbox = javaNativeCodeSandbox;
+        this.objectMapper = objectMapper;
+        this.submissionTracer = submissionTracer;
+        this.usageLedger = usageLedger;
+        int resultCacheSize = properties.getResultCacheSize();
+        this.results = Collections.synchronizedMap(new LinkedHashMap<String, ExecuteCodeResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ExecuteCodeResponse> eldest) {
+                return size() > resultCacheSize;
+            }
+        });
+    }
+
+    /**
+     * 打开日志并读出未完成的提交，等服务启动后再重放
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        journal = new SubmissionJournal(new File(properties.getDir()), properties.getMaxBatch());
+        unfinishedEntries = journal.open();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!unfinishedEntries.isEmpty()) {
+            EventLog.info("journal", "重放未完成的提交", "count", unfinishedEntries.size());
+        }
+        for (Map.Entry<String, byte[]> entry : unfinishedEntries.entrySet()) {
+            // 重放时解析出的落盘输入归重放所有，提交完成后删除
+            SpoolScope spoolScope = new SpoolScope();
+            JournalEntry journalEntry;
+            try (SpoolScope.Binding ignored = spoolScope.bind()) {
+                journalEntry = objectMapper.readValue(entry.getValue(), JournalEntry.class);
+                if (journalEntry.getInputSpool() != null) {
+                    journalEntry.getRequest().setInputList(SpooledInputList.open(new File(journalEntry.getInputSpool())));
+                }
+            } catch (IOException e) {
+                spoolScope.close();
+                EventLog.warn("journal", "无法解析日志中的提交", "submissionId", entry.getKey(), e);
+                journal.append(SubmissionJournal.TYPE_COMPLETE, entry.getKey(), null);
+                continue;
+            }
+            inFlightIds.add(entry.getKey());
+            try {
+                schedule(entry.getKey(), journalEntry.getTenant(), journalEntry.isContest(), journalEntry.getRequest())
+                        .whenComplete((response, e) -> {
+                            inFlightIds.remove(entry.getKey());
+                            spoolScope.close();
+                        });
+            } catch (RuntimeException e) {
+                inFlightIds.remove(entry.getKey());
+                spoolScope.close();
+                throw e;
+            }
+        }
+        unfinishedEntries = Collections.emptyMap();
+    }
+
+    /**
+     * 提交执行：日志落盘后才进入调度
+     *
+     * @param tenant             租户
+     * @param contest            是否走比赛通道
+     * @param executeCodeRequest 执行请求
+     * @return 执行结果
+     */
+    public CompletableFuture<ExecuteCodeResponse> submit(String tenant, boolean contest, ExecuteCodeRequest executeCodeRequest) {
+        // 超出配额的租户在写日志之前拒绝，重放的提交已被接受，不再检查
+        usageLedger.checkQuota(tenant);
+        if (executeCodeRequest.getSubmissionId() != null
+                && executeCodeRequest.getSubmissionId().length() > MAX_SUBMISSION_ID_LENGTH) {
+            throw new RuntimeException("提交 ID 不能超过 " + MAX_SUBMISSION_ID_LENGTH + " 个字符");
+        }
+        if (executeCodeRequest.getSubmissionId() == null) {
+            executeCodeRequest.setSubmissionId(UUID.randomUUID().toString());
+        }
+        String submissionId = executeCodeRequest.getSubmissionId();
+        // 同一 ID 的提交还在执行时拒绝，否则两次执行的日志记录和结果会互相覆盖
+        if (!inFlightIds.add(submissionId)) {
+            throw new RuntimeException("提交 " + submissionId + " 正在执行，不能重复提交");
+        }
+        CompletableFuture<ExecuteCodeResponse> future;
+        try {
+            future = journalAndSchedule(submissionId, tenant, contest, executeCodeRequest);
+        } catch (RuntimeException e) {
+            inFlightIds.remove(submissionId);
+            throw e;
+        }
+        // 调用方拿到结果之前先释放 ID，收到结果后可以立即用同一 ID 重新提交
+        return future.whenComplete((response, e) -> inFlightIds.remove(submissionId));
+    }
+
+    private CompletableFuture<ExecuteCodeResponse> journalAndSchedule(String submissionId, String tenant, boolean contest,
+                                                                      ExecuteCodeRequest executeCodeRequest) {
+        // 在入口处决定是否采样，后续各阶段按提交 ID 找到同一个追踪
+        SubmissionTrace trace = submissionTracer.start(submissionId);
+        if (journal == null) {
+            return schedule(submissionId, tenant, contest, executeCodeRequest);
+        }
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(toJournalEntry(tenant, contest, executeCodeRequest));
+        } catch (IOException e) {
+            throw new RuntimeException("序列化提交失败", e);
+        }
+        long appendStart = System.nanoTime();
+        return journal.append(SubmissionJournal.TYPE_ENQUEUE, submissionId, payload)
+                .thenCompose(ignored -> {
+                    if (trace != null) {
+                        trace.record("queue.journal", appendStart, System.nanoTime());
+                    }
+                    return schedule(submissionId, tenant, contest, executeCodeRequest);
+                });
+    }
+
+    /**
+     * 按提交 ID 查询结果，用于获取重启后重放的提交结果
+     */
+    public ExecuteCodeResponse getResult(String submissionId) {
+        return results.get(submissionId);
+    }
+
+    /**
+     * 日志过大时压缩，只保留未完成的提交
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void compactIfNeeded() {
+        if (journal != null && journal.getFileSize() > properties.getCompactThreshold()) {
+            journal.compact();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * 落盘的输入只记录文件路径，不读回内存；文件在请求结束后才由请求入口删除，进程崩溃后仍可重放
+     */
+    private static JournalEntry toJournalEntry(String tenant, boolean contest, ExecuteCodeRequest executeCodeRequest) {
+        List<String> inputList = executeCodeRequest.getInputList();
+        if (inputList instanceof SpooledInputList) {
+            return new JournalEntry(tenant, contest, executeCodeRequest.toBuilder().inputList(null).build(),
+                    ((SpooledInputList) inputList).getFile().getAbsolutePath());
+        }
+        return new JournalEntry(tenant, contest, executeCodeRequest, null);
+    }
+
+    private CompletableFuture<ExecuteCodeResponse> schedule(String submissionId, String tenant, boolean contest,
+                                                            ExecuteCodeRequest executeCodeRequest) {
+        SubmissionTrace trace = submissionTracer.get(submissionId);
+        long queuedAt = System.nanoTime();
+        CompletableFuture<ExecuteCodeResponse> future;
+        try {
+            future = fairShareScheduler.submit(tenant, contest, () -> {
+                // 在公平调度队列中等待的时间
+                if (trace != null) {
+                    trace.record("queue.wait", queuedAt, System.nanoTime());
+                }
+                return stagedExecutor.submit(javaNativeCodeSandbox, executeCodeRequest, tenant);
+            });
+        } catch (RuntimeException e) {
+            // 排队已满被拒绝：调用方会收到 503 并可能换节点重试，重启后不能再重放
+            if (journal != null) {
+                journal.append(SubmissionJournal.TYPE_COMPLETE, submissionId, null);
+            }
+            throw e;
+        }
+        return future.whenComplete((response, e) -> {
+            if (response != null) {
+                response.setSubmissionId(submissionId);
+                results.put(submissionId, response);
+            }
+            // 执行失败也算完成，不再重放；完成记录不需要等待落盘
+            if (journal != null) {
+                journal.append(SubmissionJournal.TYPE_COMPLETE, submissionId, null);
+            }
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.vv.voj.queue;
+
+import cn.hutool.core.io.FileUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @Title: 预写日志写入延迟测试
+ * 对比组提交与每条记录单独 fsync 时，单次提交的平均落盘延迟
+ * @Author: vv
+ * @Date: 2025/8/10 16:30
+ */
+public class JournalBenchmark {
+
+    private static final int THREADS = 16;
+
+    private static final int RECORDS_PER_THREAD = 200;
+
+    private static final int PAYLOAD_SIZE = 2048;
+
+    public static void main(String[] args) throws Exception {
+        run("组提交", 256);
+        run("逐条 fsync", 1);
+    }
+
+    private static void run(String name, int maxBatch) throws Exception {
+        File dir = FileUtil.mkdir(System.getProperty("java.io.tmpdir") + File.separator + "journal-benchmark-" + maxBatch);
+        FileUtil.clean(dir);
+        SubmissionJournal journal = new SubmissionJournal(dir, maxBatch);
+        journal.open();
+        byte[] payload = new byte[PAYLOAD_SIZE];
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executorService.submit(() -> {
+                long latency = 0;
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    long appendStart = System.nanoTime();
+                    CompletableFuture<Void> future = journal.append(SubmissionJournal.TYPE_ENQUEUE, thread + "-" + i, payload);
+                    future.join();
+                    latency += System.nanoTime() - appendStart;
+                }
+                return latency;
+            }));
+        }
+        long totalLatency = 0;
+        for (Future<Long> future : futures) {
+            totalLatency += future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executorService.shutdown();
+        journal.close();
+
+        int records = THREADS * RECORDS_PER_THREAD;
+        System.out.printf("%s: 平均延迟 %.3f ms，吞吐 %.0f 条/秒%n", name,
+                totalLatency / 1_000_000.0 / records, records / (elapsed / 1_000_000_000.0));
+        FileUtil.del(dir);
+    }
+}
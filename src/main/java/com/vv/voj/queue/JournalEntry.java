@@ -0,0 +1,26 @@
+package com.vv.voj.queue;
+
+import com.vv.voj.model.ExecuteCodeRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 预写日志中记录的提交内容
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+
+    private String tenant;
+
+    private boolean contest;
+
+    private ExecuteCodeRequest request;
+
+    /**
+     * 落盘的输入用例文件路径，此时 request 中不含 inputList
+     */
+    private String inputSpool;
+}
@@ -0,0 +1,302 @@
+package com.vv.voj.queue;
+
+import com.vv.voj.log.EventLog;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * @Title: 提交预写日志
+ * 只追加写的磁盘日志，每条记录格式为 [长度][CRC32][类型][ID长度][ID][内容]；
+ * 写入由单独的线程批量完成，一批只做一次 fsync（组提交），调用方等待所在批次落盘
+ * @Author: vv
+ * @Date: 2025/8/10 9:40
+ */
+public class SubmissionJournal implements Closeable {
+
+    public static final byte TYPE_ENQUEUE = 1;
+
+    public static final byte TYPE_COMPLETE = 2;
+
+    /**
+     * ID 的 UTF-8 字节数上限，记录中按无符号 16 位存放
+     */
+    public static final int MAX_ID_BYTES = 0xFFFF;
+
+    private static final String JOURNAL_FILE_NAME = "submissions.wal";
+
+    private static final int HEADER_SIZE = 8;
+
+    private final Path journalPath;
+
+    private final int maxBatch;
+
+    private final BlockingQueue<Operation> operations = new LinkedBlockingQueue<>();
+
+    /**
+     * 未完成的提交，只由写线程修改，用于压缩时重写日志
+     */
+    private final Map<String, byte[]> liveEntries = new LinkedHashMap<>();
+
+    private FileChannel channel;
+
+    private Thread writerThread;
+
+    private volatile boolean running = false;
+
+    private volatile long fileSize = 0;
+
+    public SubmissionJournal(File dir, int maxBatch) {
+        this.journalPath = new File(dir, JOURNAL_FILE_NAME).toPath();
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    /**
+     * 打开日志并重放，截掉末尾写了一半的记录
+     *
+     * @return 未完成的提交：ID -> 内容，按入队顺序
+     */
+    public synchronized Map<String, byte[]> open() throws IOException {
+        Files.createDirectories(journalPath.getParent());
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validSize = replay();
+        if (validSize < channel.size()) {
+            EventLog.warn("journal", "预写日志末尾存在不完整记录，截断", "validSize", validSize, "fileSize", channel.size());
+            channel.truncate(validSize);
+        }
+        channel.position(validSize);
+        fileSize = validSize;
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "submission-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        return new LinkedHashMap<>(liveEntries);
+    }
+
+    /**
+     * 追加一条记录，返回的 future 在记录落盘后完成
+     */
+    public CompletableFuture<Void> append(byte type, String id, byte[] payload) {
+        Operation operation = new Operation(type, id, payload == null ? new byte[0] : payload);
+        if (id.getBytes(StandardCharsets.UTF_8).length > MAX_ID_BYTES) {
+            operation.future.completeExceptionally(new IllegalArgumentException("ID 过长，无法写入预写日志"));
+            return operation.future;
+        }
+        if (!running) {
+            operation.future.completeExceptionally(new IOException("预写日志未打开"));
+            return operation.future;
+        }
+        operations.offer(operation);
+        return operation.future;
+    }
+
+    /**
+     * 压缩日志：只保留未完成的提交，在写线程中执行，不需要额外加锁
+     */
+    public CompletableFuture<Void> compact() {
+        Operation operation = new Operation((byte) 0, null, null);
+        operations.offer(operation);
+        return operation.future;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private long replay() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            channel.read(body, position + HEADER_SIZE);
+            CRC32 crc32 = new CRC32();
+            crc32.update(body.array());
+            if ((int) crc32.getValue() != crc) {
+                break;
+            }
+            body.flip();
+            try {
+                apply(body);
+            } catch (RuntimeException e) {
+                // 校验和正确但无法解析的记录跳过，不影响之后的记录
+                EventLog.warn("journal", "跳过无法解析的日志记录", "position", position, e);
+            }
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        byte[] idBytes = new byte[body.getShort() & 0xFFFF];
+        body.get(idBytes);
+        String id = new String(idBytes, StandardCharsets.UTF_8);
+        if (type == TYPE_ENQUEUE) {
+            byte[] payload = new byte[body.remaining()];
+            body.get(payload);
+            liveEntries.put(id, payload);
+        } else if (type == TYPE_COMPLETE) {
+            liveEntries.remove(id);
+        }
+    }
+
+    private void writeLoop() {
+        List<Operation> batch = new ArrayList<>(maxBatch);
+        while (running || !operations.isEmpty()) {
+            try {
+                Operation first = operations.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                operations.drainTo(batch, maxBatch - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Operation> batch) {
+        List<Operation> appended = new ArrayList<>(batch.size());
+        try {
+            for (Operation operation : batch) {
+                if (operation.id == null) {
+                    // 先把已写入的记录落盘，再压缩
+                    flush(appended);
+                    rewrite();
+                    operation.future.complete(null);
+                    continue;
+                }
+                ByteBuffer frame = encode(operation);
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                fileSize = channel.position();
+                if (operation.type == TYPE_ENQUEUE) {
+                    liveEntries.put(operation.id, operation.payload);
+                } else {
+                    liveEntries.remove(operation.id);
+                }
+                appended.add(operation);
+            }
+            flush(appended);
+        } catch (IOException e) {
+            for (Operation operation : batch) {
+                operation.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 一批记录只做一次 fsync
+     */
+    private void flush(List<Operation> appended) throws IOException {
+        if (appended.isEmpty()) {
+            return;
+        }
+        channel.force(false);
+        for (Operation operation : appended) {
+            operation.future.complete(null);
+        }
+        appended.clear();
+    }
+
+    private void rewrite() throws IOException {
+        Path tmpPath = journalPath.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+        try (FileChannel tmpChannel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, byte[]> entry : liveEntries.entrySet()) {
+                ByteBuffer frame = encode(new Operation(TYPE_ENQUEUE, entry.getKey(), entry.getValue()));
+                while (frame.hasRemaining()) {
+                    tmpChannel.write(frame);
+                }
+            }
+            tmpChannel.force(true);
+        }
+        channel.close();
+        Files.move(tmpPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        fileSize = channel.size();
+    }
+
+    private static ByteBuffer encodeBody(Operation operation) {
+        byte[] idBytes = operation.id.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 2 + idBytes.length + operation.payload.length);
+        body.put(operation.type).putShort((short) idBytes.length).put(idBytes).put(operation.payload);
+        body.flip();
+        return body;
+    }
+
+    private static ByteBuffer encode(Operation operation) {
+        ByteBuffer body = encodeBody(operation);
+        CRC32 crc32 = new CRC32();
+        crc32.update(body.array());
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + body.remaining());
+        frame.putInt(body.remaining()).putInt((int) crc32.getValue()).put(body);
+        frame.flip();
+        return frame;
+    }
+
+    private static class Operation {
+
+        private final byte type;
+
+        private final String id;
+
+        private final byte[] payload;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Operation(byte type, String id, byte[] payload) {
+            this.type = type;
+            this.id = id;
+            this.payload = payload;
+        }
+    }
+}
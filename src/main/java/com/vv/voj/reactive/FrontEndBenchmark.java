@@ -0,0 +1,67 @@
+package com.vv.voj.reactive;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.model.ExecuteCodeRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Title: 对比 MVC 接口与响应式接口在相同负载下的连接承载能力
+ * 对两个接口各自同时发起大量请求，统计成功数、被拒绝或失败数和耗时
+ * 用法：先启动服务并开启 sandbox.reactive.enabled，再运行本类，参数为并发数（默认 1000）
+ * @Author: vv
+ * @Date: 2025/8/12 16:00
+ */
+public class FrontEndBenchmark {
+
+    private static final String MVC_URL = "http://localhost:8090/executeCode";
+
+    private static final String REACTIVE_URL = "http://localhost:8190/executeCode";
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setInputList(Arrays.asList("1 2", "3 4"));
+        request.setCode(ResourceUtil.readStr("testCode/simpleComputeArgs/Main.java", StandardCharsets.UTF_8));
+        request.setLanguage("java");
+        byte[] body = new ObjectMapper().writeValueAsBytes(request);
+
+        run("MVC", MVC_URL, body, concurrency);
+        run("WebFlux", REACTIVE_URL, body, concurrency);
+    }
+
+    private static void run(String name, String url, byte[] body, int concurrency) {
+        // 每个请求一个连接，考察服务端能同时挂住多少连接
+        ConnectionProvider provider = ConnectionProvider.builder(name).maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1).build();
+        HttpClient client = HttpClient.create(provider)
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, "application/json"))
+                .responseTimeout(Duration.ofMinutes(5));
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        Flux.range(0, concurrency)
+                .flatMap(i -> client.post().uri(url).send(ByteBufFlux.fromString(Flux.just(new String(body, StandardCharsets.UTF_8))))
+                        .responseSingle((response, content) -> content.asString().defaultIfEmpty("")
+                                .map(text -> response.status().code()))
+                        .doOnNext(code -> (code == 200 ? success : failed).incrementAndGet())
+                        .onErrorResume(e -> {
+                            failed.incrementAndGet();
+                            return Mono.<Integer>empty();
+                        }), concurrency)
+                .blockLast();
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.printf("%s: 并发 %d，成功 %d，失败 %d，耗时 %d ms%n", name, concurrency, success.get(), failed.get(), elapsed);
+        provider.disposeLater().block();
+    }
+}
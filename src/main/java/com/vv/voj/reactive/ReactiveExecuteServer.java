@@ -0,0 +1,157 @@
+package com.vv.voj.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.queue.DurableSubmissionQueue;
+import com.vv.voj.scheduler.CapacityExceededException;
+import com.vv.voj.scheduler.FairShareScheduler;
+import com.vv.voj.wire.SpoolScope;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+
+/**
+ * @Title: 响应式执行接口
+ * 在独立端口上用 Netty 提供与 /executeCode 相同的接口，等待执行结果时不占用线程，
+ * 结果直接由沙箱的 CompletableFuture 驱动；并发数按提交的实际运行计算，超时只影响响应。
+ * 该端口只接受未压缩的 JSON：CBOR/Smile 和 gzip/zstd 请求体只在 MVC 端口上支持，
+ * 解码前整个请求体会缓冲在内存中（上限为 wire.max-decompressed-size），解析出的大输入仍会落盘
+ * @Author: vv
+ * @Date: 2025/8/12 10:15
+ */
+@Component
+public class ReactiveExecuteServer implements SmartLifecycle {
+
+    private final SandboxProperties.Reactive properties;
+
+    private final SandboxProperties.Wire wire;
+
+    private final DurableSubmissionQueue durableSubmissionQueue;
+
+    private final FairShareScheduler fairShareScheduler;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    private volatile DisposableServer server;
+
+    public ReactiveExecuteServer(SandboxProperties sandboxProperties, DurableSubmissionQueue durableSubmissionQueue,
+                                 FairShareScheduler fairShareScheduler, ObjectMapper objectMapper) {
+        this.properties = sandboxProperties.getReactive();
+        this.wire = sandboxProperties.getWire();
+        this.durableSubmissionQueue = durableSubmissionQueue;
+        this.fairShareScheduler = fairShareScheduler;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        RouterFunction<ServerResponse> routes = RouterFunctions.route(POST("/executeCode"), this::executeCode)
+                .andRoute(GET("/health"), request -> ServerResponse.ok().bodyValue("ok"));
+        // 默认只缓冲 256KB，大输入的请求会被直接拒绝，上限与 MVC 端口解压后的上限保持一致
+        int maxInMemorySize = (int) Math.min(Integer.MAX_VALUE, wire.getMaxDecompressedSize());
+        HandlerStrategies strategies = HandlerStrategies.builder().codecs(configurer -> {
+            configurer.defaultCodecs().maxInMemorySize(maxInMemorySize);
+            configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+        }).build();
+        ReactorHttpHandlerAdapter adapter = new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes, strategies));
+        server = HttpServer.create().port(properties.getPort()).handle(adapter).bindNow();
+        EventLog.info("startup", "响应式执行接口已启动", "port", properties.getPort());
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private Mono<ServerResponse> executeCode(ServerRequest request) {
+        // 超过并发上限直接拒绝，不在内存中无限堆积
+        if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).bodyValue("执行请求过多");
+        }
+        String tenant = fairShareScheduler.resolveTenant(request.headers().firstHeader("X-Api-Key"));
+        boolean contest = fairShareScheduler.isContest(tenant, request.headers().firstHeader("X-Priority"));
+        // 落盘的输入用例归本次请求所有；提交开始后，删除落盘文件和归还并发名额都等提交真正结束，
+        // 超时只是提前返回 504，仍在运行的任务继续占用名额，也不会读到已删除的文件
+        SpoolScope spoolScope = new SpoolScope();
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                spoolScope.close();
+                inFlight.decrementAndGet();
+            }
+        };
+        AtomicBoolean submitted = new AtomicBoolean(false);
+        return request.bodyToMono(ExecuteCodeRequest.class)
+                .switchIfEmpty(Mono.error(new RuntimeException("参数为空")))
+                .flatMap(executeCodeRequest -> {
+                    spoolScope.adopt(executeCodeRequest.getInputList());
+                    CompletableFuture<ExecuteCodeResponse> future =
+                            durableSubmissionQueue.submit(tenant, contest, executeCodeRequest);
+                    submitted.set(true);
+                    future.whenComplete((response, e) -> release.run());
+                    // 交给 Mono 的是派生的 future，超时取消它不会让原提交提前完成
+                    return Mono.fromFuture(future.thenApply(response -> response));
+                })
+                .timeout(Duration.ofMillis(properties.getTimeout()))
+                .flatMap(response -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(response))
+                .onErrorResume(TimeoutException.class,
+                        e -> ServerResponse.status(HttpStatus.GATEWAY_TIMEOUT).bodyValue("代码执行超时"))
+                .onErrorResume(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    // 容量不足返回 503，与 MVC 接口一致
+                    HttpStatus status = cause instanceof CapacityExceededException
+                            ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return ServerResponse.status(status).bodyValue(String.valueOf(cause.getMessage()));
+                })
+                .doFinally(signal -> {
+                    // 没有开始提交（请求体解析失败、提交被拒绝等）时在这里归还
+                    if (!submitted.get()) {
+                        release.run();
+                    }
+                });
+    }
+}
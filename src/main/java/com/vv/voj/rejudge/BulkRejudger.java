@@ -0,0 +1,299 @@
+package com.vv.voj.rejudge;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.vv.voj.JavaNativeCodeSandbox;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.RejudgeProgress;
+import com.vv.voj.model.RejudgeRequest;
+import com.vv.voj.model.RejudgeSubmission;
+import com.vv.voj.model.RejudgeVerdict;
+import com.vv.voj.pipeline.StagedExecutor;
+import com.vv.voj.scheduler.CapacityExceededException;
+import com.vv.voj.scheduler.FairShareScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Title: 批量重判
+ * 测试数据修正后重判一道题的大量提交：测试数据只传一次并在所有提交间共用，相同源码只编译运行一次，
+ * 各源码经普通通道进入公平调度，由流水线并行编译；每份提交的结果和进度、剩余时间以 SSE 事件流返回
+ * @Author: vv
+ * @Date: 2025/8/19 10:00
+ */
+@Component
+public class BulkRejudger {
+
+    public static final String EVENT_VERDICT = "verdict";
+
+    public static final String EVENT_PROGRESS = "progress";
+
+    public static final String EVENT_DONE = "done";
+
+    private final SandboxProperties.Rejudge properties;
+
+    private final FairShareScheduler fairShareScheduler;
+
+    private final StagedExecutor stagedExecutor;
+
+    private final JavaNativeCodeSandbox javaNativeCodeSandbox;
+
+    private final UsageLedger usageLedger;
+
+    private final ExecutorService batchExecutor;
+
+    public BulkRejudger(SandboxProperties sandboxProperties, FairShareScheduler fairShareScheduler,
+                        StagedExecutor stagedExecutor, JavaNativeCodeSandbox javaNativeCodeSandbox, UsageLedger usageLedger) {
+        this.properties = sandboxProperties.getRejudge();
+        this.fairShareScheduler = fairShareScheduler;
+        this.stagedExecutor = stagedExecutor;
+        this.javaNativeCodeSandbox = javaNativeCodeSandbox;
+        this.usageLedger = usageLedger;
+        int maxBatches = Math.max(1, properties.getMaxBatches());
+        // 批次数已满时直接拒绝，不在服务端堆积
+        this.batchExecutor = new ThreadPoolExecutor(maxBatches, maxBatches, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), ThreadFactoryBuilder.create().setNamePrefix("rejudge-").setDaemon(true).build(),
+                (task, executor) -> {
+                    throw new CapacityExceededException("批量重判任务过多，请稍后再试");
+                });
+    }
+
+    /**
+     * 开始一批重判，结果通过返回的事件流逐个推送
+     *
+     * @param tenant         租户
+     * @param rejudgeRequest 重判请求
+     * @return 事件流：verdict 每份提交的结果，progress 进度，done 最终统计
+     */
+    public SseEmitter start(String tenant, RejudgeRequest rejudgeRequest) {
+        List<RejudgeSubmission> submissions = rejudgeRequest.getSubmissions();
+        if (CollUtil.isEmpty(submissions)) {
+            throw new RuntimeException("提交列表为空");
+        }
+        if (submissions.size() > properties.getMaxSubmissions()) {
+            throw new RuntimeException("单批最多重判 " + properties.getMaxSubmissions() + " 份提交");
+        }
+        if (rejudgeRequest.getInputList() == null) {
+            throw new RuntimeException("输入用例为空");
+        }
+        usageLedger.checkQuota(tenant);
+
+        // 按源码哈希去重，保持提交顺序
+        Map<String, List<String>> submissionIdsBySource = new LinkedHashMap<>();
+        Map<String, String> codeBySource = new LinkedHashMap<>();
+        for (RejudgeSubmission submission : submissions) {
+            if (StrUtil.isBlank(submission.getCode())) {
+                throw new RuntimeException("提交 " + submission.getSubmissionId() + " 的源码为空");
+            }
+            String submissionId = StrUtil.blankToDefault(submission.getSubmissionId(), UUID.randomUUID().toString());
+            String sourceHash = DigestUtil.sha256Hex(submission.getCode());
+            submissionIdsBySource.computeIfAbsent(sourceHash, key -> new ArrayList<>()).add(submissionId);
+            codeBySource.putIfAbsent(sourceHash, submission.getCode());
+        }
+        SseEmitter emitter = new SseEmitter(properties.getTimeout());
+        RejudgeBatch batch = new RejudgeBatch(tenant, rejudgeRequest, submissionIdsBySource, codeBySource, emitter);
+        emitter.onCompletion(() -> batch.cancelled = true);
+        emitter.onTimeout(() -> batch.cancelled = true);
+        emitter.onError(e -> batch.cancelled = true);
+        batchExecutor.execute(batch::run);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    private class RejudgeBatch {
+
+        private final String tenant;
+
+        private final RejudgeRequest rejudgeRequest;
+
+        /**
+         * 所有源码共用同一个输入列表，不复制
+         */
+        private final List<String> inputList;
+
+        private final Map<String, List<String>> submissionIdsBySource;
+
+        private final Map<String, String> codeBySource;
+
+        private final SseEmitter emitter;
+
+        private final Semaphore inFlight = new Semaphore(Math.max(1, properties.getMaxInFlight()));
+
+        private final RejudgeProgress progress = new RejudgeProgress();
+
+        private final long startTime = System.currentTimeMillis();
+
+        private long lastProgressTime = 0L;
+
+        private volatile boolean cancelled = false;
+
+        private RejudgeBatch(String tenant, RejudgeRequest rejudgeRequest, Map<String, List<String>> submissionIdsBySource,
+                             Map<String, String> codeBySource, SseEmitter emitter) {
+            this.tenant = tenant;
+            this.rejudgeRequest = rejudgeRequest;
+            this.inputList = Collections.unmodifiableList(rejudgeRequest.getInputList());
+            this.submissionIdsBySource = submissionIdsBySource;
+            this.codeBySource = codeBySource;
+            this.emitter = emitter;
+            progress.setProblemId(rejudgeRequest.getProblemId());
+            progress.setTotal(submissionIdsBySource.values().stream().mapToInt(List::size).sum());
+            progress.setUniqueSources(submissionIdsBySource.size());
+            progress.setEta(-1);
+        }
+
+        private void run() {
+            EventLog.info("rejudge", "开始批量重判", "problemId", rejudgeRequest.getProblemId(), "tenant", tenant,
+                    "total", progress.getTotal(), "uniqueSources", progress.getUniqueSources());
+            send(EVENT_PROGRESS, snapshot());
+            int permits = Math.max(1, properties.getMaxInFlight());
+            try {
+                for (Map.Entry<String, List<String>> entry : submissionIdsBySource.entrySet()) {
+                    inFlight.acquire();
+                    if (cancelled) {
+                        inFlight.release();
+                        break;
+                    }
+                    execute(entry.getValue(), codeBySource.get(entry.getKey()));
+                }
+                // 等待已提交的源码全部执行完
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            RejudgeProgress finalProgress = snapshot();
+            EventLog.info("rejudge", cancelled ? "批量重判已取消" : "批量重判完成", "problemId", rejudgeRequest.getProblemId(),
+                    "completed", finalProgress.getCompleted(), "failed", finalProgress.getFailed(), "elapsed", finalProgress.getElapsed());
+            send(EVENT_DONE, finalProgress);
+            emitter.complete();
+        }
+
+        /**
+         * 执行一份源码，结束后给所有相同源码的提交返回结果
+         */
+        private void execute(List<String> submissionIds, String code) {
+            ExecuteCodeRequest executeCodeRequest = ExecuteCodeRequest.builder()
+                    .submissionId(submissionIds.get(0))
+                    .problemId(rejudgeRequest.getProblemId())
+                    .inputList(inputList)
+                    .answerList(rejudgeRequest.getAnswerList())
+                    .checkerCode(rejudgeRequest.getCheckerCode())
+                    .code(code)
+                    .language(rejudgeRequest.getLanguage())
+                    .timeLimit(rejudgeRequest.getTimeLimit())
+                    .memoryLimit(rejudgeRequest.getMemoryLimit())
+                    .outputMode(rejudgeRequest.getOutputMode())
+                    .previewLength(rejudgeRequest.getPreviewLength())
+                    .build();
+            CompletableFuture<ExecuteCodeResponse> future;
+            try {
+                future = fairShareScheduler.submit(tenant, false,
+                        () -> stagedExecutor.submit(javaNativeCodeSandbox, executeCodeRequest, tenant));
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((response, e) -> {
+                try {
+                    complete(submissionIds, response, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        private void complete(List<String> submissionIds, ExecuteCodeResponse response, Throwable e) {
+            String error = null;
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                error = StrUtil.blankToDefault(cause.getMessage(), cause.toString());
+            }
+            for (int i = 0; i < submissionIds.size(); i++) {
+                RejudgeVerdict verdict = new RejudgeVerdict();
+                verdict.setSubmissionId(submissionIds.get(i));
+                verdict.setDuplicateOf(i == 0 ? null : submissionIds.get(0));
+                verdict.setResponse(response);
+                verdict.setError(error);
+                send(EVENT_VERDICT, verdict);
+            }
+            RejudgeProgress current = null;
+            synchronized (progress) {
+                progress.setCompletedSources(progress.getCompletedSources() + 1);
+                progress.setCompleted(progress.getCompleted() + submissionIds.size());
+                if (error != null) {
+                    progress.setFailed(progress.getFailed() + submissionIds.size());
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastProgressTime >= properties.getProgressInterval()) {
+                    lastProgressTime = now;
+                    current = snapshot();
+                }
+            }
+            if (current != null) {
+                send(EVENT_PROGRESS, current);
+            }
+        }
+
+        private RejudgeProgress snapshot() {
+            synchronized (progress) {
+                RejudgeProgress snapshot = new RejudgeProgress();
+                snapshot.setProblemId(progress.getProblemId());
+                snapshot.setTotal(progress.getTotal());
+                snapshot.setUniqueSources(progress.getUniqueSources());
+                snapshot.setCompleted(progress.getCompleted());
+                snapshot.setCompletedSources(progress.getCompletedSources());
+                snapshot.setFailed(progress.getFailed());
+                snapshot.setElapsed(System.currentTimeMillis() - startTime);
+                int completedSources = progress.getCompletedSources();
+                if (completedSources > 0) {
+                    // 源码并行执行，按整体吞吐而不是单份耗时估算
+                    snapshot.setEta(snapshot.getElapsed() * (progress.getUniqueSources() - completedSources) / completedSources);
+                } else {
+                    snapshot.setEta(-1);
+                }
+                return snapshot;
+            }
+        }
+
+        /**
+         * 客户端断开后停止提交新的源码，已在执行的照常完成
+         */
+        private void send(String name, Object data) {
+            if (cancelled) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            } catch (IOException | IllegalStateException e) {
+                cancelled = true;
+                EventLog.warn("rejudge", "事件流已断开，停止重判", "problemId", rejudgeRequest.getProblemId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.vv.voj.scheduler;
+
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.limit.LimitCalibrator;
+import com.vv.voj.log.EventLog;
+import com.vv.voj.model.CalibrationReport;
+import com.vv.voj.model.ConcurrencyStats;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Title: 自适应并发限制
+ * 在用例运行之前限制同时运行的用例数，取代固定的并行度：有负载时定期运行校准程序，
+ * 把它的耗时当作 RTT（类似 TCP Vegas / gradient 限流），相对基线膨胀超过容忍倍数时按比例减少并发，
+ * 没有膨胀且有用例在排队时逐个增加，避免并发过高拉长计时导致误判超时，也避免并发过低浪费核心
+ * @Author: vv
+ * @Date: 2025/8/20 10:00
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 单次减少时保留的最小比例，避免一次探测受干扰就把并发降得过低
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final SandboxProperties.Concurrency properties;
+
+    private final LimitCalibrator limitCalibrator;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private int limit;
+
+    private int inFlight = 0;
+
+    private int waiting = 0;
+
+    /**
+     * 上次探测以来需要排队的用例数，用于判断是否有增加并发的需求
+     */
+    private int queuedSinceProbe = 0;
+
+    private long acquired = 0L;
+
+    private long totalQueueNanos = 0L;
+
+    private volatile long baselineWorkMillis = Long.MAX_VALUE;
+
+    private volatile double probeWorkMillis = 0;
+
+    private volatile double gradient = 1.0;
+
+    private volatile long probes = 0L;
+
+    private volatile long increases = 0L;
+
+    private volatile long decreases = 0L;
+
+    private Thread probeThread;
+
+    private volatile boolean running = false;
+
+    public AdaptiveConcurrencyLimiter(SandboxProperties sandboxProperties, CpuCoreAllocator cpuCoreAllocator,
+                                      LimitCalibrator limitCalibrator) {
+        this.properties = sandboxProperties.getConcurrency();
+        this.limitCalibrator = limitCalibrator;
+        // 绑核时每个用例独占一组核心，并发不会超过核心组数
+        int available = cpuCoreAllocator.isPinning() ? cpuCoreAllocator.getTotalCount() : Runtime.getRuntime().availableProcessors();
+        int configuredMax = properties.getMaxLimit() > 0 ? properties.getMaxLimit() : available;
+        this.maxLimit = Math.max(1, cpuCoreAllocator.isPinning() ? Math.min(configuredMax, available) : configuredMax);
+        this.minLimit = Math.max(1, Math.min(properties.getMinLimit(), maxLimit));
+        this.limit = maxLimit;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        // 探测要启动 JVM，不占用 Spring 的定时任务线程
+        probeThread = new Thread(this::probeLoop, "concurrency-probe");
+        probeThread.setDaemon(true);
+        probeThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (probeThread != null) {
+            probeThread.interrupt();
+        }
+    }
+
+    /**
+     * 申请一个运行位置，达到当前限制时阻塞等待
+     */
+    public void acquire() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            boolean queued = false;
+            waiting++;
+            try {
+                while (inFlight >= limit) {
+                    queued = true;
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("等待运行位置被中断");
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            acquired++;
+            totalQueueNanos += System.nanoTime() - start;
+            if (queued) {
+                queuedSinceProbe++;
+            }
+        }
+    }
+
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized ConcurrencyStats getStats() {
+        ConcurrencyStats concurrencyStats = new ConcurrencyStats();
+        concurrencyStats.setEnabled(properties.isEnabled());
+        concurrencyStats.setLimit(limit);
+        concurrencyStats.setMinLimit(minLimit);
+        concurrencyStats.setMaxLimit(maxLimit);
+        concurrencyStats.setInFlight(inFlight);
+        concurrencyStats.setWaiting(waiting);
+        concurrencyStats.setBaselineWorkMillis(baselineWorkMillis == Long.MAX_VALUE ? 0 : baselineWorkMillis);
+        concurrencyStats.setProbeWorkMillis(probeWorkMillis);
+        concurrencyStats.setGradient(gradient);
+        concurrencyStats.setAvgQueueMillis(acquired == 0 ? 0 : totalQueueNanos / 1e6 / acquired);
+        concurrencyStats.setProbes(probes);
+        concurrencyStats.setIncreases(increases);
+        concurrencyStats.setDecreases(decreases);
+        return concurrencyStats;
+    }
+
+    private void probeLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(Math.max(100, properties.getProbeInterval()));
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean loaded;
+            synchronized (this) {
+                loaded = inFlight > 0 || waiting > 0;
+                // 空闲时并发多少都不影响计时，不浪费 CPU 探测；之前的测量已过时，逐步恢复到上限
+                if (!loaded && limit < maxLimit) {
+                    limit++;
+                    increases++;
+                }
+            }
+            if (loaded) {
+                probe();
+            }
+        }
+    }
+
+    /**
+     * 在当前负载下运行一次校准程序，按耗时相对基线的膨胀调整并发
+     */
+    void probe() {
+        long workMillis;
+        try {
+            workMillis = limitCalibrator.runCalibration()[0];
+        } catch (Exception e) {
+            EventLog.warn("concurrency", "并发探测失败", e);
+            return;
+        }
+        CalibrationReport report = limitCalibrator.getReport();
+        long baseline = baselineWorkMillis;
+        if (report.isCalibrated()) {
+            baseline = Math.min(baseline, report.getWorkMillis());
+        }
+        // 与 Vegas 的 BaseRTT 相同，基线取见过的最小值
+        baseline = Math.min(baseline, workMillis);
+        baselineWorkMillis = baseline;
+        double smoothed = probes == 0 ? workMillis
+                : probeWorkMillis + properties.getSmoothing() * (workMillis - probeWorkMillis);
+        probeWorkMillis = smoothed;
+        probes++;
+        double currentGradient = Math.max(MIN_GRADIENT, Math.min(1.0, baseline * properties.getTolerance() / Math.max(1.0, smoothed)));
+        gradient = currentGradient;
+        synchronized (this) {
+            int previous = limit;
+            if (currentGradient < 1.0) {
+                // 乘性减少，至少减一
+                limit = Math.max(minLimit, Math.min(limit - 1, (int) Math.floor(limit * currentGradient)));
+            } else if (queuedSinceProbe > 0 && limit < maxLimit) {
+                // 没有膨胀且有排队，加性增加
+                limit++;
+                notifyAll();
+            }
+            queuedSinceProbe = 0;
+            if (limit != previous) {
+                if (limit > previous) {
+                    increases++;
+                } else {
+                    decreases++;
+                }
+                EventLog.info("concurrency", "调整并发运行数", "from", previous, "to", limit,
+                        "probeWorkMillis", Math.round(smoothed), "baselineWorkMillis", baseline);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.vv.voj.scheduler;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @Title: 容量不足
+ * 排队已满、阶段队列已满等暂时性的拒绝，接口返回 503，协调者据此换节点重试；
+ * 继承 RejectedExecutionException，可以直接在线程池的拒绝策略中抛出
+ * @Author: vv
+ * @Date: 2025/8/22 10:30
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CapacityExceededException extends RejectedExecutionException {
+
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
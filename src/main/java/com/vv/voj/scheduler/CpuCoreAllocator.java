@@ -0,0 +1,216 @@
+package com.vv.voj.scheduler;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.log.EventLog;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * @Title: CPU 核心分配器
+ * 每个运行中的用例独占一组核心（原生进程用 taskset，Docker 用 cpuset），没有空闲核心时排队等待，
+ * 避免并行用例互相抢占导致计时不稳定
+ * @Author: vv
+ * @Date: 2025/8/5 14:10
+ */
+@Component
+public class CpuCoreAllocator {
+
+    private static final String[] TASKSET_PATHS = {"/usr/bin/taskset", "/bin/taskset"};
+
+    /**
+     * 进程允许使用的 CPU：调度亲和性优先，其次是 cgroup v2 / v1 的 cpuset
+     */
+    private static final String PROC_STATUS = "/proc/self/status";
+
+    private static final String CPUS_ALLOWED_LIST = "Cpus_allowed_list:";
+
+    private static final String[] CPUSET_PATHS = {
+            "/sys/fs/cgroup/cpuset.cpus.effective",
+            "/sys/fs/cgroup/cpuset/cpuset.effective_cpus",
+            "/sys/fs/cgroup/cpuset/cpuset.cpus"
+    };
+
+    private final BlockingQueue<String> freeCoreSets = new LinkedBlockingQueue<>();
+
+    private final int totalCoreSets;
+
+    private final boolean pinning;
+
+    private final boolean tasksetAvailable;
+
+    public CpuCoreAllocator(SandboxProperties sandboxProperties) {
+        SandboxProperties.Cpu properties = sandboxProperties.getCpu();
+        // 受 cpuset 限制时（如 --cpuset-cpus=4-7）核心编号不从 0 开始，必须使用实际允许的编号
+        List<Integer> allowedCores = detectAllowedCores();
+        List<Integer> cores = new ArrayList<>();
+        for (Integer core : allowedCores) {
+            if (!properties.getReservedCores().contains(core)) {
+                cores.add(core);
+            }
+        }
+        if (cores.isEmpty()) {
+            // 核心全部被保留时退化为使用所有核心
+            EventLog.warn("startup", "没有可分配的 CPU 核心，忽略保留核心配置", "reservedCores", properties.getReservedCores());
+            cores.addAll(allowedCores);
+        }
+        // CPU 配额小于允许的核心数时，同时运行的用例不超过配额
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (cores.size() > processors) {
+            cores = new ArrayList<>(cores.subList(0, processors));
+        }
+        EventLog.info("startup", "可分配的 CPU 核心", "cores", StrUtil.join(",", cores));
+        // 按每个用例需要的核心数分组
+        int coresPerRun = Math.max(1, Math.min(properties.getCoresPerRun(), cores.size()));
+        for (int i = 0; i + coresPerRun <= cores.size(); i += coresPerRun) {
+            freeCoreSets.add(StrUtil.join(",", cores.subList(i, i + coresPerRun)));
+        }
+        this.totalCoreSets = freeCoreSets.size();
+        this.pinning = properties.isPinning();
+        this.tasksetAvailable = detectTaskset();
+    }
+
+    /**
+     * 申请一组核心，没有空闲核心时阻塞等待
+     *
+     * @return cpuset 格式的核心列表，如 "2" 或 "2,3"
+     */
+    public String acquire() {
+        try {
+            return freeCoreSets.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待 CPU 核心被中断");
+        }
+    }
+
+    /**
+     * 优先申请指定的一组核心，它被占用时再按顺序申请，常驻进程尽量留在原来的核心上
+     */
+    public String acquire(String preferred) {
+        if (preferred != null && freeCoreSets.remove(preferred)) {
+            return preferred;
+        }
+        return acquire();
+    }
+
+    public void release(String coreSet) {
+        if (coreSet != null) {
+            freeCoreSets.offer(coreSet);
+        }
+    }
+
+    /**
+     * 给原生命令加上 taskset 绑核前缀，不支持 taskset 时原样返回
+     */
+    public String wrapCommand(String command, String coreSet) {
+        if (!pinning || !tasksetAvailable || coreSet == null) {
+            return command;
+        }
+        return String.format("taskset -c %s %s", coreSet, command);
+    }
+
+    /**
+     * 给参数列表形式的命令加上 taskset 绑核前缀，不支持 taskset 时原样返回
+     */
+    public List<String> wrapCommand(List<String> command, String coreSet) {
+        if (!pinning || !tasksetAvailable || coreSet == null) {
+            return command;
+        }
+        List<String> wrapped = new ArrayList<>(Arrays.asList("taskset", "-c", coreSet));
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    public boolean isPinning() {
+        return pinning;
+    }
+
+    public int getFreeCount() {
+        return freeCoreSets.size();
+    }
+
+    public int getTotalCount() {
+        return totalCoreSets;
+    }
+
+    /**
+     * 读取进程允许使用的 CPU 编号，都读不到时按 0 到 availableProcessors-1 处理
+     */
+    static List<Integer> detectAllowedCores() {
+        List<Integer> cores = null;
+        for (String line : readProcLines(PROC_STATUS)) {
+            if (line.startsWith(CPUS_ALLOWED_LIST)) {
+                cores = parseCpuList(line.substring(CPUS_ALLOWED_LIST.length()));
+                break;
+            }
+        }
+        for (int i = 0; (cores == null || cores.isEmpty()) && i < CPUSET_PATHS.length; i++) {
+            cores = parseCpuList(StrUtil.join(",", readProcLines(CPUSET_PATHS[i])));
+        }
+        if (cores == null || cores.isEmpty()) {
+            cores = new ArrayList<>();
+            for (int core = 0; core < Runtime.getRuntime().availableProcessors(); core++) {
+                cores.add(core);
+            }
+        }
+        return cores;
+    }
+
+    /**
+     * 读取 proc / cgroup 伪文件，文件不存在或不可读时返回空列表
+     */
+    private static List<String> readProcLines(String path) {
+        try {
+            return Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException | SecurityException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 解析 cpuset 列表格式，如 "0-3,8,10-11"，格式错误时返回空列表
+     */
+    static List<Integer> parseCpuList(String cpuList) {
+        List<Integer> cores = new ArrayList<>();
+        try {
+            for (String part : StrUtil.split(StrUtil.trim(cpuList), ',')) {
+                part = part.trim();
+                if (part.isEmpty()) {
+                    continue;
+                }
+                int dash = part.indexOf('-');
+                int first = Integer.parseInt(dash < 0 ? part : part.substring(0, dash).trim());
+                int last = dash < 0 ? first : Integer.parseInt(part.substring(dash + 1).trim());
+                for (int core = first; core <= last; core++) {
+                    cores.add(core);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new ArrayList<>();
+        }
+        return cores;
+    }
+
+    private static boolean detectTaskset() {
+        if (!System.getProperty("os.name").toLowerCase().contains("linux")) {
+            return false;
+        }
+        for (String path : TASKSET_PATHS) {
+            if (FileUtil.exist(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
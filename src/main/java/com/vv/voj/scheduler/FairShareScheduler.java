@@ -0,0 +1,275 @@
+package com.vv.voj.scheduler;
+
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.TenantStats;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * @Title: 多租户公平调度器
+ * 1. 比赛通道严格优先于普通通道，保证比赛提交的延迟
+ * 2. 同一通道内按租户权重做加权公平排队（stride 调度），批量重判只能使用空闲的执行槽位
+ * 3. 每个租户有独立的并发上限
+ * 4. 超出资源配额且配置为降低优先级的租户，只在同一通道内没有其他租户可调度时执行
+ * 5. 租户只能由配置的 API key 确定，比赛通道只对配置允许的租户开放，空闲的租户队列定期回收
+ * @Author: vv
+ * @Date: 2025/8/4 9:30
+ */
+@Component
+public class FairShareScheduler {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private final SandboxProperties.Scheduler properties;
+
+    private final UsageLedger usageLedger;
+
+    private final Map<String, TenantQueue> tenantQueues = new LinkedHashMap<>();
+
+    private int running = 0;
+
+    /**
+     * 最近一次调度的虚拟时间，新活跃的租户从这里开始计算，不能攒下额度
+     */
+    private double virtualTime = 0;
+
+    public FairShareScheduler(SandboxProperties sandboxProperties, UsageLedger usageLedger) {
+        this.properties = sandboxProperties.getScheduler();
+        this.usageLedger = usageLedger;
+    }
+
+    /**
+     * 提交任务，等到调度到该任务时才真正执行
+     *
+     * @param tenant  租户或 API key
+     * @param contest 是否走比赛通道
+     * @param task    真正的执行任务，返回的 future 完成时释放执行槽位
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> submit(String tenant, boolean contest, Supplier<CompletableFuture<T>> task) {
+        Job<T> job = new Job<>(task);
+        synchronized (this) {
+            evictIdle(job.enqueueTime);
+            TenantQueue tenantQueue = tenantQueues.computeIfAbsent(tenant, this::createTenantQueue);
+            if (tenantQueue.size() >= properties.getMaxQueuePerTenant()) {
+                throw new CapacityExceededException("租户 " + tenant + " 排队已满");
+            }
+            tenantQueue.lastActive = job.enqueueTime;
+            if (tenantQueue.isEmpty()) {
+                tenantQueue.pass = Math.max(tenantQueue.pass, virtualTime);
+            }
+            (contest ? tenantQueue.contestJobs : tenantQueue.bulkJobs).add(job);
+        }
+        dispatch();
+        return job.result;
+    }
+
+    /**
+     * 按配置的 API key 确定租户，请求头中的租户名不可信，未知的 key 归入默认租户
+     */
+    public String resolveTenant(String apiKey) {
+        if (StrUtil.isBlank(apiKey)) {
+            return DEFAULT_TENANT;
+        }
+        return properties.getApiKeys().getOrDefault(apiKey, DEFAULT_TENANT);
+    }
+
+    /**
+     * 比赛提交走优先通道，只有配置允许的租户才能使用
+     */
+    public boolean isContest(String tenant, String priority) {
+        return "contest".equalsIgnoreCase(priority) && tenantConfig(tenant).isContest();
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public synchronized int getQueued() {
+        int queued = 0;
+        for (TenantQueue tenantQueue : tenantQueues.values()) {
+            queued += tenantQueue.size();
+        }
+        return queued;
+    }
+
+    public int getMaxConcurrent() {
+        return properties.getMaxConcurrent();
+    }
+
+    /**
+     * 各租户的排队和执行情况
+     */
+    public synchronized List<TenantStats> getTenantStats() {
+        List<TenantStats> tenantStatsList = new ArrayList<>();
+        for (TenantQueue tenantQueue : tenantQueues.values()) {
+            TenantStats tenantStats = new TenantStats();
+            tenantStats.setTenant(tenantQueue.tenant);
+            tenantStats.setWeight(tenantQueue.config.getWeight());
+            tenantStats.setQueued(tenantQueue.size());
+            tenantStats.setRunning(tenantQueue.running);
+            tenantStats.setDispatched(tenantQueue.dispatched);
+            tenantStats.setAvgQueueTime(tenantQueue.dispatched == 0 ? 0 : tenantQueue.totalQueueTime / tenantQueue.dispatched);
+            tenantStats.setMaxQueueTime(tenantQueue.maxQueueTime);
+            tenantStats.setDeprioritized(usageLedger.isDeprioritized(tenantQueue.tenant));
+            tenantStatsList.add(tenantStats);
+        }
+        return tenantStatsList;
+    }
+
+    /**
+     * 有空闲槽位时取出下一批任务执行，任务在锁外启动
+     */
+    private void dispatch() {
+        List<Job<?>> startJobs = new ArrayList<>();
+        synchronized (this) {
+            while (running < properties.getMaxConcurrent()) {
+                TenantQueue tenantQueue = pickTenant(true);
+                if (tenantQueue == null) {
+                    tenantQueue = pickTenant(false);
+                }
+                if (tenantQueue == null) {
+                    break;
+                }
+                Job<?> job = tenantQueue.contestJobs.isEmpty() ? tenantQueue.bulkJobs.poll() : tenantQueue.contestJobs.poll();
+                job.tenantQueue = tenantQueue;
+                virtualTime = tenantQueue.pass;
+                tenantQueue.pass += 1.0 / Math.max(1, tenantQueue.config.getWeight());
+                tenantQueue.running++;
+                running++;
+                long queueTime = System.currentTimeMillis() - job.enqueueTime;
+                tenantQueue.dispatched++;
+                tenantQueue.totalQueueTime += queueTime;
+                tenantQueue.maxQueueTime = Math.max(tenantQueue.maxQueueTime, queueTime);
+                startJobs.add(job);
+            }
+        }
+        for (Job<?> job : startJobs) {
+            start(job);
+        }
+    }
+
+    /**
+     * 在指定通道中选出虚拟时间最小且未达到并发上限的租户，未超出配额的租户优先
+     */
+    private TenantQueue pickTenant(boolean contest) {
+        TenantQueue picked = null;
+        boolean pickedDeprioritized = false;
+        for (TenantQueue tenantQueue : tenantQueues.values()) {
+            Deque<Job<?>> jobs = contest ? tenantQueue.contestJobs : tenantQueue.bulkJobs;
+            if (jobs.isEmpty() || tenantQueue.running >= tenantQueue.config.getMaxConcurrent()) {
+                continue;
+            }
+            boolean deprioritized = usageLedger.isDeprioritized(tenantQueue.tenant);
+            if (picked == null || (pickedDeprioritized && !deprioritized)
+                    || (pickedDeprioritized == deprioritized && tenantQueue.pass < picked.pass)) {
+                picked = tenantQueue;
+                pickedDeprioritized = deprioritized;
+            }
+        }
+        return picked;
+    }
+
+    private <T> void start(Job<T> job) {
+        CompletableFuture<T> future;
+        try {
+            future = job.task.get();
+        } catch (Throwable e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((result, e) -> {
+            synchronized (this) {
+                running--;
+                job.tenantQueue.running--;
+                job.tenantQueue.lastActive = System.currentTimeMillis();
+            }
+            dispatch();
+            if (e != null) {
+                job.result.completeExceptionally(e);
+            } else {
+                job.result.complete(result);
+            }
+        });
+    }
+
+    /**
+     * 回收空闲的租户队列，回收后再次提交时从当前虚拟时间重新开始
+     */
+    private void evictIdle(long now) {
+        tenantQueues.values().removeIf(tenantQueue -> tenantQueue.isEmpty() && tenantQueue.running == 0
+                && now - tenantQueue.lastActive > properties.getTenantIdleTimeout());
+    }
+
+    private SandboxProperties.Tenant tenantConfig(String tenant) {
+        return properties.getTenants().getOrDefault(tenant, properties.getDefaults());
+    }
+
+    private TenantQueue createTenantQueue(String tenant) {
+        return new TenantQueue(tenant, tenantConfig(tenant));
+    }
+
+    private static class TenantQueue {
+
+        private final String tenant;
+
+        private final SandboxProperties.Tenant config;
+
+        private final Deque<Job<?>> contestJobs = new ArrayDeque<>();
+
+        private final Deque<Job<?>> bulkJobs = new ArrayDeque<>();
+
+        private double pass = 0;
+
+        private int running = 0;
+
+        private long dispatched = 0;
+
+        private long totalQueueTime = 0;
+
+        private long maxQueueTime = 0;
+
+        /**
+         * 最近一次提交或任务完成的时间
+         */
+        private long lastActive;
+
+        private TenantQueue(String tenant, SandboxProperties.Tenant config) {
+            this.tenant = tenant;
+            this.config = config;
+        }
+
+        private int size() {
+            return contestJobs.size() + bulkJobs.size();
+        }
+
+        private boolean isEmpty() {
+            return contestJobs.isEmpty() && bulkJobs.isEmpty();
+        }
+    }
+
+    private static class Job<T> {
+
+        private final Supplier<CompletableFuture<T>> task;
+
+        private final long enqueueTime = System.currentTimeMillis();
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private TenantQueue tenantQueue;
+
+        private Job(Supplier<CompletableFuture<T>> task) {
+            this.task = task;
+        }
+    }
+}
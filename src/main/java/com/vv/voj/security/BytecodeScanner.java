@@ -0,0 +1,295 @@
+package com.vv.voj.security;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.utils.TarUtils;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.Handle;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Title: 字节码预检
+ * 在启动任何进程之前扫描编译好的 class 文件，引用了禁止的类或方法时直接拒绝，
+ * 原生沙箱不会启动进程，Docker 沙箱也不会占用容器执行
+ * 规则格式：类名（如 java.lang.Runtime）、包名加 .*（含子包）、类名#方法或字段名（末尾可带 *），
+ * 方法名后可接参数描述符前缀，只匹配部分重载（如 java.io.PrintStream#<init>(Ljava/lang/String;*），
+ * 白名单优先于黑名单；扫描结果按 class 文件哈希缓存
+ * @Author: vv
+ * @Date: 2025/8/14 15:20
+ */
+@Component
+public class BytecodeScanner {
+
+    /**
+     * 缓存中表示扫描通过的值
+     */
+    private static final String PASSED = "";
+
+    private final boolean enabled;
+
+    private final List<Rule> allowRules = new ArrayList<>();
+
+    private final List<Rule> denyRules = new ArrayList<>();
+
+    /**
+     * class 文件哈希 -> 违规说明，通过时为空字符串
+     */
+    private final Cache<String, String> resultCache;
+
+    private final LongAdder scannedClasses = new LongAdder();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder violations = new LongAdder();
+
+    public BytecodeScanner(SandboxProperties sandboxProperties) {
+        SandboxProperties.Security properties = sandboxProperties.getSecurity();
+        this.enabled = properties.isEnabled();
+        for (String rule : properties.getAllowList()) {
+            allowRules.add(Rule.parse(rule));
+        }
+        for (String rule : properties.getDenyList()) {
+            denyRules.add(Rule.parse(rule));
+        }
+        this.resultCache = CacheBuilder.newBuilder().maximumSize(properties.getCacheSize()).build();
+    }
+
+    /**
+     * 扫描目录下所有 class 文件
+     *
+     * @param classDir 编译输出目录
+     * @return 第一处违规的说明，没有违规返回 null
+     */
+    public String scan(File classDir) {
+        if (!enabled) {
+            return null;
+        }
+        for (Map.Entry<String, byte[]> classFile : TarUtils.readClassFiles(classDir).entrySet()) {
+            String violation = scanClass(classFile.getValue());
+            if (violation != null) {
+                violations.increment();
+                return classFile.getKey() + " 中" + violation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 扫描单个 class 文件，相同内容只扫描一次
+     */
+    public String scanClass(byte[] classBytes) {
+        String hash = DigestUtil.sha256Hex(classBytes);
+        String cached = resultCache.getIfPresent(hash);
+        if (cached != null) {
+            cacheHits.increment();
+            return StrUtil.emptyToNull(cached);
+        }
+        scannedClasses.increment();
+        ReferenceVisitor visitor = new ReferenceVisitor();
+        try {
+            new ClassReader(classBytes).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        } catch (RuntimeException e) {
+            return "class 文件无法解析";
+        }
+        resultCache.put(hash, visitor.violation == null ? PASSED : visitor.violation);
+        return visitor.violation;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getScannedClasses() {
+        return scannedClasses.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getViolations() {
+        return violations.sum();
+    }
+
+    /**
+     * 检查一次引用，member 为空表示只引用了类本身，descriptor 为方法描述符，字段和类引用为空
+     */
+    private String check(String internalName, String member, String descriptor) {
+        String className = toClassName(internalName);
+        if (className == null) {
+            return null;
+        }
+        for (Rule rule : allowRules) {
+            if (rule.matches(className, member, descriptor)) {
+                return null;
+            }
+        }
+        for (Rule rule : denyRules) {
+            if (rule.matches(className, member, descriptor)) {
+                return "使用了禁止的操作：" + (member == null ? className : className + "#" + member);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 内部类名转换为点分类名，数组取元素类型，基本类型返回 null
+     */
+    private static String toClassName(String internalName) {
+        if (internalName == null) {
+            return null;
+        }
+        Type type = internalName.startsWith("[") ? Type.getType(internalName) : Type.getObjectType(internalName);
+        if (type.getSort() == Type.ARRAY) {
+            type = type.getElementType();
+        }
+        return type.getSort() == Type.OBJECT ? type.getClassName() : null;
+    }
+
+    /**
+     * 收集类中对其他类、方法、字段的引用，遇到第一处违规即停止
+     */
+    private class ReferenceVisitor extends ClassVisitor {
+
+        private String violation;
+
+        ReferenceVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        private void reference(String owner, String member, String descriptor) {
+            if (violation == null) {
+                violation = check(owner, member, descriptor);
+            }
+        }
+
+        private void reference(Handle handle) {
+            reference(handle.getOwner(), handle.getName(), handle.getTag() <= Opcodes.H_PUTSTATIC ? null : handle.getDesc());
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            reference(superName, null, null);
+            if (interfaces != null) {
+                for (String anInterface : interfaces) {
+                    reference(anInterface, null, null);
+                }
+            }
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                    reference(owner, name, descriptor);
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                    reference(owner, name, null);
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    reference(type, null, null);
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+                    reference(descriptor, null, null);
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (value instanceof Type) {
+                        reference(((Type) value).getDescriptor().startsWith("L")
+                                ? ((Type) value).getInternalName() : ((Type) value).getDescriptor(), null, null);
+                    } else if (value instanceof Handle) {
+                        reference((Handle) value);
+                    }
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                   Object... bootstrapMethodArguments) {
+                    // 引导方法本身（如 LambdaMetafactory）由编译器生成，只检查方法引用指向的目标
+                    for (Object argument : bootstrapMethodArguments) {
+                        if (argument instanceof Handle) {
+                            reference((Handle) argument);
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * 一条匹配规则
+     */
+    private static class Rule {
+
+        private final String className;
+
+        private final boolean packagePrefix;
+
+        private final String member;
+
+        private final boolean memberPrefix;
+
+        private Rule(String className, boolean packagePrefix, String member, boolean memberPrefix) {
+            this.className = className;
+            this.packagePrefix = packagePrefix;
+            this.member = member;
+            this.memberPrefix = memberPrefix;
+        }
+
+        static Rule parse(String rule) {
+            String classPart = StrUtil.subBefore(rule.trim(), "#", false);
+            String memberPart = rule.contains("#") ? StrUtil.subAfter(rule.trim(), "#", false) : null;
+            boolean packagePrefix = classPart.endsWith(".*");
+            if (packagePrefix) {
+                classPart = classPart.substring(0, classPart.length() - 1);
+            }
+            boolean memberPrefix = memberPart != null && memberPart.endsWith("*");
+            if (memberPrefix) {
+                memberPart = memberPart.substring(0, memberPart.length() - 1);
+            }
+            return new Rule(classPart, packagePrefix, memberPart, memberPrefix);
+        }
+
+        boolean matches(String referencedClass, String referencedMember, String referencedDescriptor) {
+            boolean classMatched = packagePrefix ? referencedClass.startsWith(className) : referencedClass.equals(className);
+            if (!classMatched) {
+                return false;
+            }
+            if (member == null) {
+                return true;
+            }
+            if (referencedMember == null) {
+                return false;
+            }
+            // 规则带参数描述符时按方法名加描述符匹配，字段引用没有描述符
+            if (member.indexOf('(') >= 0) {
+                if (referencedDescriptor == null) {
+                    return false;
+                }
+                referencedMember = referencedMember + referencedDescriptor;
+            }
+            return memberPrefix ? referencedMember.startsWith(member) : referencedMember.equals(member);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.vv.voj.security;
+
+/**
+ * 用户代码中使用了禁止的类或方法
+ */
+public class ForbiddenOperationException extends RuntimeException {
+
+    public ForbiddenOperationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.vv.voj.trace;
+
+import com.vv.voj.model.TraceEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次提交的追踪记录
+ * 各阶段线程并发写入，区间数超过上限后丢弃并计数，避免用例很多的提交占满内存
+ */
+public class SubmissionTrace {
+
+    private final String submissionId;
+
+    private final int maxSpans;
+
+    /**
+     * 以纳秒计时，导出时换算为墙钟微秒，便于与其他进程的追踪对齐
+     */
+    private final long startNanos;
+
+    private final long startEpochMicros;
+
+    private final ConcurrentLinkedQueue<TraceEvent> events = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger spanCount = new AtomicInteger();
+
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+    public SubmissionTrace(String submissionId, int maxSpans) {
+        this.submissionId = submissionId;
+        this.maxSpans = maxSpans;
+        this.startNanos = System.nanoTime();
+        this.startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    /**
+     * 记录一个区间，线程为当前线程
+     *
+     * @param name       区间名
+     * @param beginNanos 开始时间（System.nanoTime）
+     * @param endNanos   结束时间（System.nanoTime）
+     * @param args       附加参数，可以为 null
+     */
+    public void record(String name, long beginNanos, long endNanos, Map<String, Object> args) {
+        if (spanCount.incrementAndGet() > maxSpans) {
+            dropped.incrementAndGet();
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        threadNames.putIfAbsent(thread.getId(), thread.getName());
+        TraceEvent event = new TraceEvent();
+        event.setName(name);
+        int dot = name.indexOf('.');
+        event.setCat(dot > 0 ? name.substring(0, dot) : name);
+        event.setPh("X");
+        event.setTs(toEpochMicros(beginNanos));
+        event.setDur(Math.max(0L, TimeUnit.NANOSECONDS.toMicros(endNanos - beginNanos)));
+        event.setPid(1L);
+        event.setTid(thread.getId());
+        event.setArgs(args);
+        events.add(event);
+    }
+
+    public void record(String name, long beginNanos, long endNanos) {
+        record(name, beginNanos, endNanos, null);
+    }
+
+    /**
+     * 导出为 Chrome trace 事件，附带进程名和线程名的元数据事件
+     */
+    public List<TraceEvent> toTraceEvents() {
+        List<TraceEvent> traceEvents = new ArrayList<>();
+        traceEvents.add(TraceEvent.metadata("process_name", 1L, null, "voj-sandbox " + submissionId));
+        threadNames.forEach((tid, threadName) -> traceEvents.add(TraceEvent.metadata("thread_name", 1L, tid, threadName)));
+        List<TraceEvent> spans = new ArrayList<>(events);
+        spans.sort((a, b) -> Long.compare(a.getTs(), b.getTs()));
+        traceEvents.addAll(spans);
+        return Collections.unmodifiableList(traceEvents);
+    }
+
+    private long toEpochMicros(long nanos) {
+        return startEpochMicros + TimeUnit.NANOSECONDS.toMicros(nanos - startNanos);
+    }
+
+    public String getSubmissionId() {
+        return submissionId;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    public int getDropped() {
+        return dropped.get();
+    }
+}
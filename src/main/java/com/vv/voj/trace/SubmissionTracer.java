@@ -0,0 +1,107 @@
+package com.vv.voj.trace;
+
+import com.vv.voj.config.SandboxProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @Title: 提交级追踪
+ * 按采样率为提交开启追踪，追踪保存在固定大小的环形缓冲区中，新的覆盖最旧的，
+ * 可按提交 ID 导出为 Chrome trace / Perfetto JSON
+ * @Author: vv
+ * @Date: 2025/8/16 10:30
+ */
+@Component
+public class SubmissionTracer {
+
+    private final SandboxProperties.Trace properties;
+
+    private final AtomicReferenceArray<SubmissionTrace> ring;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final Map<String, SubmissionTrace> index = new ConcurrentHashMap<>();
+
+    public SubmissionTracer(SandboxProperties sandboxProperties) {
+        this.properties = sandboxProperties.getTrace();
+        this.ring = new AtomicReferenceArray<>(Math.max(1, properties.getCapacity()));
+    }
+
+    /**
+     * 为提交开启追踪
+     *
+     * @param submissionId 提交 ID
+     * @return 追踪记录，未开启或未被采样时返回 null
+     */
+    public SubmissionTrace start(String submissionId) {
+        if (!properties.isEnabled() || submissionId == null) {
+            return null;
+        }
+        SubmissionTrace existing = index.get(submissionId);
+        if (existing != null) {
+            return existing;
+        }
+        if (ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return null;
+        }
+        SubmissionTrace trace = new SubmissionTrace(submissionId, properties.getMaxSpans());
+        index.put(submissionId, trace);
+        int slot = (int) (cursor.getAndIncrement() % ring.length());
+        SubmissionTrace evicted = ring.getAndSet(slot, trace);
+        if (evicted != null) {
+            index.remove(evicted.getSubmissionId(), evicted);
+        }
+        return trace;
+    }
+
+    /**
+     * 查询进行中或已结束的追踪，未被采样或已被覆盖时返回 null
+     */
+    public SubmissionTrace get(String submissionId) {
+        return submissionId == null ? null : index.get(submissionId);
+    }
+
+    /**
+     * 导出为 Chrome trace JSON 对象格式
+     *
+     * @param submissionId 提交 ID
+     * @return 包含 traceEvents 的对象，没有追踪时返回 null
+     */
+    public Map<String, Object> export(String submissionId) {
+        SubmissionTrace trace = get(submissionId);
+        if (trace == null) {
+            return null;
+        }
+        Map<String, Object> otherData = new LinkedHashMap<>();
+        otherData.put("submissionId", submissionId);
+        otherData.put("droppedSpans", trace.getDropped());
+        Map<String, Object> chromeTrace = new LinkedHashMap<>();
+        chromeTrace.put("traceEvents", trace.toTraceEvents());
+        chromeTrace.put("displayTimeUnit", "ms");
+        chromeTrace.put("otherData", otherData);
+        return chromeTrace;
+    }
+
+    /**
+     * 缓冲区中的提交 ID，最新的在前
+     */
+    public List<String> recentSubmissionIds() {
+        List<String> submissionIds = new ArrayList<>();
+        long end = cursor.get();
+        for (long i = end - 1; i >= 0 && i >= end - ring.length(); i--) {
+            SubmissionTrace trace = ring.get((int) (i % ring.length()));
+            if (trace != null) {
+                submissionIds.add(trace.getSubmissionId());
+            }
+        }
+        return submissionIds;
+    }
+}
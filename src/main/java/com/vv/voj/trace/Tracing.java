@@ -0,0 +1,109 @@
+package com.vv.voj.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Title: 线程内的追踪上下文
+ * 流水线各阶段在执行前激活本次提交的追踪，之后沙箱里的任何位置都可以直接记录区间，
+ * 未被采样或未激活时返回空区间，开销只有一次 ThreadLocal 读取
+ * @Author: vv
+ * @Date: 2025/8/16 10:10
+ */
+public final class Tracing {
+
+    private static final ThreadLocal<SubmissionTrace> CURRENT = new ThreadLocal<>();
+
+    private static final Span NOOP = new Span(null, null);
+
+    private Tracing() {
+    }
+
+    /**
+     * 当前线程上激活的追踪，没有时返回 null
+     */
+    public static SubmissionTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程上激活追踪，关闭时恢复之前的状态
+     *
+     * @param trace 本次提交的追踪，为 null 时清除
+     * @return 作用域
+     */
+    public static Scope activate(SubmissionTrace trace) {
+        SubmissionTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 开始一个区间，关闭时记录到当前追踪
+     *
+     * @param name 区间名，点号前的部分作为分类，例如 docker.exec
+     * @return 区间
+     */
+    public static Span span(String name) {
+        SubmissionTrace trace = CURRENT.get();
+        if (trace == null) {
+            return NOOP;
+        }
+        return new Span(trace, name);
+    }
+
+    /**
+     * 激活作用域，关闭时不抛出受检异常
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * 一个计时区间
+     */
+    public static class Span implements AutoCloseable {
+
+        private final SubmissionTrace trace;
+
+        private final String name;
+
+        private final long startNanos;
+
+        private Map<String, Object> args;
+
+        private Span(SubmissionTrace trace, String name) {
+            this.trace = trace;
+            this.name = name;
+            this.startNanos = trace == null ? 0L : System.nanoTime();
+        }
+
+        /**
+         * 附加参数，在 Perfetto 中选中区间时显示
+         */
+        public Span arg(String key, Object value) {
+            if (trace != null) {
+                if (args == null) {
+                    args = new LinkedHashMap<>();
+                }
+                args.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) {
+                trace.record(name, startNanos, System.nanoTime(), args);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.vv.voj.utils;
+
+import com.vv.voj.log.EventLog;
+import cn.hutool.core.util.ArrayUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Frame;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docker exec 工具类
+ * 记录每次 exec 在容器内的进程号，超时只结束该进程树，不影响容器本身
+ */
+public class DockerExecUtils {
+
+    /**
+     * 输出的第一行是进程号，用于区分用户程序的输出
+     */
+    private static final String PID_SCRIPT = "echo $$; exec \"$@\"";
+
+    /**
+     * 先设置 CPU 时间限制再 exec（先降软限制再降硬限制）：软限制到达时收到 SIGXCPU（退出码 152），
+     * 忽略 SIGXCPU 的程序在硬限制（多留 1 秒）到达时被 SIGKILL，退出码同样是 137
+     */
+    private static final String PID_CPU_LIMIT_SCRIPT = "echo $$; ulimit -S -t %d; ulimit -H -t %d; exec \"$@\"";
+
+    /**
+     * 超出 CPU 时间限制（SIGXCPU）时的退出码
+     */
+    public static final int EXIT_CPU_LIMIT = 128 + 24;
+
+    /**
+     * 被 SIGKILL 结束时的退出码，可能是内存超限，也可能是 CPU 时间硬限制，需要 OOM 事件确认
+     */
+    public static final int EXIT_KILLED = 128 + 9;
+
+    private static final long KILL_TIME_OUT = 2000L;
+
+    /**
+     * 递归找出进程树中的所有进程并先暂停，防止遍历期间继续创建子进程或父进程退出后子进程被过继，
+     * 最后一起 SIGKILL；pkill -P 只能结束直接子进程，孙进程会残留
+     */
+    private static final String KILL_TREE_SCRIPT =
+            "t() { kill -STOP $1 2>/dev/null; echo $1; for c in $(pgrep -P $1); do t $c; done; }; kill -9 $(t %d) 2>/dev/null";
+
+    /**
+     * 包装执行命令：先输出 shell 的进程号，再 exec 替换为真正的程序，进程号保持不变
+     *
+     * @param command 原始命令
+     * @return 包装后的命令
+     */
+    public static String[] wrapWithPid(String[] command) {
+        return ArrayUtil.append(new String[]{"sh", "-c", PID_SCRIPT, "sh"}, command);
+    }
+
+    /**
+     * 包装执行命令并限制 CPU 时间
+     *
+     * @param command    原始命令
+     * @param cpuSeconds CPU 时间上限(秒)，不大于 0 时不限制
+     * @return 包装后的命令
+     */
+    public static String[] wrapWithPid(String[] command, long cpuSeconds) {
+        if (cpuSeconds <= 0) {
+            return wrapWithPid(command);
+        }
+        String script = String.format(PID_CPU_LIMIT_SCRIPT, cpuSeconds, cpuSeconds + 1);
+        return ArrayUtil.append(new String[]{"sh", "-c", script, "sh"}, command);
+    }
+
+    /**
+     * 获取 exec 的退出码，尚未结束时返回 null
+     */
+    public static Long getExitCode(DockerClient dockerClient, String execId) {
+        try {
+            return dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 结束容器内指定进程及其所有后代进程
+     *
+     * @param dockerClient
+     * @param containerId
+     * @param pid          容器内的进程号
+     * @return 是否执行成功
+     */
+    public static boolean killProcessTree(DockerClient dockerClient, String containerId, long pid) {
+        String killScript = String.format(KILL_TREE_SCRIPT, pid);
+        try {
+            ExecCreateCmdResponse killCmd = dockerClient.execCreateCmd(containerId)
+                    .withCmd("sh", "-c", killScript)
+                    .exec();
+            return dockerClient.execStartCmd(killCmd.getId())
+                    .exec(new ResultCallback.Adapter<Frame>())
+                    .awaitCompletion(KILL_TIME_OUT, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            EventLog.warn("docker", "结束容器内进程失败", "containerId", containerId, "pid", pid, e);
+            return false;
+        }
+    }
+
+    /**
+     * 检查容器是否仍在运行
+     */
+    public static boolean isContainerRunning(DockerClient dockerClient, String containerId) {
+        try {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(containerId).exec();
+            return response.getState() != null && Boolean.TRUE.equals(response.getState().getRunning());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 从输出中剥离第一行的进程号
+     * 由于帧可能在任意位置截断，需要累积到换行符后再解析
+     */
+    public static class PidOutputParser {
+
+        private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+
+        private volatile long pid = -1L;
+
+        private boolean parsed = false;
+
+        /**
+         * 处理一段标准输出，返回去掉进程号后剩余的部分
+         * 按字节处理，避免多字节字符被帧截断后解码出错；进程号一行只含 ASCII 字符，可以直接按字节查找换行
+         */
+        public synchronized byte[] accept(byte[] chunk) {
+            if (parsed) {
+                return chunk;
+            }
+            int lineEnd = -1;
+            for (int i = 0; i < chunk.length; i++) {
+                if (chunk[i] == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if (lineEnd < 0) {
+                head.write(chunk, 0, chunk.length);
+                return new byte[0];
+            }
+            parsed = true;
+            byte[] rest = Arrays.copyOfRange(chunk, lineEnd + 1, chunk.length);
+            head.write(chunk, 0, lineEnd);
+            try {
+                pid = Long.parseLong(new String(head.toByteArray(), StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException e) {
+                // 没有拿到进程号时不丢弃输出
+                head.write('\n');
+                return ArrayUtil.addAll(head.toByteArray(), rest);
+            }
+            return rest;
+        }
+
+        public long getPid() {
+            return pid;
+        }
+    }
+}
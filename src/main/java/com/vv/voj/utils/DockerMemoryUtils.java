@@ -1,5 +1,6 @@
 package com.vv.voj.utils;
 
+import com.vv.voj.log.EventLog;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.StatsCmd;
@@ -44,7 +45,7 @@ public class DockerMemoryUtils {
                                 try {
                                     close();
                                 } catch (IOException e) {
-                                    e.printStackTrace();
+                                    EventLog.warn("docker", "关闭内存监控失败", "containerId", containerId, e);
                                 }
                                 return;
                             }
@@ -57,13 +58,13 @@ public class DockerMemoryUtils {
                                     }
                                 }
                             } catch (Exception e) {
-                                e.printStackTrace();
+                                EventLog.warn("docker", "解析内存统计失败", "containerId", containerId, e);
                             }
                         }
 
                         @Override
                         public void onError(Throwable throwable) {
-                            System.err.println("内存监控异常: " + throwable.getMessage());
+                            EventLog.warn("docker", "内存监控异常", "containerId", containerId, throwable);
                         }
 
                         @Override
@@ -83,7 +84,7 @@ public class DockerMemoryUtils {
                     }
 
                 } catch (Exception e) {
-                    System.err.println("内存监控线程启动失败: " + e.getMessage());
+                    EventLog.warn("docker", "内存监控线程启动失败", "containerId", containerId, e);
                 }
             });
 
@@ -137,7 +138,7 @@ public class DockerMemoryUtils {
 
             @Override
             public void onError(Throwable throwable) {
-                System.err.println("一次性内存获取失败: " + throwable.getMessage());
+                EventLog.warn("docker", "一次性内存获取失败", "containerId", containerId, throwable);
                 synchronized (lock) {
                     lock.notify();
                 }
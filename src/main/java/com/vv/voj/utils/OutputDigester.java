@@ -0,0 +1,218 @@
+package com.vv.voj.utils;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.OutputDigest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 输出摘要计算器
+ * 边读取输出边计算，不在内存中保留完整输出
+ * 规范化规则与判题比对一致：去掉每行行尾的空白（空格、制表符、\r），忽略末尾的空行；
+ * 行内连续空白只暂存有限的字节，超出后先写入摘要，确认是行尾空白时回滚到写入前的状态
+ */
+public class OutputDigester {
+
+    public static final String OUTPUT_MODE_DIGEST = "digest";
+
+    /**
+     * 预览最大长度，避免请求方传入过大的值
+     */
+    private static final int MAX_PREVIEW_LENGTH = 4096;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 暂存行内空白的上限，超过后先按正文写入摘要，遇到换行或结束时回滚
+     */
+    private static final int MAX_PENDING_BLANK = 256;
+
+    private MessageDigest sha256;
+
+    private final int previewLength;
+
+    private final ByteArrayOutputStream preview = new ByteArrayOutputStream();
+
+    /**
+     * 待写入摘要的字节，攒满后批量更新
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int buffered = 0;
+
+    /**
+     * 当前行中尚未确定是否为行尾的空白
+     */
+    private final byte[] pendingBlank = new byte[MAX_PENDING_BLANK];
+
+    private int pendingBlankCount = 0;
+
+    /**
+     * 尚未确定是否为末尾空行的换行数
+     */
+    private long pendingNewlines = 0;
+
+    private long length = 0;
+
+    /**
+     * 空白超过上限时的回滚点：写入这些空白之前的摘要状态，为 null 表示没有待确认的空白
+     */
+    private MessageDigest rollbackDigest;
+
+    private long rollbackLength;
+
+    private int rollbackPreviewSize;
+
+    private long rollbackNewlines;
+
+    public OutputDigester(int previewLength) {
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.previewLength = Math.max(0, Math.min(previewLength, MAX_PREVIEW_LENGTH));
+    }
+
+    /**
+     * 根据请求创建摘要计算器，非摘要模式返回 null
+     */
+    public static OutputDigester forRequest(ExecuteCodeRequest request) {
+        if (request == null || !OUTPUT_MODE_DIGEST.equalsIgnoreCase(request.getOutputMode())) {
+            return null;
+        }
+        Integer previewLength = request.getPreviewLength();
+        return new OutputDigester(previewLength == null ? 0 : previewLength);
+    }
+
+    /**
+     * 计算一段文本的规范化摘要，用于和程序输出比较
+     */
+    public static OutputDigest digest(String text) {
+        OutputDigester digester = new OutputDigester(0);
+        digester.update(text.getBytes(StandardCharsets.UTF_8));
+        return digester.finish();
+    }
+
+    public synchronized void update(byte[] bytes) {
+        update(bytes, 0, bytes.length);
+    }
+
+    public synchronized void update(byte[] bytes, int offset, int len) {
+        for (int i = offset; i < offset + len; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                // 行尾空白不计入摘要
+                rollback();
+                pendingBlankCount = 0;
+                pendingNewlines++;
+            } else if (b == ' ' || b == '\t' || b == '\r') {
+                if (rollbackDigest != null) {
+                    emit(b);
+                } else if (pendingBlankCount < MAX_PENDING_BLANK) {
+                    pendingBlank[pendingBlankCount++] = b;
+                } else {
+                    speculate();
+                    emit(b);
+                }
+            } else {
+                // 出现有效字符，之前暂存的换行和行内空白都属于正文
+                rollbackDigest = null;
+                emitPending();
+                emit(b);
+            }
+        }
+    }
+
+    /**
+     * 读取整个输入流并计算摘要
+     */
+    public void consume(InputStream inputStream) throws IOException {
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(chunk)) != -1) {
+            update(chunk, 0, read);
+        }
+    }
+
+    /**
+     * 结束计算，丢弃末尾的空白与空行
+     */
+    public synchronized OutputDigest finish() {
+        rollback();
+        flush();
+        String hex = HexUtil.encodeHexStr(sha256.digest());
+        String previewText = previewLength > 0 ? StrUtil.str(preview.toByteArray(), StandardCharsets.UTF_8) : null;
+        return new OutputDigest(hex, length, previewText);
+    }
+
+    /**
+     * 空白过多时记下回滚点，把暂存的换行和空白按正文写入，之后的空白直接写入
+     */
+    private void speculate() {
+        flush();
+        try {
+            rollbackDigest = (MessageDigest) sha256.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        rollbackLength = length;
+        rollbackPreviewSize = preview.size();
+        rollbackNewlines = pendingNewlines;
+        emitPending();
+    }
+
+    /**
+     * 回滚点之后写入的都是行尾空白，恢复到写入前的状态
+     */
+    private void rollback() {
+        if (rollbackDigest == null) {
+            return;
+        }
+        sha256 = rollbackDigest;
+        rollbackDigest = null;
+        buffered = 0;
+        length = rollbackLength;
+        if (preview.size() > rollbackPreviewSize) {
+            byte[] kept = preview.toByteArray();
+            preview.reset();
+            preview.write(kept, 0, rollbackPreviewSize);
+        }
+        pendingNewlines = rollbackNewlines;
+    }
+
+    private void emitPending() {
+        for (; pendingNewlines > 0; pendingNewlines--) {
+            emit((byte) '\n');
+        }
+        for (int i = 0; i < pendingBlankCount; i++) {
+            emit(pendingBlank[i]);
+        }
+        pendingBlankCount = 0;
+    }
+
+    private void emit(byte b) {
+        length++;
+        if (preview.size() < previewLength) {
+            preview.write(b);
+        }
+        buffer[buffered++] = b;
+        if (buffered == BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (buffered > 0) {
+            sha256.update(buffer, 0, buffered);
+            buffered = 0;
+        }
+    }
+}
@@ -1,16 +1,189 @@
 package com.vv.voj.utils;
 
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
+import com.vv.voj.log.EventLog;
 import com.vv.voj.model.ExecuteMessage;
+import lombok.Data;
 import org.springframework.util.StopWatch;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 进程工具类
  */
 public class ProcessUtils {
 
+    /**
+     * 读取进程输出的后台线程
+     */
+    private static final ExecutorService OUTPUT_READER = Executors.newCachedThreadPool(
+            ThreadFactoryBuilder.create().setNamePrefix("output-reader-").setDaemon(true).build());
+
+    /**
+     * /proc/[pid]/stat 中 CPU 时间的单位
+     */
+    private static volatile long clockTicks = -1;
+
+    /**
+     * 获取进程号，Java 9 及以上使用 Process.pid()，Java 8 读取 UNIXProcess 的 pid 字段
+     *
+     * @param process
+     * @return 进程号，获取失败返回 -1
+     */
+    public static long getPid(Process process) {
+        try {
+            Method pidMethod = Process.class.getMethod("pid");
+            return (Long) pidMethod.invoke(process);
+        } catch (NoSuchMethodException e) {
+            try {
+                Field pidField = process.getClass().getDeclaredField("pid");
+                pidField.setAccessible(true);
+                return pidField.getLong(process);
+            } catch (Exception ex) {
+                return -1;
+            }
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 采样进程的 CPU 时间(ms)和内存峰值(kb)
+     *
+     * @param pid
+     * @return {CPU 时间, 内存峰值}，进程已退出或不是 Linux 时返回 null
+     */
+    public static long[] sampleUsage(long pid) {
+        if (pid <= 0) {
+            return null;
+        }
+        try {
+            // /proc 下的文件大小为 0，需要读到流结束
+            String stat = new String(Files.readAllBytes(Paths.get("/proc/" + pid + "/stat")), StandardCharsets.UTF_8);
+            // 进程名可能含空格，从最后一个右括号之后开始解析，utime、stime 是其后的第 12、13 个字段
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long cpuTime = (Long.parseLong(fields[11]) + Long.parseLong(fields[12])) * 1000 / getClockTicks();
+            String status = new String(Files.readAllBytes(Paths.get("/proc/" + pid + "/status")), StandardCharsets.UTF_8);
+            String hwm = ReUtil.getGroup1("VmHWM:\\s+(\\d+)", status);
+            return new long[]{cpuTime, hwm == null ? 0 : Long.parseLong(hwm)};
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 等待进程结束，同时按 CPU 时间限时，墙钟时间兜底（进程阻塞不消耗 CPU 时也能结束）
+     *
+     * @param runProcess
+     * @param cpuLimit       CPU 时间上限(ms)
+     * @param wallLimit      墙钟时间上限(ms)
+     * @param sampleInterval 采样间隔(ms)
+     * @return 资源使用情况
+     */
+    public static ProcessUsage waitForWithLimits(Process runProcess, long cpuLimit, long wallLimit, long sampleInterval)
+            throws InterruptedException {
+        ProcessUsage usage = new ProcessUsage();
+        long pid = getPid(runProcess);
+        long start = System.currentTimeMillis();
+        while (!runProcess.waitFor(sampleInterval, TimeUnit.MILLISECONDS)) {
+            long[] sample = sampleUsage(pid);
+            if (sample != null) {
+                usage.setCpuTime(sample[0]);
+                usage.setPeakMemory(Math.max(usage.getPeakMemory(), sample[1]));
+                if (sample[0] > cpuLimit) {
+                    usage.setCpuExceeded(true);
+                    runProcess.destroyForcibly();
+                    break;
+                }
+            }
+            if (System.currentTimeMillis() - start > wallLimit) {
+                usage.setWallExceeded(true);
+                runProcess.destroyForcibly();
+                break;
+            }
+        }
+        runProcess.waitFor();
+        usage.setWallTime(System.currentTimeMillis() - start);
+        // 取不到进程号时没有 CPU 时间，退化为墙钟时间
+        if (pid <= 0) {
+            usage.setCpuTime(usage.getWallTime());
+        }
+        return usage;
+    }
+
+    private static long getClockTicks() {
+        if (clockTicks < 0) {
+            long ticks = 100;
+            try {
+                Process process = Runtime.getRuntime().exec(new String[]{"getconf", "CLK_TCK"});
+                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                ticks = Long.parseLong(StrUtil.trim(reader.readLine()));
+            } catch (Exception e) {
+                // 大多数 Linux 上为 100
+            }
+            clockTicks = ticks;
+        }
+        return clockTicks;
+    }
+
+    /**
+     * 进程的资源使用情况
+     */
+    @Data
+    public static class ProcessUsage {
+
+        /**
+         * CPU 时间(ms)
+         */
+        private long cpuTime;
+
+        /**
+         * 墙钟时间(ms)
+         */
+        private long wallTime;
+
+        /**
+         * 内存峰值(kb)
+         */
+        private long peakMemory;
+
+        private boolean cpuExceeded;
+
+        private boolean wallExceeded;
+
+        public boolean isTimeExceeded() {
+            return cpuExceeded || wallExceeded;
+        }
+    }
+
+    /**
+     * 在后台边运行边读取进程的正常输出并计算摘要
+     * 输出不在内存中累积，也不会因为管道写满而阻塞进程
+     *
+     * @param runProcess
+     * @param digester
+     * @return 读取完成的 Future
+     */
+    public static Future<?> digestOutputAsync(Process runProcess, OutputDigester digester) {
+        return OUTPUT_READER.submit(() -> {
+            try (InputStream inputStream = runProcess.getInputStream()) {
+                digester.consume(inputStream);
+            }
+            return null;
+        });
+    }
+
     /**
      * 执行进程并获取信息
      *
@@ -29,7 +202,7 @@ public class ProcessUtils {
             executeMessage.setExitValue(exitValue);
             // 正常退出
             if (exitValue == 0) {
-                System.out.println(opName + "成功");
+                EventLog.debug("process", opName + "成功");
                 // 分批获取进程的正常输出
                 BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
                 StringBuilder compileOutputStringBuilder = new StringBuilder();
@@ -41,7 +214,7 @@ public class ProcessUtils {
                 executeMessage.setMessage(compileOutputStringBuilder.toString());
             } else {
                 // 异常退出
-                System.out.println(opName + "失败，错误码： " + exitValue);
+                EventLog.debug("process", opName + "失败", "exitValue", exitValue);
                 // 分批获取进程的正常输出
                 BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(runProcess.getInputStream()));
                 StringBuilder compileOutputStringBuilder = new StringBuilder();
@@ -66,7 +239,7 @@ public class ProcessUtils {
             stopWatch.stop();
             executeMessage.setTime(stopWatch.getLastTaskTimeMillis());
         } catch (Exception e) {
-            e.printStackTrace();
+            EventLog.warn("process", "读取进程输出失败", "op", opName, e);
         }
         return executeMessage;
     }
@@ -107,7 +280,7 @@ public class ProcessUtils {
             inputStream.close();
             runProcess.destroy();
         } catch (Exception e) {
-            e.printStackTrace();
+            EventLog.error("process", "交互进程执行失败", e);
         }
         return executeMessage;
     }
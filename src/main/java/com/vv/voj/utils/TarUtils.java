@@ -0,0 +1,63 @@
+package com.vv.voj.utils;
+
+import cn.hutool.core.io.FileUtil;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * tar 打包工具类，全部在内存中完成，不落地临时文件
+ */
+public class TarUtils {
+
+    /**
+     * 读取目录下编译好的 class 文件
+     *
+     * @param classDir 编译输出目录
+     * @return 文件名 -> 字节码
+     */
+    public static Map<String, byte[]> readClassFiles(File classDir) {
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        File[] files = classDir.listFiles((dir, name) -> name.endsWith(".class"));
+        if (files == null) {
+            return classFiles;
+        }
+        for (File file : files) {
+            classFiles.put(file.getName(), FileUtil.readBytes(file));
+        }
+        return classFiles;
+    }
+
+    /**
+     * 把文件打包到 tar 中的指定目录下
+     *
+     * @param dirName 包内目录名
+     * @param files   文件名 -> 内容
+     * @return tar 字节流
+     */
+    public static byte[] buildTar(String dirName, Map<String, byte[]> files) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(byteArrayOutputStream)) {
+            tarOutputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            TarArchiveEntry dirEntry = new TarArchiveEntry(dirName + "/");
+            tarOutputStream.putArchiveEntry(dirEntry);
+            tarOutputStream.closeArchiveEntry();
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                TarArchiveEntry entry = new TarArchiveEntry(dirName + "/" + file.getKey());
+                entry.setSize(file.getValue().length);
+                tarOutputStream.putArchiveEntry(entry);
+                tarOutputStream.write(file.getValue());
+                tarOutputStream.closeArchiveEntry();
+            }
+            tarOutputStream.finish();
+        } catch (IOException e) {
+            throw new RuntimeException("打包 class 文件失败", e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,242 @@
+package com.vv.voj.wire;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.vv.voj.config.SandboxProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * @Title: 请求体解压与 zstd 响应压缩
+ * 请求体支持 Content-Encoding: gzip / zstd，解压在读取时流式进行；
+ * 客户端接受 zstd 时响应用 zstd 压缩，gzip 响应压缩交给 Tomcat（server.compression）；
+ * 解压后的大小有上限，防止很小的压缩包展开成巨大的请求体
+ * @Author: vv
+ * @Date: 2025/8/14 14:10
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private static final String ZSTD = "zstd";
+
+    private final long maxDecompressedSize;
+
+    public CompressionFilter(SandboxProperties sandboxProperties) {
+        this.maxDecompressedSize = sandboxProperties.getWire().getMaxDecompressedSize();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (GZIP.equalsIgnoreCase(contentEncoding)) {
+            request = new DecompressingRequest(request, new GZIPInputStream(request.getInputStream(), 64 * 1024),
+                    maxDecompressedSize);
+        } else if (ZSTD.equalsIgnoreCase(contentEncoding)) {
+            request = new DecompressingRequest(request, new ZstdInputStream(request.getInputStream()), maxDecompressedSize);
+        }
+
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || !acceptEncoding.toLowerCase().contains(ZSTD)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ZstdResponse zstdResponse = new ZstdResponse(response);
+        try {
+            filterChain.doFilter(request, zstdResponse);
+        } finally {
+            zstdResponse.finish();
+        }
+    }
+
+    private static class DecompressingRequest extends HttpServletRequestWrapper {
+
+        private final ServletInputStream inputStream;
+
+        private DecompressingRequest(HttpServletRequest request, InputStream decompressed, long maxSize) {
+            super(request);
+            this.inputStream = new ServletInputStream() {
+
+                private long total = 0;
+
+                @Override
+                public int read() throws IOException {
+                    int b = decompressed.read();
+                    if (b >= 0) {
+                        count(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = decompressed.read(b, off, len);
+                    if (read > 0) {
+                        count(read);
+                    }
+                    return read;
+                }
+
+                private void count(int read) throws IOException {
+                    total += read;
+                    if (total > maxSize) {
+                        throw new IOException("请求体解压后超过 " + maxSize + " 字节");
+                    }
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return false;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            // 解压后下游看到的是原始内容
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+    }
+
+    private static class ZstdResponse extends HttpServletResponseWrapper {
+
+        private ZstdOutputStream zstdOutputStream;
+
+        private ServletOutputStream servletOutputStream;
+
+        private PrintWriter writer;
+
+        private ZstdResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (servletOutputStream == null) {
+                OutputStream compressed = open();
+                servletOutputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        compressed.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        compressed.write(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+            return servletOutputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), encoding));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            // 压缩后长度未知
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (zstdOutputStream != null) {
+                zstdOutputStream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        private OutputStream open() throws IOException {
+            if (zstdOutputStream == null) {
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, ZSTD);
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                zstdOutputStream = new ZstdOutputStream(response.getOutputStream());
+            }
+            return zstdOutputStream;
+        }
+
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (zstdOutputStream != null) {
+                zstdOutputStream.close();
+            }
+        }
+    }
+}
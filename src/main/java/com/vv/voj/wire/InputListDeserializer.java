@@ -0,0 +1,65 @@
+package com.vv.voj.wire;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Title: inputList 流式解析
+ * 逐个读取数组元素，总大小超过阈值后后续元素直接写入临时文件，不在内存中构造完整的 List<String>；
+ * 基于 JsonParser 实现，JSON、CBOR、Smile 都适用；落盘文件归解析时绑定的 {@link SpoolScope} 所有
+ * @Author: vv
+ * @Date: 2025/8/14 10:45
+ */
+public class InputListDeserializer extends JsonDeserializer<List<String>> {
+
+    /**
+     * 超过 1MB 的输入落盘
+     */
+    private static final long SPOOL_THRESHOLD = 1024 * 1024L;
+
+    @Override
+    public List<String> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return context.reportInputMismatch(List.class, "inputList 必须是数组");
+        }
+        List<String> inputList = new ArrayList<>();
+        SpooledInputList.Writer spoolWriter = null;
+        long totalSize = 0;
+        JsonToken token;
+        try {
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    return context.reportInputMismatch(List.class, "inputList 不完整");
+                }
+                String input = token == JsonToken.VALUE_NULL ? "" : parser.getValueAsString();
+                if (spoolWriter != null) {
+                    spoolWriter.add(input);
+                    continue;
+                }
+                inputList.add(input);
+                totalSize += input.length();
+                if (totalSize > SPOOL_THRESHOLD) {
+                    // 转为落盘，已解析的部分先写入
+                    spoolWriter = SpooledInputList.writer();
+                    for (String parsed : inputList) {
+                        spoolWriter.add(parsed);
+                    }
+                    inputList = null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 数组没有解析完，临时文件不会交给任何人，在这里删除
+            if (spoolWriter != null) {
+                spoolWriter.abort();
+            }
+            throw e;
+        }
+        return spoolWriter == null ? inputList : spoolWriter.finish();
+    }
+}
@@ -0,0 +1,84 @@
+package com.vv.voj.wire;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Title: 落盘输入的归属
+ * 请求入口创建作用域并在解析请求时绑定到当前线程，解析中落盘的输入用例都归该作用域所有；
+ * 入口在请求结束时（包括解析失败、被拒绝、转发）关闭作用域并删除这些临时文件，执行流水线只借用，不负责删除
+ * @Author: vv
+ * @Date: 2025/8/24 10:00
+ */
+public final class SpoolScope implements Closeable {
+
+    private static final ThreadLocal<SpoolScope> CURRENT = new ThreadLocal<>();
+
+    private final List<SpooledInputList> spooledLists = new ArrayList<>();
+
+    private boolean closed = false;
+
+    /**
+     * 绑定到当前线程，之后在该线程上落盘的输入归本作用域所有，关闭绑定时恢复
+     */
+    public Binding bind() {
+        SpoolScope previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 登记到当前线程绑定的作用域；没有作用域时由调用方自行关闭
+     */
+    static void register(SpooledInputList spooledList) {
+        SpoolScope scope = CURRENT.get();
+        if (scope != null) {
+            scope.add(spooledList);
+        }
+    }
+
+    /**
+     * 接管在作用域之外解析出的输入列表，不是落盘列表时不做任何事
+     */
+    public void adopt(List<String> inputList) {
+        if (inputList instanceof SpooledInputList) {
+            add((SpooledInputList) inputList);
+        }
+    }
+
+    private synchronized void add(SpooledInputList spooledList) {
+        if (closed) {
+            spooledList.close();
+            return;
+        }
+        spooledLists.add(spooledList);
+    }
+
+    /**
+     * 删除本作用域内所有落盘的输入
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (SpooledInputList spooledList : spooledLists) {
+            spooledList.close();
+        }
+        spooledLists.clear();
+    }
+
+    /**
+     * 线程绑定，关闭时不抛出受检异常
+     */
+    public interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.vv.voj.wire;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 每个请求一个落盘作用域：请求体解析时落盘的输入用例，无论执行、被拒绝、转发还是解析失败，都在请求结束时删除
+ */
+@Component
+public class SpoolScopeFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (SpoolScope spoolScope = new SpoolScope(); SpoolScope.Binding ignored = spoolScope.bind()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.vv.voj.wire;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * @Title: 落盘的输入用例列表
+ * 超大的 inputList 在解析时逐条写入临时文件，只在内存中保留每条的偏移量，运行某个用例时再按需读取；
+ * 创建时登记到当前线程的 {@link SpoolScope}，由请求入口负责删除
+ * @Author: vv
+ * @Date: 2025/8/14 10:20
+ */
+public class SpooledInputList extends AbstractList<String> implements RandomAccess, Closeable {
+
+    private final File file;
+
+    private final long[] offsets;
+
+    private RandomAccessFile reader;
+
+    private SpooledInputList(File file, long[] offsets) throws IOException {
+        this.file = file;
+        this.offsets = offsets;
+        this.reader = new RandomAccessFile(file, "r");
+    }
+
+    public static Writer writer() throws IOException {
+        return new Writer(File.createTempFile("voj-input-", ".spool"));
+    }
+
+    /**
+     * 重新打开已有的落盘文件，用于重放预写日志中的提交；逐条读取长度重建偏移量
+     */
+    public static SpooledInputList open(File file) throws IOException {
+        long[] offsets = new long[1024];
+        int size = 0;
+        long position = 0;
+        long length = file.length();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            while (position < length) {
+                int entryLength = input.readInt();
+                if (entryLength < 0 || position + 4 + entryLength > length) {
+                    throw new EOFException("输入用例文件不完整：" + file);
+                }
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, size * 2);
+                }
+                offsets[size++] = position;
+                input.skipBytes(entryLength);
+                position += 4 + entryLength;
+            }
+        }
+        SpooledInputList spooledList = new SpooledInputList(file, Arrays.copyOf(offsets, size));
+        SpoolScope.register(spooledList);
+        return spooledList;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized String get(int index) {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + offsets.length);
+        }
+        if (reader == null) {
+            throw new IllegalStateException("输入用例文件已关闭");
+        }
+        try {
+            reader.seek(offsets[index]);
+            byte[] bytes = new byte[reader.readInt()];
+            reader.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("读取输入用例失败", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * 关闭并删除临时文件
+     */
+    @Override
+    public synchronized void close() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+            reader = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * 逐条写入输入用例
+     */
+    public static class Writer {
+
+        private final File file;
+
+        private final DataOutputStream output;
+
+        private long[] offsets = new long[1024];
+
+        private int size = 0;
+
+        private long position = 0;
+
+        private Writer(File file) throws IOException {
+            this.file = file;
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        }
+
+        public void add(String input) throws IOException {
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = position;
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            position += 4 + bytes.length;
+        }
+
+        public SpooledInputList finish() throws IOException {
+            output.close();
+            SpooledInputList spooledList = new SpooledInputList(file, Arrays.copyOf(offsets, size));
+            SpoolScope.register(spooledList);
+            return spooledList;
+        }
+
+        /**
+         * 解析失败时放弃写入并删除文件
+         */
+        public void abort() {
+            try {
+                output.close();
+            } catch (IOException ignored) {
+            }
+            file.delete();
+        }
+    }
+}
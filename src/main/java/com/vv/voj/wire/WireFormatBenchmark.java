@@ -0,0 +1,117 @@
+package com.vv.voj.wire;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import com.vv.voj.model.ExecuteCodeRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @Title: 传输格式测试
+ * 用大批量输入用例对比 JSON、CBOR、Smile 的体积和编解码耗时，以及 gzip、zstd 压缩后的体积和耗时
+ * @Author: vv
+ * @Date: 2025/8/14 16:40
+ */
+public class WireFormatBenchmark {
+
+    private static final int INPUT_COUNT = 20000;
+
+    private static final int NUMBERS_PER_INPUT = 20;
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        List<String> inputList = new ArrayList<>(INPUT_COUNT);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int j = 0; j < NUMBERS_PER_INPUT; j++) {
+                input.append(ThreadLocalRandom.current().nextInt(1_000_000)).append(' ');
+            }
+            inputList.add(input.toString().trim());
+        }
+        request.setInputList(inputList);
+        request.setCode("public class Main { public static void main(String[] args) {} }");
+        request.setLanguage("java");
+
+        run("JSON", new ObjectMapper(new JsonFactory()), request);
+        run("CBOR", new ObjectMapper(new CBORFactory()), request);
+        run("Smile", new ObjectMapper(new SmileFactory()), request);
+    }
+
+    private static void run(String name, ObjectMapper objectMapper, ExecuteCodeRequest request) throws IOException {
+        byte[] encoded = objectMapper.writeValueAsBytes(request);
+        long encodeTime = 0;
+        long decodeTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoded = objectMapper.writeValueAsBytes(request);
+            encodeTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            ExecuteCodeRequest decoded = objectMapper.readValue(encoded, ExecuteCodeRequest.class);
+            decodeTime += System.nanoTime() - start;
+            if (decoded.getInputList() instanceof Closeable) {
+                ((Closeable) decoded.getInputList()).close();
+            }
+        }
+
+        long gzipTime = 0;
+        long gunzipTime = 0;
+        byte[] gzipped = null;
+        long zstdTime = 0;
+        long unzstdTime = 0;
+        byte[] zstd = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            gzipped = gzip(encoded);
+            gzipTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            gunzip(gzipped);
+            gunzipTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            zstd = Zstd.compress(encoded, 3);
+            zstdTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            Zstd.decompress(zstd, encoded.length);
+            unzstdTime += System.nanoTime() - start;
+        }
+        System.out.printf("%-6s 大小 %8d B，编码 %6.2f ms，解码 %6.2f ms | gzip %8d B（%.2f/%.2f ms） | zstd %8d B（%.2f/%.2f ms）%n",
+                name, encoded.length, ms(encodeTime), ms(decodeTime),
+                gzipped.length, ms(gzipTime), ms(gunzipTime), zstd.length, ms(zstdTime), ms(unzstdTime));
+    }
+
+    private static double ms(long totalNanos) {
+        return totalNanos / 1_000_000.0 / ROUNDS;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output)) {
+            gzipOutputStream.write(data);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = gzipInputStream.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * 机器速度校准程序
+ * 输出：固定计算量的耗时(ms) JVM 启动消耗的 CPU 时间(ms) 校验值
+ */
+public class Calibration {
+
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        long startupCpu = startupCpuMillis();
+        long start = System.nanoTime();
+        long checksum = work();
+        long workMillis = (System.nanoTime() - start) / 1000000;
+        System.out.println(workMillis + " " + startupCpu + " " + checksum);
+    }
+
+    /**
+     * 整数运算与数组访问混合的固定计算量，与大多数题目的瓶颈接近
+     */
+    private static long work() {
+        int[] table = new int[1 << 16];
+        long x = 1;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < table.length; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+                int index = (int) (x >>> 48);
+                table[index] += i ^ round;
+            }
+        }
+        long checksum = 0;
+        for (int value : table) {
+            checksum = checksum * 31 + value;
+        }
+        return checksum;
+    }
+
+    private static long startupCpuMillis() {
+        java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime() / 1000000;
+        }
+        return 0;
+    }
+}
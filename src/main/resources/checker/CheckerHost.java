@@ -0,0 +1,67 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * 特判检查器宿主，常驻运行，逐行读取检查请求
+ * 请求：检查器目录\t输入文件\t输出文件\t答案文件
+ * 响应：检查器标准输出的第一行，出错时为 FAIL 开头的一行
+ * 每次检查使用新的类加载器，检查器的静态状态不会带到下一次
+ */
+public class CheckerHost {
+
+    public static void main(String[] args) throws Exception {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        System.setOut(discard);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        // 标准输入用于接收请求，不能让检查器读到
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split("\t", -1);
+            String result;
+            if (parts.length != 4) {
+                result = "FAIL 请求格式错误";
+            } else {
+                result = check(parts);
+            }
+            System.setOut(discard);
+            protocol.println(result.replace('\r', ' ').replace('\n', ' '));
+        }
+    }
+
+    private static String check(String[] parts) {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{new File(parts[0]).toURI().toURL()},
+                CheckerHost.class.getClassLoader())) {
+            PrintStream out = new PrintStream(captured, true, "UTF-8");
+            System.setOut(out);
+            Class<?> checkerClass = loader.loadClass("Checker");
+            Method main = checkerClass.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[]{parts[1], parts[2], parts[3]});
+            out.flush();
+            String output = new String(captured.toByteArray(), "UTF-8").trim();
+            int lineEnd = output.indexOf('\n');
+            return lineEnd < 0 ? output : output.substring(0, lineEnd).trim();
+        } catch (InvocationTargetException e) {
+            return "FAIL " + e.getCause();
+        } catch (Throwable e) {
+            return "FAIL " + e;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 对拍宿主，常驻运行，逐行读取运行请求
+ * 请求：class 目录\t参数1\t参数2...
+ * 响应：OK 标准输出的 Base64 / RE 异常 / OLE（输出超限）
+ * 每次运行使用新的类加载器，静态状态不会带到下一次；main 返回后和普通 JVM 一样等待程序启动的非守护线程结束，
+ * 之后仍有程序启动的线程存活时在响应前加上 LEAK，这些线程会写入下一次运行的输出，调用方应换一个新的宿主
+ */
+public class StressHost {
+
+    /**
+     * 单次运行最多保留的输出字节数
+     */
+    private static final int MAX_OUTPUT = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+        System.setOut(discard);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        // 标准输入用于接收请求，不能让被运行的程序读到
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split("\t", -1);
+            Set<Thread> before = new HashSet<>(Thread.getAllStackTraces().keySet());
+            String result = run(parts[0], Arrays.copyOfRange(parts, 1, parts.length), before);
+            System.setOut(discard);
+            protocol.println(startedThreads(before, true).isEmpty() ? result : "LEAK " + result);
+        }
+    }
+
+    private static String run(String classDir, String[] programArgs, Set<Thread> before) {
+        LimitedOutputStream captured = new LimitedOutputStream();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{new File(classDir).toURI().toURL()},
+                StressHost.class.getClassLoader())) {
+            PrintStream out = new PrintStream(captured, false, "UTF-8");
+            System.setOut(out);
+            Method main = loader.loadClass("Main").getMethod("main", String[].class);
+            main.invoke(null, (Object) programArgs);
+            Set<Thread> running;
+            while (!(running = startedThreads(before, false)).isEmpty()) {
+                for (Thread thread : running) {
+                    thread.join();
+                }
+            }
+            out.flush();
+            if (captured.overflow) {
+                return "OLE";
+            }
+            return "OK " + Base64.getEncoder().encodeToString(captured.toByteArray());
+        } catch (InvocationTargetException e) {
+            return "RE " + oneLine(String.valueOf(e.getCause()));
+        } catch (Throwable e) {
+            return "RE " + oneLine(String.valueOf(e));
+        }
+    }
+
+    /**
+     * 本次运行启动且仍存活的线程
+     *
+     * @param includeDaemon 是否包含守护线程
+     */
+    private static Set<Thread> startedThreads(Set<Thread> before, boolean includeDaemon) {
+        Set<Thread> started = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (!before.contains(thread) && thread.isAlive() && (includeDaemon || !thread.isDaemon())) {
+                started.add(thread);
+            }
+        }
+        return started;
+    }
+
+    private static String oneLine(String text) {
+        return text.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private static class LimitedOutputStream extends ByteArrayOutputStream {
+
+        private boolean overflow = false;
+
+        @Override
+        public synchronized void write(int b) {
+            if (count >= MAX_OUTPUT) {
+                overflow = true;
+                return;
+            }
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = MAX_OUTPUT - count;
+            if (len > room) {
+                overflow = true;
+                len = Math.max(0, room);
+            }
+            super.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.vv.voj;
+
+import cn.hutool.core.io.FileUtil;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteCodeResponse;
+import com.vv.voj.model.ExecuteMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 不启动 Spring，直接编译运行一个回显参数的程序，验证 failFast 的停止条件
+ */
+class JavaNativeCodeSandboxTest {
+
+    private static final String ECHO_CODE = "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        System.out.println(args[0]);\n"
+            + "    }\n"
+            + "}\n";
+
+    private JavaNativeCodeSandbox sandbox;
+
+    private File userCodeFile;
+
+    @BeforeEach
+    void setUp() {
+        sandbox = new JavaNativeCodeSandbox();
+        userCodeFile = sandbox.saveUserCodeFile(ECHO_CODE);
+        sandbox.compileMessage(userCodeFile);
+    }
+
+    @AfterEach
+    void tearDown() {
+        FileUtil.del(userCodeFile.getParentFile());
+    }
+
+    @Test
+    void wrongAnswerOnFirstTestSkipsTheRest() {
+        ExecuteCodeRequest request = request(true, "9", "2", "3");
+
+        List<ExecuteMessage> executeMessages = sandbox.runCode(request, userCodeFile, null);
+
+        assertEquals(1, executeMessages.size());
+        assertEquals(JavaCodeSandboxTemplate.WRONG_ANSWER, executeMessages.get(0).getErrorMessage());
+        ExecuteCodeResponse response = sandbox.getOutputResponseList(executeMessages);
+        assertEquals("答案错误", response.getStatus());
+        assertEquals("答案错误", response.getJudgeInfo().getMessage());
+    }
+
+    @Test
+    void wrongAnswerWithoutFailFastRunsEveryTest() {
+        List<ExecuteMessage> executeMessages = sandbox.runCode(request(false, "9", "2", "3"), userCodeFile, null);
+
+        assertEquals(3, executeMessages.size());
+        assertNull(executeMessages.get(0).getErrorMessage());
+    }
+
+    @Test
+    void matchingAnswersRunEveryTest() {
+        List<ExecuteMessage> executeMessages = sandbox.runCode(request(true, "1 ", "2", "3\n"), userCodeFile, null);
+
+        assertEquals(3, executeMessages.size());
+        assertEquals("成功", sandbox.getOutputResponseList(executeMessages).getStatus());
+    }
+
+    private static ExecuteCodeRequest request(boolean failFast, String... answers) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setInputList(Arrays.asList("1", "2", "3"));
+        request.setAnswerList(Arrays.asList(answers));
+        request.setFailFast(failFast);
+        return request;
+    }
+}
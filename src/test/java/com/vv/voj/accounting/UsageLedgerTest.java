@@ -0,0 +1,145 @@
+package com.vv.voj.accounting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.TenantUsageStats;
+import com.vv.voj.model.UsageRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 账本写在临时目录，跨周期通过传入之后的时间模拟
+ */
+class UsageLedgerTest {
+
+    private static final long WINDOW_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    File dir;
+
+    private SandboxProperties sandboxProperties;
+
+    private UsageLedger ledger;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getAccounting().setDir(dir.getAbsolutePath());
+        sandboxProperties.getAccounting().setWindowMinutes(TimeUnit.MILLISECONDS.toMinutes(WINDOW_MILLIS));
+        SandboxProperties.Quota quota = new SandboxProperties.Quota();
+        quota.setCpuMillis(1000);
+        quota.setAction(UsageLedger.ACTION_REJECT);
+        sandboxProperties.getAccounting().getQuotas().put("t1", quota);
+        ledger = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ledger.close();
+    }
+
+    @Test
+    void exceedingQuotaRejectsUntilWindowRollsOver() {
+        ledger.record("t1", usage(600));
+        assertDoesNotThrow(() -> ledger.checkQuota("t1"));
+        ledger.record("t1", usage(600));
+        assertTrue(ledger.isOverBudget("t1"));
+        assertThrows(RuntimeException.class, () -> ledger.checkQuota("t1"));
+
+        ledger.flush(System.currentTimeMillis() + WINDOW_MILLIS);
+
+        assertFalse(ledger.isOverBudget("t1"));
+        TenantUsageStats stats = ledger.getTenantUsageStats().get(0);
+        assertEquals(0, stats.getUsage().getCpuMillis());
+        assertTrue(stats.getWindowStart() > System.currentTimeMillis());
+        assertDoesNotThrow(() -> ledger.checkQuota("t1"));
+    }
+
+    @Test
+    void newWindowCountsOnlyNewUsage() {
+        ledger.record("t1", usage(900));
+        ledger.flush(System.currentTimeMillis() + WINDOW_MILLIS);
+
+        ledger.record("t1", usage(500));
+        assertFalse(ledger.isOverBudget("t1"));
+        assertEquals(500, ledger.getTenantUsageStats().get(0).getUsage().getCpuMillis());
+        ledger.record("t1", usage(500));
+        assertTrue(ledger.isOverBudget("t1"));
+    }
+
+    @Test
+    void rolloverDeltaIsRecordedInPreviousWindow() throws IOException {
+        long now = System.currentTimeMillis();
+        ledger.record("t1", usage(300));
+        ledger.flush(now + WINDOW_MILLIS);
+        long newWindowStart = ledger.getTenantUsageStats().get(0).getWindowStart();
+
+        List<UsageRecord> previous = ledger.query("t1", 0, newWindowStart, TimeUnit.MILLISECONDS.toMinutes(WINDOW_MILLIS) * 2);
+        List<UsageRecord> current = ledger.query("t1", newWindowStart, Long.MAX_VALUE, 1);
+
+        assertEquals(1, previous.size());
+        assertEquals(300, previous.get(0).getCpuMillis());
+        assertTrue(current.isEmpty());
+    }
+
+    @Test
+    void reopenRestoresCurrentWindowUsage() throws IOException {
+        ledger.record("t1", usage(700));
+        ledger.record("t2", usage(50));
+        ledger.close();
+
+        ledger = open();
+        ledger.record("t1", usage(400));
+
+        assertTrue(ledger.isOverBudget("t1"));
+        assertEquals(1100, ledger.getTenantUsageStats().get(0).getUsage().getCpuMillis());
+        // 重启后只追加新的增量，不会重复记账
+        List<UsageRecord> records = ledger.query("t1", 0, Long.MAX_VALUE, TimeUnit.MILLISECONDS.toMinutes(WINDOW_MILLIS) * 4);
+        assertEquals(1100, records.stream().mapToLong(UsageRecord::getCpuMillis).sum());
+    }
+
+    @Test
+    void tenantIdleForWholeWindowIsDropped() {
+        long now = System.currentTimeMillis();
+        ledger.record("t1", usage(100));
+        ledger.record("t2", usage(100));
+        ledger.flush(now + WINDOW_MILLIS);
+        assertEquals(2, ledger.getTenantUsageStats().size());
+
+        // 新周期内只有 t2 有用量，再跨周期时回收 t1
+        ledger.record("t2", usage(100));
+        ledger.flush(now + 2 * WINDOW_MILLIS);
+
+        List<TenantUsageStats> stats = ledger.getTenantUsageStats();
+        assertEquals(1, stats.size());
+        assertEquals("t2", stats.get(0).getTenant());
+        ledger.record("t1", usage(1200));
+        assertTrue(ledger.isOverBudget("t1"));
+    }
+
+    private UsageLedger open() throws IOException {
+        UsageLedger usageLedger = new UsageLedger(sandboxProperties, new ObjectMapper());
+        usageLedger.open();
+        return usageLedger;
+    }
+
+    private static UsageRecord usage(long cpuMillis) {
+        UsageRecord usageRecord = new UsageRecord();
+        usageRecord.setSubmissions(1);
+        usageRecord.setCpuMillis(cpuMillis);
+        return usageRecord;
+    }
+}
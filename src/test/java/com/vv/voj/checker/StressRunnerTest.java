@@ -0,0 +1,285 @@
+package com.vv.voj.checker;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.StressCase;
+import com.vv.voj.model.StressRequest;
+import com.vv.voj.model.StressResponse;
+import com.vv.voj.scheduler.AdaptiveConcurrencyLimiter;
+import com.vv.voj.scheduler.CpuCoreAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 搜索和缩小用假的用例运行器验证，宿主协议和完整对拍用真实的宿主 JVM 验证
+ */
+class StressRunnerTest {
+
+    private static final String GENERATOR = "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        java.util.Random random = new java.util.Random(Long.parseLong(args[0]));\n"
+            + "        StringBuilder input = new StringBuilder();\n"
+            + "        for (int i = Integer.parseInt(args[1]); i > 0; i--) {\n"
+            + "            input.append(random.nextInt(100)).append(' ');\n"
+            + "        }\n"
+            + "        System.out.println(input);\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String SUM = "public class Main {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        long sum = 0;\n"
+            + "        for (String arg : args) {\n"
+            + "            sum += Long.parseLong(arg);\n"
+            + "        }\n"
+            + "        System.out.println(sum);\n"
+            + "    }\n"
+            + "}\n";
+
+    private SandboxProperties sandboxProperties;
+
+    private StressRunner stressRunner;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getCpu().setPinning(false);
+        sandboxProperties.getStress().setThreads(2);
+        sandboxProperties.getStress().setShrinkSeeds(5);
+        stressRunner = new StressRunner(sandboxProperties, null, null, null, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stressRunner.shutdown();
+    }
+
+    @Test
+    void searchRunsEveryCaseWhenNothingFails() {
+        StressRunner.SearchResult result = stressRunner.search(Arrays.asList(failFrom(Integer.MAX_VALUE), failFrom(Integer.MAX_VALUE)),
+                50, index -> new long[]{index, 1});
+
+        assertNull(result.failure);
+        assertNull(result.fatalStatus);
+        assertEquals(50, result.casesRun);
+    }
+
+    @Test
+    void laterCaseFailingFirstIsReplacedByLowerIndex() {
+        // 用例 3 等到用例 4 失败之后才返回失败，结果仍应是用例 3
+        CountDownLatch fourFailed = new CountDownLatch(1);
+        StressRunner.CaseRunner runner = (seed, size) -> {
+            if (seed == 3) {
+                await(fourFailed);
+                return failure(seed, size);
+            }
+            if (seed == 4) {
+                fourFailed.countDown();
+                return failure(seed, size);
+            }
+            return null;
+        };
+
+        StressRunner.SearchResult result = stressRunner.search(Arrays.asList(runner, runner), 100, index -> new long[]{index, 1});
+
+        assertEquals(3, result.failureIndex);
+        assertEquals(3, result.failure.getSeed());
+        assertTrue(result.casesRun < 100);
+    }
+
+    @Test
+    void abortStopsSearchWithStatus() {
+        StressRunner.CaseRunner runner = (seed, size) -> {
+            if (seed == 2) {
+                throw new StressRunner.StressAbortException(StressRunner.STATUS_GENERATOR_ERROR, "生成器出错");
+            }
+            return null;
+        };
+
+        StressRunner.SearchResult result = stressRunner.search(Collections.singletonList(runner), 10, index -> new long[]{index, 1});
+
+        assertEquals(StressRunner.STATUS_GENERATOR_ERROR, result.fatalStatus);
+        assertEquals(2, result.casesRun);
+        assertNull(result.failure);
+    }
+
+    @Test
+    void shrinkReturnsSmallestFailingSize() {
+        StressCase minimal = stressRunner.shrink(Arrays.asList(failFrom(4), failFrom(4)), failure(0, 10), 1, 1000);
+
+        assertEquals(4, minimal.getSize());
+    }
+
+    @Test
+    void shrinkKeepsOriginalFailureWhenBudgetRunsOut() {
+        // 每个规模 5 个种子，预算只够规模 1、2
+        sandboxProperties.getStress().setMaxShrinkRuns(10);
+        StressCase original = failure(0, 10);
+
+        assertEquals(original, stressRunner.shrink(Collections.singletonList(failFrom(4)), original, 1, 1000));
+    }
+
+    @Test
+    void hostProtocol() throws Exception {
+        CheckerRunner checkerRunner = new CheckerRunner(sandboxProperties);
+        File hostDir = checkerRunner.compile(ResourceUtil.readStr("stress/StressHost.java", StandardCharsets.UTF_8), "StressHost").join();
+        ExecutorService ioExecutor = Executors.newCachedThreadPool();
+        CheckerHostProcess host = CheckerHostProcess.start(hostDir, "StressHost", 64);
+        try {
+            File sum = compile(checkerRunner, SUM);
+            assertEquals("OK " + base64("6\n"), host.call(sum + "\t1\t2\t3", 10000, ioExecutor));
+            assertEquals("OK " + base64("0\n"), host.call(sum.getAbsolutePath(), 10000, ioExecutor));
+            assertTrue(host.call(sum + "\tx", 10000, ioExecutor).startsWith("RE java.lang.NumberFormatException"));
+
+            File counter = compile(checkerRunner, "public class Main {\n"
+                    + "    static int runs;\n"
+                    + "    public static void main(String[] args) {\n"
+                    + "        System.out.println(++runs);\n"
+                    + "    }\n"
+                    + "}\n");
+            // 每次运行新的类加载器，静态状态不保留
+            assertEquals("OK " + base64("1\n"), host.call(counter.getAbsolutePath(), 10000, ioExecutor));
+            assertEquals("OK " + base64("1\n"), host.call(counter.getAbsolutePath(), 10000, ioExecutor));
+
+            File flood = compile(checkerRunner, "public class Main {\n"
+                    + "    public static void main(String[] args) {\n"
+                    + "        for (int i = 0; i < 300000; i++) {\n"
+                    + "            System.out.print(\"1234\");\n"
+                    + "        }\n"
+                    + "    }\n"
+                    + "}\n");
+            assertEquals("OLE", host.call(flood.getAbsolutePath(), 10000, ioExecutor));
+
+            // main 先返回，非守护线程的输出仍算在本次运行里
+            File worker = compile(checkerRunner, "public class Main {\n"
+                    + "    public static void main(String[] args) {\n"
+                    + "        new Thread(() -> {\n"
+                    + "            try { Thread.sleep(100); } catch (InterruptedException e) { }\n"
+                    + "            System.out.println(\"late\");\n"
+                    + "        }).start();\n"
+                    + "    }\n"
+                    + "}\n");
+            assertEquals("OK " + base64("late\n"), host.call(worker.getAbsolutePath(), 10000, ioExecutor));
+
+            File daemon = compile(checkerRunner, "public class Main {\n"
+                    + "    public static void main(String[] args) {\n"
+                    + "        Thread thread = new Thread(() -> {\n"
+                    + "            try { Thread.sleep(60000); } catch (InterruptedException e) { }\n"
+                    + "        });\n"
+                    + "        thread.setDaemon(true);\n"
+                    + "        thread.start();\n"
+                    + "        System.out.println(\"done\");\n"
+                    + "    }\n"
+                    + "}\n");
+            assertEquals("LEAK OK " + base64("done\n"), host.call(daemon.getAbsolutePath(), 10000, ioExecutor));
+        } finally {
+            host.destroy();
+            ioExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runFindsAndShrinksCounterexample() {
+        String candidate = SUM.replace("System.out.println(sum);", "System.out.println(args.length >= 5 ? sum + 1 : sum);");
+
+        StressResponse response = realRunner().run(request(candidate, 20));
+
+        assertEquals(StressRunner.STATUS_FOUND, response.getStatus());
+        assertTrue(response.getFirstFailure().getSize() >= 5);
+        assertEquals(5, response.getMinimalFailure().getSize());
+        assertEquals(CheckerRunner.VERDICT_WRONG_ANSWER, response.getMinimalFailure().getMessage());
+    }
+
+    @Test
+    void leakedThreadDoesNotPolluteLaterRuns() {
+        sandboxProperties.getStress().setThreads(1);
+        // 守护线程等本次运行结束后才开始打印，不换宿主时会混进之后运行的输出
+        String candidate = SUM.replace("System.out.println(sum);", "System.out.println(sum);\n"
+                + "        java.io.PrintStream captured = System.out;\n"
+                + "        Thread thread = new Thread(() -> {\n"
+                + "            while (System.out == captured) {\n"
+                + "                try { Thread.sleep(1); } catch (InterruptedException e) { return; }\n"
+                + "            }\n"
+                + "            for (int i = 0; i < 2000; i++) {\n"
+                + "                System.out.print(\"x\");\n"
+                + "                try { Thread.sleep(1); } catch (InterruptedException e) { return; }\n"
+                + "            }\n"
+                + "        });\n"
+                + "        thread.setDaemon(true);\n"
+                + "        thread.start();");
+
+        StressResponse response = realRunner().run(request(candidate, 5));
+
+        assertEquals(StressRunner.STATUS_PASSED, response.getStatus(), response.getMessage());
+        assertEquals(5, response.getCasesRun());
+    }
+
+    private StressRunner realRunner() {
+        stressRunner.shutdown();
+        CpuCoreAllocator cpuCoreAllocator = new CpuCoreAllocator(sandboxProperties);
+        stressRunner = new StressRunner(sandboxProperties, new CheckerRunner(sandboxProperties), null,
+                new AdaptiveConcurrencyLimiter(sandboxProperties, cpuCoreAllocator, null), cpuCoreAllocator);
+        return stressRunner;
+    }
+
+    private static StressRequest request(String candidate, int cases) {
+        StressRequest request = new StressRequest();
+        request.setGeneratorCode(GENERATOR);
+        request.setReferenceCode(SUM);
+        request.setCandidateCode(candidate);
+        request.setCases(cases);
+        request.setSeed(1L);
+        request.setMinSize(1);
+        request.setMaxSize(20);
+        return request;
+    }
+
+    private static File compile(CheckerRunner checkerRunner, String source) {
+        File dir = checkerRunner.compile(source, "Main").join();
+        assertNotNull(dir);
+        return dir;
+    }
+
+    private static String base64(String output) {
+        return Base64.getEncoder().encodeToString(output.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 规模达到 minFailingSize 的用例都失败
+     */
+    private static StressRunner.CaseRunner failFrom(int minFailingSize) {
+        return (seed, size) -> size >= minFailingSize ? failure(seed, size) : null;
+    }
+
+    private static StressCase failure(long seed, int size) {
+        StressCase stressCase = new StressCase();
+        stressCase.setSeed(seed);
+        stressCase.setSize(size);
+        stressCase.setMessage(CheckerRunner.VERDICT_WRONG_ANSWER);
+        return stressCase;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vv.voj.cluster;
+
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.NodeInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 只验证心跳鉴权和重试判定，不发出真实请求
+ */
+class ClusterCoordinatorTest {
+
+    private SandboxProperties sandboxProperties;
+
+    private ClusterCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getCluster().setRole("coordinator");
+        coordinator = new ClusterCoordinator(sandboxProperties, new RestTemplateBuilder());
+    }
+
+    @Test
+    void heartbeatIsRejectedWithoutTokenOrAllowList() {
+        assertThrows(RuntimeException.class, () -> coordinator.heartbeat(node("http://a:8090"), null));
+        assertTrue(coordinator.getNodes().isEmpty());
+    }
+
+    @Test
+    void heartbeatNeedsMatchingToken() {
+        sandboxProperties.getCluster().setToken("secret");
+
+        assertThrows(RuntimeException.class, () -> coordinator.heartbeat(node("http://a:8090"), "guess"));
+        assertThrows(RuntimeException.class, () -> coordinator.heartbeat(node("http://a:8090"), null));
+        assertDoesNotThrow(() -> coordinator.heartbeat(node("http://a:8090"), "secret"));
+        assertEquals(1, coordinator.getNodes().size());
+    }
+
+    @Test
+    void allowListLimitsNodeUrls() {
+        sandboxProperties.getCluster().setToken("secret");
+        sandboxProperties.getCluster().getAllowedNodeUrls().add("http://a:8090");
+
+        assertThrows(RuntimeException.class, () -> coordinator.heartbeat(node("http://169.254.169.254"), "secret"));
+        assertDoesNotThrow(() -> coordinator.heartbeat(node("http://a:8090"), "secret"));
+    }
+
+    @Test
+    void onlyConnectFailuresAreRetried() {
+        assertTrue(ClusterCoordinator.isConnectFailure(
+                new ResourceAccessException("refused", new ConnectException("Connection refused"))));
+        assertTrue(ClusterCoordinator.isConnectFailure(
+                new ResourceAccessException("timeout", new SocketTimeoutException("connect timed out"))));
+        assertFalse(ClusterCoordinator.isConnectFailure(
+                new ResourceAccessException("timeout", new SocketTimeoutException("Read timed out"))));
+    }
+
+    private static NodeInfo node(String url) {
+        NodeInfo nodeInfo = new NodeInfo();
+        nodeInfo.setNodeId(url);
+        nodeInfo.setUrl(url);
+        nodeInfo.setFreeSlots(1);
+        return nodeInfo;
+    }
+}
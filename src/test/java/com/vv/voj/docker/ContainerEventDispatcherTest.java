@@ -0,0 +1,122 @@
+package com.vv.voj.docker;
+
+import com.vv.voj.config.SandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用手动推送事件的事件源验证分发逻辑，不依赖 Docker
+ */
+class ContainerEventDispatcherTest {
+
+    private StubEventSource eventSource;
+
+    private ContainerEventDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        eventSource = new StubEventSource();
+        dispatcher = new ContainerEventDispatcher(new SandboxProperties(), eventSource,
+                new SandboxContainerPool(new SandboxProperties()));
+    }
+
+    @Test
+    void execDieGoesOnlyToMatchingExec() {
+        ContainerEventDispatcher.ExecWatch first = dispatcher.watch("c1", "e1");
+        ContainerEventDispatcher.ExecWatch second = dispatcher.watch("c1", "e2");
+
+        ContainerEvent event = new ContainerEvent(ContainerEvent.Type.EXEC_DIE, "c1", "e1", 0L);
+        eventSource.push(event);
+
+        assertSame(event, first.getEvent().getNow(null));
+        assertFalse(second.getEvent().isDone());
+    }
+
+    @Test
+    void oomAndDieGoToAllExecsInContainer() {
+        ContainerEventDispatcher.ExecWatch first = dispatcher.watch("c1", "e1");
+        ContainerEventDispatcher.ExecWatch second = dispatcher.watch("c1", "e2");
+        ContainerEventDispatcher.ExecWatch other = dispatcher.watch("c2", "e3");
+
+        eventSource.push(new ContainerEvent(ContainerEvent.Type.OOM, "c1", null, null));
+
+        assertEquals(ContainerEvent.Type.OOM, first.getEvent().getNow(null).getType());
+        assertEquals(ContainerEvent.Type.OOM, second.getEvent().getNow(null).getType());
+        assertFalse(other.getEvent().isDone());
+
+        eventSource.push(new ContainerEvent(ContainerEvent.Type.DIE, "c2", null, 137L));
+        assertEquals(ContainerEvent.Type.DIE, other.getEvent().getNow(null).getType());
+    }
+
+    @Test
+    void oomAfterExecDieIsStillRecorded() {
+        ContainerEventDispatcher.ExecWatch watch = dispatcher.watch("c1", "e1");
+
+        eventSource.push(new ContainerEvent(ContainerEvent.Type.EXEC_DIE, "c1", "e1", 137L));
+        assertFalse(watch.getOom().isDone());
+        eventSource.push(new ContainerEvent(ContainerEvent.Type.OOM, "c1", null, null));
+
+        assertEquals(ContainerEvent.Type.EXEC_DIE, watch.getEvent().getNow(null).getType());
+        assertTrue(watch.getOom().isDone());
+    }
+
+    @Test
+    void closedWatchNoLongerReceivesEvents() {
+        ContainerEventDispatcher.ExecWatch watch = dispatcher.watch("c1", "e1");
+        watch.close();
+
+        eventSource.push(new ContainerEvent(ContainerEvent.Type.EXEC_DIE, "c1", "e1", 0L));
+
+        assertNull(watch.getEvent().getNow(null));
+    }
+
+    @Test
+    void singleSubscriptionIsSharedAndRenewedAfterClose() {
+        dispatcher.watch("c1", "e1");
+        dispatcher.watch("c2", "e2");
+        assertEquals(1, eventSource.subscriptions);
+        assertTrue(dispatcher.isSubscribed());
+
+        eventSource.disconnect(new RuntimeException("连接断开"));
+        assertFalse(dispatcher.isSubscribed());
+
+        dispatcher.watch("c1", "e3");
+        assertEquals(2, eventSource.subscriptions);
+        assertTrue(dispatcher.isSubscribed());
+    }
+
+    private static class StubEventSource implements DockerEventSource {
+
+        private Consumer<ContainerEvent> listener;
+
+        private Consumer<Throwable> onClose;
+
+        private int subscriptions = 0;
+
+        @Override
+        public Closeable subscribe(Consumer<ContainerEvent> listener, Consumer<Throwable> onClose) {
+            this.listener = listener;
+            this.onClose = onClose;
+            subscriptions++;
+            return () -> {
+            };
+        }
+
+        void push(ContainerEvent event) {
+            listener.accept(event);
+        }
+
+        void disconnect(Throwable e) {
+            onClose.accept(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.vv.voj.ordering;
+
+import com.vv.voj.model.TestFailStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 开放寻址表在扩容前后计数不变，写入后可以原样读回
+ */
+class ProblemTestStatsTest {
+
+    @Test
+    void recordThatTriggersResizeCountsEveryTest() {
+        ProblemTestStats stats = new ProblemTestStats();
+        // 一次提交中的新用例超过初始容量的一半，记录过程中会扩容
+        long[] hashes = hashes(1, 40);
+        stats.record(hashes, hashes.length - 1, false);
+
+        assertEquals(40, stats.size());
+        List<TestFailStats> top = stats.topFailing(5);
+        assertEquals(1, top.size());
+        assertEquals(1, top.get(0).getRuns());
+        assertEquals(1, top.get(0).getFirstFails());
+        assertEquals(0.5, stats.failRate(hashes[39]));
+        assertEquals(0, stats.failRate(hashes[0]));
+    }
+
+    @Test
+    void countsSurviveRepeatedResizes() {
+        ProblemTestStats stats = new ProblemTestStats();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 200; i++) {
+                // 每个用例单独提交，下标为 3 的倍数的用例失败
+                stats.record(new long[]{hash(i)}, i % 3 == 0 ? 0 : -1, false);
+            }
+        }
+
+        assertEquals(200, stats.size());
+        assertEquals(600, stats.getSubmissions());
+        assertEquals(3 * 67, stats.getRejected());
+        assertEquals(3 / 4.0, stats.failRate(hash(0)));
+        assertEquals(0, stats.failRate(hash(1)));
+    }
+
+    @Test
+    void zeroHashIsTracked() {
+        ProblemTestStats stats = new ProblemTestStats();
+        stats.record(new long[]{0L, 5L}, 0, true);
+
+        assertEquals(0.5, stats.failRate(0L));
+        assertEquals(1, stats.getReorderedRejected());
+        assertEquals(2, stats.getReorderedRejectedTests());
+    }
+
+    @Test
+    void writeThenReadRestoresCounts() throws IOException {
+        ProblemTestStats stats = new ProblemTestStats();
+        long[] hashes = hashes(100, 30);
+        stats.record(hashes, 3, true);
+        stats.record(hashes, -1, false);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.write(new DataOutputStream(bytes));
+        ProblemTestStats restored = ProblemTestStats.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(stats.size(), restored.size());
+        assertEquals(2, restored.getSubmissions());
+        assertEquals(1, restored.getRejected());
+        assertEquals(30, restored.getRejectedTests());
+        for (long hash : hashes) {
+            assertEquals(stats.failRate(hash), restored.failRate(hash));
+        }
+    }
+
+    private static long[] hashes(int from, int count) {
+        long[] hashes = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = hash(from + i);
+        }
+        return hashes;
+    }
+
+    private static long hash(int i) {
+        return i * 0x5DEECE66DL + 11;
+    }
+}
@@ -0,0 +1,155 @@
+package com.vv.voj.ordering;
+
+import com.vv.voj.checker.CheckerRunner;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.CheckerResult;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.ExecuteMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 先用失败提交积累统计，再验证重排、结果还原和失败判定
+ */
+class TestOrderTrackerTest {
+
+    private static final List<String> INPUTS = Arrays.asList("1 1", "2 2", "3 3", "4 4");
+
+    private static final List<String> ANSWERS = Arrays.asList("2", "4", "6", "8");
+
+    @TempDir
+    File dir;
+
+    private SandboxProperties sandboxProperties;
+
+    private TestOrderTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getTestOrder().setDir(dir.getAbsolutePath());
+        sandboxProperties.getTestOrder().setMinRejections(2);
+        tracker = new TestOrderTracker(sandboxProperties);
+    }
+
+    @Test
+    void requestWithoutProblemIsNotTracked() {
+        ExecuteCodeRequest request = request(true);
+        request.setProblemId(null);
+
+        assertNull(tracker.plan(request));
+    }
+
+    @Test
+    void mostFailingTestRunsFirstAfterEnoughRejections() {
+        assertFalse(tracker.plan(request(true)).isReordered());
+        // 用例 2 答错，之后的用例因 failFast 没有运行
+        failAt(2);
+        failAt(2);
+
+        TestOrderTracker.Plan plan = tracker.plan(request(true));
+        assertTrue(plan.isReordered());
+        assertEquals(Arrays.asList("3 3", "1 1", "2 2", "4 4"), plan.apply(request(true)).getInputList());
+        assertEquals(Arrays.asList("6", "2", "4", "8"), plan.apply(request(true)).getAnswerList());
+        assertFalse(tracker.plan(request(false)).isReordered());
+    }
+
+    @Test
+    void completeRestoresOriginalOrderAndStoppedMessage() {
+        failAt(2);
+        failAt(2);
+        TestOrderTracker.Plan plan = tracker.plan(request(true));
+
+        // 运行顺序为 2, 0, 1：用例 2、0 通过，用例 1 运行错误后停止
+        ExecuteMessage second = output("6");
+        ExecuteMessage first = output("2");
+        ExecuteMessage crashed = new ExecuteMessage();
+        crashed.setErrorMessage("运行错误");
+        List<ExecuteMessage> restored = tracker.complete(plan, Arrays.asList(second, first, crashed));
+
+        assertEquals(Arrays.asList(first, crashed, second), restored);
+        assertSame(crashed, plan.getStoppedMessage());
+        assertEquals(Arrays.asList(0, 2), plan.getTestIndexes());
+    }
+
+    @Test
+    void fullPassingRunNeedsNoIndexes() {
+        failAt(2);
+        failAt(2);
+        TestOrderTracker.Plan plan = tracker.plan(request(true));
+
+        List<ExecuteMessage> restored = tracker.complete(plan,
+                Arrays.asList(output("6"), output("2"), output("4"), output("8")));
+
+        assertEquals("2", restored.get(0).getMessage());
+        assertEquals("8", restored.get(3).getMessage());
+        assertNull(plan.getStoppedMessage());
+        assertNull(plan.getTestIndexes());
+    }
+
+    @Test
+    void isFailedComparesOutputWithAnswer() {
+        assertFalse(TestOrderTracker.isFailed(output("6  \n\n"), "6"));
+        assertTrue(TestOrderTracker.isFailed(output("7"), "6"));
+        assertFalse(TestOrderTracker.isFailed(output("7"), null));
+
+        ExecuteMessage error = output("6");
+        error.setErrorMessage("运行超时");
+        assertTrue(TestOrderTracker.isFailed(error, "6"));
+    }
+
+    @Test
+    void isFailedFollowsCheckerVerdict() {
+        ExecuteMessage accepted = output("anything");
+        accepted.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_ACCEPTED, 100, null));
+        assertFalse(TestOrderTracker.isFailed(accepted, "6"));
+
+        ExecuteMessage checkerError = output("6");
+        checkerError.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_CHECKER_ERROR, 0, "检查器出错"));
+        assertFalse(TestOrderTracker.isFailed(checkerError, "6"));
+
+        ExecuteMessage wrong = output("6");
+        wrong.setCheckerResult(new CheckerResult(CheckerRunner.VERDICT_WRONG_ANSWER, 0, null));
+        assertTrue(TestOrderTracker.isFailed(wrong, "6"));
+    }
+
+    /**
+     * 按原顺序运行的失败提交：failIndex 之前的用例通过，failIndex 答错
+     */
+    private void failAt(int failIndex) {
+        TestOrderTracker.Plan plan = tracker.plan(request(false));
+        List<ExecuteMessage> messages = new ArrayList<>();
+        for (int i = 0; i < failIndex; i++) {
+            messages.add(output(ANSWERS.get(i)));
+        }
+        messages.add(output("wrong"));
+        tracker.complete(plan, messages);
+    }
+
+    private static ExecuteCodeRequest request(boolean failFast) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setProblemId("p1");
+        request.setInputList(INPUTS);
+        request.setAnswerList(ANSWERS);
+        request.setFailFast(failFast);
+        return request;
+    }
+
+    private static ExecuteMessage output(String message) {
+        ExecuteMessage executeMessage = new ExecuteMessage();
+        executeMessage.setMessage(message);
+        return executeMessage;
+    }
+}
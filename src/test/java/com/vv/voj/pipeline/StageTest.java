@@ -0,0 +1,78 @@
+package com.vv.voj.pipeline;
+
+import com.vv.voj.scheduler.CapacityExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 唯一的线程被占住后验证排队和拒绝，拒绝必须立即返回
+ */
+class StageTest {
+
+    private final CountDownLatch blocker = new CountDownLatch(1);
+
+    private Stage stage;
+
+    @AfterEach
+    void tearDown() {
+        blocker.countDown();
+        stage.shutdown();
+    }
+
+    @Test
+    void fullQueueRejectsWithoutBlocking() throws InterruptedException {
+        stage = new Stage("test", 1, 1);
+        occupyThread();
+        stage.execute(() -> {
+        });
+
+        long start = System.nanoTime();
+        assertThrows(CapacityExceededException.class, () -> stage.execute(() -> {
+        }));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, stage.getStats().getQueued());
+    }
+
+    @Test
+    void unboundedStageKeepsEveryTask() throws InterruptedException {
+        stage = new Stage("test", 1, 0);
+        occupyThread();
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            assertDoesNotThrow(() -> stage.execute(done::countDown));
+        }
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shutdownStageRejects() {
+        stage = new Stage("test", 1, 1);
+        stage.shutdown();
+
+        assertThrows(CapacityExceededException.class, () -> stage.execute(() -> {
+        }));
+    }
+
+    private void occupyThread() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        stage.execute(() -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+}
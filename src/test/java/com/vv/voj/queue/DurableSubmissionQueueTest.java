@@ -0,0 +1,66 @@
+package com.vv.voj.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.pipeline.StagedExecutor;
+import com.vv.voj.scheduler.CapacityExceededException;
+import com.vv.voj.scheduler.FairShareScheduler;
+import com.vv.voj.trace.SubmissionTracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 不写日志，调度器没有执行槽位，提交一直停留在队列中
+ */
+class DurableSubmissionQueueTest {
+
+    private SandboxProperties sandboxProperties;
+
+    private DurableSubmissionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getJournal().setEnabled(false);
+        sandboxProperties.getScheduler().setMaxConcurrent(0);
+        sandboxProperties.getScheduler().setMaxQueuePerTenant(1);
+        UsageLedger usageLedger = new UsageLedger(sandboxProperties, new ObjectMapper());
+        SubmissionTracer submissionTracer = new SubmissionTracer(sandboxProperties);
+        queue = new DurableSubmissionQueue(sandboxProperties, new FairShareScheduler(sandboxProperties, usageLedger),
+                new StagedExecutor(sandboxProperties, null, submissionTracer, usageLedger, null), null,
+                new ObjectMapper(), submissionTracer, usageLedger);
+    }
+
+    @Test
+    void duplicateInFlightSubmissionIsRejected() {
+        assertDoesNotThrow(() -> queue.submit("a", false, request("s1")));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> queue.submit("b", false, request("s1")));
+        assertTrue(e.getMessage().contains("正在执行"));
+    }
+
+    @Test
+    void rejectedSubmissionReleasesItsId() {
+        queue.submit("a", false, request("s1"));
+
+        // 租户排队已满被拒绝后，同一 ID 再次提交得到的仍是容量不足，而不是重复提交
+        assertThrows(CapacityExceededException.class, () -> queue.submit("a", false, request("s2")));
+        assertThrows(CapacityExceededException.class, () -> queue.submit("a", false, request("s2")));
+        assertDoesNotThrow(() -> queue.submit("b", false, request("s2")));
+    }
+
+    private static ExecuteCodeRequest request(String submissionId) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setSubmissionId(submissionId);
+        request.setInputList(Collections.singletonList("1"));
+        return request;
+    }
+}
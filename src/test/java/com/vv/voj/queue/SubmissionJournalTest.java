@@ -0,0 +1,149 @@
+package com.vv.voj.queue;
+
+import cn.hutool.core.util.StrUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 写入后重新打开日志，验证记录格式和重放结果
+ */
+class SubmissionJournalTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void replayKeepsUncompletedEntriesInOrder() throws IOException {
+        try (SubmissionJournal journal = open()) {
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s1", "one");
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s2", "two");
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s3", "three");
+            append(journal, SubmissionJournal.TYPE_COMPLETE, "s2", null);
+        }
+
+        SubmissionJournal reopened = new SubmissionJournal(dir, 16);
+        Map<String, byte[]> entries = reopened.open();
+        reopened.close();
+
+        assertEquals(Arrays.asList("s1", "s3"), new ArrayList<>(entries.keySet()));
+        assertArrayEquals("three".getBytes(StandardCharsets.UTF_8), entries.get("s3"));
+    }
+
+    @Test
+    void tornTailIsTruncated() throws IOException {
+        long validSize;
+        try (SubmissionJournal journal = open()) {
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s1", "one");
+            validSize = journal.getFileSize();
+        }
+        // 进程在写记录的中途退出：长度字段声明的内容没有写完
+        Files.write(journalFile(), new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 1}, StandardOpenOption.APPEND);
+
+        SubmissionJournal reopened = new SubmissionJournal(dir, 16);
+        Map<String, byte[]> entries = reopened.open();
+        reopened.close();
+
+        assertEquals(1, entries.size());
+        assertEquals(validSize, Files.size(journalFile()));
+    }
+
+    @Test
+    void corruptedRecordStopsReplay() throws IOException {
+        long firstSize;
+        try (SubmissionJournal journal = open()) {
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s1", "one");
+            firstSize = journal.getFileSize();
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s2", "two");
+        }
+        byte[] bytes = Files.readAllBytes(journalFile());
+        bytes[bytes.length - 1] ^= 0x7F;
+        Files.write(journalFile(), bytes);
+
+        SubmissionJournal reopened = new SubmissionJournal(dir, 16);
+        Map<String, byte[]> entries = reopened.open();
+        reopened.close();
+
+        assertEquals(Arrays.asList("s1"), new ArrayList<>(entries.keySet()));
+        assertEquals(firstSize, Files.size(journalFile()));
+    }
+
+    @Test
+    void idLongerThanSignedShortSurvivesReplay() throws IOException {
+        // 超过 32767 字节的长度按有符号读取会变成负数
+        String id = StrUtil.repeat('x', 40000);
+        try (SubmissionJournal journal = open()) {
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, id, "payload");
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "next", "after");
+        }
+
+        SubmissionJournal reopened = new SubmissionJournal(dir, 16);
+        Map<String, byte[]> entries = reopened.open();
+        reopened.close();
+
+        assertEquals(Arrays.asList(id, "next"), new ArrayList<>(entries.keySet()));
+    }
+
+    @Test
+    void idOverLimitIsRejected() throws IOException {
+        try (SubmissionJournal journal = open()) {
+            String id = StrUtil.repeat('x', SubmissionJournal.MAX_ID_BYTES + 1);
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> journal.append(SubmissionJournal.TYPE_ENQUEUE, id, null).join());
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void compactKeepsOnlyLiveEntries() throws IOException {
+        try (SubmissionJournal journal = open()) {
+            for (int i = 0; i < 20; i++) {
+                append(journal, SubmissionJournal.TYPE_ENQUEUE, "s" + i, "payload" + i);
+            }
+            for (int i = 0; i < 19; i++) {
+                append(journal, SubmissionJournal.TYPE_COMPLETE, "s" + i, null);
+            }
+            long before = journal.getFileSize();
+            journal.compact().join();
+            assertTrue(journal.getFileSize() < before);
+            // 压缩后仍可继续追加
+            append(journal, SubmissionJournal.TYPE_ENQUEUE, "s20", "payload20");
+        }
+
+        SubmissionJournal reopened = new SubmissionJournal(dir, 16);
+        Map<String, byte[]> entries = reopened.open();
+        reopened.close();
+
+        assertEquals(Arrays.asList("s19", "s20"), new ArrayList<>(entries.keySet()));
+    }
+
+    private SubmissionJournal open() throws IOException {
+        SubmissionJournal journal = new SubmissionJournal(dir, 16);
+        assertTrue(journal.open().isEmpty());
+        return journal;
+    }
+
+    private static void append(SubmissionJournal journal, byte type, String id, String payload) {
+        journal.append(type, id, payload == null ? null : payload.getBytes(StandardCharsets.UTF_8)).join();
+    }
+
+    private Path journalFile() {
+        return new File(dir, "submissions.wal").toPath();
+    }
+}
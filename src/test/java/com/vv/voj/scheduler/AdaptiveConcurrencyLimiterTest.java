@@ -0,0 +1,157 @@
+package com.vv.voj.scheduler;
+
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.limit.LimitCalibrator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 校准程序的耗时由测试指定，直接调用探测，不启动探测线程
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private SandboxProperties sandboxProperties;
+
+    private StubCalibrator calibrator;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getCpu().setPinning(false);
+        sandboxProperties.getConcurrency().setMinLimit(2);
+        sandboxProperties.getConcurrency().setMaxLimit(8);
+        sandboxProperties.getConcurrency().setTolerance(1.2);
+        // 不做平滑，每次探测的耗时直接参与计算
+        sandboxProperties.getConcurrency().setSmoothing(1.0);
+        calibrator = new StubCalibrator(sandboxProperties);
+        limiter = new AdaptiveConcurrencyLimiter(sandboxProperties, new CpuCoreAllocator(sandboxProperties), calibrator);
+    }
+
+    @Test
+    void acquireBlocksAtLimitUntilRelease() throws InterruptedException {
+        sandboxProperties.getConcurrency().setMaxLimit(2);
+        limiter = new AdaptiveConcurrencyLimiter(sandboxProperties, new CpuCoreAllocator(sandboxProperties), calibrator);
+        limiter.acquire();
+        limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            limiter.acquire();
+            acquired.countDown();
+        });
+        waiter.start();
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, limiter.getStats().getWaiting());
+
+        limiter.release();
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        assertEquals(2, limiter.getStats().getInFlight());
+    }
+
+    @Test
+    void inflationReducesLimitProportionally() {
+        calibrator.next(100);
+        limiter.probe();
+        assertEquals(8, limiter.getLimit());
+
+        // 耗时膨胀到 2 倍：梯度 100 × 1.2 / 200 = 0.6，8 → 4
+        calibrator.next(200);
+        limiter.probe();
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getStats().getDecreases());
+    }
+
+    @Test
+    void singleDecreaseIsBoundedAndNeverBelowMin() {
+        calibrator.next(100);
+        limiter.probe();
+
+        // 梯度最低取 0.5，一次最多减半
+        calibrator.next(10000);
+        limiter.probe();
+        assertEquals(4, limiter.getLimit());
+
+        calibrator.next(10000);
+        limiter.probe();
+        calibrator.next(10000);
+        limiter.probe();
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limitGrowsOnlyWhenRunsQueue() throws InterruptedException {
+        calibrator.next(100);
+        limiter.probe();
+        calibrator.next(200);
+        limiter.probe();
+        assertEquals(4, limiter.getLimit());
+
+        // 没有膨胀也没有排队，保持不变
+        calibrator.next(100);
+        limiter.probe();
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            limiter.acquire();
+            acquired.countDown();
+        });
+        waiter.start();
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        limiter.release();
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+
+        // 有过排队，下一次没有膨胀的探测加一，并唤醒等待者
+        calibrator.next(100);
+        limiter.probe();
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void failedProbeKeepsLimit() {
+        calibrator.next(100);
+        limiter.probe();
+        limiter.probe();
+        assertEquals(8, limiter.getLimit());
+        assertEquals(1, limiter.getStats().getProbes());
+    }
+
+    /**
+     * 依次返回指定的耗时，没有剩余时模拟校准失败
+     */
+    private static class StubCalibrator extends LimitCalibrator {
+
+        private final Deque<Long> workMillis = new ArrayDeque<>();
+
+        StubCalibrator(SandboxProperties sandboxProperties) {
+            super(sandboxProperties, null);
+        }
+
+        void next(long millis) {
+            workMillis.add(millis);
+        }
+
+        @Override
+        public long[] runCalibration() throws Exception {
+            Long millis = workMillis.poll();
+            if (millis == null) {
+                throw new IllegalStateException("没有预设的校准耗时");
+            }
+            return new long[]{millis, 0};
+        }
+    }
+}
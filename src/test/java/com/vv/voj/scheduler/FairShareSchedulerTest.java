@@ -0,0 +1,189 @@
+package com.vv.voj.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vv.voj.accounting.UsageLedger;
+import com.vv.voj.config.SandboxProperties;
+import com.vv.voj.model.UsageRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务由测试手动完成，按启动顺序验证调度策略，账本不落盘
+ */
+class FairShareSchedulerTest {
+
+    private SandboxProperties sandboxProperties;
+
+    private UsageLedger usageLedger;
+
+    private FairShareScheduler scheduler;
+
+    /**
+     * 已启动的任务，按启动顺序
+     */
+    private final List<String> started = new ArrayList<>();
+
+    private final List<CompletableFuture<String>> running = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+        sandboxProperties.getScheduler().setMaxConcurrent(1);
+        usageLedger = new UsageLedger(sandboxProperties, new ObjectMapper());
+        scheduler = new FairShareScheduler(sandboxProperties, usageLedger);
+    }
+
+    @Test
+    void contestLaneGoesBeforeBulk() {
+        submit("a", false, "first");
+        submit("a", false, "bulk");
+        submit("b", true, "contest");
+
+        finishNext();
+        finishNext();
+
+        assertEquals(Arrays.asList("first", "contest", "bulk"), started);
+    }
+
+    @Test
+    void tenantsShareSlotsByWeight() {
+        tenant("heavy", 2, 100);
+        tenant("light", 1, 100);
+        submit("blocker", false, "blocker");
+        for (int i = 0; i < 6; i++) {
+            submit("heavy", false, "H");
+            submit("light", false, "L");
+        }
+        while (!running.isEmpty()) {
+            finishNext();
+        }
+
+        // 权重 2:1，前 6 个中 heavy 占 4 个，light 不会饿死
+        List<String> firstSix = started.subList(1, 7);
+        assertEquals(4, firstSix.stream().filter("H"::equals).count());
+        assertTrue(firstSix.contains("L"));
+        assertEquals(13, started.size());
+    }
+
+    @Test
+    void tenantConcurrencyLimitLeavesSlotsToOthers() {
+        sandboxProperties.getScheduler().setMaxConcurrent(2);
+        tenant("a", 1, 1);
+        submit("a", false, "a1");
+        submit("a", false, "a2");
+        submit("b", false, "b1");
+
+        assertEquals(Arrays.asList("a1", "b1"), started);
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueued());
+
+        finishNext();
+        assertEquals(Arrays.asList("a1", "b1", "a2"), started);
+    }
+
+    @Test
+    void fullTenantQueueRejectsSubmission() {
+        sandboxProperties.getScheduler().setMaxQueuePerTenant(1);
+        submit("a", false, "running");
+        submit("a", false, "queued");
+
+        assertThrows(CapacityExceededException.class, () -> submit("a", false, "rejected"));
+    }
+
+    @Test
+    void overBudgetTenantOnlyRunsWhenOthersAreIdle() {
+        SandboxProperties.Quota quota = new SandboxProperties.Quota();
+        quota.setCpuMillis(10);
+        quota.setAction(UsageLedger.ACTION_DEPRIORITIZE);
+        sandboxProperties.getAccounting().getQuotas().put("greedy", quota);
+        UsageRecord usage = new UsageRecord();
+        usage.setCpuMillis(100);
+        usageLedger.record("greedy", usage);
+
+        submit("blocker", false, "blocker");
+        submit("greedy", false, "G");
+        submit("polite", false, "P1");
+        submit("polite", false, "P2");
+        while (!running.isEmpty()) {
+            finishNext();
+        }
+
+        assertEquals(Arrays.asList("blocker", "P1", "P2", "G"), started);
+    }
+
+    @Test
+    void resultCompletesWhenTaskCompletes() {
+        CompletableFuture<String> result = submit("a", false, "job");
+        running.get(0).complete("done");
+
+        assertEquals("done", result.getNow(null));
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void tenantComesOnlyFromConfiguredApiKey() {
+        sandboxProperties.getScheduler().getApiKeys().put("secret", "site");
+
+        assertEquals("site", scheduler.resolveTenant("secret"));
+        assertEquals(FairShareScheduler.DEFAULT_TENANT, scheduler.resolveTenant("guess"));
+        assertEquals(FairShareScheduler.DEFAULT_TENANT, scheduler.resolveTenant(null));
+    }
+
+    @Test
+    void contestLaneNeedsConfiguredTenant() {
+        tenant("site", 1, 1);
+        sandboxProperties.getScheduler().getTenants().get("site").setContest(true);
+
+        assertTrue(scheduler.isContest("site", "contest"));
+        assertFalse(scheduler.isContest("site", "bulk"));
+        assertFalse(scheduler.isContest(FairShareScheduler.DEFAULT_TENANT, "contest"));
+    }
+
+    @Test
+    void idleTenantQueueIsEvicted() {
+        sandboxProperties.getScheduler().setTenantIdleTimeout(-1);
+        submit("a", false, "a1");
+        submit("b", false, "b1");
+        finishNext();
+        finishNext();
+
+        // a、b 都已空闲，下一次提交时回收
+        submit("c", false, "c1");
+        List<String> tenants = new ArrayList<>();
+        scheduler.getTenantStats().forEach(tenantStats -> tenants.add(tenantStats.getTenant()));
+        assertEquals(Arrays.asList("c"), tenants);
+    }
+
+    private void tenant(String name, int weight, int maxConcurrent) {
+        SandboxProperties.Tenant tenant = new SandboxProperties.Tenant();
+        tenant.setWeight(weight);
+        tenant.setMaxConcurrent(maxConcurrent);
+        sandboxProperties.getScheduler().getTenants().put(name, tenant);
+    }
+
+    private CompletableFuture<String> submit(String tenant, boolean contest, String name) {
+        return scheduler.submit(tenant, contest, () -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            started.add(name);
+            running.add(future);
+            return future;
+        });
+    }
+
+    /**
+     * 完成最早启动且未完成的任务，空出的槽位会立即调度下一个
+     */
+    private void finishNext() {
+        running.remove(0).complete(null);
+    }
+}
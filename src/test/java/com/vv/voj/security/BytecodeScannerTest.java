@@ -0,0 +1,129 @@
+package com.vv.voj.security;
+
+import cn.hutool.core.io.FileUtil;
+import com.vv.voj.config.SandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用系统 javac 把一段 main 方法体编译到临时目录，再扫描输出目录
+ */
+class BytecodeScannerTest {
+
+    @TempDir
+    File dir;
+
+    private SandboxProperties sandboxProperties;
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+    }
+
+    @Test
+    void plainStdinStdoutProgramPasses() {
+        assertNull(scan("java.util.Scanner in = new java.util.Scanner(System.in);\n"
+                + "java.io.PrintWriter out = new java.io.PrintWriter(new java.io.BufferedWriter(new java.io.OutputStreamWriter(System.out)));\n"
+                + "out.println(new java.util.Formatter(new StringBuilder()).format(\"%d\", in.nextInt()));\n"
+                + "new java.io.PrintStream(System.out, true).println(System.currentTimeMillis());\n"
+                + "out.flush();"));
+    }
+
+    @Test
+    void packageWildcardCoversSubpackages() {
+        assertViolation("java.nio.file.attribute.FileTime", scan("System.out.println(java.nio.file.attribute.FileTime.fromMillis(0));"));
+        assertViolation("java.lang.reflect.Method", scan("java.lang.reflect.Method m = null;\nSystem.out.println(m.getName());"));
+    }
+
+    @Test
+    void packageWildcardStopsAtPackageBoundary() {
+        sandboxProperties.getSecurity().getDenyList().add("java.util.concurrent.*");
+
+        assertNull(scan("System.out.println(new java.util.ArrayList<String>());"));
+        assertViolation("java.util.concurrent.atomic.AtomicInteger", scan("System.out.println(new java.util.concurrent.atomic.AtomicInteger());"));
+    }
+
+    @Test
+    void memberWildcardMatchesOnlyPrefixedMembers() {
+        assertViolation("java.lang.System#setOut", scan("System.setOut(System.err);"));
+        assertViolation("java.lang.System#loadLibrary", scan("System.loadLibrary(\"x\");"));
+        assertNull(scan("System.out.println(System.getProperty(\"line.separator\") + System.nanoTime());"));
+    }
+
+    @Test
+    void constructorRulesMatchOnlyFileOverloads() {
+        assertViolation("java.io.PrintStream#<init>", scan("new java.io.PrintStream(\"out.txt\").println(1);"));
+        assertViolation("java.io.PrintWriter#<init>", scan("new java.io.PrintWriter(\"out.txt\", \"UTF-8\").println(1);"));
+        assertViolation("java.util.Formatter#<init>", scan("new java.util.Formatter(\"out.txt\").format(\"%d\", 1);"));
+        assertViolation("java.io.FileDescriptor", scan("System.out.println(java.io.FileDescriptor.out.valid());"));
+    }
+
+    @Test
+    void allowListTakesPrecedenceOverDenyList() {
+        sandboxProperties.getSecurity().getAllowList().add("java.lang.reflect.Array");
+
+        assertNull(scan("System.out.println(java.lang.reflect.Array.newInstance(int.class, 3));"));
+        assertViolation("java.lang.reflect.Field", scan("java.lang.reflect.Field f = null;\nSystem.out.println(f.getName());"));
+    }
+
+    @Test
+    void methodReferenceTargetIsChecked() {
+        // 方法引用只在 invokedynamic 的引导参数里出现，Main 中没有对 System.exit 的直接调用
+        assertViolation("java.lang.System#exit", scan("java.util.function.IntConsumer exit = System::exit;\nexit.accept(0);"));
+        assertViolation("java.lang.ProcessBuilder#<init>",
+                scan("java.util.function.Function<String[], ProcessBuilder> f = ProcessBuilder::new;\nSystem.out.println(f);"));
+        assertNull(scan("java.util.function.IntFunction<String> f = Integer::toString;\nSystem.out.println(f.apply(1));"));
+    }
+
+    @Test
+    void lambdaBodyIsChecked() {
+        assertViolation("java.lang.Runtime", scan("Runnable r = () -> Runtime.getRuntime().halt(0);\nr.run();"));
+    }
+
+    @Test
+    void sameClassBytesAreScannedOnce() {
+        BytecodeScanner scanner = new BytecodeScanner(sandboxProperties);
+        byte[] classBytes = FileUtil.readBytes(compile("System.setErr(System.out);"));
+
+        assertNotNull(scanner.scanClass(classBytes));
+        assertNotNull(scanner.scanClass(classBytes));
+        assertEquals(1, scanner.getScannedClasses());
+        assertEquals(1, scanner.getCacheHits());
+    }
+
+    private static void assertViolation(String expected, String violation) {
+        assertNotNull(violation);
+        assertTrue(violation.contains(expected), violation);
+    }
+
+    private String scan(String body) {
+        File classDir = compile(body).getParentFile();
+        return new BytecodeScanner(sandboxProperties).scan(classDir);
+    }
+
+    /**
+     * 每次编译到新的子目录，返回 Main.class
+     */
+    private File compile(String body) {
+        File sourceDir = FileUtil.mkdir(new File(dir, String.valueOf(System.nanoTime())));
+        File source = FileUtil.writeString("public class Main {\n"
+                + "    public static void main(String[] args) throws Exception {\n"
+                + body + "\n"
+                + "    }\n"
+                + "}\n", new File(sourceDir, "Main.java"), StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-encoding", "UTF-8", source.getAbsolutePath()));
+        return new File(sourceDir, "Main.class");
+    }
+}
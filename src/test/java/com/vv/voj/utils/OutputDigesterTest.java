@@ -0,0 +1,114 @@
+package com.vv.voj.utils;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.vv.voj.model.ExecuteCodeRequest;
+import com.vv.voj.model.OutputDigest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 摘要必须与判题的规范化比对一致，且与输出的分块方式无关
+ */
+class OutputDigesterTest {
+
+    @Test
+    void trailingBlanksAndEmptyLinesAreIgnored() {
+        OutputDigest expected = OutputDigester.digest("1 2\n  3");
+
+        assertEquals(expected.getSha256(), OutputDigester.digest("1 2 \t\r\n  3\r\n\n\n").getSha256());
+        assertEquals(expected.getSha256(), OutputDigester.digest("1 2\n  3   ").getSha256());
+        assertEquals(7, OutputDigester.digest("1 2\r\n  3\n\n").getLength());
+    }
+
+    @Test
+    void innerDifferencesChangeDigest() {
+        String base = OutputDigester.digest("a\nb").getSha256();
+
+        assertNotEquals(base, OutputDigester.digest("a\n\nb").getSha256());
+        assertNotEquals(base, OutputDigester.digest("a\n b").getSha256());
+        assertNotEquals(base, OutputDigester.digest("a b").getSha256());
+    }
+
+    @Test
+    void digestIsSha256OfNormalizedText() {
+        assertEquals(SecureUtil.sha256("x\ny"), OutputDigester.digest("x  \ny\n").getSha256());
+        assertEquals(SecureUtil.sha256(""), OutputDigester.digest(" \n\r\n").getSha256());
+    }
+
+    @Test
+    void chunkBoundariesDoNotMatter() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append(i).append(i % 3 == 0 ? " \r\n" : " ").append(i % 7 == 0 ? "\n\n" : "");
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        String whole = OutputDigester.digest(text.toString()).getSha256();
+
+        for (int chunk : new int[]{1, 2, 7, 8192, 10000}) {
+            OutputDigester digester = new OutputDigester(0);
+            for (int offset = 0; offset < bytes.length; offset += chunk) {
+                digester.update(bytes, offset, Math.min(chunk, bytes.length - offset));
+            }
+            assertEquals(whole, digester.finish().getSha256(), "chunk " + chunk);
+        }
+
+        OutputDigester streamed = new OutputDigester(0);
+        streamed.consume(new ByteArrayInputStream(bytes));
+        assertEquals(whole, streamed.finish().getSha256());
+    }
+
+    @Test
+    void longBlankRunsAreHandledWithoutBuffering() {
+        String blanks = StrUtil.repeat(" \t", 100000);
+
+        // 行尾和末尾的长空白回滚，不影响摘要和预览
+        OutputDigester digester = new OutputDigester(10);
+        digester.update(("a" + blanks + "\nb\n\n" + blanks).getBytes(StandardCharsets.UTF_8));
+        OutputDigest trailing = digester.finish();
+        assertEquals(SecureUtil.sha256("a\nb"), trailing.getSha256());
+        assertEquals(3, trailing.getLength());
+        assertEquals("a\nb", trailing.getPreview());
+
+        // 空白之后还有内容时原样计入，换行只在确认为正文时计入
+        assertEquals(SecureUtil.sha256("a\n\n" + blanks + "b"), OutputDigester.digest("a\n\n" + blanks + "b").getSha256());
+        assertEquals(SecureUtil.sha256("a"), OutputDigester.digest("a\n\n" + blanks + "\n\n").getSha256());
+
+        byte[] bytes = ("x" + blanks + "y" + blanks + "\n").getBytes(StandardCharsets.UTF_8);
+        OutputDigester chunked = new OutputDigester(0);
+        for (int offset = 0; offset < bytes.length; offset += 7) {
+            chunked.update(bytes, offset, Math.min(7, bytes.length - offset));
+        }
+        assertEquals(SecureUtil.sha256("x" + blanks + "y"), chunked.finish().getSha256());
+    }
+
+    @Test
+    void previewKeepsNormalizedPrefix() {
+        OutputDigester digester = new OutputDigester(5);
+        digester.update("ab  \ncdefg\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals("ab\ncd", digester.finish().getPreview());
+
+        OutputDigester capped = new OutputDigester(100000);
+        capped.update(StrUtil.repeat('z', 10000).getBytes(StandardCharsets.UTF_8));
+        assertEquals(4096, capped.finish().getPreview().length());
+
+        assertNull(new OutputDigester(0).finish().getPreview());
+    }
+
+    @Test
+    void onlyDigestModeCreatesDigester() {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        assertNull(OutputDigester.forRequest(request));
+
+        request.setOutputMode("DIGEST");
+        assertNotNull(OutputDigester.forRequest(request));
+    }
+}
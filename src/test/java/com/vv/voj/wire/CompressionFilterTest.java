@@ -0,0 +1,127 @@
+package com.vv.voj.wire;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.vv.voj.config.SandboxProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 过滤器链由测试提供：读出请求体并记录下游看到的请求头
+ */
+class CompressionFilterTest {
+
+    private static final String BODY = "{\"inputList\":[\"" + StrUtil.repeat("1 2 ", 1000) + "\"]}";
+
+    private SandboxProperties sandboxProperties;
+
+    private final AtomicReference<HttpServletRequest> seenRequest = new AtomicReference<>();
+
+    private final AtomicReference<String> seenBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        sandboxProperties = new SandboxProperties();
+    }
+
+    @Test
+    void gzipBodyIsDecompressedForDownstream() throws Exception {
+        filter(request("gzip", gzip(BODY)), new MockHttpServletResponse());
+
+        assertEquals(BODY, seenBody.get());
+        assertNull(seenRequest.get().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(-1, seenRequest.get().getContentLength());
+    }
+
+    @Test
+    void zstdBodyIsDecompressedForDownstream() throws Exception {
+        filter(request("zstd", Zstd.compress(BODY.getBytes(StandardCharsets.UTF_8))), new MockHttpServletResponse());
+
+        assertEquals(BODY, seenBody.get());
+    }
+
+    @Test
+    void uncompressedBodyPassesThrough() throws Exception {
+        filter(request(null, BODY.getBytes(StandardCharsets.UTF_8)), new MockHttpServletResponse());
+
+        assertEquals(BODY, seenBody.get());
+    }
+
+    @Test
+    void bodyOverDecompressedCapFailsWhileReading() throws IOException {
+        sandboxProperties.getWire().setMaxDecompressedSize(1024);
+        MockHttpServletRequest request = request("gzip", gzip(BODY));
+
+        IOException e = assertThrows(IOException.class, () -> filter(request, new MockHttpServletResponse()));
+        assertTrue(e.getMessage().contains("1024"), e.getMessage());
+    }
+
+    @Test
+    void responseIsZstdCompressedWhenAccepted() throws Exception {
+        MockHttpServletRequest request = request(null, BODY.getBytes(StandardCharsets.UTF_8));
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new CompressionFilter(sandboxProperties).doFilter(request, response,
+                (req, res) -> res.getWriter().write(BODY));
+
+        assertEquals("zstd", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (ZstdInputStream input = new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(BODY, StreamUtils.copyToString(input, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void responseIsPlainWithoutAcceptEncoding() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new CompressionFilter(sandboxProperties).doFilter(request(null, new byte[0]), response,
+                (req, res) -> res.getWriter().write(BODY));
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    private void filter(MockHttpServletRequest request, MockHttpServletResponse response) throws IOException, ServletException {
+        new CompressionFilter(sandboxProperties).doFilter(request, response, (req, res) -> {
+            seenRequest.set((HttpServletRequest) req);
+            seenBody.set(StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8));
+        });
+    }
+
+    private static MockHttpServletRequest request(String contentEncoding, byte[] content) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/executeCode");
+        if (contentEncoding != null) {
+            request.addHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        request.setContent(content);
+        return request;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output)) {
+            gzipOutputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.vv.voj.wire;
+
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.vv.voj.model.ExecuteCodeRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 通过 ExecuteCodeRequest 上的注解解析，每条输入 600KB，两条之后超过 1MB 的落盘阈值
+ */
+class InputListDeserializerTest {
+
+    private static final String LARGE = StrUtil.repeat('7', 600 * 1024);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void smallInputListStaysInMemory() throws IOException {
+        ExecuteCodeRequest request = objectMapper.readValue("{\"inputList\":[\"1 2\",null,\"3\"]}", ExecuteCodeRequest.class);
+
+        assertInstanceOf(ArrayList.class, request.getInputList());
+        assertEquals(Arrays.asList("1 2", "", "3"), request.getInputList());
+    }
+
+    @Test
+    void inputListOverThresholdIsSpooledWithEarlierEntries() throws IOException {
+        List<String> inputs = Arrays.asList("first", LARGE, LARGE + "8", "last");
+        String json = objectMapper.writeValueAsString(request(inputs));
+
+        try (SpoolScope spoolScope = new SpoolScope()) {
+            List<String> inputList;
+            try (SpoolScope.Binding ignored = spoolScope.bind()) {
+                inputList = objectMapper.readValue(json, ExecuteCodeRequest.class).getInputList();
+            }
+            SpooledInputList spooledList = assertInstanceOf(SpooledInputList.class, inputList);
+            assertEquals(inputs, spooledList);
+
+            spoolScope.close();
+            assertFalse(spooledList.getFile().exists());
+        }
+    }
+
+    @Test
+    void binaryFormatsAreSpooledToo() throws IOException {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        List<String> inputs = Arrays.asList(LARGE, LARGE);
+
+        List<String> inputList = cborMapper.readValue(cborMapper.writeValueAsBytes(request(inputs)), ExecuteCodeRequest.class)
+                .getInputList();
+        try {
+            assertEquals(inputs, assertInstanceOf(SpooledInputList.class, inputList));
+        } finally {
+            ((SpooledInputList) inputList).close();
+        }
+    }
+
+    @Test
+    void truncatedArrayAfterSpoolingDeletesFile() throws IOException {
+        String json = objectMapper.writeValueAsString(request(Arrays.asList(LARGE, LARGE, "tail")));
+        String truncated = json.substring(0, json.lastIndexOf("tail"));
+        int spoolFiles = countSpoolFiles();
+
+        assertThrows(IOException.class, () -> objectMapper.readValue(truncated, ExecuteCodeRequest.class));
+        assertEquals(spoolFiles, countSpoolFiles());
+    }
+
+    @Test
+    void nonArrayIsRejected() {
+        assertThrows(MismatchedInputException.class,
+                () -> objectMapper.readValue("{\"inputList\":\"1 2\"}", ExecuteCodeRequest.class));
+    }
+
+    private static ExecuteCodeRequest request(List<String> inputs) {
+        ExecuteCodeRequest request = new ExecuteCodeRequest();
+        request.setInputList(inputs);
+        return request;
+    }
+
+    private static int countSpoolFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("voj-input-"));
+        return names == null ? 0 : names.length;
+    }
+}
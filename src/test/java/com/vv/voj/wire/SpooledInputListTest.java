@@ -0,0 +1,102 @@
+package com.vv.voj.wire;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 落盘文件写在系统临时目录，每个用例结束前都会关闭删除
+ */
+class SpooledInputListTest {
+
+    @Test
+    void writerRoundTripsEveryEntry() throws IOException {
+        SpooledInputList spooledList = write(3000);
+        try {
+            assertEquals(3000, spooledList.size());
+            assertEquals(entry(0), spooledList.get(0));
+            assertEquals(entry(2999), spooledList.get(2999));
+            assertEquals("", spooledList.get(3));
+            assertThrows(IndexOutOfBoundsException.class, () -> spooledList.get(3000));
+        } finally {
+            spooledList.close();
+        }
+    }
+
+    @Test
+    void openRebuildsOffsetsFromFile() throws IOException {
+        SpooledInputList written = write(3000);
+        SpooledInputList reopened = SpooledInputList.open(written.getFile());
+        try {
+            assertEquals(written.size(), reopened.size());
+            for (int i = 0; i < written.size(); i += 7) {
+                assertEquals(written.get(i), reopened.get(i));
+            }
+            assertEquals(written.get(2999), reopened.get(2999));
+        } finally {
+            reopened.close();
+            written.close();
+        }
+    }
+
+    @Test
+    void openRejectsTruncatedFile() throws IOException {
+        SpooledInputList written = write(10);
+        try {
+            try (RandomAccessFile file = new RandomAccessFile(written.getFile(), "rw")) {
+                file.setLength(file.length() - 2);
+            }
+            assertThrows(EOFException.class, () -> SpooledInputList.open(written.getFile()));
+        } finally {
+            written.close();
+        }
+    }
+
+    @Test
+    void closeDeletesFileAndRejectsReads() throws IOException {
+        SpooledInputList spooledList = write(2);
+        File file = spooledList.getFile();
+        spooledList.close();
+
+        assertFalse(file.exists());
+        assertThrows(IllegalStateException.class, () -> spooledList.get(0));
+    }
+
+    @Test
+    void listCreatedInsideScopeIsDeletedWithScope() throws IOException {
+        SpoolScope spoolScope = new SpoolScope();
+        SpooledInputList spooledList;
+        try (SpoolScope.Binding ignored = spoolScope.bind()) {
+            spooledList = write(2);
+        }
+        assertTrue(spooledList.getFile().exists());
+
+        spoolScope.close();
+        assertFalse(spooledList.getFile().exists());
+
+        // 作用域关闭后再接管的列表立即删除
+        SpooledInputList late = write(2);
+        spoolScope.adopt(late);
+        assertFalse(late.getFile().exists());
+    }
+
+    private static SpooledInputList write(int count) throws IOException {
+        SpooledInputList.Writer writer = SpooledInputList.writer();
+        for (int i = 0; i < count; i++) {
+            writer.add(i == 3 ? "" : entry(i));
+        }
+        return writer.finish();
+    }
+
+    private static String entry(int i) {
+        return i + " 输入 " + i * 31;
+    }
+}